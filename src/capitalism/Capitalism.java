@@ -26,12 +26,19 @@ import org.apache.logging.log4j.Logger;
 import com.sun.javafx.application.LauncherImpl;
 
 import capitalism.controller.Simulation;
+import capitalism.controller.SimulationExecutor;
+import capitalism.controller.Startup;
 import capitalism.editor.EditorManager;
 import capitalism.reporting.Dialogues;
+import capitalism.reporting.EventBus;
+import capitalism.reporting.EventFileWriter;
+import capitalism.reporting.EventMetrics;
 import capitalism.reporting.Reporter;
 import capitalism.utils.DBHandler;
+import capitalism.utils.WriteBehind;
 import capitalism.view.ViewManager;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 public class Capitalism extends Application {
@@ -46,8 +53,8 @@ public class Capitalism extends Application {
 	 * 1. launch calls {@link #main(String[])} which calls the preloader to display the splash screen 
 	 *    and instruct it to start {@link Capitalism#main(String[])} when it is ready
 	 * 2. super#init() gets called unless it is overeridden - which, in this case, it is.
-	 *    call {@link #init()} instead, since this overrides super.init()
-	 * 3. call {@link #start} where we currently do most of the heavy lifting
+	 *    call {@link #init()} instead, since this overrides super.init(). This starts the background startup tasks
+	 * 3. call {@link #start} which builds the windows, and shows them when the first project is ready
 	 * 4. wait until finished - either because of Platform#exit or because last window is closed 
 	 *    (provided Platform.implicitExit attribute is true)
 	 * 5. call {@link #stop()} to turn out the lights (also does nothing unless overridden)
@@ -65,12 +72,12 @@ public class Capitalism extends Application {
 	}
 
 	/**
-	 * The {@link Capitalism#init()} method doesn't actually do anything because we do all the heavy lifting in 
-	 * {@link Capitalism#start(Stage)}; we keep it so if later we want to do some heavy lifting here, the 
-	 * possibility exists.
+	 * Called on the launcher thread while the splash screen is showing. Starts exporting the help and data files, opening the database
+	 * and initialising the entity classes on background threads, and returns at once; see {@link Startup#begin()}
 	 */
 	@Override public void init() throws Exception {
 		logger.debug("Entered init, thread: " + Thread.currentThread().getName());
+		Startup.begin();
 	}
 
 	/**
@@ -83,9 +90,10 @@ public class Capitalism extends Application {
 	/**
 	 * The preloader splash screen is already up and probably showing by now.
 	 * First build the main window and the log window, but do not populate them and do not show them.
-	 * Then, initialise the database, which has to be done before the other windows can be populated.
-	 * Then start the simulation itself, which preprocesses the data and also must complete before populating any windows
-	 * Then populate the windows main window and the log window
+	 * Then, on a background thread, wait for the database, which has to be ready before the other windows can be populated, and
+	 * start the simulation, which preprocesses the data of each project concurrently.
+	 * As soon as the first project is ready, populate and show the main window and the log window, on the JavaFX Application Thread.
+	 * The other projects carry on being initialised in the background.
 	 * Then build and populate the editor window in one go
 	 * TODO rationalise the editor window process to bring it in line with the others
 	 */
@@ -94,24 +102,54 @@ public class Capitalism extends Application {
 		Reporter.createLogWindow();
 		
 		SplashScreenPreLoader.setProgress("Loading data");
+		Thread startup = new Thread(() -> {
+			if (prepare())
+				Platform.runLater(Capitalism::display);
+		}, "Startup");
+		startup.setDaemon(true);
+		startup.start();
+	}
+
+	/**
+	 * Everything that must be done, off the JavaFX Application Thread, before the first project can be displayed
+	 * 
+	 * @return true if the simulation can be displayed, false if it could not start
+	 */
+	private static boolean prepare() {
 		logger.debug("Starting database after {} milliseconds",Reporter.timeSinceStart());
 		// Create the database and read in the user-defined persistent entities
-		if (!DBHandler.initialiseDataBaseAndStart()) {
+		if (!Startup.awaitDatabase()) {
 			Dialogues.alert(logger, "Data error on startup. Sorry, could not continue");
-			return;
+			return false;
+		}
+		if (!WriteBehind.start()) {
+			Dialogues.alert(logger, "Could not start the database writer. Sorry, could not continue");
+			return false;
 		}
-		if (!DBHandler.ExportHelpFiles()) {
-			Dialogues.alert(logger, "Help files could not be located. Will try to carry on without them");
+		// a machine-readable record of the simulation, if asked for with -Dcapsim.eventLog=true
+		if (Boolean.getBoolean("capsim.eventLog")) {
+			EventBus.subscribe("event log", new EventFileWriter(userBasePath + "logfiles/events.csv"), EventBus.POLICY.DROP_NEWEST, 65536);
+		}
+		// counts of each kind of event, published over JMX, if asked for with -Dcapsim.eventMetrics=true
+		if (Boolean.getBoolean("capsim.eventMetrics")) {
+			EventBus.subscribe("event metrics", new EventMetrics(), EventBus.POLICY.DROP_NEWEST, 4096);
 		}
 
-		SplashScreenPreLoader.setProgress("Initialising Simulation");
+		Platform.runLater(() -> SplashScreenPreLoader.setProgress("Initialising Simulation"));
 		logger.debug("Starting simulation after {} milliseconds",Reporter.timeSinceStart());
 
-		if (!Simulation.startup()) {
+		if (!Simulation.beginStartup()) {
 			logger.debug("The main simulation could not start");
-			return;
+			return false;
 			// TODO we may wish to take some other action if there is a database flaw
 		}
+		return true;
+	}
+
+	/**
+	 * Populate and show the windows, once the first project is ready
+	 */
+	private static void display() {
 		SplashScreenPreLoader.setProgress("Initialising the display");
 		logger.debug("Starting view manager after {} milliseconds",Reporter.timeSinceStart());
 
@@ -125,6 +163,16 @@ public class Capitalism extends Application {
         EditorManager.showEditorWindow();
 	}
 
+	/**
+	 * Write anything the simulation has not yet saved to the database, and stop the database writer.
+	 * Deliver any events that are still waiting, and close their sinks.
+	 */
+	@Override public void stop() {
+		logger.debug("Entered stop, thread: " + Thread.currentThread().getName());
+		WriteBehind.shutdown(SimulationExecutor.shutdown());
+		EventBus.shutdown();
+	}
+
 	/**
 	 * @return the data handler.
 	 */
@@ -0,0 +1,228 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.benchmark;
+
+import capitalism.reporting.CommandMetrics;
+
+/**
+ * A minimal harness in the manner of JMH: each benchmark is run for a number of warmup iterations, whose results are discarded
+ * so the JIT compiler can settle, and then for a number of measured iterations. Each iteration calls the operation repeatedly for a
+ * fixed time, reading the clock only between batches of calls so that very cheap operations are not swamped by the cost of timing them.
+ * Benchmarks that change the state of the simulation supply a reset, which puts the state back before every operation, so that each
+ * operation starts from the same state and the state does not grow as the operations are repeated. The reset is not timed; instead each
+ * operation is timed on its own, so a reset should only be given for operations that take far longer than reading the clock.
+ */
+public class Benchmark {
+
+	// a batch of calls is doubled in size until it takes at least this long, so that reading the clock costs little by comparison
+	private static final long MINIMUM_BATCH_NANOS = 100_000;
+
+	private final int warmupIterations;
+	private final int measuredIterations;
+	private final long iterationNanos;
+
+	/**
+	 * The outcome of one benchmark
+	 */
+	public static class Result {
+		private final String project;
+		private final String name;
+		private final double nanosPerOperation;
+		private final double error;
+		private final double bytesPerOperation;
+		private final long operations;
+
+		Result(String project, String name, double nanosPerOperation, double error, double bytesPerOperation, long operations) {
+			this.project = project;
+			this.name = name;
+			this.nanosPerOperation = nanosPerOperation;
+			this.error = error;
+			this.bytesPerOperation = bytesPerOperation;
+			this.operations = operations;
+		}
+
+		/**
+		 * @return the name of the project the benchmark was run against
+		 */
+		public String getProject() {
+			return project;
+		}
+
+		/**
+		 * @return the name of the benchmark
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the mean time per operation over the measured iterations, in nanoseconds
+		 */
+		public double getNanosPerOperation() {
+			return nanosPerOperation;
+		}
+
+		/**
+		 * @return the standard deviation of the time per operation between measured iterations, in nanoseconds
+		 */
+		public double getError() {
+			return error;
+		}
+
+		/**
+		 * @return the mean number of bytes allocated per operation
+		 */
+		public double getBytesPerOperation() {
+			return bytesPerOperation;
+		}
+
+		/**
+		 * @return the number of operations in the measured iterations
+		 */
+		public long getOperations() {
+			return operations;
+		}
+
+		@Override public String toString() {
+			return String.format("%-12s %-40s %14.1f ± %-12.1f %14.0f %10d", project, name, nanosPerOperation, error, bytesPerOperation, operations);
+		}
+
+		/**
+		 * @return a heading for a table of results formatted by {@link #toString()}
+		 */
+		public static String heading() {
+			return String.format("%-12s %-40s %14s   %-12s %14s %10s", "Project", "Benchmark", "ns/op", "error", "bytes/op", "ops");
+		}
+	}
+
+	/**
+	 * @param warmupIterations
+	 *            the number of iterations to run and discard before measuring
+	 * @param measuredIterations
+	 *            the number of iterations to measure
+	 * @param iterationMillis
+	 *            how long each iteration calls the operation for, in milliseconds
+	 */
+	public Benchmark(int warmupIterations, int measuredIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measuredIterations = measuredIterations;
+		this.iterationNanos = iterationMillis * 1_000_000;
+	}
+
+	/**
+	 * run one benchmark
+	 * 
+	 * @param project
+	 *            the name of the project the benchmark is run against
+	 * @param name
+	 *            the name of the benchmark
+	 * @param reset
+	 *            what to do before each operation, which is not timed; null if nothing
+	 * @param operation
+	 *            the operation to time
+	 * @return the result
+	 */
+	public Result run(String project, String name, Runnable reset, Runnable operation) {
+		return run(project, name, reset, operation, null);
+	}
+
+	/**
+	 * run one benchmark, doing something between the warmup and the measured iterations
+	 * 
+	 * @param project
+	 *            the name of the project the benchmark is run against
+	 * @param name
+	 *            the name of the benchmark
+	 * @param reset
+	 *            what to do before each operation, which is not timed; null if nothing
+	 * @param operation
+	 *            the operation to time
+	 * @param afterWarmup
+	 *            what to do once the warmup iterations are complete, for example discarding metrics that were collected during them;
+	 *            null if nothing
+	 * @return the result
+	 */
+	public Result run(String project, String name, Runnable reset, Runnable operation, Runnable afterWarmup) {
+		for (int i = 0; i < warmupIterations; i++) {
+			iterate(reset, operation, new long[3]);
+		}
+		if (afterWarmup != null)
+			afterWarmup.run();
+		double[] nanosPerOperation = new double[measuredIterations];
+		long totalOperations = 0;
+		long totalBytes = 0;
+		for (int i = 0; i < measuredIterations; i++) {
+			long[] totals = new long[3];
+			iterate(reset, operation, totals);
+			nanosPerOperation[i] = (double) totals[0] / totals[1];
+			totalOperations += totals[1];
+			totalBytes += totals[2];
+		}
+		double mean = 0;
+		for (double n : nanosPerOperation) {
+			mean += n / measuredIterations;
+		}
+		double variance = 0;
+		for (double n : nanosPerOperation) {
+			variance += (n - mean) * (n - mean) / Math.max(1, measuredIterations - 1);
+		}
+		return new Result(project, name, mean, Math.sqrt(variance), (double) totalBytes / totalOperations, totalOperations);
+	}
+
+	/**
+	 * run one iteration
+	 * 
+	 * @param reset
+	 *            what to do before each operation, which is not timed; null if nothing
+	 * @param operation
+	 *            the operation to time
+	 * @param totals
+	 *            on return, holds the elapsed nanoseconds, the number of operations and the bytes allocated
+	 */
+	private void iterate(Runnable reset, Runnable operation, long[] totals) {
+		if (reset != null) {
+			while (totals[0] < iterationNanos) {
+				reset.run();
+				long startBytes = CommandMetrics.allocatedBytes();
+				long start = System.nanoTime();
+				operation.run();
+				totals[0] += System.nanoTime() - start;
+				totals[1]++;
+				totals[2] += CommandMetrics.allocatedBytes() - startBytes;
+			}
+			return;
+		}
+		long batch = 1;
+		long startBytes = CommandMetrics.allocatedBytes();
+		while (totals[0] < iterationNanos) {
+			long start = System.nanoTime();
+			for (long i = 0; i < batch; i++) {
+				operation.run();
+			}
+			long elapsed = System.nanoTime() - start;
+			totals[0] += elapsed;
+			totals[1] += batch;
+			if (elapsed < MINIMUM_BATCH_NANOS)
+				batch *= 2;
+		}
+		totals[2] = CommandMetrics.allocatedBytes() - startBytes;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import capitalism.controller.Simulation;
+import capitalism.controller.command.Command;
+import capitalism.controller.command.MeasuredCommand;
+import capitalism.controller.command.OnePeriod;
+import capitalism.model.Commodity;
+import capitalism.model.PersistenceUnit;
+import capitalism.model.Project;
+import capitalism.model.Stock;
+import capitalism.reporting.CommandMetrics;
+import capitalism.reporting.Reporter;
+import capitalism.utils.DBHandler;
+import capitalism.utils.WriteBehind;
+
+/**
+ * Benchmarks the hot paths of the model and of the commands, without a user interface, against every project in a set of data files.
+ * By default these are the projects shipped in {@code data/}; economies written by {@link SyntheticEconomy} can be benchmarked by pointing
+ * {@code capsim.benchmark.data} at the directory that holds it. Any change made for the sake of performance should come with the
+ * results of this suite before and after.
+ * 
+ * Configured with system properties:
+ * <ul>
+ * <li>{@code capsim.benchmark.data}: the directory holding the CSV files and CreateRawTables.sql. Default, the shipped data</li>
+ * <li>{@code capsim.benchmark.filter}: a regular expression; only benchmarks whose names contain a match are run. Default, all</li>
+ * <li>{@code capsim.benchmark.warmup}: warmup iterations per benchmark. Default 3</li>
+ * <li>{@code capsim.benchmark.iterations}: measured iterations per benchmark. Default 5</li>
+ * <li>{@code capsim.benchmark.millis}: the length of each iteration in milliseconds. Default 1000</li>
+ * <li>{@code capsim.benchmark.results}: a file to which the results are also written as CSV. Default, none</li>
+ * </ul>
+ * Reporting is switched off unless {@code capsim.reportLevel} is given, so that the cost of the log does not hide the cost of the model.
+ * For the same reason the {@link WriteBehind database writer} is stopped while the benchmarks run: the frames the simulation produces are
+ * kept only in memory, and each benchmark that runs the simulation restarts the project before every operation.
+ * 
+ * The time per execution of each individual command is taken from {@link CommandMetrics} while whole periods are run, since the commands
+ * only make sense in the order the simulation carries them out. These results are named {@code period/<command>}.
+ */
+public class BenchmarkSuite {
+
+	// consumes the results of benchmarks that return a value, so the JIT compiler cannot discard the work
+	private static volatile double sink;
+
+	private static Pattern filter;
+	private static Benchmark benchmark;
+	private static List<Benchmark.Result> results = new ArrayList<Benchmark.Result>();
+
+	public static void main(String[] args) {
+		filter = Pattern.compile(System.getProperty("capsim.benchmark.filter", ""));
+		benchmark = new Benchmark(Integer.getInteger("capsim.benchmark.warmup", 3), Integer.getInteger("capsim.benchmark.iterations", 5),
+				Long.getLong("capsim.benchmark.millis", 1000));
+		if (System.getProperty("capsim.reportLevel") == null)
+			Reporter.setMaxLevel(Reporter.SILENT);
+
+		if (!DBHandler.initialiseDataBaseAndStart()) {
+			System.err.println("Could not open the database");
+			return;
+		}
+		String data = System.getProperty("capsim.benchmark.data");
+		if (data != null)
+			DBHandler.loadCSVDatabase(data);
+		if (!WriteBehind.start()) {
+			System.err.println("Could not start the database writer");
+			return;
+		}
+		PersistenceUnit.warmUp().join();
+		Simulation.startup();
+		WriteBehind.setEnabled(false);
+		CommandMetrics.setEnabled(true);
+
+		System.out.println(Benchmark.Result.heading());
+		for (Project project : Project.all()) {
+			Simulation.selectProject(project.getProjectID());
+			benchmarkProject(String.valueOf(project.getProjectID()));
+		}
+
+		String resultsFile = System.getProperty("capsim.benchmark.results");
+		if (resultsFile != null)
+			writeResults(resultsFile);
+	}
+
+	/**
+	 * run every benchmark against the current project, starting from its first timeStamp
+	 * 
+	 * @param project
+	 *            the name of the project, for the results
+	 */
+	private static void benchmarkProject(String project) {
+		Simulation.restart();
+		int projectID = Simulation.projectIDCurrent();
+		int timeStampID = Simulation.timeStampIDCurrent();
+
+		Stock[] pair = transferPair(Stock.all(projectID, timeStampID));
+		if (pair != null) {
+			double quantity = Math.min(pair[0].getQuantity(), pair[1].getQuantity()) / 2;
+			run(project, "Stock.transferStock", null, () -> {
+				pair[0].transferStock(pair[1], quantity);
+				pair[1].transferStock(pair[0], quantity);
+			});
+		}
+		List<Stock> stocks = Stock.all(projectID, timeStampID);
+		if (!stocks.isEmpty()) {
+			Stock stock = stocks.get(0);
+			double quantity = stock.getQuantity();
+			run(project, "Stock.modifyBy", null, () -> {
+				stock.modifyBy(1);
+				stock.modifyBy(-1);
+			});
+			run(project, "Stock.modifyTo", null, () -> stock.modifyTo(quantity));
+		}
+		List<Commodity> commodities = Commodity.all(projectID, timeStampID);
+		if (!commodities.isEmpty()) {
+			int[] next = { 0 };
+			run(project, "Commodity.totalValue", null, () -> sink += commodities.get(next[0]++ % commodities.size()).totalValue());
+			run(project, "Commodity.totalSupply", null, () -> sink += commodities.get(next[0]++ % commodities.size()).totalSupply());
+		}
+		run(project, "Simulation.setComparators", null, () -> Simulation.setComparators(projectID, timeStampID));
+		run(project, "Simulation.restart", null, Simulation::restart);
+		run(project, "Simulation.advanceOneStep", Simulation::restart, () -> Simulation.advanceOneStep("Benchmark", "Benchmark"));
+
+		// whole periods, during which CommandMetrics times each command
+		Command onePeriod = new MeasuredCommand("One Period", new OnePeriod());
+		if (run(project, "One Period", Simulation::restart, onePeriod::execute, CommandMetrics::resetAll)) {
+			for (CommandMetrics metrics : CommandMetrics.all()) {
+				if (metrics.getExecutions() == 0)
+					continue;
+				report(new Benchmark.Result(project, "period/" + metrics.getName(), metrics.getMeanWallMillis() * 1e6,
+						metrics.getStandardDeviationWallMillis() * 1e6, metrics.getMeanAllocatedBytes(), metrics.getExecutions()));
+			}
+		}
+		Simulation.restart();
+	}
+
+	private static boolean run(String project, String name, Runnable reset, Runnable operation) {
+		return run(project, name, reset, operation, null);
+	}
+
+	/**
+	 * run a benchmark if its name passes the filter, and report the result
+	 * 
+	 * @return true if the benchmark was run
+	 */
+	private static boolean run(String project, String name, Runnable reset, Runnable operation, Runnable afterWarmup) {
+		if (!filter.matcher(name).find())
+			return false;
+		report(benchmark.run(project, name, reset, operation, afterWarmup));
+		return true;
+	}
+
+	private static void report(Benchmark.Result result) {
+		results.add(result);
+		System.out.println(result);
+	}
+
+	/**
+	 * @param stocks
+	 *            the stocks of a project at one timeStamp
+	 * @return two stocks of the same commodity that both have something in them, so that a quantity can be moved back and forth between
+	 *         them; null if there are none
+	 */
+	private static Stock[] transferPair(List<Stock> stocks) {
+		for (Stock from : stocks) {
+			if (from.getQuantity() <= 0)
+				continue;
+			for (Stock to : stocks) {
+				if (to != from && to.getQuantity() > 0 && to.name().equals(from.name()))
+					return new Stock[] { from, to };
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * write the results as CSV, for comparison with another run
+	 * 
+	 * @param fileName
+	 *            the file to write
+	 */
+	private static void writeResults(String fileName) {
+		try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+			writer.println("project,benchmark,nanosPerOperation,error,bytesPerOperation,operations");
+			for (Benchmark.Result r : results) {
+				writer.printf("%s,%s,%.1f,%.1f,%.0f,%d%n", r.getProject(), r.getName(), r.getNanosPerOperation(), r.getError(),
+						r.getBytesPerOperation(), r.getOperations());
+			}
+		} catch (IOException e) {
+			System.err.println("Could not write the results to " + fileName + " because " + e.getMessage());
+		}
+	}
+}
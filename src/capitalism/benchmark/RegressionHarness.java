@@ -0,0 +1,482 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+
+import capitalism.controller.Simulation;
+import capitalism.controller.command.Command;
+import capitalism.controller.command.MeasuredCommand;
+import capitalism.controller.command.OnePeriod;
+import capitalism.model.Commodity;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
+import capitalism.model.Industry;
+import capitalism.model.PersistenceUnit;
+import capitalism.model.Project;
+import capitalism.model.SocialClass;
+import capitalism.model.Stock;
+import capitalism.reporting.CommandMetrics;
+import capitalism.reporting.EventBus;
+import capitalism.reporting.EventRecorder;
+import capitalism.reporting.Reporter;
+import capitalism.reporting.SimulationEvent;
+import capitalism.utils.DBHandler;
+import capitalism.utils.WriteBehind;
+
+/**
+ * Runs every project of one or more data sets for a fixed number of periods without a user interface, and compares the outcome with a
+ * recorded baseline. For each project it measures the periods run per second, the peak heap, and the bytes allocated per period, and
+ * takes a checksum of the final state. The run fails, with exit code 1, if throughput falls or allocation rises by more than a tolerance,
+ * or if any checksum differs, which means the simulation no longer produces the same results.
+ * 
+ * It also holds each command to an allocation budget: the mean number of bytes the command allocates per execution, as measured
+ * by {@link CommandMetrics}, must not exceed the budget recorded for it in the budget file. Since every command is measured
+ * separately, an allocation regression shows up against the command that caused it. The budgets are recorded along with the baseline,
+ * with some headroom above what was measured, and can then be tightened or loosened by hand.
+ * 
+ * The {@link SimulationEvent}s published while each data set warms up are recorded, and the run fails if they do not describe what
+ * the simulation did, for example if a period was advanced without a PeriodAdvanced event.
+ * 
+ * Each data set is run in a JVM of its own, started with the same arguments as this one, so that no data set inherits the caches,
+ * compiled code or heap of another.
+ * 
+ * Configured with system properties:
+ * <ul>
+ * <li>{@code capsim.regression.data}: comma-separated data directories, such as those written by {@link SyntheticEconomy}. Default
+ * tests/goodData</li>
+ * <li>{@code capsim.regression.periods}: the periods to run for each project. Default 20</li>
+ * <li>{@code capsim.regression.warmup}: periods to run, and discard, before measuring each data set. Default 5</li>
+ * <li>{@code capsim.regression.baseline}: the baseline file. Default tests/performanceBaseline.csv</li>
+ * <li>{@code capsim.regression.budgets}: the allocation budget file. Default tests/allocationBudgets.properties</li>
+ * <li>{@code capsim.regression.record}: if true, write the results to the baseline and budget files instead of comparing them with them</li>
+ * <li>{@code capsim.regression.budgetHeadroom}: when recording, the fraction by which each budget exceeds what was measured. Default 0.2</li>
+ * <li>{@code capsim.regression.throughputTolerance}: the fraction by which periods per second may fall. Default 0.25</li>
+ * <li>{@code capsim.regression.allocationTolerance}: the fraction by which bytes per period may rise. Default 0.25</li>
+ * </ul>
+ */
+public class RegressionHarness {
+
+	// identifies the lines of a child JVM's output that carry results, as opposed to anything else it may print
+	private static final String RESULT_PREFIX = "RESULT,";
+	private static final String BUDGET_PREFIX = "BUDGET,";
+	private static final String HEADING = "data,project,periods,periodsPerSecond,peakHeapBytes,bytesPerPeriod,checksum";
+
+	/**
+	 * The outcome of running one project
+	 */
+	private static class Result {
+		private String data;
+		private int project;
+		private int periods;
+		private double periodsPerSecond;
+		private long peakHeapBytes;
+		private double bytesPerPeriod;
+		private String checksum;
+
+		private String key() {
+			return data + "," + project;
+		}
+
+		@Override public String toString() {
+			return String.format(Locale.ROOT, "%s,%d,%d,%.3f,%d,%.0f,%s", data, project, periods, periodsPerSecond, peakHeapBytes, bytesPerPeriod,
+					checksum);
+		}
+
+		private static Result parse(String line) {
+			String[] fields = line.split(",");
+			Result result = new Result();
+			result.data = fields[0];
+			result.project = Integer.parseInt(fields[1]);
+			result.periods = Integer.parseInt(fields[2]);
+			result.periodsPerSecond = Double.parseDouble(fields[3]);
+			result.peakHeapBytes = Long.parseLong(fields[4]);
+			result.bytesPerPeriod = Double.parseDouble(fields[5]);
+			result.checksum = fields[6];
+			return result;
+		}
+	}
+
+	/**
+	 * With no arguments, run every data set in a JVM of its own and compare the results with the baseline, or record them.
+	 * With the arguments {@code --measure <data directory>}, which is how the child JVMs are started, run one data set and print the results.
+	 * 
+	 * @param args
+	 *            as above
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int periods = Integer.getInteger("capsim.regression.periods", 20);
+		if (args.length == 2 && args[0].equals("--measure")) {
+			measure(args[1], periods, Integer.getInteger("capsim.regression.warmup", 5));
+			return;
+		}
+		List<Result> results = new ArrayList<Result>();
+		Map<String, Double> allocations = new TreeMap<String, Double>();
+		for (String data : System.getProperty("capsim.regression.data", "tests/goodData").split(",")) {
+			if (!runChild(data.trim(), results, allocations)) {
+				System.exit(1);
+			}
+		}
+		File baseline = new File(System.getProperty("capsim.regression.baseline", "tests/performanceBaseline.csv"));
+		File budgets = new File(System.getProperty("capsim.regression.budgets", "tests/allocationBudgets.properties"));
+		if (Boolean.getBoolean("capsim.regression.record")) {
+			record(baseline, results);
+			recordBudgets(budgets, allocations, Double.parseDouble(System.getProperty("capsim.regression.budgetHeadroom", "0.2")));
+			System.out.println("Recorded " + results.size() + " results in " + baseline + " and " + allocations.size() + " budgets in " + budgets);
+			return;
+		}
+		boolean passed = compare(baseline, results);
+		passed &= checkBudgets(budgets, allocations);
+		System.out.println(passed ? "No regressions" : "REGRESSIONS FOUND");
+		if (!passed)
+			System.exit(1);
+	}
+
+	/**
+	 * run one data set in a new JVM with the same arguments and classpath as this one, and collect the results it prints
+	 * 
+	 * @param data
+	 *            the data directory
+	 * @param results
+	 *            receives the result for each project
+	 * @param allocations
+	 *            receives the mean bytes allocated per execution of each command in each project, keyed by {@link #budgetKey}
+	 * @return true if the child completed normally
+	 */
+	private static boolean runChild(String data, List<Result> results, Map<String, Double> allocations) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(RegressionHarness.class.getName());
+		command.add("--measure");
+		command.add(data);
+		Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+		try (BufferedReader output = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+			String line;
+			while ((line = output.readLine()) != null) {
+				if (line.startsWith(RESULT_PREFIX)) {
+					results.add(Result.parse(line.substring(RESULT_PREFIX.length())));
+				} else if (line.startsWith(BUDGET_PREFIX)) {
+					String[] fields = line.substring(BUDGET_PREFIX.length()).split(",");
+					allocations.put(budgetKey(fields[0], Integer.parseInt(fields[1]), fields[2]), Double.parseDouble(fields[3]));
+				} else {
+					System.out.println(line);
+				}
+			}
+		}
+		int exitCode = child.waitFor();
+		if (exitCode != 0)
+			System.err.println("The run of " + data + " failed with exit code " + exitCode);
+		return exitCode == 0;
+	}
+
+	/**
+	 * load one data set and run each of its projects for the given number of periods, printing one result per project, and the mean
+	 * allocation of each command in each project
+	 */
+	private static void measure(String data, int periods, int warmup) {
+		CommandMetrics.setEnabled(true);
+		if (System.getProperty("capsim.reportLevel") == null)
+			Reporter.setMaxLevel(Reporter.SILENT);
+		if (!DBHandler.initialiseDataBaseAndStart()) {
+			System.err.println("Could not open the database");
+			System.exit(1);
+		}
+		DBHandler.loadCSVDatabase(data);
+		if (!WriteBehind.start()) {
+			System.err.println("Could not start the database writer");
+			System.exit(1);
+		}
+		PersistenceUnit.warmUp().join();
+		if (!Simulation.startup())
+			System.err.println("The data in " + data + " did not pass validation; carrying on regardless");
+		Command onePeriod = new MeasuredCommand("One Period", new OnePeriod());
+		List<Project> projects = Project.all();
+
+		// give the JIT compiler something to work on before anything is measured. The events of the warmup are recorded and checked;
+		// this is not done while measuring, since the events are only created when someone is listening
+		Simulation.selectProject(projects.get(0).getProjectID());
+		EventRecorder recorder = new EventRecorder();
+		EventBus.Subscription subscription = EventBus.subscribe("regression checks", recorder, EventBus.POLICY.BLOCK, 1024);
+		int firstPeriod = Simulation.getPeriodCurrent();
+		for (int i = 0; i < warmup; i++) {
+			onePeriod.execute();
+		}
+		EventBus.unsubscribe(subscription);
+		if (!checkEvents(recorder, Simulation.projectIDCurrent(), firstPeriod, warmup)) {
+			System.err.println("The events published while " + data + " warmed up were not what the simulation did");
+			System.exit(1);
+		}
+
+		for (Project project : projects) {
+			Simulation.selectProject(project.getProjectID());
+			Simulation.restart();
+			System.gc();
+			resetPeakHeap();
+			CommandMetrics.resetAll();
+			long startBytes = CommandMetrics.allocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < periods; i++) {
+				onePeriod.execute();
+			}
+			long elapsed = System.nanoTime() - start;
+			Result result = new Result();
+			result.data = data;
+			result.project = project.getProjectID();
+			result.periods = periods;
+			result.periodsPerSecond = periods * 1e9 / elapsed;
+			result.bytesPerPeriod = (double) (CommandMetrics.allocatedBytes() - startBytes) / periods;
+			result.peakHeapBytes = peakHeap();
+			result.checksum = checksum(FrameStore.liveFrame(project.getProjectID()));
+			System.out.println(RESULT_PREFIX + result);
+			for (CommandMetrics metrics : CommandMetrics.all()) {
+				if (metrics.getExecutions() > 0)
+					System.out.printf(Locale.ROOT, "%s%s,%d,%s,%.0f%n", BUDGET_PREFIX, data, result.project, metrics.getName(),
+							metrics.getMeanAllocatedBytes());
+			}
+		}
+		WriteBehind.shutdown(true);
+	}
+
+	/**
+	 * check that the events published while a project ran for some periods describe what it did: one PeriodAdvanced for each period,
+	 * in order, and every event belonging to the project
+	 * 
+	 * @param recorder
+	 *            the events published while the project ran
+	 * @param projectID
+	 *            the project that ran
+	 * @param firstPeriod
+	 *            the period the project was in when it started
+	 * @param periods
+	 *            the number of periods it ran for
+	 * @return true if the events are as they should be. If not, what was wrong has been printed
+	 */
+	private static boolean checkEvents(EventRecorder recorder, int projectID, int firstPeriod, int periods) {
+		boolean passed = true;
+		for (SimulationEvent event : recorder.events()) {
+			if (event.getProjectID() != projectID) {
+				System.err.println("An event belongs to project " + event.getProjectID() + " instead of " + projectID + ": " + event);
+				passed = false;
+				break;
+			}
+		}
+		List<SimulationEvent.PeriodAdvanced> advances = recorder.events(SimulationEvent.PeriodAdvanced.class);
+		if (advances.size() != periods) {
+			System.err.println(periods + " periods were run but " + advances.size() + " PeriodAdvanced events were published");
+			return false;
+		}
+		for (int i = 0; i < periods; i++) {
+			if (advances.get(i).period != firstPeriod + i + 1) {
+				System.err.println("Period " + (firstPeriod + i + 1) + " was expected but the event was " + advances.get(i));
+				passed = false;
+			}
+		}
+		if (recorder.events(SimulationEvent.StepStarted.class).isEmpty()) {
+			System.err.println("No StepStarted events were published");
+			passed = false;
+		}
+		return passed;
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+		}
+	}
+
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	/**
+	 * A checksum of the magnitudes of every entity in a frame, to 9 significant figures, so that any change in the results of the
+	 * simulation shows up but the order in which entities happen to be held does not
+	 * 
+	 * @param frame
+	 *            the frame
+	 * @return the checksum in hexadecimal, or "none" if there is no frame
+	 */
+	private static String checksum(Frame frame) {
+		if (frame == null)
+			return "none";
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format(Locale.ROOT, "melt %.9g", frame.getTimeStamp().getMelt()));
+		for (Commodity c : frame.getCommodities()) {
+			lines.add(String.format(Locale.ROOT, "commodity %s %.9g %.9g", c.name(), c.getUnitValue(), c.getUnitPrice()));
+		}
+		for (Industry i : frame.getIndustries()) {
+			lines.add(String.format(Locale.ROOT, "industry %s %.9g", i.name(), i.getOutput()));
+		}
+		for (SocialClass sc : frame.getSocialClasses()) {
+			lines.add(String.format(Locale.ROOT, "class %s %.9g %.9g", sc.name(), sc.getSize(), sc.getRevenue()));
+		}
+		for (Stock s : frame.getStocks()) {
+			lines.add(String.format(Locale.ROOT, "stock %s %s %s %.9g %.9g %.9g", s.getOwner(), s.name(), s.getStockType(), s.getQuantity(),
+					s.getValue(), s.getPrice()));
+		}
+		Collections.sort(lines);
+		CRC32 crc = new CRC32();
+		for (String line : lines) {
+			crc.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+		return Long.toHexString(crc.getValue());
+	}
+
+	/**
+	 * @return the key of the budget for a command in a project of a data set
+	 */
+	private static String budgetKey(String data, int project, String command) {
+		return data + "|" + project + "|" + command;
+	}
+
+	/**
+	 * write the allocation budgets, each the measured allocation with some headroom, rounded up to a whole kilobyte
+	 */
+	private static void recordBudgets(File budgets, Map<String, Double> allocations, double headroom) throws IOException {
+		Properties properties = new Properties();
+		for (Map.Entry<String, Double> allocation : allocations.entrySet()) {
+			long budget = (long) Math.ceil(allocation.getValue() * (1 + headroom) / 1024) * 1024;
+			properties.setProperty(allocation.getKey(), String.valueOf(budget));
+		}
+		try (FileWriter writer = new FileWriter(budgets)) {
+			properties.store(writer, "Bytes each command may allocate per execution, keyed by data|project|command");
+		}
+	}
+
+	/**
+	 * check that no command allocated more, on average, than its budget, printing every command that did
+	 * 
+	 * @return true if every command is within its budget
+	 */
+	private static boolean checkBudgets(File budgets, Map<String, Double> allocations) throws IOException {
+		if (!budgets.exists()) {
+			System.err.println("There are no allocation budgets at " + budgets + ". Record them with -Dcapsim.regression.record=true");
+			return false;
+		}
+		Properties properties = new Properties();
+		try (FileReader reader = new FileReader(budgets)) {
+			properties.load(reader);
+		}
+		boolean passed = true;
+		for (Map.Entry<String, Double> allocation : allocations.entrySet()) {
+			String budget = properties.getProperty(allocation.getKey());
+			if (budget == null) {
+				System.out.println("There is no allocation budget for " + allocation.getKey());
+			} else if (allocation.getValue() > Long.parseLong(budget)) {
+				System.out.printf(Locale.ROOT, "%s allocated %.0f bytes per execution, over its budget of %s%n", allocation.getKey(),
+						allocation.getValue(), budget);
+				passed = false;
+			}
+		}
+		return passed;
+	}
+
+	private static void record(File baseline, List<Result> results) throws IOException {
+		try (PrintWriter writer = new PrintWriter(new FileWriter(baseline))) {
+			writer.println(HEADING);
+			for (Result result : results) {
+				writer.println(result);
+			}
+		}
+	}
+
+	/**
+	 * compare the results with the baseline, printing every regression
+	 * 
+	 * @return true if there are no regressions
+	 */
+	private static boolean compare(File baseline, List<Result> results) throws IOException {
+		if (!baseline.exists()) {
+			System.err.println("There is no baseline at " + baseline + ". Record one with -Dcapsim.regression.record=true");
+			return false;
+		}
+		Map<String, Result> expected = new LinkedHashMap<String, Result>();
+		for (String line : FileUtils.readLines(baseline, StandardCharsets.UTF_8)) {
+			if (!line.isEmpty() && !line.equals(HEADING)) {
+				Result result = Result.parse(line);
+				expected.put(result.key(), result);
+			}
+		}
+		double throughputTolerance = Double.parseDouble(System.getProperty("capsim.regression.throughputTolerance", "0.25"));
+		double allocationTolerance = Double.parseDouble(System.getProperty("capsim.regression.allocationTolerance", "0.25"));
+		boolean passed = true;
+		for (Result actual : results) {
+			Result base = expected.get(actual.key());
+			String name = "Project " + actual.project + " of " + actual.data;
+			if (base == null) {
+				System.out.println(name + " is not in the baseline");
+				continue;
+			}
+			if (base.periods != actual.periods) {
+				System.out.printf("%s ran %d periods, but the baseline was recorded with %d%n", name, actual.periods, base.periods);
+				passed = false;
+				continue;
+			}
+			if (actual.periodsPerSecond < base.periodsPerSecond * (1 - throughputTolerance)) {
+				System.out.printf(Locale.ROOT, "%s: throughput fell from %.2f to %.2f periods per second%n", name, base.periodsPerSecond,
+						actual.periodsPerSecond);
+				passed = false;
+			}
+			if (actual.bytesPerPeriod > base.bytesPerPeriod * (1 + allocationTolerance)) {
+				System.out.printf(Locale.ROOT, "%s: allocation rose from %.0f to %.0f bytes per period%n", name, base.bytesPerPeriod,
+						actual.bytesPerPeriod);
+				passed = false;
+			}
+			if (!actual.checksum.equals(base.checksum)) {
+				System.out.printf("%s: the final state has changed (checksum %s, baseline %s)%n", name, actual.checksum, base.checksum);
+				passed = false;
+			}
+			System.out.printf(Locale.ROOT, "%s: %.2f periods/s (baseline %.2f), %.0f bytes/period (baseline %.0f), peak heap %d MB%n", name,
+					actual.periodsPerSecond, base.periodsPerSecond, actual.bytesPerPeriod, base.bytesPerPeriod, actual.peakHeapBytes >> 20);
+		}
+		return passed;
+	}
+}
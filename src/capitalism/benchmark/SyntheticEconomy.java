@@ -0,0 +1,297 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import capitalism.model.Project;
+import capitalism.utils.DBHandler;
+import capitalism.utils.Validate;
+
+/**
+ * Generates economies of any size, as a set of CSV files that {@link DBHandler#loadCSVDatabase(String)} can load, so that the cost of
+ * each phase of the simulation can be measured as the number of sectors grows. The shipped projects have only a handful of
+ * commodities and industries, which is too few to show how anything scales.
+ * 
+ * Each economy is in simple reproduction at its first timeStamp, like the shipped project 'Simple Reproduction':
+ * <ul>
+ * <li>There are one or more consumer goods, the first of which is called 'Consumption', and the remaining sectors each produce a
+ * productive input, the first of which is called 'Means of Production'.</li>
+ * <li>Every industry spends two thirds of its output on productive inputs and one third on labour power. It always uses Means of
+ * Production; it uses each other productive input with a probability given by the input-output density, sharing its inputs equally
+ * among those it uses. Every industry has a productive stock of every productive input, as {@link capitalism.utils.Validate} requires,
+ * even if it does not use it.</li>
+ * <li>The output of each productive sector is exactly what all the industries use of its product, found by solving the input-output
+ * system. So the total output of productive inputs is twice that of consumer goods.</li>
+ * <li>The social classes are Workers, who sell all the labour power and consume as much as the consumer sectors produce; Capitalists,
+ * who receive the revenue; and any further classes, which share the consumption and money of the capitalists.</li>
+ * </ul>
+ * 
+ * Run as an application to write a set of projects, one for each sector count, into a directory which can then be given to
+ * {@link BenchmarkSuite} as {@code capsim.benchmark.data}. The projects are then loaded into the database and checked by
+ * {@link Validate}, and the run fails if any of them has a validation error. Configured with system properties:
+ * <ul>
+ * <li>{@code capsim.synthetic.sectors}: a comma-separated list of sector counts, one project each. Default 5,10,20,50,100,200,500</li>
+ * <li>{@code capsim.synthetic.consumerGoods}: the number of consumer goods. Default 1</li>
+ * <li>{@code capsim.synthetic.density}: the input-output density, from 0 to 1. Default 0.2</li>
+ * <li>{@code capsim.synthetic.classes}: the number of social classes, at least 2. Default 2</li>
+ * <li>{@code capsim.synthetic.magnitude}: the output of all the consumer goods together. Default 3000</li>
+ * <li>{@code capsim.synthetic.seed}: the seed for choosing which inputs each industry uses. Default 1</li>
+ * </ul>
+ */
+public class SyntheticEconomy {
+
+	// the share of each industry's output that is spent on productive inputs; the rest is spent on labour power
+	private static final double INPUT_SHARE = 2.0 / 3.0;
+
+	private final int sectors;
+	private final int consumerGoods;
+	private final double density;
+	private final int classes;
+	private final double magnitude;
+	private final long seed;
+
+	/**
+	 * @param sectors
+	 *            the number of industries, which is also the number of produced commodities; at least consumerGoods+1
+	 * @param consumerGoods
+	 *            how many of the sectors produce consumer goods; at least 1
+	 * @param density
+	 *            the probability that an industry uses any given productive input other than Means of Production
+	 * @param classes
+	 *            the number of social classes; at least 2
+	 * @param magnitude
+	 *            the output of all the consumer goods together, which sets the scale of every other quantity
+	 * @param seed
+	 *            the seed for choosing which inputs each industry uses, so that the same parameters always give the same economy
+	 */
+	public SyntheticEconomy(int sectors, int consumerGoods, double density, int classes, double magnitude, long seed) {
+		if (consumerGoods < 1 || sectors <= consumerGoods || classes < 2 || density < 0 || density > 1 || magnitude <= 0)
+			throw new IllegalArgumentException(String.format("Cannot generate %d sectors with %d consumer goods, density %s and %d classes",
+					sectors, consumerGoods, density, classes));
+		this.sectors = sectors;
+		this.consumerGoods = consumerGoods;
+		this.density = density;
+		this.classes = classes;
+		this.magnitude = magnitude;
+		this.seed = seed;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: SyntheticEconomy <output directory>");
+			return;
+		}
+		List<SyntheticEconomy> economies = new ArrayList<SyntheticEconomy>();
+		for (String sectors : System.getProperty("capsim.synthetic.sectors", "5,10,20,50,100,200,500").split(",")) {
+			economies.add(new SyntheticEconomy(Integer.parseInt(sectors.trim()), Integer.getInteger("capsim.synthetic.consumerGoods", 1),
+					Double.parseDouble(System.getProperty("capsim.synthetic.density", "0.2")), Integer.getInteger("capsim.synthetic.classes", 2),
+					Double.parseDouble(System.getProperty("capsim.synthetic.magnitude", "3000")), Long.getLong("capsim.synthetic.seed", 1)));
+		}
+		File directory = new File(args[0]);
+		write(directory, economies);
+		if (!validate(directory)) {
+			System.err.println("The economies written to " + directory + " failed validation. Please see the log for details");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * load the economies written by {@link #write(File, List)} into the database and validate every project. As well as the tests
+	 * that {@link Validate#validate(Project)} applies when the simulation starts, the tests whose failure the simulation only reports
+	 * are treated as errors here, since a generated economy should pass every one of them
+	 * 
+	 * @param directory
+	 *            the directory to which the economies were written
+	 * @return true if every project passed every test, false if any failed or the data could not be loaded
+	 * @throws IOException
+	 *             if the directory cannot be named
+	 */
+	public static boolean validate(File directory) throws IOException {
+		if (!DBHandler.initialiseDataBaseAndStart())
+			return false;
+		DBHandler.loadCSVDatabase(directory.getCanonicalPath());
+		List<Project> projects = Project.all();
+		if (projects.isEmpty())
+			return false;
+		boolean valid = Validate.validate();
+		for (Project project : projects) {
+			int projectID = project.getProjectID();
+			valid &= Validate.validate(project);
+			valid &= Validate.stockOwnerExists(projectID);
+			valid &= Validate.validStockType(projectID);
+		}
+		return valid;
+	}
+
+	/**
+	 * write a set of economies, as projects numbered from 1, into a directory, together with a copy of CreateRawTables.sql that reads
+	 * them from that directory
+	 * 
+	 * @param directory
+	 *            the directory, which is created if it does not exist
+	 * @param economies
+	 *            the economies
+	 * @throws IOException
+	 *             if the files cannot be written
+	 */
+	public static void write(File directory, List<SyntheticEconomy> economies) throws IOException {
+		directory.mkdirs();
+		String path = directory.getCanonicalPath().replace('\\', '/');
+		try (PrintWriter projects = writer(directory, "projects.csv", "ProjectID,description");
+				PrintWriter timeStamps = writer(directory, "timeStamps.csv",
+						"timeStampID,ProjectFK,period,superState,COMPARATORTIMESTAMPID,Description,MELT,PopulationGrowthRate,InvestmentRatio,"
+								+ "LabourSupplyResponse,priceResponse,meltResponse,CurrencySymbol,QuantitySymbol");
+				PrintWriter commodities = writer(directory, "commodities.csv",
+						"Project,TimeStamp,name,originType,UnitValue,UnitPrice,TurnoverTime,functionType,DisplayOrder,ImageName,Tooltip");
+				PrintWriter industries = writer(directory, "industries.csv", "project,timeStamp,industryName,CommodityName,output,GrowthRate");
+				PrintWriter socialClasses = writer(directory, "socialClasses.csv", "Project,timeStamp,SocialClassName,Size,ParticipationRatio,Revenue");
+				PrintWriter stocks = writer(directory, "stocks.csv",
+						"PROJECT,TIMESTAMP,OWNER,OWNERTYPE,COMMODITY,STOCKTYPE,QUANTITY,PRODUCTIONQUANTITY,CONSUMPTIONQUANTITY")) {
+			int projectID = 1;
+			for (SyntheticEconomy economy : economies) {
+				economy.write(projectID++, projects, timeStamps, commodities, industries, socialClasses, stocks);
+			}
+		}
+		// the shipped script reads the data from the user's data directory; this copy reads it from here
+		String script = IOUtils.toString(DBHandler.class.getClassLoader().getResource("CreateRawTables.sql"), StandardCharsets.ISO_8859_1);
+		script = script.replace("~/Documents/Capsim/data/", path + "/");
+		FileUtils.writeStringToFile(new File(directory, "CreateRawTables.sql"), script, StandardCharsets.ISO_8859_1);
+	}
+
+	private static PrintWriter writer(File directory, String fileName, String heading) throws IOException {
+		PrintWriter writer = new PrintWriter(new FileWriter(new File(directory, fileName)));
+		writer.println(heading);
+		return writer;
+	}
+
+	/**
+	 * write this economy as one project
+	 */
+	private void write(int projectID, PrintWriter projects, PrintWriter timeStamps, PrintWriter commodities, PrintWriter industries,
+			PrintWriter socialClasses, PrintWriter stocks) {
+		int inputs = sectors - consumerGoods;
+		String[] inputNames = new String[inputs];
+		String[] consumerGoodNames = new String[consumerGoods];
+		for (int j = 0; j < inputs; j++) {
+			inputNames[j] = j == 0 ? "Means of Production" : "Means of Production " + (j + 1);
+		}
+		for (int c = 0; c < consumerGoods; c++) {
+			consumerGoodNames[c] = c == 0 ? "Consumption" : "Consumption " + (c + 1);
+		}
+
+		// the industries are numbered with the producers of inputs first; coefficients[i][j] is what industry i uses of input j per unit of output
+		double[][] coefficients = new double[sectors][inputs];
+		Random random = new Random(seed);
+		for (int i = 0; i < sectors; i++) {
+			List<Integer> used = new ArrayList<Integer>();
+			used.add(0);
+			for (int j = 1; j < inputs; j++) {
+				if (random.nextDouble() < density)
+					used.add(j);
+			}
+			for (int j : used) {
+				coefficients[i][j] = INPUT_SHARE / used.size();
+			}
+		}
+
+		// the consumer sectors share the given magnitude, and the input sectors produce whatever is used, which is found by iteration.
+		// This converges because every industry uses less than it produces
+		double[] output = new double[sectors];
+		for (int c = 0; c < consumerGoods; c++) {
+			output[inputs + c] = magnitude / consumerGoods;
+		}
+		for (int iteration = 0; iteration < 1000; iteration++) {
+			double change = 0;
+			for (int j = 0; j < inputs; j++) {
+				double used = 0;
+				for (int i = 0; i < sectors; i++) {
+					used += coefficients[i][j] * output[i];
+				}
+				change = Math.max(change, Math.abs(used - output[j]));
+				output[j] = used;
+			}
+			if (change < 1e-9 * magnitude)
+				break;
+		}
+
+		String description = String.format(Locale.ROOT, "Synthetic %d sectors %d classes density %.2f", sectors, classes, density);
+		projects.printf("%d,%s%n", projectID, description.length() > 45 ? description.substring(0, 45) : description);
+		timeStamps.printf("1,%d,1,,1,Start,1,0,0,FIXED,VALUES,,$,#%n", projectID);
+
+		for (String name : inputNames) {
+			commodities.printf("%d,1,%s,INDUSTRIALLY_PRODUCED,1,1,1,PRODUCTIVE_INPUT,1,,Produced input%n", projectID, name);
+		}
+		commodities.printf("%d,1,Labour Power,SOCIALLY_PRODUCED,0.5,0.5,1,PRODUCTIVE_INPUT,2,labourPower.png,Waged labour%n", projectID);
+		for (String name : consumerGoodNames) {
+			commodities.printf("%d,1,%s,INDUSTRIALLY_PRODUCED,1,1,1,CONSUMER_GOOD,3,necessities.png,Consumer good%n", projectID, name);
+		}
+		commodities.printf("%d,1,Money,MONEY,1,1,0,MONEY,4,,Money%n", projectID);
+
+		double labour = 0;
+		for (int i = 0; i < sectors; i++) {
+			String industry = "Industry " + (i + 1);
+			String product = i < inputs ? inputNames[i] : consumerGoodNames[i - inputs];
+			industries.printf(Locale.ROOT, "%d,1,%s,%s,%.4f,0%n", projectID, industry, product, output[i]);
+			stock(stocks, projectID, industry, "INDUSTRY", product, "Sales", output[i], 0, 0);
+			stock(stocks, projectID, industry, "INDUSTRY", "Money", "Money", output[i], 0, 0);
+			for (int j = 0; j < inputs; j++) {
+				stock(stocks, projectID, industry, "INDUSTRY", inputNames[j], "Productive", 0, coefficients[i][j] * output[i], 0);
+			}
+			double labourUsed = (1 - INPUT_SHARE) * output[i];
+			stock(stocks, projectID, industry, "INDUSTRY", "Labour Power", "Productive", 0, labourUsed, 0);
+			labour += labourUsed;
+		}
+
+		// Workers consume all the consumer goods by quantity; the capitalists' consumption, money and size are shared with any other classes
+		double share = 1.0 / (classes - 1);
+		for (int k = 0; k < classes; k++) {
+			boolean workers = k == 0;
+			String name = workers ? "Workers" : k == 1 ? "Capitalists" : "Class " + (k + 1);
+			double size = workers ? magnitude : magnitude / 2 * share;
+			double revenue = k == 1 ? magnitude / 2 : 0;
+			socialClasses.printf(Locale.ROOT, "%d,1,%s,%.4f,%d,%.4f%n", projectID, name, size, workers ? 1 : 0, revenue);
+			stock(stocks, projectID, name, "CLASS", "Money", "Money", magnitude / 2 * (workers ? 1 : share), 0, 0);
+			stock(stocks, projectID, name, "CLASS", "Labour Power", "Sales", workers ? labour : 0, 0, 0);
+			for (String good : consumerGoodNames) {
+				double consumption = (workers ? magnitude : magnitude / 2 * share) / consumerGoods;
+				stock(stocks, projectID, name, "CLASS", good, "Consumption", 0, 0, consumption);
+			}
+		}
+	}
+
+	private static void stock(PrintWriter stocks, int projectID, String owner, String ownerType, String commodity, String stockType, double quantity,
+			double productionQuantity, double consumptionQuantity) {
+		stocks.printf(Locale.ROOT, "%d,1,%s,%s,%s,%s,%.4f,%.4f,%.4f%n", projectID, owner, ownerType, commodity, stockType, quantity, productionQuantity,
+				consumptionQuantity);
+	}
+}
@@ -26,16 +26,25 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.model.Commodity;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
 import capitalism.model.Industry;
+import capitalism.model.PeriodAggregates;
 import capitalism.model.Project;
 import capitalism.model.SocialClass;
 import capitalism.model.Stock;
 import capitalism.model.TimeStamp;
+import capitalism.reporting.CommandMetrics;
 import capitalism.reporting.Dialogues;
+import capitalism.reporting.EventBus;
+import capitalism.reporting.Phase;
 import capitalism.reporting.Reporter;
+import capitalism.reporting.SimulationEvent;
 import capitalism.utils.MathStuff;
 import capitalism.utils.Validate;
+import capitalism.utils.WriteBehind;
 import capitalism.view.custom.ActionButtonsBox;
+import capitalism.view.custom.ActionStates;
 import capitalism.view.custom.DisplayControlsBox;
 
 public class Simulation {
@@ -60,25 +69,43 @@ public class Simulation {
 
 	/**
 	 * startup. Initialise all variables that are derived from user data but not required explicitly.
+	 * Returns when every project has been initialised.
 	 * 
 	 * @return true if it all worked, false if we can't go on because of validation errors
 	 */
 	public static boolean startup() {
+		boolean validStart = beginStartup();
+		if (!Startup.awaitProjects())
+			validStart = false;
+		return validStart;
+	}
+
+	/**
+	 * startup, as {@link #startup()}, but return as soon as the first project has been initialised. The other projects are initialised
+	 * concurrently in the background; see {@link Startup}
+	 * 
+	 * @return true if it all worked, false if we can't go on because of validation errors in the global tests or the first project
+	 */
+	public static boolean beginStartup() {
 		boolean validStart = true;
 		timeStampCurrent = TimeStamp.single(1, 1);
 		timeStampCurrent.setPeriod(1);
 		projectCurrent = Project.get(1);
-		if (!Validate.validate()) {
-			Dialogues.alert(logger, "There is an error in the database. Please see the log for details. will try to continue");
+		if (!Validate.validate())
 			validStart = false;
-		}
 		Reporter.report(logger, 0, "Initialise");
-		for (TimeStamp t:TimeStamp.all()) {
-			logger.debug("TimeStamp:{}",t.toString());
-		}
-		for (Project p : Project.all()) {
-			p.initialise();
-		}
+
+		// the cursors of every project are reset in one transaction, before the projects are initialised concurrently
+		List<Project> projects = Project.all();
+		Project.transaction(() -> {
+			for (Project p : projects) {
+				p.resetCursors();
+			}
+		});
+		if (!Startup.initialiseProjects(projects, projectCurrent.getProjectID()))
+			validStart = false;
+		if (!validStart)
+			Dialogues.alert(logger, "There is an error in the database. Please see the log for details. will try to continue");
 
 		// initialise all the cursors, which are held in the current project
 		projectCurrent.setTimeStampID(1);
@@ -141,7 +168,8 @@ public class Simulation {
 	/**
 	 * Move the timeStampIDCurrent record to contain a new timestamp with the current project.
 	 * Then create a new record for every entity in the simulation, with this timestamp and the current projectCurrent.
-	 * In case of misuse, it flags an exception if there is a duplicate key error rather than allowing a fail.
+	 * The new records are created in memory, in a new {@link Frame}; the frame they were copied from is complete, and is
+	 * passed to {@link WriteBehind} to be saved in the background.
 	 * 
 	 * @param superState
 	 *            if this operation is a component (child) of a 'superState', as for example 'Supply' is a
@@ -155,136 +183,170 @@ public class Simulation {
 	 */
 	public static void advanceOneStep(String description, String superState) {
 
-		checkMoneySufficiency(projectIDcurrent(), timeStampIDCurrent());
-
-		// move the timeStamp forward in the current project persistent record and save it.
-		// do not create a new project record - modify the existing one.
-		// NOTE we move forward the persistent project record, and then copy it to
-		// the top copy that is held in the simulation.
-		// TODO check empirically whether if we update the top copy we in fact update the persistent entity
-		// probably we do, but I haven't studied JPA internals enough to be sure, so this is belt and braces
-
-		int oldTimeStampID = timeStampIDCurrent();
-		Project.getEntityManager().getTransaction().begin();
-		Project.get(projectCurrent.getProjectID()).setTimeStampComparatorCursor(oldTimeStampID);
-		Project.get(projectCurrent.getProjectID()).setTimeStampDisplayCursor(oldTimeStampID + 1);
-		Project.get(projectCurrent.getProjectID()).setTimeStampID(oldTimeStampID + 1);
-		Project.getEntityManager().getTransaction().commit();
-		projectCurrent = Project.get(projectCurrent.getProjectID()); // retrieve the newly-persisted record and take a fresh copy
-
-		logger.debug("Move One Step in project {} at period {} by creating a new timeStamp {} called {}",
-				projectCurrent.getProjectID(), getPeriodCurrent(), projectCurrent.getTimeStampID(), description);
-
-		// persist a new version of all simulation entities, with the same project, and the new timeStamp...
-		TimeStamp.getEntityManager().getTransaction().begin();
-		// Create a new timeStamp that moves on by one from the present timeStamp, but has the same project and period
-		// set its description and superState from the parameters in the call to advanceOneStep
-		int tempPID = projectIDCurrent();
-		TimeStamp oldTimeStamp = TimeStamp.single(tempPID, oldTimeStampID);
-		timeStampCurrent = new TimeStamp(oldTimeStamp);
-		timeStampCurrent.setTimeStampID(projectCurrent.getTimeStampID());
-		timeStampCurrent.setSuperState(superState);
-		timeStampCurrent.setDescription(description);
-		timeStampCurrent.setPeriod(getPeriodCurrent());
-		TimeStamp.getEntityManager().persist(timeStampCurrent);
-
-		TimeStamp.getEntityManager().getTransaction().commit();
-
-		Commodity.getEntityManager().getTransaction().begin();
-		Stock.getEntityManager().getTransaction().begin();
-		Industry.getEntityManager().getTransaction().begin();
-		SocialClass.getEntityManager().getTransaction().begin();
-
-		// Commodities
-		logger.debug(" Persisting a new set of commodities with timeStamp {} and period {}", timeStampIDCurrent(), getPeriodCurrent());
-		Commodity commodity;
-		for (Commodity u : Commodity.all(projectIDCurrent(), oldTimeStampID)) {
-			commodity = new Commodity(u);
-			commodity.setTimeStampID(timeStampIDCurrent());
-			Commodity.getEntityManager().persist(commodity);
-		}
+		CommandMetrics.Measurement measurement = CommandMetrics.start("advanceOneStep");
+		try {
+			checkMoneySufficiency(projectIDcurrent(), timeStampIDCurrent());
 
-		// Stocks
-		logger.debug(" Persisting a new set of stocks with timeStamp {} ", timeStampIDCurrent());
-		Stock newStock;
-		for (Stock s : Stock.all(projectIDCurrent(), oldTimeStampID)) {
-			newStock = new Stock(s);
-			newStock.setTimeStamp(timeStampIDCurrent());
-			Stock.getEntityManager().persist(newStock);
-		}
+			// move the timeStamp forward in the current project record.
+			// do not create a new project record - modify the existing one.
+			// The database copy of the project record is updated by the writer along with the frame that is completed here
 
-		// industries
-		logger.debug("Persisting a new set of industries with timeStamp {} ", timeStampIDCurrent());
-		Industry newIndustry;
-		for (Industry c : Industry.all(projectIDCurrent(), oldTimeStampID)) {
-			logger.debug("Persisting an industry that produces commodity" + c.name());
-			newIndustry = new Industry(c);
-			newIndustry.setTimeStamp(timeStampIDCurrent());
-			Industry.getEntityManager().persist(newIndustry);
-		}
+			int oldTimeStampID = timeStampIDCurrent();
+			projectCurrent = Project.get(projectCurrent.getProjectID());
+			projectCurrent.setTimeStampComparatorCursor(oldTimeStampID);
+			projectCurrent.setTimeStampDisplayCursor(oldTimeStampID + 1);
+			projectCurrent.setTimeStampID(oldTimeStampID + 1);
 
-		// Social Classes
-		logger.debug("Persisting a new set of social classes with timeStamp {}", timeStampIDCurrent());
-		SocialClass newSocialClass;
-		for (SocialClass sc : SocialClass.all(projectIDCurrent(), oldTimeStampID)) {
-			logger.debug("  Persisting a social class whose name is " + sc.name());
-			newSocialClass = new SocialClass();
-			newSocialClass.copy(sc);
-			newSocialClass.setTimeStamp(timeStampIDCurrent());
-			SocialClass.getEntityManager().persist(newSocialClass);
-		}
+			logger.debug("Move One Step in project {} at period {} by creating a new timeStamp {} called {}",
+					projectCurrent.getProjectID(), getPeriodCurrent(), projectCurrent.getTimeStampID(), description);
 
-		setComparators(projectIDCurrent(), timeStampIDCurrent());
+			// Create a new timeStamp that moves on by one from the present timeStamp, but has the same project and period
+			// set its description and superState from the parameters in the call to advanceOneStep
+			int tempPID = projectIDCurrent();
+			Frame oldFrame = FrameStore.frame(tempPID, oldTimeStampID);
+			timeStampCurrent = new TimeStamp(oldFrame.getTimeStamp());
+			timeStampCurrent.setTimeStampID(projectCurrent.getTimeStampID());
+			timeStampCurrent.setSuperState(superState);
+			timeStampCurrent.setDescription(description);
+			timeStampCurrent.setPeriod(getPeriodCurrent());
 
-		// now commit all the modified records
-		SocialClass.getEntityManager().getTransaction().commit();
-		Industry.getEntityManager().getTransaction().commit();
-		Stock.getEntityManager().getTransaction().commit();
-		Commodity.getEntityManager().getTransaction().commit();
+			// make a new version of all simulation entities, with the same project, and the new timeStamp...
+			FrameStore.add(oldFrame.successor(timeStampCurrent));
 
-		// some diagnostics - switch off if not needed for debug
-		// for (Industry i:Industry.all()) {
-		// logger.debug("Industry {} has project {} and timeStamp {}",i.getName(),i.getProject(),i.getTimeStamp());
-		// }
+			setComparators(projectIDCurrent(), timeStampIDCurrent());
 
-		logger.debug("Done Persisting: exit AdvanceOneStep");
+			// ... and hand the old version, which is now complete, to the database writer
+			WriteBehind.submit(oldFrame);
+
+			if (EventBus.isListening()) {
+				EventBus.publish(new SimulationEvent.StepStarted(tempPID, timeStampIDCurrent(), getPeriodCurrent(), description, superState));
+			}
+
+			logger.debug("Done: exit AdvanceOneStep");
+		} finally {
+			measurement.stop();
+		}
 	}
 
 	/**
 	 * Re-initialise the current project by wiping out everything except the initial persistent entities.
+	 * The initial entities are reinstated from the copy that was kept when the project was initialised, so
+	 * the cost does not depend on how long the project has been running. The database rows of the discarded
+	 * history are deleted in the background by {@link WriteBehind}.
 	 */
 	public static void restart() {
 		int projectID = Simulation.projectIDCurrent();
 		Project project=Project.get(projectID);
 		Reporter.report(logger, 1, "RESTART OF PROJECT %d REQUESTED", projectID);
-		Commodity.getEntityManager().getTransaction().begin();
-		Commodity.deleteFromProject(projectID);
-		Commodity.getEntityManager().getTransaction().commit();
-
-		Industry.getEntityManager().getTransaction().begin();
-		Industry.deleteFromProject(projectID);
-		Industry.getEntityManager().getTransaction().commit();
-
-		SocialClass.getEntityManager().getTransaction().begin();
-		SocialClass.deleteFromProject(projectID);
-		SocialClass.getEntityManager().getTransaction().commit();
-
-		Stock.getEntityManager().getTransaction().begin();
-		Stock.deleteFromProject(projectID);
-		Stock.getEntityManager().getTransaction().commit();
-		
-		TimeStamp.getEntityManager().getTransaction().begin();
-		TimeStamp.deleteFromProject(projectID);
-		TimeStamp.getEntityManager().getTransaction().commit();
-		
-		Project.getEntityManager().getTransaction().begin();
-		project.setTimeStampID(1);
-		project.setTimeStampComparatorCursor(1);
-		project.setTimeStampDisplayCursor(1);
-		Project.setTimeStampCursor(projectID, 1);
-		Project.getEntityManager().getTransaction().commit();
+
+		Frame frame = FrameStore.restorePristine(projectID);
+		if (frame == null) {
+			Dialogues.alert(logger, "Project %d was never initialised, so it cannot be restarted", projectID);
+			return;
+		}
+		Project.transaction(() -> {
+			project.setTimeStampID(1);
+			project.setTimeStampComparatorCursor(1);
+			project.setTimeStampDisplayCursor(1);
+			Project.setTimeStampCursor(projectID, 1);
+		});
+		// after the cursors are reset, so that the writer saves them along with the deletion
+		WriteBehind.truncate(projectID, 1);
+		PeriodAggregates.truncate(projectID, 1);
+		timeStampCurrent = frame.getTimeStamp();
 		setPeriodCurrent(1);
-		setCapitals(projectID, 1);
+
+		// comparators are not copied with the entities, so they have to be set again
+		setComparators(projectID, 1);
+	}
+
+	/**
+	 * Rewind the current project to the given timeStamp, so that the simulation continues from there. Everything after that
+	 * timeStamp is discarded: in memory at once, and in the database by {@link WriteBehind}, in a single transaction. The project
+	 * cursors and button state are reset to what they were when the timeStamp was reached, and saved in the same transaction, so the cost does not depend on how
+	 * far the project had run, and nothing before the timeStamp is recalculated.
+	 * 
+	 * @param timeStampID
+	 *            the timeStamp of the current project to rewind to
+	 * @return true if the project was rewound, false if it has no such timeStamp
+	 */
+	public static boolean rewind(int timeStampID) {
+		int projectID = projectIDCurrent();
+		Reporter.report(logger, 0, "REWIND OF PROJECT %d TO TIMESTAMP %d REQUESTED", projectID, timeStampID);
+		Frame frame = FrameStore.rewind(projectID, timeStampID);
+		if (frame == null) {
+			Dialogues.alert(logger, "Project %d has no timeStamp %d, so it cannot be rewound to there", projectID, timeStampID);
+			return false;
+		}
+		projectCurrent = Project.get(projectID);
+		projectCurrent.setTimeStampID(timeStampID);
+		projectCurrent.setTimeStampDisplayCursor(timeStampID);
+		projectCurrent.setTimeStampComparatorCursor(timeStampID > 1 ? timeStampID - 1 : 1);
+		projectCurrent.setButtonState(buttonStateAt(frame));
+		timeStampCurrent = frame.getTimeStamp();
+
+		// the writer saves the cursors and button state just set along with the deletion, in the same transaction
+		WriteBehind.truncate(projectID, timeStampID);
+		PeriodAggregates.truncate(projectID, frame.getTimeStamp().getPeriod());
+
+		// comparators are not copied with the entities, so they have to be set again
+		setComparators(projectID, timeStampID);
+		return true;
+	}
+
+	/**
+	 * Create a new project which branches off the current project at the given timeStamp. The new project shares the history of
+	 * the current project up to that timeStamp, and can then be run independently, for example with different parameters, to
+	 * see what would have happened if things had been different from that point on. The current project is not affected.
+	 *
+	 * @param timeStampID
+	 *            the timeStamp of the current project at which the new project begins
+	 * @return the projectID of the new project, 0 if it could not be created
+	 */
+	public static int fork(int timeStampID) {
+		int parentID = projectIDCurrent();
+		Project parent = Project.get(parentID);
+		Frame origin = FrameStore.frame(parentID, timeStampID);
+		if (origin == null) {
+			Dialogues.alert(logger, "Project %d has no timeStamp %d, so it cannot be branched from there", parentID, timeStampID);
+			return 0;
+		}
+		int childID = Project.maxProjectID() + 1;
+		Reporter.report(logger, 0, "BRANCHING PROJECT %d AT TIMESTAMP %d INTO NEW PROJECT %d", parentID, timeStampID, childID);
+
+		// the description column only holds 45 characters
+		String suffix = String.format(" @%d", timeStampID);
+		String description = parent.getDescription();
+		if (description.length() + suffix.length() > 45)
+			description = description.substring(0, 45 - suffix.length());
+
+		Project child = new Project();
+		child.setProjectID(childID);
+		child.setDescription(description + suffix);
+		child.setTimeStampID(timeStampID);
+		child.setTimeStampDisplayCursor(timeStampID);
+		child.setTimeStampComparatorCursor(timeStampID > 1 ? timeStampID - 1 : 1);
+		child.setButtonState(buttonStateAt(origin));
+		Project.transaction(() -> Project.getEntityManager().persist(child));
+
+		FrameStore.fork(parentID, timeStampID, childID);
+		WriteBehind.fork(parentID, timeStampID, childID);
+		PeriodAggregates.fork(parentID, childID, origin.getTimeStamp().getPeriod());
+		setComparators(childID, timeStampID);
+		return childID;
+	}
+
+	/**
+	 * the label of the action button that was last pressed when the given frame was reached, so that the simulation can resume from it
+	 *
+	 * @param frame
+	 *            a frame of any project
+	 * @return the label of the action that produced the frame. For the first frame, the label of the last action of a period
+	 */
+	private static String buttonStateAt(Frame frame) {
+		if (frame.getTimeStampID() == 1)
+			return ActionStates.lastState().text();
+		return frame.getTimeStamp().getDescription();
 	}
 
 	/**
@@ -298,7 +360,7 @@ public class Simulation {
 	private static void checkMoneySufficiency(int projectID, int timeStampID) {
 		// a little consistency check
 		for (Stock s : Stock.all(projectID, timeStampID)) {
-			if (s.getQuantity() < 0 - MathStuff.epsilon) {
+			if (MathStuff.exceeds(0, s.getQuantity())) {
 				if (s.getStockType().equals(Stock.STOCKTYPE.MONEY.text())) {
 					Dialogues.alert(logger, "The owner %s has run out of money. "
 							+ "This may be a data error:try giving it more. "
@@ -426,11 +488,15 @@ public class Simulation {
 	}
 
 	/**
-	 * Move the simulation forward one entire period
+	 * Move the simulation forward one entire period, first recording the aggregates of the period that has just completed
 	 */
 	public static void advanceOnePeriod() {
+		PeriodAggregates.record(projectIDCurrent(), getPeriodCurrent(), timeStampCurrent, Industry.all(projectIDCurrent(), timeStampIDCurrent()));
 		setPeriodCurrent(getPeriodCurrent() + 1);
 		Reporter.report(logger, 0, "ADVANCING ONE PERIOD TO %d", getPeriodCurrent());
+		if (EventBus.isListening()) {
+			EventBus.publish(new SimulationEvent.PeriodAdvanced(projectIDCurrent(), timeStampIDCurrent(), getPeriodCurrent()));
+		}
 		// start another period so recompute the initial capitals and profits
 		setCapitals(projectIDCurrent(), timeStampIDCurrent());
 	}
@@ -453,12 +519,11 @@ public class Simulation {
 			return;
 		}
 
-		Project.getEntityManager().getTransaction().begin();
+		// bring the database up to date with the project we are leaving; other projects are left as they are
+		WriteBehind.flush(projectIDCurrent());
 
 		// save the state of the present project so it knows how to return to the same point
-		projectCurrent.setButtonState(ActionButtonsBox.getLastAction().text());
-
-		Project.getEntityManager().getTransaction().commit();
+		Project.transaction(() -> projectCurrent.setButtonState(ActionButtonsBox.getLastAction().text()));
 
 		// retrieve the selected project record, and copy its various cursors and into the simulation cursors
 		projectCurrent = Project.get(newProjectID);
@@ -469,6 +534,20 @@ public class Simulation {
 		// ViewManager.getTabbedTableViewer().buildTables();
 	}
 
+	/**
+	 * Make another project current without touching the display, for use when the simulation runs without a user interface.
+	 * The project continues from its own timeStamp.
+	 * 
+	 * @param newProjectID
+	 *            the ID of the project to make current
+	 */
+	public static void selectProject(int newProjectID) {
+		WriteBehind.flush(projectIDCurrent());
+		projectCurrent = Project.get(newProjectID);
+		timeStampCurrent = TimeStamp.singleInProjectAndTimeStamp(newProjectID, projectCurrent.getTimeStampID());
+		Reporter.report(logger, 0, "SELECTED PROJECT %s (%s)", newProjectID, projectCurrent.getDescription());
+	}
+
 	/**
 	 * for all persistent entities at the given timeStamp, set comparators that refer to the timeStampComparatorCursor
 	 * TODO previousComparator not yet properly implemented.
@@ -479,6 +558,8 @@ public class Simulation {
 	 *            all persistent records at this timeStampID will be given comparators equal to the timeStampComparatorCursor
 	 */
 	public static void setComparators(int projectID, int timeStampID) {
+		CommandMetrics.Measurement measurement = CommandMetrics.start("setComparators");
+		Phase phase = Phase.begin(Phase.Kind.COMPARATORS, "all entities", projectID, timeStampID);
 		try {
 			Stock.setComparators(projectID, timeStampID);
 			Commodity.setComparators(projectID, timeStampID);
@@ -487,20 +568,13 @@ public class Simulation {
 			TimeStamp.setComparators(projectID, timeStampID);
 		} catch (Exception e) {
 			Dialogues.alert(logger, "Could not set comparators. Sorry, please contact developer");
+		} finally {
+			measurement.stop();
+			Frame frame = FrameStore.frame(projectID, timeStampID);
+			phase.end(frame == null ? 0 : frame.size());
 		}
 	}
 
-	/**
-	 * Delete all entities in the project with ID projectID (wipe project from persistent memory)
-	 * 
-	 * @param projectID
-	 *            the projectID of the entire project to be deleted
-	 */
-	public static void deleteAllFromProject(int projectID) {
-		Commodity.deleteFromProject(projectID);
-		// TODO etcetera
-	}
-
 	/**
 	 * @return the timeStampComparatorCursor
 	 */
@@ -0,0 +1,295 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.controller;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.controller.command.Command;
+import capitalism.reporting.Dialogues;
+import capitalism.view.custom.ActionStates;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+/**
+ * Runs simulation commands on a dedicated thread, so that the user interface stays responsive while the simulation moves forward.
+ * Only one command runs at a time. While it runs, the superstate commands report each completed sub-step through
+ * {@link #checkpoint(ActionStates)}, which advances the progress of the {@link Run} and is also the point at which a run that has
+ * been cancelled stops. The display is not touched until the run is over: the caller is told, on the JavaFX Application Thread,
+ * which action was the last to complete, and repopulates the display from the finished frame. A long run may also
+ * {@link #publish()} the frame it has reached from time to time.
+ * 
+ * When no run is in progress, as when the simulation is driven without a user interface, {@link #checkpoint(ActionStates)} does nothing
+ * and commands execute exactly as they would if called directly.
+ */
+public class SimulationExecutor {
+	private static final Logger logger = LogManager.getLogger(SimulationExecutor.class);
+
+	// created when first needed, so that a headless run never starts the thread
+	private static ExecutorService executor = null;
+
+	// the run in progress, if any. Written on the JavaFX Application Thread, read on the simulation thread
+	private static volatile Run current = null;
+
+	// set when the application starts to close. From then on the JavaFX Application Thread is waiting for the simulation thread,
+	// so nothing may be passed across to it
+	private static volatile boolean shuttingDown = false;
+
+	/**
+	 * A command in progress on the simulation thread. Its progress and message properties may be bound to controls, and are updated on the
+	 * JavaFX Application Thread as each sub-step completes
+	 */
+	public static class Run extends Task<Void> {
+		private final String name;
+		private final Command command;
+		private final ActionStates finalState;
+		private final int subSteps;
+		private final Consumer<ActionStates> onFinished;
+		private final Runnable onPublish;
+		private volatile boolean cancelRequested = false;
+		private volatile Thread thread = null;
+		// the following are written on the simulation thread, and read on the JavaFX Application Thread once the command has returned
+		private volatile ActionStates lastCompleted = null;
+		private volatile boolean stopped = false;
+		private int completed = 0;
+
+		private Run(String name, Command command, ActionStates finalState, int subSteps, Consumer<ActionStates> onFinished, Runnable onPublish) {
+			this.name = name;
+			this.command = command;
+			this.finalState = finalState;
+			this.subSteps = subSteps;
+			this.onFinished = onFinished;
+			this.onPublish = onPublish;
+			updateMessage(name);
+			setOnSucceeded(event -> finish());
+			setOnFailed(event -> {
+				Throwable failure = getException();
+				logger.error("The command " + name + " failed", failure);
+				finish();
+				Dialogues.alert(logger, "The command %s failed because %s", name, String.valueOf(failure.getMessage()));
+			});
+		}
+
+		@Override protected Void call() {
+			thread = Thread.currentThread();
+			command.execute();
+			return null;
+		}
+
+		/**
+		 * ask the run to stop after the sub-step it is now executing. The simulation is left at the end of that sub-step,
+		 * from which the user can carry on as if they had pressed the buttons one by one
+		 */
+		public void requestCancel() {
+			cancelRequested = true;
+			updateMessage(name + ": stopping");
+		}
+
+		/**
+		 * @return true if the user has asked the run to stop
+		 */
+		public boolean isCancelRequested() {
+			return cancelRequested;
+		}
+
+		/**
+		 * @return the name of the command being run
+		 */
+		public String getName() {
+			return name;
+		}
+
+		private boolean stepCompleted(ActionStates subState) {
+			lastCompleted = subState;
+			completed++;
+			updateProgress(completed, subSteps);
+			updateMessage(String.format("%s: %s (%d of %d)", name, subState.text(), completed, subSteps));
+			if (cancelRequested)
+				stopped = true;
+			return !stopped;
+		}
+
+		// on the JavaFX Application Thread, once the command has returned, however it returned
+		private void finish() {
+			current = null;
+			ActionStates reached = (stopped || getState() == State.FAILED) ? lastCompleted : finalState;
+			if (stopped)
+				logger.debug("The command {} was cancelled after {} of {} sub-steps", name, completed, subSteps);
+			onFinished.accept(reached);
+		}
+	}
+
+	/**
+	 * Start a command on the simulation thread. Must be called on the JavaFX Application Thread.
+	 * 
+	 * @param name
+	 *            the name of the command, which is displayed while it runs
+	 * @param command
+	 *            the command
+	 * @param finalState
+	 *            the action that will have been completed when the command has finished
+	 * @param subSteps
+	 *            the number of primitive actions the command consists of, against which its progress is measured
+	 * @param onFinished
+	 *            called on the JavaFX Application Thread when the run is over, with the last action that was completed. This is
+	 *            {@code finalState} unless the run was cancelled or failed, in which case it is the last sub-step that completed, or null if there was none
+	 * @param onPublish
+	 *            called on the JavaFX Application Thread when the command {@link #publish()}es the frame it has reached, while the simulation
+	 *            waits
+	 * @return the run, or null if another run is already in progress
+	 */
+	public static Run submit(String name, Command command, ActionStates finalState, int subSteps, Consumer<ActionStates> onFinished,
+			Runnable onPublish) {
+		if (current != null) {
+			logger.debug("The command {} was not started because {} is still running", name, current.getName());
+			return null;
+		}
+		Run run = new Run(name, command, finalState, subSteps, onFinished, onPublish);
+		current = run;
+		executor().execute(run);
+		return run;
+	}
+
+	/**
+	 * Called by a command after each sub-step it executes.
+	 * 
+	 * @param subState
+	 *            the sub-step that has just completed
+	 * @return false if the current run has been cancelled and the command should execute no further sub-steps; true otherwise
+	 */
+	public static boolean checkpoint(ActionStates subState) {
+		Run run = current;
+		if (run == null || run.thread != Thread.currentThread())
+			return true;
+		return run.stepCompleted(subState);
+	}
+
+	/**
+	 * Called by a command, at the end of a period or some other point at which the frame it has reached is complete, to have that frame
+	 * displayed. The simulation waits while the display is repopulated, so that it does not change the frames the display is reading.
+	 * Does nothing if there is no run in progress on this thread, or if the application is closing.
+	 */
+	public static void publish() {
+		Run run = current;
+		if (run == null || run.thread != Thread.currentThread() || shuttingDown)
+			return;
+		FutureTask<Void> published = new FutureTask<Void>(run.onPublish, null);
+		Platform.runLater(published);
+		try {
+			awaitOnFXThread(published);
+		} catch (ExecutionException e) {
+			logger.error("The display could not be refreshed because " + e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Wait for a task that has been passed to the JavaFX Application Thread. Gives up, cancelling the task, if the application starts
+	 * to close, because the JavaFX Application Thread is then waiting in {@link #shutdown()} and will never run it
+	 * 
+	 * @param task
+	 *            a task that has been passed to {@code Platform.runLater}
+	 * @throws ExecutionException
+	 *             if the task failed
+	 */
+	public static void awaitOnFXThread(FutureTask<?> task) throws ExecutionException {
+		while (!shuttingDown) {
+			try {
+				task.get(100, TimeUnit.MILLISECONDS);
+				return;
+			} catch (TimeoutException e) {
+				// look again to see if the application is closing
+			} catch (CancellationException e) {
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		task.cancel(false);
+		logger.debug("A task for the JavaFX Application Thread was abandoned because the application is closing");
+	}
+
+	/**
+	 * @return true if the current run has stopped at a checkpoint because it was cancelled, so that the command executing it should
+	 *         go no further
+	 */
+	public static boolean isCancelled() {
+		Run run = current;
+		return run != null && run.thread == Thread.currentThread() && run.stopped;
+	}
+
+	/**
+	 * @return true if a command is in progress on the simulation thread. While it is, the user may not change project, timeStamp or
+	 *         anything else that the command depends on
+	 */
+	public static boolean isRunning() {
+		return current != null;
+	}
+
+	/**
+	 * cancel any run in progress and wait a short while for it to reach the end of its current sub-step, so that the frames it has
+	 * completed can still be written to the database. Called on the JavaFX Application Thread when the application closes. A run that is
+	 * waiting for the JavaFX Application Thread, to publish a frame or show a dialogue, stops waiting, so that it can reach its next checkpoint
+	 * 
+	 * @return true if the simulation thread has stopped, false if a run is still in progress, in which case its current frame is incomplete
+	 */
+	public static boolean shutdown() {
+		shuttingDown = true;
+		Run run = current;
+		if (run != null)
+			run.requestCancel();
+		if (executor == null)
+			return true;
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+				logger.error("The simulation thread did not stop within 10 seconds");
+				return false;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+
+	private static ExecutorService executor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Simulation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+}
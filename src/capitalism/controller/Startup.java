@@ -0,0 +1,168 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.model.PersistenceUnit;
+import capitalism.model.Project;
+import capitalism.reporting.Dialogues;
+import capitalism.reporting.Reporter;
+import capitalism.utils.DBHandler;
+import capitalism.utils.Validate;
+
+/**
+ * Runs the slow parts of startup on background threads, so that the splash screen stays live, and runs the parts that do not
+ * depend on each other at the same time.
+ * {@link #begin()} exports the help files while it exports the data files and opens the database; it then warms up the
+ * persistence units, all at the same time (see {@link PersistenceUnit#warmUp(java.util.concurrent.Executor)}). No project is loaded
+ * until the warm-up has finished, because each unit has only one EntityManager, which is not thread-safe.
+ * {@link #initialiseProjects(List, int)} initialises each project in a task of its own, and returns as soon as the first is ready,
+ * so the main window can be shown while the others carry on. Anything that needs a project which may not yet be ready
+ * waits for it with {@link #awaitProject(int)}.
+ */
+public class Startup {
+	private static final Logger logger = LogManager.getLogger(Startup.class);
+
+	private static final ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+			new ThreadFactory() {
+				private final AtomicInteger threads = new AtomicInteger(0);
+
+				@Override public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Startup-" + threads.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	// completes with true once the database is open and the persistence units have been warmed up
+	private static CompletableFuture<Boolean> database = null;
+
+	// the initialisation of each project, which completes with true if the project passed validation
+	private static final Map<Integer, CompletableFuture<Boolean>> projects = new ConcurrentHashMap<Integer, CompletableFuture<Boolean>>();
+
+	/**
+	 * Start exporting the help and data files, opening the database and warming up the persistence units, and return at once.
+	 * Called from {@link capitalism.Capitalism#init()}, while the splash screen is showing
+	 */
+	public static synchronized void begin() {
+		if (database != null)
+			return;
+		CompletableFuture.supplyAsync(DBHandler::ExportHelpFiles, executor).thenAccept(exported -> {
+			if (!exported)
+				Dialogues.alert(logger, "Help files could not be located. Will try to carry on without them");
+		});
+		database = CompletableFuture.supplyAsync(DBHandler::initialiseDataBaseAndStart, executor).thenCompose(opened -> {
+			if (!opened)
+				return CompletableFuture.completedFuture(false);
+			return PersistenceUnit.warmUp(executor).thenApply(done -> {
+				logger.debug("Warmed up the persistence units after {} milliseconds", Reporter.timeSinceStart());
+				return true;
+			});
+		});
+	}
+
+	/**
+	 * wait until the database has been opened and the persistence units warmed up, starting the process if {@link #begin()} has not
+	 * 
+	 * @return true if the database is ready, false if it could not be opened
+	 */
+	public static boolean awaitDatabase() {
+		begin();
+		return await(database, "open the database");
+	}
+
+	/**
+	 * Validate and initialise each of the given projects in a task of its own, and wait until the first of them is ready.
+	 * Must not be called from a startup task.
+	 * The cursors of the projects must already have been reset. If any of the others fails validation, the user is told when it does.
+	 * 
+	 * @param all
+	 *            the projects to initialise
+	 * @param firstProjectID
+	 *            the project to wait for, which is the project that will be displayed first
+	 * @return true if the first project passed validation, false otherwise
+	 */
+	public static boolean initialiseProjects(List<Project> all, int firstProjectID) {
+		for (Project project : all) {
+			CompletableFuture<Boolean> initialisation = CompletableFuture.supplyAsync(() -> {
+				boolean valid = Validate.validate(project);
+				project.initialiseFrames();
+				return valid;
+			}, executor);
+			projects.put(project.getProjectID(), initialisation);
+			if (project.getProjectID() != firstProjectID) {
+				initialisation.thenAccept(valid -> {
+					if (!valid)
+						Dialogues.alert(logger, "There is an error in project %d. Please see the log for details. will try to continue",
+								project.getProjectID());
+				});
+			}
+		}
+		return awaitProject(firstProjectID);
+	}
+
+	/**
+	 * wait until the given project has been initialised. Returns at once if it has, or if it was never started
+	 * 
+	 * @param projectID
+	 *            the project to wait for
+	 * @return true if the project passed validation, false otherwise
+	 */
+	public static boolean awaitProject(int projectID) {
+		CompletableFuture<Boolean> initialisation = projects.get(projectID);
+		return initialisation == null || await(initialisation, "initialise project " + projectID);
+	}
+
+	/**
+	 * wait until every project has been initialised
+	 * 
+	 * @return true if every project passed validation, false otherwise
+	 */
+	public static boolean awaitProjects() {
+		boolean valid = true;
+		for (Integer projectID : projects.keySet()) {
+			if (!awaitProject(projectID))
+				valid = false;
+		}
+		return valid;
+	}
+
+	private static boolean await(CompletableFuture<Boolean> task, String description) {
+		try {
+			return task.join();
+		} catch (CompletionException | CancellationException e) {
+			logger.error("Startup could not " + description, e.getCause() == null ? e : e.getCause());
+			return false;
+		}
+	}
+}
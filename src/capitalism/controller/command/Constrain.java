@@ -28,7 +28,9 @@ import capitalism.controller.Simulation;
 import capitalism.model.Commodity;
 import capitalism.model.Industry;
 import capitalism.model.Stock;
+import capitalism.reporting.EventBus;
 import capitalism.reporting.Reporter;
+import capitalism.reporting.SimulationEvent;
 import capitalism.utils.MathStuff;
 import capitalism.view.custom.ActionStates;
 
@@ -113,7 +115,7 @@ public class Constrain implements Command {
 				double coefficient = s.getProductionCoefficient();
 				if (coefficient > 0) {
 					double possibleOutput = quantityAvailable / coefficient;
-					if (possibleOutput < desiredOutputLevel-MathStuff.epsilon) {
+					if (MathStuff.exceeds(desiredOutputLevel, possibleOutput)) {
 						Reporter.report(logger, 2, "Constraining output to %.0f because stock [%s] has a supply of %.0f ",
 								possibleOutput, s.name(), quantityDemanded);
 						desiredOutputLevel = possibleOutput;
@@ -125,6 +127,10 @@ public class Constrain implements Command {
 			}
 			Reporter.report(logger, 2, "Output of [%s] has been set to %.0f; unconstrained output was %.0f",
 					c.name(), desiredOutputLevel, c.getOutput());
+			if (EventBus.isListening()) {
+				EventBus.publish(new SimulationEvent.OutputConstrained(Simulation.projectIDCurrent(), Simulation.timeStampIDCurrent(), c.name(),
+						c.getOutput(), desiredOutputLevel));
+			}
 			c.setOutput(desiredOutputLevel);
 		}
 	}
@@ -124,7 +124,7 @@ public class Demand implements Command {
 			
 			// check for monetary constraints
 
-			if (totalCost < resources + MathStuff.epsilon) {
+			if (!MathStuff.exceeds(totalCost, resources)) {
 				Reporter.report(logger, 3, "Output is unconstrained by cost");
 				c.setOutput(output);
 			} else {
@@ -139,7 +139,7 @@ public class Demand implements Command {
 				double revisedTotalCost = c.replenishmentCosts();
 				
 				resources = moneyAvailable+anticipatedMoneyFromSales;
-				if (revisedTotalCost < resources + MathStuff.epsilon) {
+				if (MathStuff.exceeds(revisedTotalCost, resources)) {
 					Dialogues.alert(logger, "Industry %s is unable to finance its expected level of output", c.name());
 				}else {
 					Reporter.report(logger, 2, "Output has been reduced to %.0f", output);
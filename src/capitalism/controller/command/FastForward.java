@@ -0,0 +1,196 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.controller.command;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.controller.Simulation;
+import capitalism.controller.SimulationExecutor;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
+import capitalism.model.Industry;
+import capitalism.model.TimeStamp;
+import capitalism.reporting.Reporter;
+import capitalism.utils.MathStuff;
+import capitalism.view.custom.ActionStates;
+
+/**
+ * Runs the simulation forward a number of periods, or until some condition holds at the end of a period, without displaying the
+ * frames in between. Every {@code capsim.fastForward.refreshPeriods} periods, or every {@code capsim.fastForward.refreshMillis}
+ * milliseconds, whichever comes first, the simulation pauses while the display shows where it has got to; setting either property to
+ * zero turns that trigger off. Between these refreshes, nothing is rendered, so a long run costs little more than the simulation itself.
+ */
+public class FastForward implements Command {
+	private static final Logger logger = LogManager.getLogger(FastForward.class);
+
+	private static final int refreshPeriods = Integer.getInteger("capsim.fastForward.refreshPeriods", 0);
+	private static final long refreshMillis = Long.getLong("capsim.fastForward.refreshMillis", 1000);
+
+	private static final Command onePeriod = new MeasuredCommand("One Period", new OnePeriod());
+
+	/**
+	 * The conditions on which a fast forward can stop before it has run all the periods it was asked for. Each is tested on the
+	 * frame at the end of every period
+	 */
+	public enum CONDITION {
+		NONE("No condition"), PROFIT_RATE_BELOW("Profit rate below"), INDUSTRY_IDLE("An industry produces nothing"), STEADY_STATE("Steady state");
+		private String text;
+
+		CONDITION(String text) {
+			this.text = text;
+		}
+
+		public String text() {
+			return text;
+		}
+
+		/**
+		 * @return true if this condition needs a threshold
+		 */
+		public boolean hasThreshold() {
+			return this == PROFIT_RATE_BELOW || this == STEADY_STATE;
+		}
+
+		/**
+		 * Create a test for this condition, to be used for a single fast forward.
+		 * 
+		 * @param threshold
+		 *            for PROFIT_RATE_BELOW, the profit rate; for STEADY_STATE, the largest relative change in any industry's output, the total
+		 *            value or the total price from one period to the next that counts as no change. Otherwise ignored
+		 * @return a test that is true when the condition holds at the end of a period, or null if this is NONE
+		 */
+		public Predicate<Frame> test(double threshold) {
+			switch (this) {
+			case PROFIT_RATE_BELOW:
+				return frame -> frame.getTimeStamp().profitRate() < threshold;
+			case INDUSTRY_IDLE:
+				return frame -> {
+					for (Industry industry : frame.getIndustries()) {
+						if (!MathStuff.exceeds(industry.getOutput(), 0))
+							return true;
+					}
+					return false;
+				};
+			case STEADY_STATE:
+				return new SteadyState(threshold);
+			default:
+				return null;
+			}
+		}
+
+		@Override public String toString() {
+			return text;
+		}
+	}
+
+	/**
+	 * true when nothing has changed since the end of the previous period, to within a relative tolerance
+	 */
+	private static class SteadyState implements Predicate<Frame> {
+		private final double tolerance;
+		private double[] previous = null;
+
+		SteadyState(double tolerance) {
+			this.tolerance = tolerance;
+		}
+
+		@Override public boolean test(Frame frame) {
+			TimeStamp timeStamp = frame.getTimeStamp();
+			List<Industry> industries = frame.getIndustries();
+			double[] current = new double[industries.size() + 2];
+			for (int i = 0; i < industries.size(); i++) {
+				current[i] = industries.get(i).getOutput();
+			}
+			current[industries.size()] = timeStamp.totalValue();
+			current[industries.size() + 1] = timeStamp.totalPrice();
+			boolean steady = previous != null && previous.length == current.length;
+			for (int i = 0; steady && i < current.length; i++) {
+				steady = Math.abs(current[i] - previous[i]) <= tolerance * Math.max(Math.abs(current[i]), Math.abs(previous[i])) + MathStuff.roundingEpsilon;
+			}
+			previous = current;
+			return steady;
+		}
+	}
+
+	private final int periods;
+	private final CONDITION condition;
+	private final double threshold;
+
+	/**
+	 * @param periods
+	 *            the largest number of periods to run
+	 * @param condition
+	 *            the condition on which to stop early
+	 * @param threshold
+	 *            the threshold for the condition, if it has one (see {@link CONDITION#test(double)})
+	 */
+	public FastForward(int periods, CONDITION condition, double threshold) {
+		this.periods = periods;
+		this.condition = condition;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @return the number of primitive actions in a full run, against which progress is measured
+	 */
+	public int subSteps() {
+		return periods * subStepsPerPeriod();
+	}
+
+	/**
+	 * @return the number of primitive actions in one period
+	 */
+	public static int subStepsPerPeriod() {
+		int subSteps = 0;
+		for (ActionStates a : ActionStates.values()) {
+			if (a.superAction == null)
+				subSteps += a.subSteps();
+		}
+		return subSteps;
+	}
+
+	public void execute() {
+		Predicate<Frame> stop = condition.test(threshold);
+		long lastRefresh = System.currentTimeMillis();
+		int sinceRefresh = 0;
+		for (int period = 1; period <= periods; period++) {
+			onePeriod.execute();
+			if (SimulationExecutor.isCancelled())
+				return;
+			Frame frame = FrameStore.liveFrame(Simulation.projectIDCurrent());
+			if (stop != null && stop.test(frame)) {
+				Reporter.report(logger, 0, "Fast forward stopped after %d periods because the condition '%s' holds", period, condition.text());
+				return;
+			}
+			sinceRefresh++;
+			long now = System.currentTimeMillis();
+			if (period < periods && (refreshPeriods > 0 && sinceRefresh >= refreshPeriods || refreshMillis > 0 && now - lastRefresh >= refreshMillis)) {
+				SimulationExecutor.publish();
+				lastRefresh = System.currentTimeMillis();
+				sinceRefresh = 0;
+			}
+		}
+		Reporter.report(logger, 0, "Fast forward completed %d periods", periods);
+	}
+}
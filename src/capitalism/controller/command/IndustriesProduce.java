@@ -87,20 +87,24 @@ public class IndustriesProduce implements Command {
 				double stockUsedUp = output * coefficient;
 				if (s.getCommodity().getOrigin() == ORIGIN.SOCIALLY_PRODUCED) {
 					intrinsicValueAdded += stockUsedUp;
-					Reporter.report(logger, 2, "Labour Power has added intrinsic value %.0f (monetary expression $%.0f) to commodity [%s]", 
-							intrinsicValueAdded, stockUsedUp*melt,industry.name());
+					double intrinsicValueSoFar = intrinsicValueAdded;
+					if (Reporter.isReported(2))
+						Reporter.report(logger, 2, () -> String.format("Labour Power has added intrinsic value %.0f (monetary expression $%.0f) to commodity [%s]", 
+								intrinsicValueSoFar, stockUsedUp*melt,industry.name()));
 				} else {
 					double intrinsicStockUsedUp = stockUsedUp * commodity.getUnitPrice()/melt;
-					Reporter.report(logger, 2, "Stock [%s] has transferred intrinsic value %.0f (monetary expression $%.0f) to commodity [%s] ",
-							s.name(), intrinsicStockUsedUp, intrinsicStockUsedUp * melt, industry.name());
+					if (Reporter.isReported(2))
+						Reporter.report(logger, 2, () -> String.format("Stock [%s] has transferred intrinsic value %.0f (monetary expression $%.0f) to commodity [%s] ",
+								s.name(), intrinsicStockUsedUp, intrinsicStockUsedUp * melt, industry.name()));
 					intrinsicValueAdded += intrinsicStockUsedUp;
 				}
 
 				// the stock is reduced by what was used up, and account of this is registered with its use value
 				Commodity u = s.getCommodity();
 				if (stockUsedUp>0) {
-				Reporter.report(logger, 2, "%.0f units of [%s] were used up in producing the output [%s]", stockUsedUp, u.name(),
-						industry.name());
+				if (Reporter.isReported(2))
+					Reporter.report(logger, 2, () -> String.format("%.0f units of [%s] were used up in producing the output [%s]", stockUsedUp, u.name(),
+							industry.name()));
 				double stockOfCommoditySoFarUsedUp = u.getStockUsedUp();
 				u.setStockUsedUp(MathStuff.round(stockOfCommoditySoFarUsedUp + stockUsedUp)); //TODO eliminate this and compute commodity stock usage from stocks themselves
 				s.modifyBy(-stockUsedUp);
@@ -0,0 +1,64 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.controller.command;
+
+import capitalism.controller.Simulation;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
+import capitalism.reporting.CommandMetrics;
+import capitalism.reporting.Phase;
+
+/**
+ * A command that records the cost of each execution of another command in {@link CommandMetrics}, and marks it as a {@link Phase}
+ * for the flight recorder
+ */
+public class MeasuredCommand implements Command {
+	private final String name;
+	private final Command command;
+
+	/**
+	 * @param name
+	 *            the name under which the measurements are published
+	 * @param command
+	 *            the command to measure
+	 */
+	public MeasuredCommand(String name, Command command) {
+		this.name = name;
+		this.command = command;
+	}
+
+	public void execute() {
+		if (!CommandMetrics.isEnabled()) {
+			command.execute();
+			return;
+		}
+		int projectID = Simulation.projectIDCurrent();
+		CommandMetrics.Measurement measurement = CommandMetrics.start(name);
+		Phase phase = Phase.begin(Phase.Kind.COMMAND, name, projectID, Simulation.timeStampIDCurrent());
+		try {
+			command.execute();
+		} finally {
+			measurement.stop();
+			Frame frame = FrameStore.liveFrame(projectID);
+			phase.end(frame == null ? 0 : frame.size());
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package capitalism.controller.command;
 
 import capitalism.controller.Simulation;
+import capitalism.controller.SimulationExecutor;
 import capitalism.view.custom.ActionStates;
 
 public class OnePeriod  extends Simulation implements Command{
@@ -8,11 +9,15 @@ public class OnePeriod  extends Simulation implements Command{
 	}
 	
 	/**
-	 * One complete period
+	 * One complete period, unless the user cancels it part of the way through
 	 */
 	public void execute() {
 		ActionStates.M_C_Exchange.getCommand().execute();
+		if (SimulationExecutor.isCancelled())
+			return;
 		ActionStates.C_P_Produce.getCommand().execute();
+		if (SimulationExecutor.isCancelled())
+			return;
 		ActionStates.C_M_Distribute.getCommand().execute();
 	}
 }
@@ -29,7 +29,9 @@ import capitalism.model.Industry;
 import capitalism.model.Project;
 import capitalism.model.Stock;
 import capitalism.reporting.Dialogues;
+import capitalism.reporting.EventBus;
 import capitalism.reporting.Reporter;
+import capitalism.reporting.SimulationEvent;
 import capitalism.utils.MathStuff;
 import capitalism.view.custom.ActionStates;
 
@@ -105,6 +107,10 @@ public class Prices implements Command {
 				Reporter.report(logger, 2,
 						"Initial Capital $%.0f, profit rate %.4f, total price $%.0f, total value $%.0f, price-value ratio %.4f, new unit price $%.4f",
 						initialCapital, profitRate, totalPrice, totalValue, priceValueRatio, newUnitPrice);
+				if (EventBus.isListening()) {
+					EventBus.publish(new SimulationEvent.PriceSet(Simulation.projectIDCurrent(), Simulation.timeStampIDCurrent(), u.name(),
+							u.getUnitPrice(), newUnitPrice));
+				}
 				u.setUnitPrice(newUnitPrice);
 			}
 			break;
@@ -122,7 +128,7 @@ public class Prices implements Command {
 		double oldMelt = Simulation.melt();
 		double newMelt = oldMelt;
 		double adjustmentFactor = Simulation.totalPrice() / Simulation.totalValue();
-		if (MathStuff.equals(adjustmentFactor, 1)) {
+		if (!MathStuff.equals(adjustmentFactor, 1)) {
 			switch (Simulation.meltResponse()) {
 			case VALUE_DRIVEN: // just accept the existing MELT; prices will then be adjusted to fit
 				Reporter.report(logger, 1, "Value-driven MELT remains unchanged at $%.4f. Prices will be recomputed",oldMelt);
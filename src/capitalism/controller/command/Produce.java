@@ -20,6 +20,7 @@
 package capitalism.controller.command;
 
 import capitalism.controller.Simulation;
+import capitalism.controller.SimulationExecutor;
 import capitalism.view.custom.ActionStates;
 
 public class Produce implements Command {
@@ -34,6 +35,8 @@ public class Produce implements Command {
 		int startTimeStamp = Simulation.timeStampIDCurrent();
 		for (ActionStates a: ActionStates.C_P_Produce.getChildren()) {
 			a.getCommand().execute();
+			if (!SimulationExecutor.checkpoint(a))
+				break; // the user cancelled a run; stop at this sub-step
 		}
 		// since this is a super-action, the comparison should be with the state at the beginning of the whole set of actions
 		Simulation.setTimeStampComparatorCursor(startTimeStamp);
@@ -74,8 +74,9 @@ public class Trade implements Command {
 				double quantityPurchased = s.getReplenishmentDemand();
 				double unitPrice = stockCommodity.getUnitPrice();
 				if (quantityPurchased > 0) {
-					Reporter.report(logger, 2, "Industry [%s] is purchasing %.0f units of [%s] for $%.0f", s.getOwner(), quantityPurchased,
-							s.name(), quantityPurchased * unitPrice);
+					if (Reporter.isReported(2))
+						Reporter.report(logger, 2, () -> String.format("Industry [%s] is purchasing %.0f units of [%s] for $%.0f", s.getOwner(), quantityPurchased,
+								s.name(), quantityPurchased * unitPrice));
 					Stock sellerMoneyStock = null;
 					Stock sellerSalesStock = null;
 					if (s.getCommodity().getOrigin() == ORIGIN.SOCIALLY_PRODUCED){
@@ -88,8 +89,9 @@ public class Trade implements Command {
 							if (salesStock != null) {
 								sellerMoneyStock = sc.moneyStock();
 								sellerSalesStock = salesStock;
-								Reporter.report(logger, 2, "Social class [%s] is going to sell %.0f units of [%s]", 
-										sc.name(), quantityPurchased,s.name());
+								if (Reporter.isReported(2))
+									Reporter.report(logger, 2, () -> String.format("Social class [%s] is going to sell %.0f units of [%s]", 
+											sc.name(), quantityPurchased,s.name()));
 							}
 						}
 						if (sellerSalesStock == null) {
@@ -109,8 +111,9 @@ public class Trade implements Command {
 						for (Industry seller:stockCommodity.industries()) {
 							double marketShare=seller.salesQuantity()/stockCommodity.totalSupply();
 							double quantitySold=marketShare*quantityPurchased;
-							Reporter.report(logger, 2, "The industry [%s] is selling %.0f units of [%s]", 
-									seller.name(), quantitySold, stockCommodity.name());
+							if (Reporter.isReported(2))
+								Reporter.report(logger, 2, () -> String.format("The industry [%s] is selling %.0f units of [%s]", 
+										seller.name(), quantitySold, stockCommodity.name()));
 							sellerMoneyStock = seller.moneyStock();
 							sellerSalesStock = seller.salesStock();
 							try {
@@ -158,7 +161,7 @@ public class Trade implements Command {
 					Dialogues.alert(logger, "A stock required by [%s] to meet its needs is missing", buyerName);
 					break;
 				}
-				if (buyer.getRevenue() > buyer.moneyQuantity()+MathStuff.epsilon) {
+				if (MathStuff.exceeds(buyer.getRevenue(), buyer.moneyQuantity())) {
 					logger.debug("Class {} has revenue {} and money {}",
 							buyer.name(), buyer.getRevenue(),buyer.moneyQuantity());
 					Dialogues.alert(logger,
@@ -168,7 +171,7 @@ public class Trade implements Command {
 							buyer.name(),u.name());
 					break;
 				}
-				if (maximumQuantityAdded < quantityAdded - MathStuff.epsilon) {
+				if (MathStuff.exceeds(quantityAdded, maximumQuantityAdded)) {
 					logger.debug("Class {} cannot buy {} and instead has to buy {} with money {}",
 							buyer.name(), quantityAdded,maximumQuantityAdded,buyer.moneyQuantity());
 					Dialogues.alert(logger, "[%s] do not have enough money. This could be a data error; try giving them more money. If the problem persists, contact the developer", buyer.name());
@@ -178,8 +181,10 @@ public class Trade implements Command {
 
 				// OK, it seems as if we are good to go
 				
-				Reporter.report(logger, 2, "The social class [%s] is buying %.0f units of [%s] for %.0f",
-						buyerName, quantityAdded, u.name(), quantityAdded * unitPrice);
+				double quantityBought = quantityAdded;
+				if (Reporter.isReported(2))
+					Reporter.report(logger, 2, () -> String.format("The social class [%s] is buying %.0f units of [%s] for %.0f",
+							buyerName, quantityBought, u.name(), quantityBought * unitPrice));
 				try {
 					sellerSalesStock.transferStock(consumptionStock, quantityAdded);
 					buyerMoneyStock.transferStock(sellerMoneyStock, quantityAdded * unitPrice);
@@ -190,7 +195,8 @@ public class Trade implements Command {
 				}
 				double usedUpRevenue = quantityAdded * unitPrice;
 				buyer.setRevenue(buyer.getRevenue() - usedUpRevenue);
-				Reporter.report(logger, 2, "Disposable revenue reduced by $%.0f", usedUpRevenue);
+				if (Reporter.isReported(2))
+					Reporter.report(logger, 2, () -> String.format("Disposable revenue reduced by $%.0f", usedUpRevenue));
 			}
 		}
 	}
@@ -21,6 +21,9 @@
 package capitalism.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import javax.persistence.*;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -52,7 +55,7 @@ import javafx.collections.ObservableList;
 @Embeddable
 @XmlAccessorType(XmlAccessType.NONE)
 @XmlRootElement
-public class Commodity implements Serializable {
+public class Commodity implements Serializable, Deltas.Measured {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LogManager.getLogger("Commodity");
 
@@ -80,33 +83,8 @@ public class Commodity implements Serializable {
 	@Transient private Commodity endComparator;
 
 	// Data Management fields
-	private static EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("DB_COMMODITIES");
-	private static EntityManager entityManager;
-	private static TypedQuery<Commodity> primaryQuery;
-	private static TypedQuery<Commodity> withProjectAndTimeStampQuery;
-	private static TypedQuery<Commodity> withOriginQuery;
-	private static TypedQuery<Commodity> withFunctionQuery;
-	private static TypedQuery<Commodity> deleteQuery;
-	private static TypedQuery<Commodity> allInProjectQuery;
-	private static TypedQuery<Commodity> allQuery;
-
-	// initialise the entitManagers and queries statically once only, hopefully to reduce expensive requests for connections and query-building
-	// TODO test with the EclipseLink profiler
-	static {
-		entityManager = entityManagerFactory.createEntityManager();
-		primaryQuery = entityManager.createQuery(
-				"SELECT u FROM Commodity u where u.pk.projectID= :project AND u.pk.timeStampID= :timeStamp and u.pk.name=:name", Commodity.class);
-		allQuery = entityManager.createQuery("SELECT u from Commodity u", Commodity.class);
-		allInProjectQuery = entityManager.createQuery("SELECT u from Commodity u where u.pk.projectID =:project", Commodity.class);
-		withProjectAndTimeStampQuery = entityManager.createQuery(
-				"SELECT u FROM Commodity u where u.pk.projectID= :project and u.pk.timeStampID = :timeStamp", Commodity.class);
-		withOriginQuery = entityManager.createQuery(
-				"SELECT u FROM Commodity u where u.pk.projectID= :project and u.pk.timeStampID = :timeStamp and u.origin=:origin", Commodity.class);
-		withFunctionQuery = entityManager.createQuery(
-				"SELECT u FROM Commodity u where u.pk.projectID= :project and u.pk.timeStampID = :timeStamp and u.function=:function order by u.displayOrder",
-				Commodity.class);
-		deleteQuery = entityManager.createQuery("Delete from Commodity c where c.pk.projectID=:project and c.pk.timeStampID>1", Commodity.class);
-	}
+	private static final PersistenceUnit.LazyQuery<Commodity> allQuery = PersistenceUnit.COMMODITIES.query("SELECT u from Commodity u", Commodity.class);
+	private static final PersistenceUnit.LazyQuery<Commodity> allInProjectQuery = PersistenceUnit.COMMODITIES.query("SELECT u from Commodity u where u.pk.projectID =:project", Commodity.class);
 
 	// Enums
 	/**
@@ -266,16 +244,15 @@ public class Commodity implements Serializable {
 	 * @return a list of Observable Commodities for the current project and timeStamp
 	 */
 	public static ObservableList<Commodity> commoditiesObservable(int projectID, int timeStampID) {
-		Commodity.withProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
 		ObservableList<Commodity> result = FXCollections.observableArrayList();
-		for (Commodity u : Commodity.withProjectAndTimeStampQuery.getResultList()) {
+		for (Commodity u : all(projectID, timeStampID)) {
 			result.add(u);
 		}
 		return result;
 	}
 
 	/**
-	 * provides a wrapped version of the selected member which the display will recognise, as a ReadOnlyStringWrapper.
+	 * provides the selected member as the display shows it.
 	 * 
 	 * We don't mind the hardwiring because we don't really intend this code to be re-usable, it's not hard to modify, and it results in compact
 	 * and readable usage code (see (@link TabbedTableViewer#populateCommoditiesViewTable})
@@ -284,51 +261,63 @@ public class Commodity implements Serializable {
 	 *            chooses which member to evaluate
 	 * @return a String representation of the members, formatted according to the relevant format string
 	 */
-	public ReadOnlyStringWrapper wrappedString(COMMODITY_ATTRIBUTE attributeSelector) {
+	public String formattedString(COMMODITY_ATTRIBUTE attributeSelector) {
 		switch (attributeSelector) {
 		case NAME:
-			return new ReadOnlyStringWrapper(pk.name);
+			return pk.name;
 		case PRODUCERTYPE:
-			return new ReadOnlyStringWrapper(origin.text());
+			return origin.text();
 		case UNITPRICE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), expressionOf(VALUE_PROPERTY.UNIT_PRICE)));
+			return String.format(ViewManager.getSmallFormat(), expressionOf(VALUE_PROPERTY.UNIT_PRICE));
 		case UNITVALUE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), expressionOf(VALUE_PROPERTY.UNIT_VALUE)));
+			return String.format(ViewManager.getSmallFormat(), expressionOf(VALUE_PROPERTY.UNIT_VALUE));
 		case TOTALVALUE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.VALUE)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.VALUE));
 		case TOTALPRICE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.PRICE)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.PRICE));
 		case TOTALQUANTITY:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), totalQuantity()));
+			return String.format(ViewManager.getLargeFormat(), totalQuantity());
 		case TOTALSUPPLY:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), totalSupply()));
+			return String.format(ViewManager.getLargeFormat(), totalSupply());
 		case REPLENISHMENT_DEMAND:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), replenishmentDemand()));
+			return String.format(ViewManager.getLargeFormat(), replenishmentDemand());
 		case EXPANSION_DEMAND:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expansionDemand()));
+			return String.format(ViewManager.getLargeFormat(), expansionDemand());
 		case SURPLUS:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), surplusProduct));
+			return String.format(ViewManager.getLargeFormat(), surplusProduct);
 		case TURNOVERTIME:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), turnoverTime));
+			return String.format(ViewManager.getSmallFormat(), turnoverTime);
 		case ALLOCATIONSHARE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), allocationShare));
+			return String.format(ViewManager.getSmallFormat(), allocationShare);
 		case FUNCTION_TYPE:
-			return new ReadOnlyStringWrapper(function.text);
+			return function.text;
 		case INITIALCAPITAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.INITIAL_CAPITAL)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.INITIAL_CAPITAL));
 		case INITIALPRODUCTIVECAPITAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.INITIAL_PRODUCTIVE_CAPITAL)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.INITIAL_PRODUCTIVE_CAPITAL));
 		case CURRENTCAPITAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.CURRENT_CAPITAL)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.CURRENT_CAPITAL));
 		case PROFIT:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.PROFIT)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(VALUE_PROPERTY.PROFIT));
 		case PROFITRATE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), profitRate()));
+			return String.format(ViewManager.getSmallFormat(), profitRate());
 		default:
 			return null;
 		}
 	}
 
+	/**
+	 * provides {@link #formattedString(COMMODITY_ATTRIBUTE)} as a ReadOnlyStringWrapper, which the display will recognise
+	 * 
+	 * @param attributeSelector
+	 *            chooses which member to evaluate
+	 * @return the wrapped String, null if there is none
+	 */
+	public ReadOnlyStringWrapper wrappedString(COMMODITY_ATTRIBUTE attributeSelector) {
+		String text = formattedString(attributeSelector);
+		return text == null ? null : new ReadOnlyStringWrapper(text);
+	}
+
 	/**
 	 * informs the display whether the selected member of this entity has changed, compared with the 'comparator' Commodity which normally
 	 * comes from a different timeStamp.
@@ -342,42 +331,7 @@ public class Commodity implements Serializable {
 	 */
 	public boolean changed(COMMODITY_ATTRIBUTE attributeSelector) {
 		chooseComparison();
-		switch (attributeSelector) {
-		case NAME:
-			return false;
-		case PRODUCERTYPE:
-			return false;
-		case UNITPRICE:
-			return unitPrice != comparator.getUnitPrice();// no need to convert to intrinsic/extrinsic. The result will be the same
-		case UNITVALUE:
-			return unitValue != comparator.getUnitValue();// no need to convert to intrinsic/extrinsic. The result will be the same
-		case TOTALVALUE:
-			return expressionOf(VALUE_PROPERTY.VALUE) != expressionOf(VALUE_PROPERTY.VALUE);
-		case TOTALPRICE:
-			return expressionOf(VALUE_PROPERTY.PRICE) != expressionOf(VALUE_PROPERTY.PRICE);
-		case TOTALQUANTITY:
-			return totalQuantity() != comparator.totalQuantity();
-		case TOTALSUPPLY:
-			return totalSupply() != comparator.totalSupply();
-		case REPLENISHMENT_DEMAND:
-			return replenishmentDemand() != comparator.replenishmentDemand();
-		case SURPLUS:
-			return surplusProduct != comparator.surplusProduct;
-		case TURNOVERTIME:
-			return turnoverTime != comparator.getTurnoverTime();
-		case ALLOCATIONSHARE:
-			return allocationShare != comparator.allocationShare;
-		case INITIALCAPITAL:
-			return initialCapital() != comparator.initialCapital();// no need to convert to intrinsic/extrinsic. The result will be the same
-		case CURRENTCAPITAL:
-			return currentCapital() != comparator.currentCapital();// no need to convert to intrinsic/extrinsic. The result will be the same
-		case PROFIT:
-			return profit() != comparator.profit();// no need to convert to intrinsic/extrinsic. The result will be the same
-		case PROFITRATE:
-			return profitRate() != comparator.profitRate();
-		default:
-			return false;
-		}
+		return Deltas.changed(this, comparator, attributeSelector.ordinal(), Stock.VALUE_EXPRESSION.PRICE);// no attribute of a commodity depends on the expression
 	}
 
 	/**
@@ -395,45 +349,52 @@ public class Commodity implements Serializable {
 		chooseComparison();
 		if (!changed(attributeSelector))
 			return item;
+		double delta = Deltas.delta(this, comparator, attributeSelector.ordinal(), Stock.VALUE_EXPRESSION.PRICE);
 		switch (attributeSelector) {
-		case NAME:
-		case PRODUCERTYPE:
-			return item;
 		case UNITPRICE:
-			return String.format(ViewManager.getSmallFormat(), (expressionOf(VALUE_PROPERTY.UNIT_PRICE) - comparator.expressionOf(VALUE_PROPERTY.UNIT_PRICE)));
 		case UNITVALUE:
-			return String.format(ViewManager.getSmallFormat(), (expressionOf(VALUE_PROPERTY.UNIT_VALUE) - comparator.expressionOf(VALUE_PROPERTY.UNIT_VALUE)));
+			return String.format(ViewManager.getSmallFormat(), ViewManager.valueExpression(delta, DisplayControlsBox.expressionDisplay));
 		case TOTALVALUE:
-			return String.format(ViewManager.getLargeFormat(), (expressionOf(VALUE_PROPERTY.VALUE) - comparator.expressionOf(VALUE_PROPERTY.VALUE)));
 		case TOTALPRICE:
-			return String.format(ViewManager.getLargeFormat(), (expressionOf(VALUE_PROPERTY.PRICE) - comparator.expressionOf(VALUE_PROPERTY.PRICE)));
-		case TOTALQUANTITY:
-			return String.format(ViewManager.getLargeFormat(), (totalQuantity() - comparator.totalQuantity()));
-		case TOTALSUPPLY:
-			return String.format(ViewManager.getLargeFormat(), (totalSupply() - comparator.totalSupply()));
-		case REPLENISHMENT_DEMAND:
-			return String.format(ViewManager.getLargeFormat(), (replenishmentDemand() - comparator.replenishmentDemand()));
-		case SURPLUS:
-			return String.format(ViewManager.getLargeFormat(), (surplusProduct - comparator.surplusProduct));
-		case TURNOVERTIME:
-			return String.format(ViewManager.getSmallFormat(), (turnoverTime - comparator.getTurnoverTime()));
-		case ALLOCATIONSHARE:
-			return String.format(ViewManager.getSmallFormat(), (allocationShare - comparator.allocationShare));
 		case PROFIT:
-			return String.format(ViewManager.getLargeFormat(), ((expressionOf(VALUE_PROPERTY.PROFIT) - comparator.expressionOf(VALUE_PROPERTY.PROFIT))));
 		case INITIALCAPITAL:
-			return String.format(ViewManager.getLargeFormat(),
-					((expressionOf(VALUE_PROPERTY.INITIAL_CAPITAL) - comparator.expressionOf(VALUE_PROPERTY.INITIAL_CAPITAL))));
 		case CURRENTCAPITAL:
-			return String.format(ViewManager.getLargeFormat(),
-					((expressionOf(VALUE_PROPERTY.CURRENT_CAPITAL) - comparator.expressionOf(VALUE_PROPERTY.CURRENT_CAPITAL))));
-		case PROFITRATE:
-			return String.format(ViewManager.getLargeFormat(), (profitRate() - comparator.profitRate()));
+			return String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(delta, DisplayControlsBox.expressionDisplay));
+		case TURNOVERTIME:
+		case ALLOCATIONSHARE:
+			return String.format(ViewManager.getSmallFormat(), delta);
 		default:
-			return item;
+			return String.format(ViewManager.getLargeFormat(), delta);
 		}
 	}
 
+	/**
+	 * The magnitudes compared by {@link #changed(COMMODITY_ATTRIBUTE)}, before they are expressed as time or money.
+	 * Called by {@link Deltas}, which keeps the result until the next frame is displayed.
+	 * 
+	 * @param valueExpression
+	 *            not used, since no attribute of a commodity depends on it
+	 * @return the magnitude of each attribute, indexed by its ordinal; NaN for those that are not compared
+	 */
+	@Override public double[] magnitudes(Stock.VALUE_EXPRESSION valueExpression) {
+		double[] m = Deltas.emptyMagnitudes(COMMODITY_ATTRIBUTE.values().length);
+		m[COMMODITY_ATTRIBUTE.UNITPRICE.ordinal()] = unitPrice;
+		m[COMMODITY_ATTRIBUTE.UNITVALUE.ordinal()] = unitValue;
+		m[COMMODITY_ATTRIBUTE.TOTALVALUE.ordinal()] = totalValue();
+		m[COMMODITY_ATTRIBUTE.TOTALPRICE.ordinal()] = totalPrice();
+		m[COMMODITY_ATTRIBUTE.TOTALQUANTITY.ordinal()] = totalQuantity();
+		m[COMMODITY_ATTRIBUTE.TOTALSUPPLY.ordinal()] = totalSupply();
+		m[COMMODITY_ATTRIBUTE.REPLENISHMENT_DEMAND.ordinal()] = replenishmentDemand();
+		m[COMMODITY_ATTRIBUTE.SURPLUS.ordinal()] = surplusProduct;
+		m[COMMODITY_ATTRIBUTE.TURNOVERTIME.ordinal()] = turnoverTime;
+		m[COMMODITY_ATTRIBUTE.ALLOCATIONSHARE.ordinal()] = allocationShare;
+		m[COMMODITY_ATTRIBUTE.INITIALCAPITAL.ordinal()] = initialCapital();
+		m[COMMODITY_ATTRIBUTE.CURRENTCAPITAL.ordinal()] = currentCapital();
+		m[COMMODITY_ATTRIBUTE.PROFIT.ordinal()] = profit();
+		m[COMMODITY_ATTRIBUTE.PROFITRATE.ordinal()] = profitRate();
+		return m;
+	}
+
 	/**
 	 * chooses the comparator depending on the state set in the {@code ViewManager.comparatorToggle} radio buttons
 	 */
@@ -707,12 +668,11 @@ public class Commodity implements Serializable {
 	 * @return the singlecommodity given by this primary key, null if it does not exist
 	 */
 	public static Commodity single(int project, int timeStamp, String name) {
-		primaryQuery.setParameter("project", project).setParameter("timeStamp", timeStamp).setParameter("name", name);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (NoResultException r) {
-			return null;
+		for (Commodity u : all(project, timeStamp)) {
+			if (u.pk.name.equals(name))
+				return u;
 		}
+		return null;
 	}
 
 	/**
@@ -725,8 +685,8 @@ public class Commodity implements Serializable {
 	 * @return a list of all commodities at the given projectID and timeStampID
 	 */
 	public static List<Commodity> all(int projectID, int timeStampID) {
-		withProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		return withProjectAndTimeStampQuery.getResultList();
+		Frame frame = FrameStore.frame(projectID, timeStampID);
+		return frame == null ? new ArrayList<Commodity>() : frame.getCommodities();
 	}
 
 	/**
@@ -737,8 +697,11 @@ public class Commodity implements Serializable {
 	 * @return a list of all commodities at the given projectID
 	 */
 	public static List<Commodity> all(int projectID) {
-		allInProjectQuery.setParameter("project", projectID);
-		return allInProjectQuery.getResultList();
+		List<Commodity> result = new ArrayList<Commodity>();
+		for (Frame frame : FrameStore.frames(projectID)) {
+			result.addAll(frame.getCommodities());
+		}
+		return result;
 	}
 
 	/**
@@ -747,7 +710,7 @@ public class Commodity implements Serializable {
 	 * @return a list of all commodities at the given projectID
 	 */
 	public static List<Commodity> all() {
-		return allQuery.getResultList();
+		return allQuery.get().getResultList();
 	}
 
 	/**
@@ -763,10 +726,12 @@ public class Commodity implements Serializable {
 	 * 
 	 */
 	public static List<Commodity> currentByOrigin(int projectID, int timeStampID, Commodity.ORIGIN origin) {
-		withOriginQuery.setParameter("project", projectID);
-		withOriginQuery.setParameter("timeStamp", timeStampID);
-		withOriginQuery.setParameter("origin", origin);
-		return withOriginQuery.getResultList();
+		List<Commodity> result = new ArrayList<Commodity>();
+		for (Commodity u : all(projectID, timeStampID)) {
+			if (u.origin == origin)
+				result.add(u);
+		}
+		return result;
 	}
 
 	/**
@@ -781,9 +746,17 @@ public class Commodity implements Serializable {
 	 * @return a list of all commodities with the given function at the given timeStamp and project
 	 */
 	public static List<Commodity> currentByFunction(int projectID, int timeStampID, Commodity.FUNCTION function) {
-		withFunctionQuery.setParameter("timeStamp", timeStampID).setParameter("project", projectID);
-		withFunctionQuery.setParameter("function", function);
-		return withFunctionQuery.getResultList();
+		List<Commodity> result = new ArrayList<Commodity>();
+		for (Commodity u : all(projectID, timeStampID)) {
+			if (u.function == function)
+				result.add(u);
+		}
+		Collections.sort(result, new Comparator<Commodity>() {
+			@Override public int compare(Commodity a, Commodity b) {
+				return Integer.compare(a.displayOrder, b.displayOrder);
+			}
+		});
+		return result;
 	}
 
 	/**
@@ -797,26 +770,13 @@ public class Commodity implements Serializable {
 	 * @return the single use value of origin type SOCIALLY_PRODUCED, which will be labour poweer
 	 */
 	public static Commodity labourPower(int projectID, int timeStampID) {
-		
-		// temporary debug query
-		for (Commodity commodity: all(projectID)) {
-			logger.debug(commodity.toString());
-		}
-		
-		withOriginQuery.setParameter("project", projectID);
-		withOriginQuery.setParameter("timeStamp", timeStampID);
-		withOriginQuery.setParameter("origin", Commodity.ORIGIN.SOCIALLY_PRODUCED);
-		
-		for (Commodity commodity:withOriginQuery.getResultList()) {
-			logger.debug("Restricted list");
-			logger.debug(commodity.toString());
-		}
-		
-		try {
-			return withOriginQuery.getSingleResult();
-		} catch (NoResultException r) {
+		List<Commodity> result = currentByOrigin(projectID, timeStampID, Commodity.ORIGIN.SOCIALLY_PRODUCED);
+		switch (result.size()) {
+		case 0:
 			return null;
-		} catch (NonUniqueResultException n) {
+		case 1:
+			return result.get(0);
+		default:
 			Dialogues.alert(logger, "More than one commodity labour power found. This is a data error. Please consult the log. "
 					+ "If the problem persists, please contact the developer");
 			return null;
@@ -833,9 +793,8 @@ public class Commodity implements Serializable {
 	 */
 	public static void setComparators(int projectID, int timeStampID) {
 		logger.debug("Setting comparators for Commodities in project {} with timeStamp {}", projectID, timeStampID);
-		withProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
 		Project project = Project.get(projectID);
-		for (Commodity u : Commodity.withProjectAndTimeStampQuery.getResultList()) {
+		for (Commodity u : all(projectID, timeStampID)) {
 			u.setPreviousComparator(single(projectID, project.getTimeStampComparatorCursor(), u.name()));
 			u.setStartComparator(single(projectID, 1, u.name()));
 			u.setEndComparator(single(projectID, project.getTimeStampID(), u.name()));
@@ -844,14 +803,15 @@ public class Commodity implements Serializable {
 	}
 
 	/**
-	 * Delete all commodities with the given projectID except those with timeStamp 1
+	 * Read all the commodities of the given project from the database. Used by {@link FrameStore} to build the frames of a project
 	 * 
 	 * @param projectID
-	 *            the projectID whose commodities will be deleted
+	 *            the given projectID
+	 * @return a list of all the persisted commodities of the given project
 	 */
-	public static void deleteFromProject(int projectID) {
-		deleteQuery.setParameter("project", projectID);
-		deleteQuery.executeUpdate();
+	static List<Commodity> loadFromDatabase(int projectID) {
+		allInProjectQuery.get().setParameter("project", projectID);
+		return allInProjectQuery.get().getResultList();
 	}
 
 	/**
@@ -904,7 +864,7 @@ public class Commodity implements Serializable {
 	 * @return the entityManager for the Commodity class
 	 */
 	public static EntityManager getEntityManager() {
-		return Commodity.entityManager;
+		return PersistenceUnit.COMMODITIES.entityManager();
 	}
 
 	/**
@@ -1061,6 +1021,13 @@ public class Commodity implements Serializable {
 		return imageName;
 	}
 
+	/**
+	 * @return the displayOrder
+	 */
+	public int getDisplayOrder() {
+		return displayOrder;
+	}
+
 	/**
 	 * @return the previousComparator
 	 */
@@ -0,0 +1,134 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.model;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The magnitudes that the display compares with those of a comparator, worked out once for each entity and kept as arrays indexed by the
+ * ordinal of the entity's attribute enum. Highlighting a change, or showing a delta, then reads two arrays instead of recalculating
+ * derived totals (many of which search the stocks) on the entity and again on its comparator. Since the comparators' arrays are kept as
+ * well, switching between the START, END, PREVIOUS and CUSTOM comparators reads arrays that mostly exist already.
+ * 
+ * The magnitudes are kept as they are before they are expressed as time or money, so they do not depend on that choice. They are discarded
+ * by {@link #invalidate()} whenever a frame is displayed, because the entities of the current frame change as the simulation proceeds.
+ */
+public class Deltas {
+	private static final Logger logger = LogManager.getLogger(Deltas.class);
+
+	private static final int EXPRESSIONS = Stock.VALUE_EXPRESSION.values().length;
+
+	// one array for each value expression, for each entity measured since the last invalidation
+	private static final IdentityHashMap<Measured, double[][]> measured = new IdentityHashMap<Measured, double[][]>();
+
+	/**
+	 * An entity whose attributes are compared with those of its comparator
+	 */
+	public interface Measured {
+		/**
+		 * @param valueExpression
+		 *            selects QUANTITY, VALUE or PRICE for those attributes that depend on it
+		 * @return the magnitude of each attribute, indexed by the ordinal of the attribute; NaN for attributes that are not compared
+		 */
+		double[] magnitudes(Stock.VALUE_EXPRESSION valueExpression);
+	}
+
+	/**
+	 * @param entity
+	 *            an entity
+	 * @param valueExpression
+	 *            selects QUANTITY, VALUE or PRICE for those attributes that depend on it
+	 * @return the magnitudes of the entity's attributes, calculated now if they have not been since the last invalidation
+	 */
+	public static synchronized double[] magnitudes(Measured entity, Stock.VALUE_EXPRESSION valueExpression) {
+		double[][] arrays = measured.get(entity);
+		if (arrays == null) {
+			arrays = new double[EXPRESSIONS][];
+			measured.put(entity, arrays);
+		}
+		double[] result = arrays[valueExpression.ordinal()];
+		if (result == null) {
+			result = entity.magnitudes(valueExpression);
+			arrays[valueExpression.ordinal()] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @param entity
+	 *            an entity
+	 * @param comparator
+	 *            the entity it is compared with, normally the same entity in another frame; null if there is none
+	 * @param attribute
+	 *            the ordinal of the attribute to compare
+	 * @param valueExpression
+	 *            selects QUANTITY, VALUE or PRICE for those attributes that depend on it
+	 * @return true if the attribute differs from the comparator's. False if there is no comparator, or the attribute is not compared
+	 */
+	public static boolean changed(Measured entity, Measured comparator, int attribute, Stock.VALUE_EXPRESSION valueExpression) {
+		if (comparator == null)
+			return false;
+		double mine = magnitudes(entity, valueExpression)[attribute];
+		double theirs = magnitudes(comparator, valueExpression)[attribute];
+		if (Double.isNaN(mine) && Double.isNaN(theirs))
+			return false;
+		return mine != theirs;
+	}
+
+	/**
+	 * @param entity
+	 *            an entity
+	 * @param comparator
+	 *            the entity it is compared with; null if there is none
+	 * @param attribute
+	 *            the ordinal of the attribute to compare
+	 * @param valueExpression
+	 *            selects QUANTITY, VALUE or PRICE for those attributes that depend on it
+	 * @return the entity's magnitude less the comparator's; zero if there is no comparator
+	 */
+	public static double delta(Measured entity, Measured comparator, int attribute, Stock.VALUE_EXPRESSION valueExpression) {
+		if (comparator == null)
+			return 0;
+		return magnitudes(entity, valueExpression)[attribute] - magnitudes(comparator, valueExpression)[attribute];
+	}
+
+	/**
+	 * discard every array, because the entities measured may since have changed
+	 */
+	public static synchronized void invalidate() {
+		logger.debug("Discarding the magnitudes of {} entities", measured.size());
+		measured.clear();
+	}
+
+	/**
+	 * @param size
+	 *            the number of attributes
+	 * @return an array of magnitudes with none filled in
+	 */
+	static double[] emptyMagnitudes(int size) {
+		double[] result = new double[size];
+		Arrays.fill(result, Double.NaN);
+		return result;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package capitalism.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.reporting.Phase;
+
+/**
+ * All the persistent entities of one project at one timeStamp: the timeStamp record itself and the
+ * commodities, industries, socialClasses and stocks that carry its projectID and timeStampID.
+ * 
+ * Frames are held in memory by {@link FrameStore}, which is where the static finders of the entity classes
+ * look for them. The simulation only ever modifies the frame at the current timeStamp of a project. Once
+ * {@link capitalism.controller.Simulation#advanceOneStep(String, String)} has moved on, the previous frame is
+ * complete and is not modified again, so it can be handed to the database writer without copying it.
+ */
+public class Frame {
+	private static final Logger logger = LogManager.getLogger(Frame.class);
+
+	private TimeStamp timeStamp;
+	private List<Commodity> commodities = new ArrayList<Commodity>();
+	private List<Industry> industries = new ArrayList<Industry>();
+	private List<SocialClass> socialClasses = new ArrayList<SocialClass>();
+	private List<Stock> stocks = new ArrayList<Stock>();
+
+	/**
+	 * an empty frame for the given timeStamp. The entity lists are populated by the caller
+	 * 
+	 * @param timeStamp
+	 *            the timeStamp record of this frame, which supplies its projectID and timeStampID
+	 */
+	Frame(TimeStamp timeStamp) {
+		this.timeStamp = timeStamp;
+	}
+
+	/**
+	 * Make a carbon copy of every entity in this frame, giving the copies the projectID and timeStampID of {@code next}.
+	 * This is the in-memory equivalent of persisting a new version of all the simulation entities.
+	 * 
+	 * @param next
+	 *            the timeStamp record of the new frame
+	 * @return a new frame, with the same contents as this one, belonging to {@code next}
+	 */
+	public Frame successor(TimeStamp next) {
+		int projectID = next.getProjectID();
+		int timeStampID = next.getTimeStampID();
+		logger.debug("Copying project {} from timeStamp {} to timeStamp {}", getProjectID(), getTimeStampID(), timeStampID);
+		Frame frame = new Frame(next);
+		Phase phase = Phase.begin(Phase.Kind.CLONE, "commodities", projectID, timeStampID);
+		for (Commodity u : commodities) {
+			Commodity commodity = new Commodity(u);
+			commodity.setProjectID(projectID);
+			commodity.setTimeStampID(timeStampID);
+			frame.commodities.add(commodity);
+		}
+		phase.end(commodities.size());
+		phase = Phase.begin(Phase.Kind.CLONE, "stocks", projectID, timeStampID);
+		for (Stock s : stocks) {
+			Stock stock = new Stock(s);
+			stock.setProjectID(projectID);
+			stock.setTimeStamp(timeStampID);
+			frame.stocks.add(stock);
+		}
+		phase.end(stocks.size());
+		phase = Phase.begin(Phase.Kind.CLONE, "industries", projectID, timeStampID);
+		for (Industry c : industries) {
+			Industry industry = new Industry(c);
+			industry.setProjectID(projectID);
+			industry.setTimeStamp(timeStampID);
+			frame.industries.add(industry);
+		}
+		phase.end(industries.size());
+		phase = Phase.begin(Phase.Kind.CLONE, "social classes", projectID, timeStampID);
+		for (SocialClass sc : socialClasses) {
+			SocialClass socialClass = new SocialClass();
+			socialClass.copy(sc);
+			socialClass.setProjectID(projectID);
+			socialClass.setTimeStamp(timeStampID);
+			frame.socialClasses.add(socialClass);
+		}
+		phase.end(socialClasses.size());
+		return frame;
+	}
+
+	/**
+	 * Make a carbon copy of this frame and everything in it, with the same projectID and timeStampID.
+	 * 
+	 * @return a copy of this frame which shares no entities with it
+	 */
+	public Frame copy() {
+		return successor(new TimeStamp(timeStamp));
+	}
+
+	/**
+	 * Make a carbon copy of this frame and everything in it, with the same timeStampID but belonging to another project.
+	 * 
+	 * @param projectID
+	 *            the project that the copy will belong to
+	 * @return a copy of this frame which shares no entities with it
+	 */
+	public Frame copyTo(int projectID) {
+		TimeStamp next = new TimeStamp(timeStamp);
+		next.setProjectID(projectID);
+		return successor(next);
+	}
+
+	/**
+	 * @return the projectID of this frame
+	 */
+	public int getProjectID() {
+		return timeStamp.getProjectID();
+	}
+
+	/**
+	 * Give this frame, and every entity in it, to another project, without copying anything. Used by {@link FrameStore} when the project
+	 * that a shared frame belongs to lets go of it, but a project that branched off it still holds it.
+	 * 
+	 * @param projectID
+	 *            the project that the frame now belongs to
+	 */
+	void setProjectID(int projectID) {
+		logger.debug("Frame at timeStamp {} passes from project {} to project {}", getTimeStampID(), getProjectID(), projectID);
+		timeStamp.setProjectID(projectID);
+		for (Commodity u : commodities) {
+			u.setProjectID(projectID);
+		}
+		for (Industry c : industries) {
+			c.setProjectID(projectID);
+		}
+		for (SocialClass sc : socialClasses) {
+			sc.setProjectID(projectID);
+		}
+		for (Stock s : stocks) {
+			s.setProjectID(projectID);
+		}
+	}
+
+	/**
+	 * @return the timeStampID of this frame
+	 */
+	public int getTimeStampID() {
+		return timeStamp.getTimeStampID();
+	}
+
+	/**
+	 * @return the timeStamp record of this frame
+	 */
+	public TimeStamp getTimeStamp() {
+		return timeStamp;
+	}
+
+	/**
+	 * @return the commodities in this frame
+	 */
+	public List<Commodity> getCommodities() {
+		return commodities;
+	}
+
+	/**
+	 * @return the industries in this frame
+	 */
+	public List<Industry> getIndustries() {
+		return industries;
+	}
+
+	/**
+	 * @return the socialClasses in this frame
+	 */
+	public List<SocialClass> getSocialClasses() {
+		return socialClasses;
+	}
+
+	/**
+	 * @return the stocks in this frame
+	 */
+	public List<Stock> getStocks() {
+		return stocks;
+	}
+
+	/**
+	 * @return the number of entities in this frame, counting its timeStamp
+	 */
+	public int size() {
+		return 1 + commodities.size() + industries.size() + socialClasses.size() + stocks.size();
+	}
+}
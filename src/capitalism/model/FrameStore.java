@@ -0,0 +1,342 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package capitalism.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The in-memory store of simulation entities. Every project has its own partition, which holds one {@link Frame}
+ * for each of its timeStamps. A partition is read from the database the first time the project is used; after
+ * that, the partition is the working copy and the database is brought up to date behind it by
+ * {@link capitalism.utils.WriteBehind}.
+ * 
+ * A project that branches off another shares the completed frames before the branch point with it, by reference (see
+ * {@link #fork(int, int, int)}). A shared frame carries the projectID of just one of the projects that hold it, and its entities find one
+ * another, and their comparators, by that projectID. So a shared frame must always remain in the partition of the project whose projectID
+ * it carries. When that project lets go of the frame, because it is truncated, rewound or restarted, the frame passes to another
+ * project that still holds it (see {@link #release(int, Collection)}), so the frames of the branches are never copied in memory.
+ */
+public class FrameStore {
+	private static final Logger logger = LogManager.getLogger(FrameStore.class);
+
+	private static Map<Integer, NavigableMap<Integer, Frame>> partitions = new ConcurrentHashMap<Integer, NavigableMap<Integer, Frame>>();
+
+	// a private copy of the first frame of each project as it was when the project was initialised, from which the project can be restarted
+	private static Map<Integer, Frame> pristineFrames = new ConcurrentHashMap<Integer, Frame>();
+
+	// held while a project is read from the database
+	private static final Object loadLock = new Object();
+
+	/**
+	 * the partition for the given project, loading it from the database if this has not already been done.
+	 * Projects are initialised on several threads at startup, and the entity classes share one EntityManager each,
+	 * so loading is done by one thread at a time, and a project is only loaded once.
+	 * 
+	 * @param projectID
+	 *            the project whose partition is required
+	 * @return the frames of the project, keyed by timeStampID. Empty, and not retained, if the project has no timeStamps
+	 */
+	static NavigableMap<Integer, Frame> partition(int projectID) {
+		NavigableMap<Integer, Frame> partition = partitions.get(projectID);
+		if (partition == null) {
+			synchronized (loadLock) {
+				partition = partitions.get(projectID);
+				if (partition == null) {
+					partition = load(projectID);
+					// a project that has not yet been persisted is not remembered, so it can be picked up when it is
+					if (!partition.isEmpty())
+						partitions.put(projectID, partition);
+				}
+			}
+		}
+		return partition;
+	}
+
+	/**
+	 * read all the persistent entities of one project from the database and sort them into frames
+	 * 
+	 * @param projectID
+	 *            the project to load
+	 * @return the frames of the project, keyed by timeStampID
+	 */
+	private static NavigableMap<Integer, Frame> load(int projectID) {
+		NavigableMap<Integer, Frame> partition = new ConcurrentSkipListMap<Integer, Frame>();
+		for (TimeStamp t : TimeStamp.loadFromDatabase(projectID)) {
+			partition.put(t.getTimeStampID(), new Frame(t));
+		}
+		for (Commodity u : Commodity.loadFromDatabase(projectID)) {
+			Frame frame = partition.get(u.getTimeStampID());
+			if (frame != null)
+				frame.getCommodities().add(u);
+		}
+		for (Industry c : Industry.loadFromDatabase(projectID)) {
+			Frame frame = partition.get(c.getTimeStampID());
+			if (frame != null)
+				frame.getIndustries().add(c);
+		}
+		for (SocialClass sc : SocialClass.loadFromDatabase(projectID)) {
+			Frame frame = partition.get(sc.getTimeStampID());
+			if (frame != null)
+				frame.getSocialClasses().add(sc);
+		}
+		for (Stock s : Stock.loadFromDatabase(projectID)) {
+			Frame frame = partition.get(s.getTimeStampID());
+			if (frame != null)
+				frame.getStocks().add(s);
+		}
+		logger.debug("Loaded {} frames of project {} from the database", partition.size(), projectID);
+		return partition;
+	}
+
+	/**
+	 * the frame holding all the entities of the given project at the given timeStamp
+	 * 
+	 * @param projectID
+	 *            the projectID of the frame
+	 * @param timeStampID
+	 *            the timeStampID of the frame
+	 * @return the frame, null if it does not exist
+	 */
+	public static Frame frame(int projectID, int timeStampID) {
+		return partition(projectID).get(timeStampID);
+	}
+
+	/**
+	 * all the frames of the given project, in timeStamp order
+	 * 
+	 * @param projectID
+	 *            the project whose frames are required
+	 * @return the frames of the project
+	 */
+	public static Collection<Frame> frames(int projectID) {
+		return partition(projectID).values();
+	}
+
+	/**
+	 * the frames of the given project whose timeStampIDs lie in a range, in timeStamp order
+	 * 
+	 * @param projectID
+	 *            the project whose frames are required
+	 * @param fromTimeStampID
+	 *            the first timeStampID of the range
+	 * @param toTimeStampID
+	 *            the last timeStampID of the range
+	 * @return the frames of the project from {@code fromTimeStampID} to {@code toTimeStampID} inclusive
+	 */
+	public static Collection<Frame> frames(int projectID, int fromTimeStampID, int toTimeStampID) {
+		return partition(projectID).subMap(fromTimeStampID, true, toTimeStampID, true).values();
+	}
+
+	/**
+	 * the frames of the given project that follow a given timeStamp, in timeStamp order
+	 * 
+	 * @param projectID
+	 *            the project whose frames are required
+	 * @param timeStampID
+	 *            the last timeStampID that is not wanted
+	 * @return the frames of the project whose timeStampIDs are greater than {@code timeStampID}
+	 */
+	public static Collection<Frame> framesAfter(int projectID, int timeStampID) {
+		return partition(projectID).tailMap(timeStampID, false).values();
+	}
+
+	/**
+	 * add a new frame to the partition of its project, replacing any frame that already has its timeStampID
+	 * 
+	 * @param frame
+	 *            the frame to add
+	 */
+	public static void add(Frame frame) {
+		partition(frame.getProjectID()).put(frame.getTimeStampID(), frame);
+	}
+
+	/**
+	 * discard every frame of the given project that comes after the given timeStamp
+	 * 
+	 * @param projectID
+	 *            the project to truncate
+	 * @param lastTimeStampID
+	 *            the last timeStampID to keep
+	 */
+	public static void truncate(int projectID, int lastTimeStampID) {
+		Collection<Frame> dropped = partition(projectID).tailMap(lastTimeStampID, false).values();
+		release(projectID, dropped);
+		dropped.clear();
+	}
+
+	/**
+	 * Discard every frame of the given project after the given timeStamp, and make that timeStamp the current frame again.
+	 * The frame at that timeStamp was completed and may already be on its way to the database, or shared with a project that
+	 * branched off this one, so it is replaced by a copy that the simulation is free to modify.
+	 * 
+	 * @param projectID
+	 *            the project to rewind
+	 * @param timeStampID
+	 *            the timeStamp to rewind to
+	 * @return the new current frame of the project, null if the project has no frame at that timeStamp
+	 */
+	public static Frame rewind(int projectID, int timeStampID) {
+		NavigableMap<Integer, Frame> partition = partition(projectID);
+		Frame origin = partition.get(timeStampID);
+		if (origin == null)
+			return null;
+		Collection<Frame> dropped = partition.tailMap(timeStampID, true).values();
+		release(projectID, dropped);
+		dropped.clear();
+		Frame frame = origin.copyTo(projectID);
+		partition.put(timeStampID, frame);
+		return frame;
+	}
+
+	/**
+	 * Keep a copy of the first frame of the given project, as it is now, so that the project can later be restarted from it.
+	 * Called by {@link Project#initialise()} once the frame has been initialised.
+	 * 
+	 * @param projectID
+	 *            the project whose first frame is to be kept
+	 */
+	public static void keepPristine(int projectID) {
+		Frame frame = frame(projectID, 1);
+		if (frame != null)
+			pristineFrames.put(projectID, frame.copy());
+	}
+
+	/**
+	 * Discard the whole history of the given project and replace it by a fresh copy of the first frame that was kept
+	 * by {@link #keepPristine(int)}. The kept copy is not itself used, so the project can be restarted as often as required.
+	 * 
+	 * @param projectID
+	 *            the project to restart
+	 * @return the new first frame of the project, null if no first frame was kept
+	 */
+	public static Frame restorePristine(int projectID) {
+		Frame pristine = pristineFrames.get(projectID);
+		if (pristine == null)
+			return null;
+		Frame frame = pristine.copy();
+		NavigableMap<Integer, Frame> partition = new ConcurrentSkipListMap<Integer, Frame>();
+		partition.put(frame.getTimeStampID(), frame);
+		NavigableMap<Integer, Frame> dropped = partitions.put(projectID, partition);
+		if (dropped != null)
+			release(projectID, dropped.values());
+		return frame;
+	}
+
+	/**
+	 * Create the partition of a new project that branches off an existing project at the given timeStamp. The frames of the parent
+	 * before that timeStamp are completed frames which will never change, so the child holds references to them instead of copies:
+	 * its history is shared with the parent. Only the frame at the branch point, which the child goes on to modify, is copied.
+	 * The cost is therefore that of copying one frame, plus one map entry for each shared timeStamp, however large the history.
+	 * The parent's pristine first frame is copied too, so the child can be restarted.
+	 * 
+	 * The shared frames keep the parent's projectID until the parent lets go of them (see the class comment). The database, whose rows
+	 * are keyed by projectID, cannot share them, so {@link capitalism.utils.WriteBehind#fork(int, int, int)} copies the parent's rows:
+	 * this is done by the database itself on the writer thread, so the simulation does not wait for it, but it does cost time and space
+	 * in proportion to the shared history.
+	 * 
+	 * @param parentID
+	 *            the project to branch off
+	 * @param timeStampID
+	 *            the timeStamp at which the child diverges from its parent
+	 * @param childID
+	 *            the projectID of the new project, which must not already have a partition
+	 * @return the child's frame at the branch point, null if the parent has no frame at that timeStamp
+	 */
+	public static Frame fork(int parentID, int timeStampID, int childID) {
+		NavigableMap<Integer, Frame> parent = partition(parentID);
+		Frame origin = parent.get(timeStampID);
+		if (origin == null)
+			return null;
+		NavigableMap<Integer, Frame> partition = new ConcurrentSkipListMap<Integer, Frame>(parent.headMap(timeStampID, false));
+		Frame frame = origin.copyTo(childID);
+		partition.put(timeStampID, frame);
+		partitions.put(childID, partition);
+		Frame pristine = pristineFrames.get(parentID);
+		if (pristine != null)
+			pristineFrames.put(childID, pristine.copyTo(childID));
+		logger.debug("Project {} branched off project {} at timeStamp {}, sharing {} frames", childID, parentID, timeStampID, partition.size() - 1);
+		return frame;
+	}
+
+	/**
+	 * Pass each of the given frames that belongs to the given project, and which another project still holds because it branched off
+	 * this one, to that other project. Called before the given project lets go of the frames.
+	 * 
+	 * @param projectID
+	 *            the project that is letting go of the frames
+	 * @param dropped
+	 *            the frames it is letting go of
+	 */
+	private static void release(int projectID, Collection<Frame> dropped) {
+		for (Frame frame : dropped) {
+			if (frame.getProjectID() != projectID)
+				continue;
+			for (Map.Entry<Integer, NavigableMap<Integer, Frame>> e : partitions.entrySet()) {
+				if (e.getKey() != projectID && e.getValue().get(frame.getTimeStampID()) == frame) {
+					frame.setProjectID(e.getKey());
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * the frame at the current timeStamp of the given project. This is the frame that the simulation may still be modifying
+	 * 
+	 * @param projectID
+	 *            the project whose current frame is required
+	 * @return the current frame of the project, null if the project does not exist or has not been loaded
+	 */
+	public static Frame liveFrame(int projectID) {
+		if (!partitions.containsKey(projectID))
+			return null;
+		Project project = Project.get(projectID);
+		if (project == null)
+			return null;
+		return frame(projectID, project.getTimeStampID());
+	}
+
+	/**
+	 * the frame at the current timeStamp of every project that has been loaded. These are the frames that the simulation may still be
+	 * modifying, and which therefore have to be written out whenever the database must be brought completely up to date
+	 * 
+	 * @return a list of the current frames of all loaded projects
+	 */
+	public static List<Frame> liveFrames() {
+		List<Frame> result = new ArrayList<Frame>();
+		for (Integer projectID : partitions.keySet()) {
+			Frame frame = liveFrame(projectID);
+			if (frame != null)
+				result.add(frame);
+		}
+		return result;
+	}
+}
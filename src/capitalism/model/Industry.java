@@ -28,11 +28,8 @@ import javax.persistence.Embeddable;
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 import javax.persistence.Table;
 import javax.persistence.Transient;
-import javax.persistence.TypedQuery;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -59,7 +56,7 @@ import javafx.collections.ObservableList;
 @Embeddable
 @XmlAccessorType(XmlAccessType.NONE)
 @XmlRootElement(name = "Industry")
-public class Industry implements Serializable {
+public class Industry implements Serializable, Deltas.Measured {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LogManager.getLogger("Industry");
 
@@ -80,26 +77,8 @@ public class Industry implements Serializable {
 	@Transient private Industry endComparator;
 
 	// Data Management
-	private static EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("DB_INDUSTRIES");
-	private static EntityManager entityManager;
-	private static TypedQuery<Industry> primaryQuery;
-	private static TypedQuery<Industry> allWithProjectQuery;
-	private static TypedQuery<Industry> allWithProjectAndTimeStampQuery;
-	private static TypedQuery<Industry> withProjectTimeStampAndCommodityNameQuery;
-	private static TypedQuery<Industry> allQuery;
-	private static TypedQuery<Industry> deleteQuery;
-	static {
-		entityManager = entityManagerFactory.createEntityManager();
-		primaryQuery = entityManager.createQuery(
-				"Select c from Industry c where c.pk.projectID= :project and c.pk.timeStampID = :timeStamp and c.pk.name= :industryName", Industry.class);
-		allWithProjectAndTimeStampQuery = entityManager.createQuery(
-				"Select c from Industry c where c.pk.projectID = :project and c.pk.timeStampID = :timeStamp", Industry.class);
-		withProjectTimeStampAndCommodityNameQuery = entityManager.createQuery(
-				"Select c from Industry c where c.pk.projectID=:project and c.pk.timeStampID=:timeStamp and c.commodityName=:commodityName", Industry.class);
-		allQuery = entityManager.createQuery("Select i from Industry i", Industry.class);
-		allWithProjectQuery=entityManager.createQuery("Select i from Industry i where i.pk.projectID = :project",Industry.class);
-		deleteQuery = entityManager.createQuery("Delete from Industry i where i.pk.projectID=:project and i.pk.timeStampID>1", Industry.class);
-	}
+	private static final PersistenceUnit.LazyQuery<Industry> allQuery = PersistenceUnit.INDUSTRIES.query("Select i from Industry i", Industry.class);
+	private static final PersistenceUnit.LazyQuery<Industry> allWithProjectQuery = PersistenceUnit.INDUSTRIES.query("Select i from Industry i where i.pk.projectID = :project",Industry.class);
 
 	/**
 	 * Readable constants to refer to the methods which provide information about the persistent members of the class
@@ -225,16 +204,15 @@ public class Industry implements Serializable {
 	 * @return an ObservableList of industries
 	 */
 	public static ObservableList<Industry> industriesObservable(int projectID, int timeStampID) {
-		Industry.allWithProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
 		ObservableList<Industry> result = FXCollections.observableArrayList();
-		for (Industry c : Industry.allWithProjectAndTimeStampQuery.getResultList()) {
+		for (Industry c : all(projectID, timeStampID)) {
 			result.add(c);
 		}
 		return result;
 	}
 
 	/**
-	 * provides a wrapped version of the selected member which the display will recognise, as a ReadOnlyStringWrapper.
+	 * provides the selected member as the display shows it.
 	 * 
 	 * We don't mind the hardwiring because we don't really intend this code to be re-usable, it's not hard to modify, and it results in compact
 	 * and readable usage code (see (@link {@link TabbedTableViewer#makeIndustriesCapitalAccountsTable()})
@@ -246,39 +224,53 @@ public class Industry implements Serializable {
 	 * @return a String representation of the members, formatted according to the relevant format string
 	 */
 
-	public ReadOnlyStringWrapper wrappedString(INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE, Stock.VALUE_EXPRESSION valueExpression) {
+	public String formattedString(INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE, Stock.VALUE_EXPRESSION valueExpression) {
 		switch (iNDUSTRY_ATTRIBUTE) {
 		case INDUSTRYNAME:
-			return new ReadOnlyStringWrapper(pk.name);
+			return pk.name;
 		case COMMODITYNAME:
-			return new ReadOnlyStringWrapper(commodityName);
+			return commodityName;
 		case INITIALCAPITAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.INITIALCAPITAL)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.INITIALCAPITAL));
 		case INITIALPRODUCTIVECAPITAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.INITIALPRODUCTIVECAPITAL)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.INITIALPRODUCTIVECAPITAL));
 		case OUTPUT:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), output));
+			return String.format(ViewManager.getLargeFormat(), output);
 		case PROPOSEDOUTPUT:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), proposedOutput));
+			return String.format(ViewManager.getLargeFormat(), proposedOutput);
 		case GROWTHRATE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), growthRate));
+			return String.format(ViewManager.getLargeFormat(), growthRate);
 		case MONEYSTOCK:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), moneyAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), moneyAttribute(valueExpression));
 		case SALESSTOCK:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), salesAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), salesAttribute(valueExpression));
 		case PRODUCTIVESTOCKS:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), productiveStocksAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), productiveStocksAttribute(valueExpression));
 		case PROFIT:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.PROFIT)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.PROFIT));
 		case PROFITRATE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), profitRate()));
+			return String.format(ViewManager.getSmallFormat(), profitRate());
 		case CURRENTCAPITAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.CURRENTCAPITAL)));
+			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.CURRENTCAPITAL));
 		default:
 			return null;
 		}
 	}
 
+	/**
+	 * provides {@link #formattedString(INDUSTRY_ATTRIBUTE, Stock.VALUE_EXPRESSION)} as a ReadOnlyStringWrapper, which the display will recognise
+	 * 
+	 * @param iNDUSTRY_ATTRIBUTE
+	 *            chooses which member to evaluate
+	 * @param valueExpression
+	 *            selects the value DisplayAsExpression where relevant (QUANTITY, VALUE, PRICE)
+	 * @return the wrapped String, null if there is none
+	 */
+	public ReadOnlyStringWrapper wrappedString(INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE, Stock.VALUE_EXPRESSION valueExpression) {
+		String text = formattedString(iNDUSTRY_ATTRIBUTE, valueExpression);
+		return text == null ? null : new ReadOnlyStringWrapper(text);
+	}
+
 	/**
 	 * informs the display whether the selected member of this entity has changed, compared with the 'comparator' Commodity which normally
 	 * comes from a different timeStamp.
@@ -296,35 +288,14 @@ public class Industry implements Serializable {
 	public boolean changed(INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE, Stock.VALUE_EXPRESSION vALUE_EXPRESSION) {
 		chooseComparison();
 		switch (iNDUSTRY_ATTRIBUTE) {
-		case INDUSTRYNAME:
-			return false;
-		case PROPOSEDOUTPUT:
-			return proposedOutput != comparator.proposedOutput;
-		case GROWTHRATE:
-			return growthRate != comparator.growthRate;
-		case OUTPUT:
-			return output != comparator.output;
-		case INITIALCAPITAL:
-			return initialCapital != comparator.initialCapital;// no need to access expressionOf() because the result will be the same
-		case INITIALPRODUCTIVECAPITAL:
-			return productiveCapital != comparator.productiveCapital;// no need to access expressionOf() because the result will be the same
-		case PROFITRATE:
-			return profitRate() != comparator.profitRate();
-		case PROFIT:
-			return profit() != comparator.profit();// no need to access expressionOf() because the result will be the same
-		case MONEYSTOCK:
-			return moneyAttribute(vALUE_EXPRESSION) != comparator.moneyAttribute(vALUE_EXPRESSION);// TODO using the attribute() method is superfluous I think
-																									// throughout.
-		case SALESSTOCK:
-			return salesAttribute(vALUE_EXPRESSION) != comparator.salesAttribute(vALUE_EXPRESSION);
 		case PRODUCTIVESTOCKS:
-			double p1 = productiveStocksAttribute(vALUE_EXPRESSION);
-			double p2 = comparator.productiveStocksAttribute(vALUE_EXPRESSION);
+			if (comparator == null)
+				return false;
+			double p1 = Deltas.magnitudes(this, vALUE_EXPRESSION)[iNDUSTRY_ATTRIBUTE.ordinal()];
+			double p2 = Deltas.magnitudes(comparator, vALUE_EXPRESSION)[iNDUSTRY_ATTRIBUTE.ordinal()];
 			return !MathStuff.equals(p1, p2);
-		case CURRENTCAPITAL:
-			return currentCapital() != comparator.currentCapital();// no need to access expressionOf() because the result will be the same
 		default:
-			return false;
+			return Deltas.changed(this, comparator, iNDUSTRY_ATTRIBUTE.ordinal(), vALUE_EXPRESSION);
 		}
 	}
 
@@ -347,39 +318,48 @@ public class Industry implements Serializable {
 		chooseComparison();
 		if (!changed(iNDUSTRY_ATTRIBUTE, vALUE_EXPRESSION))
 			return item;
+		double delta = Deltas.delta(this, comparator, iNDUSTRY_ATTRIBUTE.ordinal(), vALUE_EXPRESSION);
 		switch (iNDUSTRY_ATTRIBUTE) {
 		case INDUSTRYNAME:
+		case COMMODITYNAME:
 			return item;
-		case PROPOSEDOUTPUT:
-			return String.format(ViewManager.getLargeFormat(), proposedOutput - comparator.proposedOutput);
 		case GROWTHRATE:
-			return String.format(ViewManager.getSmallFormat(), growthRate - comparator.growthRate);
-		case OUTPUT:
-			return String.format(ViewManager.getLargeFormat(), output - comparator.output);
+		case PROFITRATE:
+			return String.format(ViewManager.getSmallFormat(), delta);
 		case INITIALCAPITAL:
-			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.INITIALCAPITAL) - comparator.expressionOf(ATTRIBUTE.INITIALCAPITAL));
 		case INITIALPRODUCTIVECAPITAL:
-			return String.format(ViewManager.getLargeFormat(),
-					expressionOf(ATTRIBUTE.INITIALPRODUCTIVECAPITAL) - comparator.expressionOf(ATTRIBUTE.INITIALPRODUCTIVECAPITAL));
-		case PROFITRATE:
-			return String.format(ViewManager.getSmallFormat(), profitRate() - comparator.profitRate());
 		case PROFIT:
-			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.PROFIT) - comparator.expressionOf(ATTRIBUTE.PROFIT));
-		case MONEYSTOCK:
-			return String.format(ViewManager.getLargeFormat(), moneyAttribute(vALUE_EXPRESSION) - comparator.moneyAttribute(vALUE_EXPRESSION));
-		case SALESSTOCK:
-			return String.format(ViewManager.getLargeFormat(), salesAttribute(vALUE_EXPRESSION) - comparator.salesAttribute(vALUE_EXPRESSION));
-		case PRODUCTIVESTOCKS:
-			double p1 = productiveStocksAttribute(vALUE_EXPRESSION);
-			double p2 = comparator.productiveStocksAttribute(vALUE_EXPRESSION);
-			return String.format(ViewManager.getLargeFormat(), (p1 - p2));
 		case CURRENTCAPITAL:
-			return String.format(ViewManager.getLargeFormat(), expressionOf(ATTRIBUTE.CURRENTCAPITAL) - comparator.expressionOf(ATTRIBUTE.CURRENTCAPITAL));
+			return String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(delta, DisplayControlsBox.expressionDisplay));
 		default:
-			return item;
+			return String.format(ViewManager.getLargeFormat(), delta);
 		}
 	}
 
+	/**
+	 * The magnitudes compared by {@link #changed(INDUSTRY_ATTRIBUTE, VALUE_EXPRESSION)}, before they are expressed as time or money.
+	 * Called by {@link Deltas}, which keeps the result until the next frame is displayed.
+	 * 
+	 * @param valueExpression
+	 *            selects QUANTITY, VALUE or PRICE for the stocks
+	 * @return the magnitude of each attribute, indexed by its ordinal; NaN for the names
+	 */
+	@Override public double[] magnitudes(Stock.VALUE_EXPRESSION valueExpression) {
+		double[] m = Deltas.emptyMagnitudes(INDUSTRY_ATTRIBUTE.values().length);
+		m[INDUSTRY_ATTRIBUTE.OUTPUT.ordinal()] = output;
+		m[INDUSTRY_ATTRIBUTE.PROPOSEDOUTPUT.ordinal()] = proposedOutput;
+		m[INDUSTRY_ATTRIBUTE.GROWTHRATE.ordinal()] = growthRate;
+		m[INDUSTRY_ATTRIBUTE.INITIALCAPITAL.ordinal()] = initialCapital;
+		m[INDUSTRY_ATTRIBUTE.INITIALPRODUCTIVECAPITAL.ordinal()] = productiveCapital;
+		m[INDUSTRY_ATTRIBUTE.CURRENTCAPITAL.ordinal()] = currentCapital();
+		m[INDUSTRY_ATTRIBUTE.PROFIT.ordinal()] = profit();
+		m[INDUSTRY_ATTRIBUTE.PROFITRATE.ordinal()] = profitRate();
+		m[INDUSTRY_ATTRIBUTE.PRODUCTIVESTOCKS.ordinal()] = productiveStocksAttribute(valueExpression);
+		m[INDUSTRY_ATTRIBUTE.MONEYSTOCK.ordinal()] = moneyAttribute(valueExpression);
+		m[INDUSTRY_ATTRIBUTE.SALESSTOCK.ordinal()] = salesAttribute(valueExpression);
+		return m;
+	}
+
 	/**
 	 * The value-expression of the magnitude of a named productive Stock managed by this industry
 	 * 
@@ -389,16 +369,27 @@ public class Industry implements Serializable {
 	 * @return the magnitude of the named Stock, expressed as defined by {@code displayAttribute}, null if this does not exist
 	 */
 
-	public ReadOnlyStringWrapper wrappedString(String productiveStockName) {
+	public String formattedString(String productiveStockName) {
 		try {
 			Stock namedStock = Stock.singleProductive(pk.projectID, pk.timeStampID, pk.name, productiveStockName);
-			String result = String.format(ViewManager.getLargeFormat(), namedStock.get(TabbedTableViewer.displayAttribute));
-			return new ReadOnlyStringWrapper(result);
+			return String.format(ViewManager.getLargeFormat(), namedStock.get(TabbedTableViewer.displayAttribute));
 		} catch (Exception e) {
 			return null;
 		}
 	}
 
+	/**
+	 * provides {@link #formattedString(String)} as a ReadOnlyStringWrapper, which the display will recognise
+	 * 
+	 * @param productiveStockName
+	 *            the commodity of the productive Stock
+	 * @return the wrapped String, null if there is none
+	 */
+	public ReadOnlyStringWrapper wrappedString(String productiveStockName) {
+		String text = formattedString(productiveStockName);
+		return text == null ? null : new ReadOnlyStringWrapper(text);
+	}
+
 	/**
 	 * Retrieve the total quantity, value or price of the productive stocks owned by this industry, depending on the attribute
 	 * 
@@ -636,12 +627,11 @@ public class Industry implements Serializable {
 	 * @return the industrythat produces {@code name}, or null if this does not exist
 	 */
 	public static Industry single(int projectID, int timeStampID, String industryName) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID).setParameter("industryName", industryName);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (javax.persistence.NoResultException n) {
-			return null;// getSingleResult does not return null if it fails; instead, it throws a fit
+		for (Industry c : all(projectID, timeStampID)) {
+			if (c.pk.name.equals(industryName))
+				return c;
 		}
+		return null;
 	}
 
 	/**
@@ -651,7 +641,7 @@ public class Industry implements Serializable {
 	 * @return a list of all industries for all projects and all timeStamps.
 	 */
 	public static List<Industry> all() {
-		return allQuery.getResultList();
+		return allQuery.get().getResultList();
 	}
 
 	/**
@@ -663,8 +653,11 @@ public class Industry implements Serializable {
 	 */
 
 	public static List<Industry> all(int projectID) {
-		allWithProjectQuery.setParameter("project", projectID);
-		return allWithProjectQuery.getResultList();
+		List<Industry> result = new ArrayList<Industry>();
+		for (Frame frame : FrameStore.frames(projectID)) {
+			result.addAll(frame.getIndustries());
+		}
+		return result;
 	}
 
 	/**
@@ -679,8 +672,8 @@ public class Industry implements Serializable {
 	 */
 
 	public static List<Industry> all(int projectID, int timeStampID) {
-		allWithProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		return allWithProjectAndTimeStampQuery.getResultList();
+		Frame frame = FrameStore.frame(projectID, timeStampID);
+		return frame == null ? new ArrayList<Industry>() : frame.getIndustries();
 	}
 
 	/**
@@ -697,9 +690,12 @@ public class Industry implements Serializable {
 	 */
 
 	public static List<Industry> withCommodityNamed(int projectID, int timeStampID, String commodityName) {
-		withProjectTimeStampAndCommodityNameQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID)
-				.setParameter("commodityName", commodityName);
-		return withProjectTimeStampAndCommodityNameQuery.getResultList();
+		List<Industry> result = new ArrayList<Industry>();
+		for (Industry c : all(projectID, timeStampID)) {
+			if (commodityName.equals(c.commodityName))
+				result.add(c);
+		}
+		return result;
 	}
 
 	/**
@@ -836,7 +832,7 @@ public class Industry implements Serializable {
 	 * @return the entityManager
 	 */
 	public static EntityManager getEntityManager() {
-		return entityManager;
+		return PersistenceUnit.INDUSTRIES.entityManager();
 	}
 
 	public Integer getProjectID() {
@@ -1074,14 +1070,15 @@ public class Industry implements Serializable {
 	}
 	
 	/**
-	 * Delete all industries with the given projectID except those with timeStamp 1
+	 * Read all the industries of the given project from the database. Used by {@link FrameStore} to build the frames of a project
 	 * 
 	 * @param projectID
-	 *            the projectID whose industries will be deleted
+	 *            the given projectID
+	 * @return a list of all the persisted industries of the given project
 	 */
-	public static void deleteFromProject(int projectID) {
-		deleteQuery.setParameter("project", projectID);
-		deleteQuery.executeUpdate();
+	static List<Industry> loadFromDatabase(int projectID) {
+		allWithProjectQuery.get().setParameter("project", projectID);
+		return allWithProjectQuery.get().getResultList();
 	}
 
 
@@ -30,6 +30,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import capitalism.controller.Startup;
 import capitalism.reporting.Dialogues;
 import capitalism.reporting.Reporter;
 import capitalism.utils.Validate;
@@ -70,14 +71,17 @@ public class OneProject {
 	 * Create a new project in the database from whatever has been loaded into this oneProject entity.
 	 */
 	public void importFromEditorToDatabase() {
+		// the projects being initialised in the background read the other entity managers; wait until they have finished
+		Startup.awaitProjects();
+
 		// find the largest project so far. We will add the new project with a project numeber one greater than this
 		int maxProjectID = Project.maxProjectID();
 		Reporter.report(logger, 1, "Importing a new project with project number %d", maxProjectID + 1);
-		Project.getEntityManager().getTransaction().begin();
-		project.setProjectID(maxProjectID+1);
-		project.setButtonState(ActionStates.lastState().text());
-		Project.getEntityManager().persist(project);
-		Project.getEntityManager().getTransaction().commit();
+		Project.transaction(() -> {
+			project.setProjectID(maxProjectID + 1);
+			project.setButtonState(ActionStates.lastState().text());
+			Project.getEntityManager().persist(project);
+		});
 
 		TimeStamp.getEntityManager().getTransaction().begin();
 		for (TimeStamp ts:timeStamps) {
@@ -0,0 +1,261 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The aggregates of each project at the end of every period, kept in primitive arrays indexed by period so that they can be charted over
+ * the whole history of a project without looking at a single frame. A row is added by {@link #record(int, int, TimeStamp, List)} as each
+ * period completes. When a project is restarted or rewound the rows it has gone back over are discarded by {@link #truncate(int, int)};
+ * if a period is nevertheless recorded again, the rows from that period on are replaced. A project that branches off another starts with
+ * a copy of the rows the two have in common, made by {@link #fork(int, int, int)}.
+ * 
+ * Written by the thread that runs the simulation and read by the JavaFX Application Thread, so every access to a project's series is
+ * synchronized on it.
+ */
+public class PeriodAggregates {
+	private static final Logger logger = LogManager.getLogger(PeriodAggregates.class);
+
+	private static Map<Integer, PeriodAggregates> projects = new ConcurrentHashMap<Integer, PeriodAggregates>();
+
+	/**
+	 * The aggregates of the whole economy that are recorded for each period
+	 */
+	public enum AGGREGATE {
+		PROFITRATE("Profit Rate"), MELT("MELT"), TOTALVALUE("Total Value"), TOTALPRICE("Total Price");
+		String text;
+
+		AGGREGATE(String text) {
+			this.text = text;
+		}
+
+		public String text() {
+			return text;
+		}
+	}
+
+	private int size = 0;
+	private double[] periods = new double[16];
+	private double[][] aggregates = new double[AGGREGATE.values().length][16];
+
+	// the output of each industry, by name, in order of first appearance; NaN for periods in which the industry did not exist
+	private LinkedHashMap<String, double[]> outputs = new LinkedHashMap<String, double[]>();
+
+	/**
+	 * A copy of the series of one project, which can be read without further synchronization
+	 */
+	public static class Series {
+		private final double[] periods;
+		private final double[][] aggregates;
+		private final LinkedHashMap<String, double[]> outputs;
+
+		private Series(double[] periods, double[][] aggregates, LinkedHashMap<String, double[]> outputs) {
+			this.periods = periods;
+			this.aggregates = aggregates;
+			this.outputs = outputs;
+		}
+
+		/**
+		 * @return the number of periods recorded
+		 */
+		public int size() {
+			return periods.length;
+		}
+
+		/**
+		 * @return the period of each row
+		 */
+		public double[] periods() {
+			return periods;
+		}
+
+		/**
+		 * @param aggregate
+		 *            one of the aggregates recorded
+		 * @return its magnitude at the end of each period
+		 */
+		public double[] aggregate(AGGREGATE aggregate) {
+			return aggregates[aggregate.ordinal()];
+		}
+
+		/**
+		 * @return the output of each industry at the end of each period, keyed by the name of the industry
+		 */
+		public Map<String, double[]> outputs() {
+			return outputs;
+		}
+	}
+
+	/**
+	 * record the aggregates of a project at the end of a period
+	 * 
+	 * @param projectID
+	 *            the project
+	 * @param period
+	 *            the period that has just completed
+	 * @param timeStamp
+	 *            the timeStamp at the end of the period, which supplies the economy-wide aggregates
+	 * @param industries
+	 *            the industries at the end of the period
+	 */
+	public static void record(int projectID, int period, TimeStamp timeStamp, List<Industry> industries) {
+		PeriodAggregates p = projects.computeIfAbsent(projectID, id -> new PeriodAggregates());
+		double[] row = new double[AGGREGATE.values().length];
+		row[AGGREGATE.PROFITRATE.ordinal()] = timeStamp.profitRate();
+		row[AGGREGATE.MELT.ordinal()] = timeStamp.getMelt();
+		row[AGGREGATE.TOTALVALUE.ordinal()] = timeStamp.totalValue();
+		row[AGGREGATE.TOTALPRICE.ordinal()] = timeStamp.totalPrice();
+		synchronized (p) {
+			p.add(period, row, industries);
+		}
+	}
+
+	/**
+	 * @param projectID
+	 *            a project
+	 * @return a copy of the series recorded for the project; empty if none have been recorded
+	 */
+	public static Series series(int projectID) {
+		PeriodAggregates p = projects.get(projectID);
+		if (p == null)
+			return new Series(new double[0], new double[AGGREGATE.values().length][0], new LinkedHashMap<String, double[]>());
+		synchronized (p) {
+			double[][] aggregates = new double[p.aggregates.length][];
+			for (int i = 0; i < aggregates.length; i++) {
+				aggregates[i] = Arrays.copyOf(p.aggregates[i], p.size);
+			}
+			LinkedHashMap<String, double[]> outputs = new LinkedHashMap<String, double[]>();
+			for (Map.Entry<String, double[]> e : p.outputs.entrySet()) {
+				outputs.put(e.getKey(), Arrays.copyOf(e.getValue(), p.size));
+			}
+			return new Series(Arrays.copyOf(p.periods, p.size), aggregates, outputs);
+		}
+	}
+
+	/**
+	 * forget the aggregates of a project from the given period on, because the project has gone back to a point before that period
+	 * was complete
+	 * 
+	 * @param projectID
+	 *            the project
+	 * @param period
+	 *            the first period to forget
+	 */
+	public static void truncate(int projectID, int period) {
+		PeriodAggregates p = projects.get(projectID);
+		if (p == null)
+			return;
+		synchronized (p) {
+			int at = p.size;
+			while (at > 0 && p.periods[at - 1] >= period) {
+				at--;
+			}
+			logger.debug("Discarding {} periods of project {} from period {}", p.size - at, projectID, period);
+			int kept = p.size = at;
+			// industries that first appeared in the discarded periods are forgotten too
+			p.outputs.values().removeIf(output -> {
+				for (int i = 0; i < kept; i++) {
+					if (!Double.isNaN(output[i]))
+						return false;
+				}
+				return true;
+			});
+		}
+	}
+
+	/**
+	 * give a project that branches off another the aggregates of the periods the two have in common
+	 * 
+	 * @param parentID
+	 *            the project branched off
+	 * @param childID
+	 *            the new project
+	 * @param period
+	 *            the period in which the child diverges from its parent. The aggregates of earlier periods are copied
+	 */
+	public static void fork(int parentID, int childID, int period) {
+		PeriodAggregates parent = projects.get(parentID);
+		if (parent == null)
+			return;
+		PeriodAggregates child = new PeriodAggregates();
+		synchronized (parent) {
+			child.size = parent.size;
+			child.periods = parent.periods.clone();
+			for (int i = 0; i < child.aggregates.length; i++) {
+				child.aggregates[i] = parent.aggregates[i].clone();
+			}
+			for (Map.Entry<String, double[]> e : parent.outputs.entrySet()) {
+				child.outputs.put(e.getKey(), e.getValue().clone());
+			}
+		}
+		projects.put(childID, child);
+		truncate(childID, period);
+	}
+
+	private void add(int period, double[] row, List<Industry> industries) {
+		// a period that has been recorded before replaces it and everything after it
+		int at = size;
+		while (at > 0 && periods[at - 1] >= period) {
+			at--;
+		}
+		if (at < size)
+			logger.debug("Period {} recorded again: discarding {} later periods", period, size - at);
+		size = at;
+		if (size == periods.length)
+			grow(size * 2);
+		periods[size] = period;
+		for (int i = 0; i < row.length; i++) {
+			aggregates[i][size] = row[i];
+		}
+		for (double[] output : outputs.values()) {
+			output[size] = Double.NaN;
+		}
+		for (Industry industry : industries) {
+			double[] output = outputs.get(industry.name());
+			if (output == null) {
+				output = new double[periods.length];
+				Arrays.fill(output, Double.NaN);
+				outputs.put(industry.name(), output);
+			}
+			output[size] = industry.getOutput();
+		}
+		size++;
+	}
+
+	private void grow(int capacity) {
+		periods = Arrays.copyOf(periods, capacity);
+		for (int i = 0; i < aggregates.length; i++) {
+			aggregates[i] = Arrays.copyOf(aggregates[i], capacity);
+		}
+		for (Map.Entry<String, double[]> e : outputs.entrySet()) {
+			double[] grown = Arrays.copyOf(e.getValue(), capacity);
+			Arrays.fill(grown, e.getValue().length, capacity, Double.NaN);
+			e.setValue(grown);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Persistence;
+import javax.persistence.TypedQuery;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The persistence units of the entity classes. Each is bootstrapped the first time it is used, instead of when its entity class
+ * happens to be loaded, so that the cost falls on the code that needs it, and code that never touches an entity never pays for it.
+ * Each unit has one EntityManager, shared by everything that uses the entity. An entity class declares its JPQL queries with
+ * {@link #query(String, Class)}, and each is prepared the first time it is used.
+ * 
+ * {@link #warmUp(Executor)} bootstraps every unit and prepares its queries, all at the same time. Preparing a query uses the unit's
+ * EntityManager, which is not thread-safe, so nothing else may use the units until the warm-up has finished.
+ * The database must be open before any unit is used.
+ */
+public enum PersistenceUnit {
+	// @formatter:off
+	PROJECT("DB_PROJECT", Project.class),
+	TIMESTAMP("DB_TIMESTAMP", TimeStamp.class),
+	COMMODITIES("DB_COMMODITIES", Commodity.class),
+	INDUSTRIES("DB_INDUSTRIES", Industry.class),
+	SOCIALCLASSES("DB_SOCIALCLASSES", SocialClass.class),
+	STOCKS("DB_STOCKS", Stock.class);
+	// @formatter:on
+
+	private static final Logger logger = LogManager.getLogger(PersistenceUnit.class);
+
+	private final String name;
+	private final Class<?> entityClass;
+	private volatile EntityManager entityManager = null;
+
+	// the queries declared by the entity class, which are registered when it is initialised
+	private final List<LazyQuery<?>> queries = new CopyOnWriteArrayList<LazyQuery<?>>();
+
+	private PersistenceUnit(String name, Class<?> entityClass) {
+		this.name = name;
+		this.entityClass = entityClass;
+	}
+
+	/**
+	 * @return the EntityManager of this unit, bootstrapping the unit if this has not already been done
+	 */
+	public EntityManager entityManager() {
+		EntityManager result = entityManager;
+		if (result == null) {
+			synchronized (this) {
+				result = entityManager;
+				if (result == null) {
+					long start = System.currentTimeMillis();
+					result = Persistence.createEntityManagerFactory(name).createEntityManager();
+					entityManager = result;
+					logger.debug("Bootstrapped the persistence unit {} in {} milliseconds", name, System.currentTimeMillis() - start);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * declare a query on this unit. Nothing is prepared until the query is first used
+	 * 
+	 * @param <T>
+	 *            the type of the result
+	 * @param jpql
+	 *            the JPQL text of the query
+	 * @param resultClass
+	 *            the class of the result
+	 * @return a handle which prepares the query when it is first used
+	 */
+	public <T> LazyQuery<T> query(String jpql, Class<T> resultClass) {
+		LazyQuery<T> query = new LazyQuery<T>(this, jpql, resultClass);
+		queries.add(query);
+		return query;
+	}
+
+	/**
+	 * bootstrap this unit, and prepare every query of its entity class
+	 */
+	public void prepare() {
+		try {
+			// the entity class declares its queries when it is initialised
+			Class.forName(entityClass.getName(), true, entityClass.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		}
+		entityManager();
+		for (LazyQuery<?> query : queries) {
+			query.get();
+		}
+	}
+
+	/**
+	 * prepare every unit at the same time, on the given executor. The caller must wait for the result before using any unit
+	 * 
+	 * @param executor
+	 *            the executor on which to prepare the units
+	 * @return completes when every unit has been prepared
+	 */
+	public static CompletableFuture<Void> warmUp(Executor executor) {
+		List<CompletableFuture<Void>> preparations = new ArrayList<CompletableFuture<Void>>();
+		for (PersistenceUnit unit : values()) {
+			preparations.add(CompletableFuture.runAsync(unit::prepare, executor));
+		}
+		return CompletableFuture.allOf(preparations.toArray(new CompletableFuture<?>[preparations.size()]));
+	}
+
+	/**
+	 * prepare every unit at the same time, on the common pool. Used when the simulation runs without a user interface.
+	 * The caller must wait for the result before using any unit
+	 * 
+	 * @return completes when every unit has been prepared
+	 */
+	public static CompletableFuture<Void> warmUp() {
+		return warmUp(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * A query declared by an entity class, which is prepared from the EntityManager of its unit when it is first used
+	 * 
+	 * @param <T>
+	 *            the type of the result
+	 */
+	public static class LazyQuery<T> {
+		private final PersistenceUnit unit;
+		private final String jpql;
+		private final Class<T> resultClass;
+		private TypedQuery<T> query = null;
+
+		private LazyQuery(PersistenceUnit unit, String jpql, Class<T> resultClass) {
+			this.unit = unit;
+			this.jpql = jpql;
+			this.resultClass = resultClass;
+		}
+
+		/**
+		 * @return the prepared query
+		 */
+		public synchronized TypedQuery<T> get() {
+			if (query == null)
+				query = unit.entityManager().createQuery(jpql, resultClass);
+			return query;
+		}
+	}
+}
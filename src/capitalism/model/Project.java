@@ -74,16 +74,8 @@ public class Project implements Serializable {
 
 	@XmlElement @Column(name = "buttonState") private String buttonState;
 
-	private static EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("DB_PROJECT");
-	private static EntityManager entityManager;
-	private static TypedQuery<Project> primaryQuery;
-	private static TypedQuery<Project> allQuery;
-
-	static {
-		entityManager = entityManagerFactory.createEntityManager();
-		allQuery = entityManager.createQuery("SELECT p FROM Project p", Project.class);
-		primaryQuery = entityManager.createQuery("SELECT p from Project p where p.projectID= :project", Project.class);
-	}
+	private static final PersistenceUnit.LazyQuery<Project> allQuery = PersistenceUnit.PROJECT.query("SELECT p FROM Project p", Project.class);
+	private static final PersistenceUnit.LazyQuery<Project> primaryQuery = PersistenceUnit.PROJECT.query("SELECT p from Project p where p.projectID= :project", Project.class);
 
 	public Project() {
 	}
@@ -132,10 +124,10 @@ public class Project implements Serializable {
 	 *            the projectID of a single project
 	 * @return the project record containing this project, null if the project does not exist
 	 */
-	public static Project get(int projectID) {
-		primaryQuery.setParameter("project", projectID);
+	public static synchronized Project get(int projectID) {
+		primaryQuery.get().setParameter("project", projectID);
 		try {
-			return primaryQuery.getSingleResult();
+			return primaryQuery.get().getSingleResult();
 		} catch (Exception e) {
 			return null;
 		}
@@ -146,12 +138,32 @@ public class Project implements Serializable {
 	 * 
 	 * @return a list of all projects
 	 */
-	public static List<Project> all() {
-		return allQuery.getResultList();
+	public static synchronized List<Project> all() {
+		return allQuery.get().getResultList();
+	}
+
+	/**
+	 * Run some work on the project records in a transaction. The project records share one EntityManager, which is not thread-safe,
+	 * and are read by the threads that initialise the projects at startup, so every query and transaction on it holds the same lock:
+	 * this method, {@link #get(int)} and {@link #all()} are all synchronized on the class.
+	 * 
+	 * @param work
+	 *            modifies or persists project records
+	 */
+	public static synchronized void transaction(Runnable work) {
+		EntityTransaction transaction = getEntityManager().getTransaction();
+		transaction.begin();
+		try {
+			work.run();
+			transaction.commit();
+		} finally {
+			if (transaction.isActive())
+				transaction.rollback();
+		}
 	}
 
 	public static EntityManager getEntityManager() {
-		return entityManager;
+		return PersistenceUnit.PROJECT.entityManager();
 	}
 
 	/**
@@ -200,7 +212,7 @@ public class Project implements Serializable {
 	 */
 	public static ObservableList<Project> observableProjects() {
 		ObservableList<Project> output = FXCollections.observableArrayList();
-		List<Project> projects = Project.allQuery.getResultList();
+		List<Project> projects = Project.all();
 		for (Project g : projects) {
 			// ProjectID <1 reserved for editor and storage
 			if (g.getProjectID() > 0)
@@ -209,7 +221,31 @@ public class Project implements Serializable {
 		return output;
 	}
 
+	/**
+	 * initialise the project: reset its cursors, then initialise its first frame. See {@link #initialiseFrames()}
+	 */
 	public void initialise() {
+		transaction(() -> resetCursors());
+		initialiseFrames();
+	}
+
+	/**
+	 * set the cursors of the project to 1, and its buttonState to the end of the non-existent previous period.
+	 * The caller is responsible for the transaction, so that at startup the cursors of every project can be reset in one go,
+	 * before the projects are initialised concurrently (see {@link capitalism.controller.Startup})
+	 */
+	public void resetCursors() {
+		setTimeStampID(1);
+		setTimeStampDisplayCursor(1);
+		setTimeStampComparatorCursor(1);
+		setButtonState(ActionStates.lastState().text());
+	}
+
+	/**
+	 * preprocess the first frame of the project: set its comparators, convert its stock magnitudes to coefficients and calculate
+	 * its aggregates and capitals. Only the frames of this project are touched, so different projects may be initialised at the same time
+	 */
+	public void initialiseFrames() {
 		// temporary repository for all timeStamp information
 		TimeStamp currentStamp = null;
 		try {
@@ -223,16 +259,6 @@ public class Project implements Serializable {
 		}
 		Reporter.report(logger, 1, "Initialising project %d called '%s'", projectID, getDescription());
 
-		// initialise the project record so that its cursors are 1
-		Project.getEntityManager().getTransaction().begin();
-		setTimeStampID(1);
-		setTimeStampDisplayCursor(1);
-		setTimeStampComparatorCursor(1);
-
-		// set the project buttonState initially to the end of the non-existent previous period
-		setButtonState(ActionStates.lastState().text());
-		getEntityManager().getTransaction().commit();
-
 		// Set the initial comparators for every timeStamp, project, industry, class, use value and stock .
 		// Since the comparator cursor and the cursor are already 1, this amounts to setting it to 1
 
@@ -247,6 +273,9 @@ public class Project implements Serializable {
 		Simulation.calculateStockAggregates(projectID, timeStampID);
 		Simulation.setCapitals(projectID, timeStampID);
 		Simulation.checkInvariants();// TODO Stub at present
+
+		// remember the initialised state, so that a restart can return to it without recalculating anything
+		FrameStore.keepPristine(projectID);
 	}
 
 	public int getProjectID() {
@@ -20,6 +20,7 @@
 package capitalism.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import javax.persistence.*;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -49,7 +50,7 @@ import javafx.collections.ObservableList;
 @Embeddable
 @XmlAccessorType(XmlAccessType.NONE)
 @XmlRootElement(name = "SocialClass")
-public class SocialClass implements Serializable {
+public class SocialClass implements Serializable, Deltas.Measured {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LogManager.getLogger(SocialClass.class);
 
@@ -72,27 +73,8 @@ public class SocialClass implements Serializable {
 	@Transient private SocialClass endComparator;
 
 	// Data Management
-	private static EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("DB_SOCIALCLASSES");
-	private static EntityManager entityManager;
-	private static TypedQuery<SocialClass> primaryQuery;
-	private static TypedQuery<SocialClass> allInProjectAndTimeStampQuery;
-	private static TypedQuery<SocialClass> allInProjectQuery;
-	private static TypedQuery<SocialClass> allQuery;
-	private static TypedQuery<SocialClass> deleteQuery;
-
-	static {
-		entityManager = entityManagerFactory.createEntityManager();
-		primaryQuery = entityManager.createQuery(
-				"SELECT c FROM SocialClass c where c.pk.projectID= :project and c.pk.timeStampID = :timeStamp and c.pk.name=:socialClassName",
-				SocialClass.class);
-		allQuery = entityManager.createQuery(
-				"SELECT c FROM SocialClass c ", SocialClass.class);
-		allInProjectAndTimeStampQuery = entityManager.createQuery(
-				"SELECT c FROM SocialClass c where c.pk.projectID= :project and c.pk.timeStampID = :timeStamp ", SocialClass.class);
-		allInProjectQuery = entityManager.createQuery(
-				"SELECT c FROM SocialClass c where c.pk.projectID= :project ", SocialClass.class);
-		deleteQuery = entityManager.createQuery("Delete from SocialClass s where s.pk.projectID=:project and s.pk.timeStampID>1", SocialClass.class);
-	}
+	private static final PersistenceUnit.LazyQuery<SocialClass> allQuery = PersistenceUnit.SOCIALCLASSES.query("SELECT c FROM SocialClass c ", SocialClass.class);
+	private static final PersistenceUnit.LazyQuery<SocialClass> allInProjectQuery = PersistenceUnit.SOCIALCLASSES.query("SELECT c FROM SocialClass c where c.pk.projectID= :project ", SocialClass.class);
 
 	/**
 	 * set the comparators for the socialClass entity at the given project and timeStamp
@@ -105,8 +87,7 @@ public class SocialClass implements Serializable {
 	public static void setComparators(int projectID, int timeStampID) {
 		logger.debug("Setting comparators for socialClasses in project {} with timeStamp {}", projectID, timeStampID);
 		Project project=Project.get(projectID);
-		allInProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		for (SocialClass sc : allInProjectAndTimeStampQuery.getResultList()) {
+		for (SocialClass sc : all(projectID, timeStampID)) {
 			sc.setPreviousComparator(single(projectID, project.getTimeStampComparatorCursor(), sc.name()));
 			sc.setStartComparator(single(projectID, 1, sc.name()));
 			sc.setEndComparator(single(projectID, project.getTimeStampID(), sc.name()));
@@ -188,16 +169,15 @@ public class SocialClass implements Serializable {
 	 * @return an ObservableList of SocialClasses
 	 */
 	public static ObservableList<SocialClass> socialClassesObservable(int projectID, int timeStampID) {
-		SocialClass.allInProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
 		ObservableList<SocialClass> result = FXCollections.observableArrayList();
-		for (SocialClass s : SocialClass.allInProjectAndTimeStampQuery.getResultList()) {
+		for (SocialClass s : all(projectID, timeStampID)) {
 			result.add(s);
 		}
 		return result;
 	}
 
 	/**
-	 * provides a wrapped version of the selected member which the display will recognise, as a ReadOnlyStringWrapper.
+	 * provides the selected member as the display shows it.
 	 * 
 	 * @param attribute
 	 *            chooses which member to evaluate
@@ -205,29 +185,43 @@ public class SocialClass implements Serializable {
 	 *            selects the display attribute where relevant (QUANTITY, VALUE, PRICE)
 	 * @return a String representation of the members, formatted according to the relevant format string
 	 */
-	public ReadOnlyStringWrapper wrappedString(SOCIALCLASS_ATTRIBUTE attribute, VALUE_EXPRESSION valueExpression) {
+	public String formattedString(SOCIALCLASS_ATTRIBUTE attribute, VALUE_EXPRESSION valueExpression) {
 		switch (attribute) {
 		case SOCIALCLASSNAME:
-			return new ReadOnlyStringWrapper(pk.name);
+			return pk.name;
 		case SIZE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), size));
+			return String.format(ViewManager.getLargeFormat(), size);
 		case CONSUMPTIONSTOCKS:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), consumptionAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), consumptionAttribute(valueExpression));
 		case MONEY:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), moneyAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), moneyAttribute(valueExpression));
 		case SALES:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), salesAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), salesAttribute(valueExpression));
 		case QUANTITYDEMANDED:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), necessitiesQuantityDemanded()));
+			return String.format(ViewManager.getLargeFormat(), necessitiesQuantityDemanded());
 		case REVENUE:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), revenue));
+			return String.format(ViewManager.getLargeFormat(), revenue);
 		case TOTAL:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), totalAttribute(valueExpression)));
+			return String.format(ViewManager.getLargeFormat(), totalAttribute(valueExpression));
 		default:
 			return null;
 		}
 	}
 
+	/**
+	 * provides {@link #formattedString(SOCIALCLASS_ATTRIBUTE, VALUE_EXPRESSION)} as a ReadOnlyStringWrapper, which the display will recognise
+	 * 
+	 * @param attribute
+	 *            chooses which member to evaluate
+	 * @param valueExpression
+	 *            selects the display attribute where relevant (QUANTITY, VALUE, PRICE)
+	 * @return the wrapped String, null if there is none
+	 */
+	public ReadOnlyStringWrapper wrappedString(SOCIALCLASS_ATTRIBUTE attribute, VALUE_EXPRESSION valueExpression) {
+		String text = formattedString(attribute, valueExpression);
+		return text == null ? null : new ReadOnlyStringWrapper(text);
+	}
+
 	/**
 	 * informs the display whether the selected member of this entity has changed, compared with the 'comparator' Commodity which normally
 	 * comes from a different timeStamp.
@@ -240,26 +234,7 @@ public class SocialClass implements Serializable {
 	 */
 	public boolean changed(SOCIALCLASS_ATTRIBUTE attribute, VALUE_EXPRESSION valueExpression) {
 		chooseComparison();
-		switch (attribute) {
-		case SOCIALCLASSNAME:
-			return false;
-		case SIZE:
-			return size != comparator.size;
-		case CONSUMPTIONSTOCKS:
-			return consumptionAttribute(valueExpression) != comparator.consumptionAttribute(valueExpression);
-		case MONEY:
-			return moneyAttribute(valueExpression) != comparator.moneyAttribute(valueExpression);
-		case QUANTITYDEMANDED:
-			return necessitiesQuantityDemanded() != comparator.necessitiesQuantityDemanded();
-		case REVENUE:
-			return revenue != comparator.revenue;
-		case SALES:
-			return salesAttribute(valueExpression) != comparator.salesAttribute(valueExpression);
-		case TOTAL:
-			return totalAttribute(valueExpression) != comparator.totalAttribute(valueExpression);
-		default:
-			return false;
-		}
+		return Deltas.changed(this, comparator, attribute.ordinal(), valueExpression);
 	}
 
 	/**
@@ -277,27 +252,27 @@ public class SocialClass implements Serializable {
 		chooseComparison();
 		if (!changed(attribute, valueExpression))
 			return item;
-		switch (attribute) {
-		case SOCIALCLASSNAME:
-			return item;
-		case SIZE:
-			return String.format(ViewManager.getLargeFormat(), size - comparator.size);
-		case CONSUMPTIONSTOCKS:
-			return String.format(ViewManager.getLargeFormat(),
-					consumptionAttribute(valueExpression) - comparator.consumptionAttribute(valueExpression));
-		case MONEY:
-			return String.format(ViewManager.getLargeFormat(), moneyAttribute(valueExpression) - comparator.moneyAttribute(valueExpression));
-		case QUANTITYDEMANDED:
-			return String.format(ViewManager.getLargeFormat(), necessitiesQuantityDemanded() - comparator.necessitiesQuantityDemanded());
-		case REVENUE:
-			return String.format(ViewManager.getLargeFormat(), revenue - comparator.revenue);
-		case SALES:
-			return String.format(ViewManager.getLargeFormat(), salesAttribute(valueExpression) - comparator.salesAttribute(valueExpression));
-		case TOTAL:
-			return String.format(ViewManager.getLargeFormat(), totalAttribute(valueExpression) - comparator.totalAttribute(valueExpression));
-		default:
-			return item;
-		}
+		return String.format(ViewManager.getLargeFormat(), Deltas.delta(this, comparator, attribute.ordinal(), valueExpression));
+	}
+
+	/**
+	 * The magnitudes compared by {@link #changed(SOCIALCLASS_ATTRIBUTE, VALUE_EXPRESSION)}.
+	 * Called by {@link Deltas}, which keeps the result until the next frame is displayed.
+	 * 
+	 * @param valueExpression
+	 *            selects QUANTITY, VALUE or PRICE for the stocks
+	 * @return the magnitude of each attribute, indexed by its ordinal; NaN for those that are not compared
+	 */
+	@Override public double[] magnitudes(VALUE_EXPRESSION valueExpression) {
+		double[] m = Deltas.emptyMagnitudes(SOCIALCLASS_ATTRIBUTE.values().length);
+		m[SOCIALCLASS_ATTRIBUTE.SIZE.ordinal()] = size;
+		m[SOCIALCLASS_ATTRIBUTE.CONSUMPTIONSTOCKS.ordinal()] = consumptionAttribute(valueExpression);
+		m[SOCIALCLASS_ATTRIBUTE.MONEY.ordinal()] = moneyAttribute(valueExpression);
+		m[SOCIALCLASS_ATTRIBUTE.QUANTITYDEMANDED.ordinal()] = necessitiesQuantityDemanded();
+		m[SOCIALCLASS_ATTRIBUTE.REVENUE.ordinal()] = revenue;
+		m[SOCIALCLASS_ATTRIBUTE.SALES.ordinal()] = salesAttribute(valueExpression);
+		m[SOCIALCLASS_ATTRIBUTE.TOTAL.ordinal()] = totalAttribute(valueExpression);
+		return m;
 	}
 
 	/**
@@ -327,16 +302,27 @@ public class SocialClass implements Serializable {
 	 * 
 	 * @return the magnitude of the named Stock, expressed as defined by {@code displayAttribute}, null if this does not exist
 	 */
-	public ReadOnlyStringWrapper wrappedString(String consumptionStockName) {
+	public String formattedString(String consumptionStockName) {
 		try {
 			Stock namedStock = Stock.consumptionByCommodityAndClassSingle(pk.projectID, pk.timeStampID, pk.name, consumptionStockName);
-			String result = String.format(ViewManager.getLargeFormat(), namedStock.get(TabbedTableViewer.displayAttribute));
-			return new ReadOnlyStringWrapper(result);
+			return String.format(ViewManager.getLargeFormat(), namedStock.get(TabbedTableViewer.displayAttribute));
 		} catch (Exception e) {
 			return null;
 		}
 	}
 
+	/**
+	 * provides {@link #formattedString(String)} as a ReadOnlyStringWrapper, which the display will recognise
+	 * 
+	 * @param consumptionStockName
+	 *            the commodity of the consumption Stock
+	 * @return the wrapped String, null if there is none
+	 */
+	public ReadOnlyStringWrapper wrappedString(String consumptionStockName) {
+		String text = formattedString(consumptionStockName);
+		return text == null ? null : new ReadOnlyStringWrapper(text);
+	}
+
 	/**
 	 * regenerate the labour power of this class
 	 * NOTE any class might theoretically sell labour power and some classes will be mixed, for example small commodity producers
@@ -540,12 +526,11 @@ public class SocialClass implements Serializable {
 	 */
 
 	public static SocialClass single(int projectID, int timeStampID, String socialClassName) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID).setParameter("socialClassName", socialClassName);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (javax.persistence.NoResultException e) {
-			return null;// because this query throws a fit if it doesn't find anything
+		for (SocialClass sc : all(projectID, timeStampID)) {
+			if (sc.pk.name.equals(socialClassName))
+				return sc;
 		}
+		return null;
 	}
 
 	/**
@@ -555,7 +540,7 @@ public class SocialClass implements Serializable {
 	 * @return a list of all social classes in the database
 	 */
 	public static List<SocialClass> all() {
-		return allQuery.getResultList();
+		return allQuery.get().getResultList();
 	}
 
 	
@@ -568,8 +553,11 @@ public class SocialClass implements Serializable {
 	 * @return a list of all social classes for the given project 
 	 */
 	public static List<SocialClass> all(int projectID) {
-		allInProjectQuery.setParameter("project", projectID);
-		return allInProjectQuery.getResultList();
+		List<SocialClass> result = new ArrayList<SocialClass>();
+		for (Frame frame : FrameStore.frames(projectID)) {
+			result.addAll(frame.getSocialClasses());
+		}
+		return result;
 	}
 
 	
@@ -583,8 +571,8 @@ public class SocialClass implements Serializable {
 	 * @return a list of all social classes for the current project and timeStamp
 	 */
 	public static List<SocialClass> all(int projectID, int timeStampID) {
-		allInProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		return allInProjectAndTimeStampQuery.getResultList();
+		Frame frame = FrameStore.frame(projectID, timeStampID);
+		return frame == null ? new ArrayList<SocialClass>() : frame.getSocialClasses();
 	}
 
 	/**
@@ -599,20 +587,14 @@ public class SocialClass implements Serializable {
 	 * @return the single social class with the name socialClassName, for the given project and timeStamp
 	 */
 	public static SocialClass withName(int projectID, int timeStampID, String socialClassName) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID)
-				.setParameter("socialClassName", socialClassName);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (NoResultException r) {
-			return null;
-		}
+		return single(projectID, timeStampID, socialClassName);
 	}
 
 	/**
 	 * @return the entityManager
 	 */
 	public static EntityManager getEntityManager() {
-		return entityManager;
+		return PersistenceUnit.SOCIALCLASSES.entityManager();
 	}
 
 	/**
@@ -779,14 +761,15 @@ public class SocialClass implements Serializable {
 	}
 	
 	/**
-	 * Delete all socialClasses with the given projectID except those with timeStamp 1
+	 * Read all the socialClasses of the given project from the database. Used by {@link FrameStore} to build the frames of a project
 	 * 
 	 * @param projectID
-	 *            the projectID whose socialClasses will be deleted
+	 *            the given projectID
+	 * @return a list of all the persisted socialClasses of the given project
 	 */
-	public static void deleteFromProject(int projectID) {
-		deleteQuery.setParameter("project", projectID);
-		deleteQuery.executeUpdate();
+	static List<SocialClass> loadFromDatabase(int projectID) {
+		allInProjectQuery.get().setParameter("project", projectID);
+		return allInProjectQuery.get().getResultList();
 	}
 
 
@@ -21,6 +21,7 @@
 package capitalism.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import javax.persistence.*;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -33,7 +34,9 @@ import org.apache.logging.log4j.Logger;
 
 import capitalism.controller.Simulation;
 import capitalism.reporting.Dialogues;
+import capitalism.reporting.EventBus;
 import capitalism.reporting.Reporter;
+import capitalism.reporting.SimulationEvent;
 import capitalism.utils.MathStuff;
 import capitalism.view.ViewManager;
 import capitalism.view.custom.DisplayControlsBox;
@@ -57,7 +60,7 @@ import javafx.collections.ObservableList;
 })
 @XmlAccessorType(XmlAccessType.NONE)
 @XmlRootElement(name = "Stock")
-public class Stock implements Serializable {
+public class Stock implements Serializable, Deltas.Measured {
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LogManager.getLogger(Stock.class);
 
@@ -98,49 +101,8 @@ public class Stock implements Serializable {
 	@Transient private Stock endComparator;
 
 	// Data Management
-	private static EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("DB_STOCKS");
-	private static EntityManager entityManager;
-	private static TypedQuery<Stock> primaryQuery;
-	private static TypedQuery<Stock> allQuery;
-	private static TypedQuery<Stock> allInProjectAndTimeStampQuery;
-	private static TypedQuery<Stock> allInProjectQuery;
-	private static TypedQuery<Stock> ofCommodityQuery;
-	private static TypedQuery<Stock> ofCommodityAndTypeQuery;
-	private static TypedQuery<Stock> withOwnerAndTypeQuery;
-	private static TypedQuery<Stock> sourcesOfDemandQuery;
-	private static TypedQuery<Stock> withStockTypeQuery;
-	private static TypedQuery<Stock> productiveQuery;
-	private static TypedQuery<Stock> deleteQuery;
-
-	static {
-		entityManager = entityManagerFactory.createEntityManager();
-		primaryQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s WHERE s.pk.projectID=:project and s.pk.timeStampID =:timeStamp and s.pk.owner =:owner and s.pk.commodity= :commodity and s.pk.stockType=:stockType",
-				Stock.class);
-		allQuery=entityManager.createQuery("Select s from Stock s",Stock.class);
-		allInProjectAndTimeStampQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID= :project and s.pk.timeStampID = :timeStamp", Stock.class);
-		allInProjectQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID= :project", Stock.class);
-		withStockTypeQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID = :project and s.pk.timeStampID=:timeStamp and s.pk.stockType=:stockType",
-				Stock.class);
-		withOwnerAndTypeQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID= :project and s.pk.timeStampID = :timeStamp and s.pk.owner= :owner and s.pk.stockType=:stockType",
-				Stock.class);
-		ofCommodityQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID = :project and s.pk.timeStampID = :timeStamp and s.pk.commodity= :commodity",
-				Stock.class);
-		ofCommodityAndTypeQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID = :project and s.pk.timeStampID = :timeStamp and s.pk.stockType=:stockType and s.pk.commodity= :commodity",
-				Stock.class);
-		sourcesOfDemandQuery = entityManager.createQuery(
-				"SELECT s FROM Stock s where s.pk.projectID = :project and s.pk.timeStampID =:timeStamp and (s.pk.stockType = :stockType1 or s.pk.stockType=:stockType2)",
-				Stock.class);
-		productiveQuery = entityManager.createQuery(
-				"Select s from Stock s where s.pk.projectID =:project and s.pk.stockType ='PRODUCTIVE'", Stock.class);
-		deleteQuery = entityManager.createQuery("Delete from Stock s where s.pk.projectID=:project and s.pk.timeStampID>1", Stock.class);
-	}
+	private static final PersistenceUnit.LazyQuery<Stock> allQuery = PersistenceUnit.STOCKS.query("Select s from Stock s", Stock.class);
+	private static final PersistenceUnit.LazyQuery<Stock> allInProjectQuery = PersistenceUnit.STOCKS.query("SELECT s FROM Stock s where s.pk.projectID= :project", Stock.class);
 
 	/**
 	 * Readable constants to refer to the methods which provide information about the persistent members of the class
@@ -322,7 +284,7 @@ public class Stock implements Serializable {
 	}
 
 	/**
-	 * provides a wrapped version of the selected member which the display will recognise, as a ReadOnlyStringWrapper.
+	 * provides the selected member as the display shows it.
 	 * 
 	 * We don't mind the hardwiring because we don't really intend this code to be re-usable, it's not hard to modify, and it results in compact
 	 * and readable usage code (@see for example TabbedTableViewer#makeProductiveStocksViewTable})
@@ -331,36 +293,46 @@ public class Stock implements Serializable {
 	 *            chooses which member to evaluate
 	 * @return a String representation of the members, formatted according to the relevant format string
 	 */
-	public ReadOnlyStringWrapper wrappedString(STOCK_ATTRIBUTE attribute) {
+	public String formattedString(STOCK_ATTRIBUTE attribute) {
 		chooseComparison();
 		switch (attribute) {
 		case OWNER:
-			return new ReadOnlyStringWrapper(pk.owner);
+			return pk.owner;
 		case OWNERTYPE:
-			return new ReadOnlyStringWrapper(ownerType.text());
+			return ownerType.text();
 		case COMMODITY:
-			return new ReadOnlyStringWrapper(pk.commodity);
+			return pk.commodity;
 		case STOCKTYPE:
-			return new ReadOnlyStringWrapper(pk.stockType);
+			return pk.stockType;
 		case QUANTITY:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), quantity));
+			return String.format(ViewManager.getLargeFormat(), quantity);
 		case VALUE:
-			return new ReadOnlyStringWrapper(
-					String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(value, DisplayControlsBox.expressionDisplay)));
+			return String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(value, DisplayControlsBox.expressionDisplay));
 		case PRICE:
-			return new ReadOnlyStringWrapper(
-					String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(price, DisplayControlsBox.expressionDisplay)));
+			return String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(price, DisplayControlsBox.expressionDisplay));
 		case REPLENISHMENTDEMAND:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getLargeFormat(), replenishmentDemand));
+			return String.format(ViewManager.getLargeFormat(), replenishmentDemand);
 		case PRODUCTION_COEFFICIENT:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), productionCoefficient));
+			return String.format(ViewManager.getSmallFormat(), productionCoefficient);
 		case CONSUMPTION_COEFFICIENT:
-			return new ReadOnlyStringWrapper(String.format(ViewManager.getSmallFormat(), consumptionCoefficient));
+			return String.format(ViewManager.getSmallFormat(), consumptionCoefficient);
 		default:
 			return null;
 		}
 	}
 
+	/**
+	 * provides {@link #formattedString(STOCK_ATTRIBUTE)} as a ReadOnlyStringWrapper, which the display will recognise
+	 * 
+	 * @param attribute
+	 *            chooses which member to evaluate
+	 * @return the wrapped String, null if there is none
+	 */
+	public ReadOnlyStringWrapper wrappedString(STOCK_ATTRIBUTE attribute) {
+		String text = formattedString(attribute);
+		return text == null ? null : new ReadOnlyStringWrapper(text);
+	}
+
 	/**
 	 * generic selector which returns a boolean depending on the {@link VALUE_EXPRESSION}
 	 * 
@@ -369,17 +341,7 @@ public class Stock implements Serializable {
 	 * @return true if the selected attribute is different from the corresponding attribute of the comparator stock.
 	 */
 	public boolean changed(VALUE_EXPRESSION a) {
-		chooseComparison();
-		switch (a) {
-		case QUANTITY:
-			return quantity != comparator.quantity;
-		case VALUE:
-			return value != comparator.value;
-		case PRICE:
-			return price != comparator.price;
-		default:
-			throw new RuntimeException("ERROR: unknown attribute selector");
-		}
+		return changed(attributeOf(a));
 	}
 
 	/**
@@ -395,26 +357,7 @@ public class Stock implements Serializable {
 	 */
 	public boolean changed(STOCK_ATTRIBUTE attribute) {
 		chooseComparison();
-		switch (attribute) {
-		case OWNER:
-		case COMMODITY:
-		case STOCKTYPE:
-			return false;
-		case QUANTITY:
-			return quantity != comparator.quantity;
-		case VALUE:
-			return value != comparator.value;
-		case PRICE:
-			return price != comparator.price;
-		case REPLENISHMENTDEMAND:
-			return replenishmentDemand != comparator.replenishmentDemand;
-		case PRODUCTION_COEFFICIENT:
-			return productionCoefficient != comparator.productionCoefficient;
-		case CONSUMPTION_COEFFICIENT:
-			return consumptionCoefficient != comparator.consumptionCoefficient;
-		default:
-			return false;
-		}
+		return Deltas.changed(this, comparator, attribute.ordinal(), VALUE_EXPRESSION.PRICE);// no attribute of a stock depends on the expression
 	}
 
 	/**
@@ -432,18 +375,46 @@ public class Stock implements Serializable {
 		chooseComparison();
 		if (!changed(valueExpression))
 			return item;
+		return String.format(ViewManager.getLargeFormat(), Deltas.delta(this, comparator, attributeOf(valueExpression).ordinal(), VALUE_EXPRESSION.PRICE));
+	}
+
+	/**
+	 * @param valueExpression
+	 *            QUANTITY, VALUE or PRICE
+	 * @return the attribute of a stock that holds this magnitude
+	 */
+	private static STOCK_ATTRIBUTE attributeOf(VALUE_EXPRESSION valueExpression) {
 		switch (valueExpression) {
 		case QUANTITY:
-			return String.format(ViewManager.getLargeFormat(), quantity - comparator.quantity);
+			return STOCK_ATTRIBUTE.QUANTITY;
 		case VALUE:
-			return String.format(ViewManager.getLargeFormat(), value - comparator.value);
+			return STOCK_ATTRIBUTE.VALUE;
 		case PRICE:
-			return String.format(ViewManager.getLargeFormat(), price - comparator.price);
+			return STOCK_ATTRIBUTE.PRICE;
 		default:
-			return item;
+			throw new RuntimeException("ERROR: unknown attribute selector");
 		}
 	}
 
+	/**
+	 * The magnitudes compared by {@link #changed(STOCK_ATTRIBUTE)}.
+	 * Called by {@link Deltas}, which keeps the result until the next frame is displayed.
+	 * 
+	 * @param valueExpression
+	 *            not used, since no attribute of a stock depends on it
+	 * @return the magnitude of each attribute, indexed by its ordinal; NaN for those that are not compared
+	 */
+	@Override public double[] magnitudes(VALUE_EXPRESSION valueExpression) {
+		double[] m = Deltas.emptyMagnitudes(STOCK_ATTRIBUTE.values().length);
+		m[STOCK_ATTRIBUTE.QUANTITY.ordinal()] = quantity;
+		m[STOCK_ATTRIBUTE.VALUE.ordinal()] = value;
+		m[STOCK_ATTRIBUTE.PRICE.ordinal()] = price;
+		m[STOCK_ATTRIBUTE.REPLENISHMENTDEMAND.ordinal()] = replenishmentDemand;
+		m[STOCK_ATTRIBUTE.PRODUCTION_COEFFICIENT.ordinal()] = productionCoefficient;
+		m[STOCK_ATTRIBUTE.CONSUMPTION_COEFFICIENT.ordinal()] = consumptionCoefficient;
+		return m;
+	}
+
 	/**
 	 * chooses the comparator depending on the state set in the {@code ViewManager.comparatorToggle} radio buttons
 	 */
@@ -477,10 +448,10 @@ public class Stock implements Serializable {
 	 * @return an observableList of stocks
 	 */
 	public static ObservableList<Stock> ofStockTypeObservable(int projectID, int timeStampID, String stockType) {
-		Stock.withStockTypeQuery.setParameter("project", projectID).setParameter("stockType", stockType).setParameter("timeStamp", timeStampID);
 		ObservableList<Stock> result = FXCollections.observableArrayList();
-		for (Stock s : Stock.withStockTypeQuery.getResultList()) {
-			result.add(s);
+		for (Stock s : all(projectID, timeStampID)) {
+			if (s.pk.stockType.equals(stockType))
+				result.add(s);
 		}
 		return result;
 	}
@@ -514,9 +485,10 @@ public class Stock implements Serializable {
 		quantity = MathStuff.round(newQuantity);
 		value = MathStuff.round(newValue);
 		price = MathStuff.round(newPrice);
-		Reporter.report(logger, 3,
-				"Commodity [%s], of type [%s], owned by [%s]: is now %.0f. Its value is now $%.0f (intrinsic %.0f), and its price is %.0f (intrinsic %.0f)",
-				pk.commodity, pk.stockType, pk.owner, quantity, value, value / melt, price, price / melt);
+		if (Reporter.isReported(3))
+			Reporter.report(logger, 3, () -> String.format(
+					"Commodity [%s], of type [%s], owned by [%s]: is now %.0f. Its value is now $%.0f (intrinsic %.0f), and its price is %.0f (intrinsic %.0f)",
+					pk.commodity, pk.stockType, pk.owner, quantity, value, value / melt, price, price / melt));
 	}
 
 	/**
@@ -549,9 +521,10 @@ public class Stock implements Serializable {
 			quantity = MathStuff.round(newQuantity);
 			value = MathStuff.round(newValue);
 			price = MathStuff.round(newPrice);
-			Reporter.report(logger, 3,
-					"Size of commodity [%s], of type [%s], owned by [%s]: is %.0f. Value set to $%.0f (intrinsic %.0f), and price to %.0f (intrinsic %.0f)",
-					pk.commodity, pk.stockType, pk.owner, quantity, value, value / melt, price, price / melt);
+			if (Reporter.isReported(3))
+				Reporter.report(logger, 3, () -> String.format(
+						"Size of commodity [%s], of type [%s], owned by [%s]: is %.0f. Value set to $%.0f (intrinsic %.0f), and price to %.0f (intrinsic %.0f)",
+						pk.commodity, pk.stockType, pk.owner, quantity, value, value / melt, price, price / melt));
 		} catch (Exception e) {
 			Dialogues.alert(logger, "Something went wrong pre-processing the stock called %s. Please check your data.", pk.commodity);
 		}
@@ -591,23 +564,23 @@ public class Stock implements Serializable {
 		// another little consistency check
 
 		if (toQuantity != 0) {
-			if (!MathStuff.equals(toPrice / toQuantity, unitPrice)) {
-				Dialogues.alert(logger, "The unit price of the [%s] is %.2f and the unit price of its use value is  %.2f",
-						to.name(), toPrice / toQuantity, unitPrice);
+			if (!MathStuff.equals(toPrice, toQuantity * unitPrice)) {
+				Dialogues.alert(logger, "The price of the stock [%s] is %.4f but %.4f units at the unit price of its use value, %.4f, come to %.4f",
+						to.name(), toPrice, toQuantity, unitPrice, toQuantity * unitPrice);
 			}
-			if (!MathStuff.equals(toValue / toQuantity, unitValue)) {
-				Dialogues.alert(logger, "The unit price of the stock [%s] is %.2f and the unit price of its use value is  %.2f",
-						to.name(), toPrice / toQuantity, unitPrice);
+			if (!MathStuff.equals(toValue, toQuantity * unitValue)) {
+				Dialogues.alert(logger, "The value of the stock [%s] is %.4f but %.4f units at the unit value of its use value, %.4f, come to %.4f",
+						to.name(), toValue, toQuantity, unitValue, toQuantity * unitValue);
 			}
 		}
 		if (fromQuantity != 0) {
-			if (!MathStuff.equals(fromPrice / fromQuantity, unitPrice)) {
-				Dialogues.alert(logger, "The unit price of the target stock [%s] is %.2f and the unit price of its use value is  %.2f",
-						pk.commodity, fromPrice / fromQuantity, unitPrice);
+			if (!MathStuff.equals(fromPrice, fromQuantity * unitPrice)) {
+				Dialogues.alert(logger, "The price of the source stock [%s] is %.4f but %.4f units at the unit price of its use value, %.4f, come to %.4f",
+						pk.commodity, fromPrice, fromQuantity, unitPrice, fromQuantity * unitPrice);
 			}
-			if (!MathStuff.equals(fromValue / fromQuantity, unitValue)) {
-				Dialogues.alert(logger, "The unit price of the target stock [%s] is %.2f and the unit price of its use value is  %.2f",
-						pk.commodity, fromPrice / fromQuantity, unitPrice);
+			if (!MathStuff.equals(fromValue, fromQuantity * unitValue)) {
+				Dialogues.alert(logger, "The value of the source stock [%s] is %.4f but %.4f units at the unit value of its use value, %.4f, come to %.4f",
+						pk.commodity, fromValue, fromQuantity, unitValue, fromQuantity * unitValue);
 			}
 		}
 		logger.debug(String.format("   Transfer %.2f from [%s] in [%s] to [%s] in [%s]",
@@ -618,6 +591,11 @@ public class Stock implements Serializable {
 		to.modifyBy(quantityTransferred);
 		modifyBy(-quantityTransferred);
 
+		if (EventBus.isListening()) {
+			EventBus.publish(new SimulationEvent.TransferExecuted(pk.projectID, pk.timeStampID, pk.commodity, pk.owner, to.getOwner(),
+					quantityTransferred, unitValue, unitPrice));
+		}
+
 		logger.debug(String.format("   Recipient [%s] size is now: %.2f ", to.name(), to.getQuantity()));
 		logger.debug(String.format("   Donor [%s] size is now: %.2f ", pk.commodity, quantity));
 	}
@@ -657,13 +635,11 @@ public class Stock implements Serializable {
 	 * @return the single stock defined by this primary key, null if it does not exist
 	 */
 	public static Stock single(int projectID, int timeStampID, String industry, String commodity, String stockType) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID).setParameter("owner", industry)
-				.setParameter("commodity", commodity).setParameter("stockType", stockType);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (NoResultException r) {
-			return null;
+		for (Stock s : all(projectID, timeStampID)) {
+			if (s.pk.owner.equals(industry) && s.pk.commodity.equals(commodity) && s.pk.stockType.equals(stockType))
+				return s;
 		}
+		return null;
 	}
 
 	/**
@@ -679,13 +655,7 @@ public class Stock implements Serializable {
 	 * @return the single stock of money owned by the industry
 	 */
 	public static Stock moneyByOwner(int projectID, int timeStampID, String industry) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID).setParameter("owner", industry)
-				.setParameter("stockType", Stock.STOCKTYPE.MONEY.text()).setParameter("commodity", "Money");
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (javax.persistence.NoResultException e) {
-			return null;// because this query throws a fit if it doesn't find anything
-		}
+		return single(projectID, timeStampID, industry, "Money", Stock.STOCKTYPE.MONEY.text());
 	}
 
 	/**
@@ -695,7 +665,7 @@ public class Stock implements Serializable {
 	 * @return a list of stocks in the database
 	 */
 	public static List<Stock> all() {
-		return allQuery.getResultList();
+		return allQuery.get().getResultList();
 	}
 
 	
@@ -710,8 +680,8 @@ public class Stock implements Serializable {
 	 * @return a list of stocks at the given projectID and timeStampID
 	 */
 	public static List<Stock> all(int projectID, int timeStampID) {
-		allInProjectAndTimeStampQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		return allInProjectAndTimeStampQuery.getResultList();
+		Frame frame = FrameStore.frame(projectID, timeStampID);
+		return frame == null ? new ArrayList<Stock>() : frame.getStocks();
 	}
 
 	/**
@@ -723,8 +693,11 @@ public class Stock implements Serializable {
 	 * @return a list of stocks in the given projectID
 	 */
 	public static List<Stock> all(int projectID) {
-		allInProjectQuery.setParameter("project", projectID);
-		return allInProjectQuery.getResultList();
+		List<Stock> result = new ArrayList<Stock>();
+		for (Frame frame : FrameStore.frames(projectID)) {
+			result.addAll(frame.getStocks());
+		}
+		return result;
 	}
 
 	/**
@@ -739,9 +712,12 @@ public class Stock implements Serializable {
 	 * @return a list of stocks for the given commodity at the currently selected time and for the currently selected project
 	 */
 	public static List<Stock> stocksOfCommodity(int projectID, int timeStampID, String commodityName) {
-		ofCommodityQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID).setParameter("commodity",
-				commodityName);
-		return ofCommodityQuery.getResultList();
+		List<Stock> result = new ArrayList<Stock>();
+		for (Stock s : all(projectID, timeStampID)) {
+			if (s.pk.commodity.equals(commodityName))
+				result.add(s);
+		}
+		return result;
 	}
 
 	/**
@@ -754,10 +730,34 @@ public class Stock implements Serializable {
 	 * @return a list of all stocks that constitute sources of demand
 	 */
 	public static List<Stock> sourcesOfDemand(int projectID, int timeStampID) {
-		sourcesOfDemandQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		sourcesOfDemandQuery.setParameter("stockType1", Stock.STOCKTYPE.PRODUCTIVE.text()).setParameter("stockType2",
-				Stock.STOCKTYPE.CONSUMPTION.text());
-		return sourcesOfDemandQuery.getResultList();
+		List<Stock> result = new ArrayList<Stock>();
+		for (Stock s : all(projectID, timeStampID)) {
+			if (s.pk.stockType.equals(Stock.STOCKTYPE.PRODUCTIVE.text()) || s.pk.stockType.equals(Stock.STOCKTYPE.CONSUMPTION.text()))
+				result.add(s);
+		}
+		return result;
+	}
+
+	/**
+	 * a list of all the stocks of the given type that are owned by the named owner, at the given project and timeStamp
+	 * 
+	 * @param projectID
+	 *            the given projectID
+	 * @param timeStampID
+	 *            the given timeStamp
+	 * @param owner
+	 *            the industry or social class that owns the stocks
+	 * @param stockType
+	 *            the type of the stocks (money, productive, sales, consumption) as a String
+	 * @return a list of the stocks of the given type owned by this owner
+	 */
+	private static List<Stock> withOwnerAndType(int projectID, int timeStampID, String owner, String stockType) {
+		List<Stock> result = new ArrayList<Stock>();
+		for (Stock s : all(projectID, timeStampID)) {
+			if (s.pk.owner.equals(owner) && s.pk.stockType.equals(stockType))
+				result.add(s);
+		}
+		return result;
 	}
 
 	/**
@@ -772,9 +772,7 @@ public class Stock implements Serializable {
 	 * @return a list of the productive stocks managed by this industry
 	 */
 	public static List<Stock> allProductiveInIndustry(int projectID, int timeStampID, String industry) {
-		withOwnerAndTypeQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		withOwnerAndTypeQuery.setParameter("owner", industry).setParameter("stockType", Stock.STOCKTYPE.PRODUCTIVE.text());
-		return withOwnerAndTypeQuery.getResultList();
+		return withOwnerAndType(projectID, timeStampID, industry, Stock.STOCKTYPE.PRODUCTIVE.text());
 	}
 
 	/**
@@ -791,13 +789,7 @@ public class Stock implements Serializable {
 	 * @return the single productive stock, with the given commodity, of the named industry
 	 */
 	public static Stock singleProductive(int projectID, int timeStampID, String industry, String commodity) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID)
-				.setParameter("owner", industry).setParameter("stockType", Stock.STOCKTYPE.PRODUCTIVE.text()).setParameter("commodity", commodity);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (javax.persistence.NoResultException e) {
-			return null;// because this query throws a fit if it doesn't find anything
-		}
+		return single(projectID, timeStampID, industry, commodity, Stock.STOCKTYPE.PRODUCTIVE.text());
 	}
 
 	/**
@@ -808,8 +800,12 @@ public class Stock implements Serializable {
 	 * @return a list of all productive stocks belonging to a given project, regardless of owner and timeStamp
 	 */
 	public static List<Stock> productive(int projectID) {
-		productiveQuery.setParameter("project", projectID);
-		return productiveQuery.getResultList();
+		List<Stock> result = new ArrayList<Stock>();
+		for (Stock s : all(projectID)) {
+			if (s.pk.stockType.equals(Stock.STOCKTYPE.PRODUCTIVE.text()))
+				result.add(s);
+		}
+		return result;
 	}
 
 	/**
@@ -824,9 +820,7 @@ public class Stock implements Serializable {
 	 * @return a list of the consumption stocks owned by this social class
 	 */
 	public static List<Stock> consumedByClass(int projectID, int timeStampID, String socialClass) {
-		withOwnerAndTypeQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		withOwnerAndTypeQuery.setParameter("owner", socialClass).setParameter("stockType", Stock.STOCKTYPE.CONSUMPTION.text());
-		return withOwnerAndTypeQuery.getResultList();
+		return withOwnerAndType(projectID, timeStampID, socialClass, Stock.STOCKTYPE.CONSUMPTION.text());
 	}
 
 	/**
@@ -843,14 +837,7 @@ public class Stock implements Serializable {
 	 * @return the single consumption stocks of the given commodity that is owned by this social class
 	 */
 	public static Stock consumptionByCommodityAndClassSingle(int projectID, int timeStampID, String socialClass, String commodity) {
-		primaryQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID);
-		primaryQuery.setParameter("owner", socialClass).setParameter("stockType", Stock.STOCKTYPE.CONSUMPTION.text()).setParameter("commodity",
-				commodity);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (javax.persistence.NoResultException e) {
-			return null;// because this query throws a fit if it doesn't find anything
-		}
+		return single(projectID, timeStampID, socialClass, commodity, Stock.STOCKTYPE.CONSUMPTION.text());
 	}
 
 	/**
@@ -869,21 +856,24 @@ public class Stock implements Serializable {
 	 *         Note: there can be more than one seller of the same use value
 	 */
 	public static List<Stock> salesByCommodity(int projectID, int timeStampID, String commodity) {
-		ofCommodityAndTypeQuery.setParameter("project", projectID).setParameter("timeStamp", timeStampID).setParameter("commodity",
-				commodity);
-		ofCommodityAndTypeQuery.setParameter("stockType", Stock.STOCKTYPE.SALES.text());
-		return ofCommodityAndTypeQuery.getResultList();
+		List<Stock> result = new ArrayList<Stock>();
+		for (Stock s : all(projectID, timeStampID)) {
+			if (s.pk.commodity.equals(commodity) && s.pk.stockType.equals(Stock.STOCKTYPE.SALES.text()))
+				result.add(s);
+		}
+		return result;
 	}
 	
 	/**
-	 * Delete all stocks with the given projectID except those with timeStamp 1
+	 * Read all the stocks of the given project from the database. Used by {@link FrameStore} to build the frames of a project
 	 * 
 	 * @param projectID
-	 *            the projectID whose stocks will be deleted
+	 *            the given projectID
+	 * @return a list of all the persisted stocks of the given project
 	 */
-	public static void deleteFromProject(int projectID) {
-		deleteQuery.setParameter("project", projectID);
-		deleteQuery.executeUpdate();
+	static List<Stock> loadFromDatabase(int projectID) {
+		allInProjectQuery.get().setParameter("project", projectID);
+		return allInProjectQuery.get().getResultList();
 	}
 
 
@@ -891,7 +881,7 @@ public class Stock implements Serializable {
 	 * @return the entityManager
 	 */
 	public static EntityManager getEntityManager() {
-		return entityManager;
+		return PersistenceUnit.STOCKS.entityManager();
 	}
 
 	/**
@@ -1,6 +1,7 @@
 package capitalism.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.persistence.*;
@@ -26,7 +27,7 @@ import capitalism.view.custom.TrackingControlsBox;
 
 @XmlAccessorType(XmlAccessType.NONE)
 @XmlRootElement(name = "TimeStamp")
-public class TimeStamp implements Serializable {
+public class TimeStamp implements Serializable, Deltas.Measured {
 	private static final long serialVersionUID = 1L;
 
 	private static final Logger logger = LogManager.getLogger(TimeStamp.class);
@@ -52,25 +53,8 @@ public class TimeStamp implements Serializable {
 	@Transient private TimeStamp customComparator;
 	@Transient private TimeStamp endComparator;
 
-	private static EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory("DB_TIMESTAMP");
-	private static EntityManager entityManager;
-	private static TypedQuery<TimeStamp> primaryQuery;
-	private static TypedQuery<TimeStamp> superStateQuery;
-	private static TypedQuery<TimeStamp> allInProjectQuery;
-	private static TypedQuery<TimeStamp> allQuery;
-	private static TypedQuery<TimeStamp> deleteQuery;
-
-	// create the typed queries statically but not as named queries. This makes them easier to find and modify
-	static {
-		entityManager = entityManagerFactory.createEntityManager();
-		primaryQuery = entityManager.createQuery(
-				"SELECT t FROM TimeStamp t where t.pk.projectID = :project and t.pk.timeStampID = :timeStamp", TimeStamp.class);
-		allQuery = entityManager.createQuery("SELECT t from TimeStamp t", TimeStamp.class);
-		allInProjectQuery = entityManager.createQuery("Select t from TimeStamp t where t.pk.projectID =:project", TimeStamp.class);
-		superStateQuery = entityManager.createQuery(
-				"Select t from TimeStamp t where t.pk.projectID=:project and t.period= :period and t.superState=:superState", TimeStamp.class);
-		deleteQuery=entityManager.createQuery("Delete from TimeStamp t where t.pk.projectID=:project and t.pk.timeStampID>1", TimeStamp.class);
-	}
+	private static final PersistenceUnit.LazyQuery<Integer> projectsQuery = PersistenceUnit.TIMESTAMP.query("SELECT DISTINCT t.pk.projectID FROM TimeStamp t", Integer.class);
+	private static final PersistenceUnit.LazyQuery<TimeStamp> allInProjectQuery = PersistenceUnit.TIMESTAMP.query("Select t from TimeStamp t where t.pk.projectID =:project", TimeStamp.class);
 
 	/**
 	 * All list of displayable attributes of a timeStamp entity.
@@ -211,25 +195,17 @@ public class TimeStamp implements Serializable {
 
 	public String showDelta(String item, TIMESTAMP_ATTRIBUTE selector) {
 		chooseComparison();
+		double delta = Deltas.delta(this, comparator, selector.ordinal(), Stock.VALUE_EXPRESSION.PRICE);
 		switch (selector) {
 		case CURRENTCAPITAL:
-			return String.format(ViewManager.getLargeFormat(), currentCapital() - comparator.currentCapital());
 		case INITIALCAPITAL:
-			return String.format(ViewManager.getLargeFormat(), initialCapital() - comparator.initialCapital());
-		case MELT:
-			return String.format(ViewManager.getSmallFormat(), melt - comparator.melt);
 		case PROFIT:
-			return String.format(ViewManager.getLargeFormat(), profit() - comparator.profit());
-		case PROFITRATE:
-			return String.format(ViewManager.getSmallFormat(), profitRate() - comparator.profitRate());
 		case TOTALPRICE:
-			return String.format(ViewManager.getLargeFormat(), totalPrice() - comparator.totalPrice());
 		case TOTALVALUE:
-			return String.format(ViewManager.getLargeFormat(), totalValue() - comparator.totalValue());
-		case LABOUR_SUPPLY_RESPONSE:
-		case MELT_RESPONSE:
-		case PRICE_RESPONSE:
-		case POPULATION_GROWTH_RATE:
+			return String.format(ViewManager.getLargeFormat(), delta);
+		case MELT:
+		case PROFITRATE:
+			return String.format(ViewManager.getSmallFormat(), delta);
 		default:
 			return item;
 		}
@@ -249,9 +225,7 @@ public class TimeStamp implements Serializable {
 	public static void setComparators(int projectID, int timeStampID) {
 		logger.debug("Setting comparators for the timeStamp in project {} with timeStamp {}", projectID, timeStampID);
 		Project project = Project.get(projectID);
-		primaryQuery.setParameter("project", projectID);
-		primaryQuery.setParameter("timeStamp", timeStampID);
-		TimeStamp timeStamp = primaryQuery.getSingleResult();
+		TimeStamp timeStamp = single(projectID, timeStampID);
 		timeStamp.setPreviousComparator(single(projectID, project.getTimeStampComparatorCursor()));
 		timeStamp.setStartComparator(single(projectID, 1));
 		timeStamp.setEndComparator(single(projectID, project.getTimeStampID()));
@@ -270,29 +244,27 @@ public class TimeStamp implements Serializable {
 
 	public boolean changed(TIMESTAMP_ATTRIBUTE selector) {
 		chooseComparison();
-		switch (selector) {
-		case CURRENTCAPITAL:
-			return currentCapital() != comparator.currentCapital();
-		case INITIALCAPITAL:
-			return initialCapital() != comparator.initialCapital();
-		case MELT:
-			return melt != comparator.melt;
-		case LABOUR_SUPPLY_RESPONSE:
-		case PRICE_RESPONSE:
-		case MELT_RESPONSE:
-		case POPULATION_GROWTH_RATE:
-			return false;
-		case PROFIT:
-			return profit() != comparator.profit();
-		case PROFITRATE:
-			return profitRate() != comparator.profitRate();
-		case TOTALPRICE:
-			return totalPrice() != comparator.totalPrice();
-		case TOTALVALUE:
-			return totalValue() != comparator.totalValue();
-		default:
-			return false;
-		}
+		return Deltas.changed(this, comparator, selector.ordinal(), Stock.VALUE_EXPRESSION.PRICE);// no attribute of a timeStamp depends on the expression
+	}
+
+	/**
+	 * The magnitudes compared by {@link #changed(TIMESTAMP_ATTRIBUTE)}. The responses and the population growth rate are not compared,
+	 * since they are expected to be constant. Called by {@link Deltas}, which keeps the result until the next frame is displayed.
+	 * 
+	 * @param valueExpression
+	 *            not used, since no attribute of a timeStamp depends on it
+	 * @return the magnitude of each attribute, indexed by its ordinal; NaN for those that are not compared
+	 */
+	@Override public double[] magnitudes(Stock.VALUE_EXPRESSION valueExpression) {
+		double[] m = Deltas.emptyMagnitudes(TIMESTAMP_ATTRIBUTE.values().length);
+		m[TIMESTAMP_ATTRIBUTE.CURRENTCAPITAL.ordinal()] = currentCapital();
+		m[TIMESTAMP_ATTRIBUTE.INITIALCAPITAL.ordinal()] = initialCapital();
+		m[TIMESTAMP_ATTRIBUTE.MELT.ordinal()] = melt;
+		m[TIMESTAMP_ATTRIBUTE.PROFIT.ordinal()] = profit();
+		m[TIMESTAMP_ATTRIBUTE.PROFITRATE.ordinal()] = profitRate();
+		m[TIMESTAMP_ATTRIBUTE.TOTALPRICE.ordinal()] = totalPrice();
+		m[TIMESTAMP_ATTRIBUTE.TOTALVALUE.ordinal()] = totalValue();
+		return m;
 	}
 
 	/**
@@ -394,12 +366,13 @@ public class TimeStamp implements Serializable {
 	}
 
 	/**
-	 * Fetch all timeStamps in the database. Largely for validation purposes though could have other uses
+	 * the IDs of all the projects that have timeStamps in the database. Used by validation to find rows that belong to no project,
+	 * without reading the rows themselves
 	 * 
-	 * @return a list of all timeStamps
+	 * @return a list of the distinct projectIDs in the timeStamps table
 	 */
-	public static List<TimeStamp> all() {
-		return allQuery.getResultList();
+	public static List<Integer> projectIDsInDatabase() {
+		return projectsQuery.get().getResultList();
 	}
 
 	/**
@@ -411,8 +384,11 @@ public class TimeStamp implements Serializable {
 	 */
 
 	public static List<TimeStamp> allInProject(int projectID) {
-		allInProjectQuery.setParameter("project", projectID);
-		return allInProjectQuery.getResultList();
+		List<TimeStamp> result = new ArrayList<TimeStamp>();
+		for (Frame frame : FrameStore.frames(projectID)) {
+			result.add(frame.getTimeStamp());
+		}
+		return result;
 	}
 
 	/**
@@ -425,13 +401,8 @@ public class TimeStamp implements Serializable {
 	 * @return the TimeStamp that has the given timeStampID and projectID, null if the record does not exist
 	 */
 	public static TimeStamp single(int projectID, int timeStampID) {
-		primaryQuery.setParameter("project", projectID);
-		primaryQuery.setParameter("timeStamp", timeStampID);
-		try {
-			return primaryQuery.getSingleResult();
-		} catch (Exception e) {
-			return null;
-		}
+		Frame frame = FrameStore.frame(projectID, timeStampID);
+		return frame == null ? null : frame.getTimeStamp();
 	}
 
 	/**
@@ -444,9 +415,7 @@ public class TimeStamp implements Serializable {
 	 * @return the TimeStamp that has the given timeStampID and project
 	 */
 	public static TimeStamp singleInProjectAndTimeStamp(int projectID, int timeStampID) {
-		primaryQuery.setParameter("project", projectID);
-		primaryQuery.setParameter("timeStamp", timeStampID);
-		return primaryQuery.getSingleResult();
+		return single(projectID, timeStampID);
 	}
 
 	/**
@@ -461,24 +430,30 @@ public class TimeStamp implements Serializable {
 	 * @return a list of timeStamps that belong to this superstate in the given period and the current projec
 	 */
 	public static List<TimeStamp> superStateChildren(int period, int projectID, String superStateName) {
-		superStateQuery.setParameter("project", projectID);
-		superStateQuery.setParameter("period", period).setParameter("superState", superStateName);
-		return superStateQuery.getResultList();
+		List<TimeStamp> result = new ArrayList<TimeStamp>();
+		for (Frame frame : FrameStore.frames(projectID)) {
+			TimeStamp t = frame.getTimeStamp();
+			if (t.period == period && superStateName.equals(t.superState))
+				result.add(t);
+		}
+		return result;
 	}
 
 	/**
-	 * Delete all timeStamps with the given projectID except those with timeStampID 1
+	 * Read all the timeStamps of the given project from the database. Used by {@link FrameStore} to build the frames of a project
 	 * 
 	 * @param projectID
-	 *            the projectID whose timeStamps will be deleted
+	 *            the given projectID
+	 * @return a list of all the persisted timeStamps of the given project
 	 */
-	public static void deleteFromProject(int projectID) {
-		deleteQuery.setParameter("project", projectID);
-		deleteQuery.executeUpdate();
+	static List<TimeStamp> loadFromDatabase(int projectID) {
+		allInProjectQuery.get().setParameter("project", projectID);
+		return allInProjectQuery.get().getResultList();
 	}
+
 	
 	public static EntityManager getEntityManager() {
-		return entityManager;
+		return PersistenceUnit.TIMESTAMP.entityManager();
 	}
 
 	/**
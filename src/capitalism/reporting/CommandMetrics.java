@@ -0,0 +1,301 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Measures what each command, and each of the heavier steps of the simulation, costs: wall time, CPU time and bytes allocated
+ * by the thread that ran it, and the number of database queries that thread executed and of rows it passed on to be persisted.
+ * The recent measurements of each command are kept in rolling histograms and published as an MBean
+ * named {@code capitalism:type=CommandMetrics,name=<command>}.
+ * 
+ * Usage:
+ * 
+ * <pre>
+ * CommandMetrics.Measurement measurement = CommandMetrics.start("Trade");
+ * try {
+ * 	...
+ * } finally {
+ * 	measurement.stop();
+ * }
+ * </pre>
+ * 
+ * Measurements of commands that call other commands include the cost of the commands they call.
+ * 
+ * Nothing is measured unless the system property {@code capsim.metrics} is true or {@link #setEnabled(boolean)} has been called;
+ * until then {@link #start(String)} returns a measurement that does nothing, and the simulation pays only for the test.
+ */
+public class CommandMetrics implements CommandMetricsMBean {
+	private static final Logger logger = LogManager.getLogger(CommandMetrics.class);
+
+	// the number of recent executions of each command that are kept
+	private static final int SAMPLES = 256;
+
+	private static final Map<String, CommandMetrics> registry = new ConcurrentHashMap<String, CommandMetrics>();
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private static volatile boolean enabled = Boolean.getBoolean("capsim.metrics");
+
+	// running totals for each thread, from which each measurement takes the difference between its start and its end. They are kept
+	// per thread so that a command is charged only with the work of the thread that runs it, not with what other threads do meanwhile
+	private static final ThreadLocal<Counts> counts = ThreadLocal.withInitial(Counts::new);
+
+	private static class Counts {
+		private long queries = 0;
+		private long rowsPersisted = 0;
+	}
+
+	private final String name;
+	private final RollingHistogram wallTime = new RollingHistogram(SAMPLES);
+	private final RollingHistogram cpuTime = new RollingHistogram(SAMPLES);
+	private final RollingHistogram allocatedBytes = new RollingHistogram(SAMPLES);
+	private final RollingHistogram queryCount = new RollingHistogram(SAMPLES);
+	private final RollingHistogram rowCount = new RollingHistogram(SAMPLES);
+
+	/**
+	 * One execution of a command, from {@link CommandMetrics#start(String)} to {@link #stop()}
+	 */
+	public static class Measurement {
+		private final CommandMetrics metrics;
+		private final long startWall;
+		private final long startCpu;
+		private final long startAllocated;
+		private final long startQueries;
+		private final long startRows;
+
+		// returned by start() when measurement is disabled
+		private static final Measurement NONE = new Measurement();
+
+		private Measurement() {
+			metrics = null;
+			startWall = startCpu = startAllocated = startQueries = startRows = 0;
+		}
+
+		private Measurement(CommandMetrics metrics) {
+			this.metrics = metrics;
+			Counts mine = counts.get();
+			startQueries = mine.queries;
+			startRows = mine.rowsPersisted;
+			startAllocated = allocatedBytes();
+			startCpu = cpuTime();
+			startWall = System.nanoTime();
+		}
+
+		/**
+		 * finish the measurement and record it
+		 */
+		public void stop() {
+			if (metrics == null)
+				return;
+			long wall = System.nanoTime() - startWall;
+			long cpu = cpuTime() - startCpu;
+			long allocated = allocatedBytes() - startAllocated;
+			metrics.wallTime.add(wall);
+			metrics.cpuTime.add(cpu);
+			metrics.allocatedBytes.add(allocated);
+			Counts mine = counts.get();
+			metrics.queryCount.add(mine.queries - startQueries);
+			metrics.rowCount.add(mine.rowsPersisted - startRows);
+		}
+	}
+
+	private CommandMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * begin measuring one execution of the named command. The MBean for the command is created the first time it is measured.
+	 * If measurement is disabled, the measurement returned does nothing
+	 * 
+	 * @param name
+	 *            the name of the command
+	 * @return the measurement, which must be stopped when the command is complete
+	 */
+	public static Measurement start(String name) {
+		if (!enabled)
+			return Measurement.NONE;
+		CommandMetrics metrics = registry.get(name);
+		if (metrics == null)
+			metrics = register(name);
+		return new Measurement(metrics);
+	}
+
+	/**
+	 * create the metrics for a command and publish them as an MBean
+	 * 
+	 * @param name
+	 *            the name of the command
+	 * @return the metrics of the command
+	 */
+	private static synchronized CommandMetrics register(String name) {
+		CommandMetrics metrics = registry.get(name);
+		if (metrics != null)
+			return metrics;
+		metrics = new CommandMetrics(name);
+		registry.put(name, metrics);
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("capitalism:type=CommandMetrics,name=" + name));
+		} catch (Exception e) {
+			logger.error("The metrics for {} could not be published because {}", name, e.getMessage());
+		}
+		return metrics;
+	}
+
+	/**
+	 * start or stop measuring. The measurements already taken are kept
+	 * 
+	 * @param enabled
+	 *            true to measure commands from now on, false to stop
+	 */
+	public static void setEnabled(boolean enabled) {
+		CommandMetrics.enabled = enabled;
+	}
+
+	/**
+	 * @return true if commands are being measured
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * record that a database query has been executed by the current thread
+	 */
+	public static void countQuery() {
+		if (!enabled)
+			return;
+		counts.get().queries++;
+	}
+
+	/**
+	 * record that the current thread has handed rows on to be persisted
+	 * 
+	 * @param rows
+	 *            the number of rows
+	 */
+	public static void countRows(int rows) {
+		if (!enabled)
+			return;
+		counts.get().rowsPersisted += rows;
+	}
+
+	/**
+	 * @return the metrics of every command that has been measured so far
+	 */
+	public static Collection<CommandMetrics> all() {
+		return registry.values();
+	}
+
+	/**
+	 * discard the measurements of every command
+	 */
+	public static void resetAll() {
+		for (CommandMetrics metrics : registry.values()) {
+			metrics.reset();
+		}
+	}
+
+	/**
+	 * @return the CPU time used so far by the current thread, in nanoseconds; 0 if the JVM cannot measure it
+	 */
+	private static long cpuTime() {
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * @return the bytes allocated so far by the current thread; 0 if the JVM cannot measure it
+	 */
+	public static long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+
+	@Override public String getName() {
+		return name;
+	}
+
+	@Override public long getExecutions() {
+		return wallTime.count();
+	}
+
+	@Override public double getMeanWallMillis() {
+		return wallTime.mean() / 1e6;
+	}
+
+	@Override public double getMedianWallMillis() {
+		return wallTime.percentile(0.5) / 1e6;
+	}
+
+	@Override public double getP90WallMillis() {
+		return wallTime.percentile(0.9) / 1e6;
+	}
+
+	@Override public double getP99WallMillis() {
+		return wallTime.percentile(0.99) / 1e6;
+	}
+
+	@Override public double getMaxWallMillis() {
+		return wallTime.max() / 1e6;
+	}
+
+	@Override public double getStandardDeviationWallMillis() {
+		return wallTime.standardDeviation() / 1e6;
+	}
+
+	@Override public double getMeanCpuMillis() {
+		return cpuTime.mean() / 1e6;
+	}
+
+	@Override public double getMeanAllocatedBytes() {
+		return allocatedBytes.mean();
+	}
+
+	@Override public long getMaxAllocatedBytes() {
+		return allocatedBytes.max();
+	}
+
+	@Override public double getMeanQueries() {
+		return queryCount.mean();
+	}
+
+	@Override public double getMeanRowsPersisted() {
+		return rowCount.mean();
+	}
+
+	@Override public void reset() {
+		wallTime.clear();
+		cpuTime.clear();
+		allocatedBytes.clear();
+		queryCount.clear();
+		rowCount.clear();
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+/**
+ * The management interface of {@link CommandMetrics}, through which the recent performance of each command can be watched
+ * with any JMX client, such as jconsole or VisualVM. Times are in milliseconds. All statistics describe the most recent executions.
+ */
+public interface CommandMetricsMBean {
+
+	public String getName();
+
+	public long getExecutions();
+
+	public double getMeanWallMillis();
+
+	public double getMedianWallMillis();
+
+	public double getP90WallMillis();
+
+	public double getP99WallMillis();
+
+	public double getMaxWallMillis();
+
+	public double getStandardDeviationWallMillis();
+
+	public double getMeanCpuMillis();
+
+	public double getMeanAllocatedBytes();
+
+	public long getMaxAllocatedBytes();
+
+	public double getMeanQueries();
+
+	public double getMeanRowsPersisted();
+
+	public void reset();
+}
@@ -20,12 +20,16 @@
 package capitalism.reporting;
 
 import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.Capitalism;
+import capitalism.controller.SimulationExecutor;
 import capitalism.view.ViewManager;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.stage.DirectoryChooser;
@@ -77,20 +81,49 @@ public class Dialogues {
 			logger.debug("++++++++ at " + logMessage);
 		}
 
-		Alert alert = new Alert(AlertType.WARNING);
-		alert.setTitle("Warning");
-		alert.setHeaderText("There is a problem");
-		alert.setContentText(String.format(formatString, args) + "\nConsult debug.log for details");
-
-		alert.showAndWait();
+		String message = String.format(formatString, args) + "\nConsult debug.log for details";
+		onFXThread(() -> {
+			Alert alert = new Alert(AlertType.WARNING);
+			alert.setTitle("Warning");
+			alert.setHeaderText("There is a problem");
+			alert.setContentText(message);
+			alert.showAndWait();
+		});
 	}
 
 	public static void info(String header, String message) {
-		Alert alert = new Alert(AlertType.INFORMATION);
-		alert.setTitle("Information");
-		alert.setHeaderText(header);
-		alert.setContentText(message);
-		alert.showAndWait();
+		onFXThread(() -> {
+			Alert alert = new Alert(AlertType.INFORMATION);
+			alert.setTitle("Information");
+			alert.setHeaderText(header);
+			alert.setContentText(message);
+			alert.showAndWait();
+		});
+	}
+
+	/**
+	 * Show a dialogue on the JavaFX Application Thread, which is the only thread allowed to, and wait until the user has dismissed it.
+	 * Commands run on the simulation thread (see {@link capitalism.controller.SimulationExecutor}) so their alerts are passed across;
+	 * the simulation waits for the user just as it did when commands ran on the JavaFX Application Thread, unless the application closes
+	 * while it is waiting.
+	 * 
+	 * @param dialogue
+	 *            shows the dialogue and waits for it to be dismissed
+	 */
+	private static void onFXThread(Runnable dialogue) {
+		if (Platform.isFxApplicationThread()) {
+			dialogue.run();
+			return;
+		}
+		FutureTask<Void> shown = new FutureTask<Void>(dialogue, null);
+		try {
+			Platform.runLater(shown);
+			SimulationExecutor.awaitOnFXThread(shown);
+		} catch (IllegalStateException e) {
+			logger.debug("No dialogue was shown, because there is no user interface");
+		} catch (ExecutionException e) {
+			logger.error("The dialogue could not be shown because " + e.getCause().getMessage());
+		}
 	}
 
 	public static File directoryChooser(String title) {
@@ -0,0 +1,218 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Delivers {@link SimulationEvent}s to any number of {@link SimulationEventSink}s. Every subscriber has its own bounded
+ * ring buffer and its own delivery thread, so a slow sink delays only itself. What happens when a subscriber's buffer is full
+ * is decided by the subscriber's {@link POLICY}.
+ * 
+ * The sinks provided are {@link EventFileWriter}, which writes the events to a file; {@link EventMetrics}, which counts them for JMX;
+ * {@link LogWindow}, which shows them beneath the narrative; and {@link EventRecorder}, which keeps them so that a check can assert what
+ * the simulation did.
+ * 
+ * With no subscribers, {@link #publish(SimulationEvent)} does nothing. Every place that publishes tests {@link #isListening()} first,
+ * so that with no subscribers the event is not created at all.
+ */
+public class EventBus {
+	private static final Logger logger = LogManager.getLogger(EventBus.class);
+
+	/**
+	 * what to do with an event when a subscriber's buffer is full
+	 */
+	public static enum POLICY {
+		/** discard the new event. The simulation never waits */
+		DROP_NEWEST,
+		/** discard the oldest event in the buffer to make room. The simulation never waits */
+		DROP_OLDEST,
+		/** wait until there is room. Only for subscribers that must see every event, such as tests; the simulation runs at the speed of the sink */
+		BLOCK
+	}
+
+	private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	/**
+	 * One subscriber: its sink, its buffer and the thread that empties the buffer into the sink
+	 */
+	public static class Subscription {
+		private final String name;
+		private final SimulationEventSink sink;
+		private final POLICY policy;
+		private final BlockingQueue<SimulationEvent> buffer;
+		private final AtomicLong dropped = new AtomicLong(0);
+		private final Thread deliverer;
+		private volatile boolean cancelled = false;
+
+		private Subscription(String name, SimulationEventSink sink, POLICY policy, int capacity) {
+			this.name = name;
+			this.sink = sink;
+			this.policy = policy;
+			this.buffer = new ArrayBlockingQueue<SimulationEvent>(capacity);
+			this.deliverer = new Thread(new Runnable() {
+				@Override public void run() {
+					deliver();
+				}
+			}, "Event sink " + name);
+			deliverer.setDaemon(true);
+		}
+
+		/**
+		 * place an event in the buffer, applying the policy if it is full
+		 * 
+		 * @param event
+		 *            the event
+		 */
+		private void offer(SimulationEvent event) {
+			switch (policy) {
+			case DROP_NEWEST:
+				if (!buffer.offer(event))
+					dropped.incrementAndGet();
+				break;
+			case DROP_OLDEST:
+				while (!buffer.offer(event)) {
+					if (buffer.poll() != null)
+						dropped.incrementAndGet();
+				}
+				break;
+			case BLOCK:
+				try {
+					buffer.put(event);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				break;
+			}
+		}
+
+		/**
+		 * The body of the delivery thread. Once the subscription is cancelled, deliver whatever is left in the buffer and close the sink
+		 */
+		private void deliver() {
+			while (!cancelled || !buffer.isEmpty()) {
+				SimulationEvent event;
+				try {
+					event = buffer.take();
+				} catch (InterruptedException e) {
+					// cancelled: go round again to deliver what is left
+					continue;
+				}
+				try {
+					sink.accept(event);
+				} catch (RuntimeException r) {
+					logger.error("The event sink {} failed on the event {} because {}", name, event, r.getMessage());
+				}
+			}
+			sink.close();
+			if (dropped.get() > 0)
+				logger.debug("The event sink {} missed {} events because it could not keep up", name, dropped.get());
+		}
+
+		/**
+		 * @return the number of events that have been discarded because the buffer was full
+		 */
+		public long getDropped() {
+			return dropped.get();
+		}
+
+		/**
+		 * @return the name of this subscription
+		 */
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * register a sink to receive every event published from now on
+	 * 
+	 * @param name
+	 *            a name for the subscription, used in the name of its thread and in the log
+	 * @param sink
+	 *            the sink
+	 * @param policy
+	 *            what to do when the sink falls so far behind that its buffer is full
+	 * @param capacity
+	 *            the number of events the buffer can hold
+	 * @return the subscription, which can be passed to {@link #unsubscribe(Subscription)}
+	 */
+	public static Subscription subscribe(String name, SimulationEventSink sink, POLICY policy, int capacity) {
+		Subscription subscription = new Subscription(name, sink, policy, capacity);
+		subscription.deliverer.start();
+		subscriptions.add(subscription);
+		logger.debug("The event sink {} has subscribed with policy {} and capacity {}", name, policy, capacity);
+		return subscription;
+	}
+
+	/**
+	 * stop sending events to a subscriber. Events already in its buffer are still delivered, and then the sink is closed.
+	 * Waits until this has been done.
+	 * 
+	 * @param subscription
+	 *            the subscription to cancel
+	 */
+	public static void unsubscribe(Subscription subscription) {
+		subscriptions.remove(subscription);
+		subscription.cancelled = true;
+		subscription.deliverer.interrupt();
+		try {
+			subscription.deliverer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * cancel every subscription. Called when the application closes
+	 */
+	public static void shutdown() {
+		for (Subscription subscription : subscriptions) {
+			unsubscribe(subscription);
+		}
+	}
+
+	/**
+	 * @return true if anyone is subscribed, so that it is worth creating events
+	 */
+	public static boolean isListening() {
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * send an event to every subscriber
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	public static void publish(SimulationEvent event) {
+		for (Subscription subscription : subscriptions) {
+			subscription.offer(event);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link SimulationEventSink} that writes each event to a file as one line of comma-separated values
+ * (see {@link SimulationEvent#toString()}), for analysis outside the simulation.
+ */
+public class EventFileWriter implements SimulationEventSink {
+	private static final Logger logger = LogManager.getLogger(EventFileWriter.class);
+
+	private BufferedWriter writer = null;
+	private String fileName;
+
+	/**
+	 * open the file, replacing anything that is already in it
+	 * 
+	 * @param fileName
+	 *            the full path of the file
+	 */
+	public EventFileWriter(String fileName) {
+		this.fileName = fileName;
+		try {
+			writer = new BufferedWriter(new FileWriter(fileName));
+		} catch (IOException e) {
+			logger.error("The event file {} could not be opened because {}", fileName, e.getMessage());
+		}
+	}
+
+	@Override public void accept(SimulationEvent event) {
+		if (writer == null)
+			return;
+		try {
+			writer.write(event.toString());
+			writer.newLine();
+		} catch (IOException e) {
+			logger.error("The event file {} could not be written because {}. No more events will be written to it", fileName, e.getMessage());
+			close();
+		}
+	}
+
+	@Override public void close() {
+		if (writer == null)
+			return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			logger.error("The event file {} could not be closed because {}", fileName, e.getMessage());
+		}
+		writer = null;
+	}
+}
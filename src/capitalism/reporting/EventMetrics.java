@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.reporting;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link SimulationEventSink} that counts the events of each kind and publishes the counts as an MBean named
+ * {@code capitalism:type=EventMetrics}, so that the activity of the simulation (how many transfers, how many constrained outputs)
+ * can be watched while it runs.
+ */
+public class EventMetrics implements SimulationEventSink, EventMetricsMBean {
+	private static final Logger logger = LogManager.getLogger(EventMetrics.class);
+
+	private final AtomicLong stepsStarted = new AtomicLong(0);
+	private final AtomicLong transfersExecuted = new AtomicLong(0);
+	private final AtomicLong outputsConstrained = new AtomicLong(0);
+	private final AtomicLong pricesSet = new AtomicLong(0);
+	private final AtomicLong periodsAdvanced = new AtomicLong(0);
+
+	/**
+	 * create the counts and publish them as an MBean
+	 */
+	public EventMetrics() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("capitalism:type=EventMetrics"));
+		} catch (Exception e) {
+			logger.error("The event metrics could not be published because {}", e.getMessage());
+		}
+	}
+
+	@Override public void accept(SimulationEvent event) {
+		if (event instanceof SimulationEvent.StepStarted) {
+			stepsStarted.incrementAndGet();
+		} else if (event instanceof SimulationEvent.TransferExecuted) {
+			transfersExecuted.incrementAndGet();
+		} else if (event instanceof SimulationEvent.OutputConstrained) {
+			outputsConstrained.incrementAndGet();
+		} else if (event instanceof SimulationEvent.PriceSet) {
+			pricesSet.incrementAndGet();
+		} else if (event instanceof SimulationEvent.PeriodAdvanced) {
+			periodsAdvanced.incrementAndGet();
+		}
+	}
+
+	@Override public long getStepsStarted() {
+		return stepsStarted.get();
+	}
+
+	@Override public long getTransfersExecuted() {
+		return transfersExecuted.get();
+	}
+
+	@Override public long getOutputsConstrained() {
+		return outputsConstrained.get();
+	}
+
+	@Override public long getPricesSet() {
+		return pricesSet.get();
+	}
+
+	@Override public long getPeriodsAdvanced() {
+		return periodsAdvanced.get();
+	}
+
+	@Override public void reset() {
+		stepsStarted.set(0);
+		transfersExecuted.set(0);
+		outputsConstrained.set(0);
+		pricesSet.set(0);
+		periodsAdvanced.set(0);
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link SimulationEventSink} that keeps every event it is sent, so that a check can afterwards assert what the simulation did.
+ * Subscribe it with {@link EventBus.POLICY#BLOCK}, so that no event is missed, and read it only once
+ * {@link EventBus#unsubscribe(EventBus.Subscription)} has returned, by which time every event has been delivered to it.
+ */
+public class EventRecorder implements SimulationEventSink {
+	private final List<SimulationEvent> events = new ArrayList<SimulationEvent>();
+
+	@Override public void accept(SimulationEvent event) {
+		events.add(event);
+	}
+
+	/**
+	 * @return every event recorded, in the order in which they were published
+	 */
+	public List<SimulationEvent> events() {
+		return events;
+	}
+
+	/**
+	 * @param type
+	 *            a kind of event
+	 * @return the events of that kind, in the order in which they were published
+	 */
+	public <T extends SimulationEvent> List<T> events(Class<T> type) {
+		List<T> result = new ArrayList<T>();
+		for (SimulationEvent event : events) {
+			if (type.isInstance(event))
+				result.add(type.cast(event));
+		}
+		return result;
+	}
+}
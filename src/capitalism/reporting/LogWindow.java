@@ -22,11 +22,18 @@ package capitalism.reporting;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.view.ViewManager;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TreeItem;
@@ -41,11 +48,25 @@ import javafx.stage.Stage;
  * The logWindow is used by the simulation (see the userGuide) to report on the flows of value, price and 
  * quantity in a manner that is accessible to the user, and complements the other reporting mechanisms
  * such as the timeStampView and the tables. Also see {@link Reporter#createLogWindow()} and related code
- *
+ * 
+ * Messages can be added from any thread. They are queued, and the queue is emptied onto the FX thread in one go,
+ * however many messages have arrived in the meantime. Only the most recent {@code MAX_TOP_LEVEL_ENTRIES} top-level
+ * entries are kept; older ones are dropped from the window, but remain in the log file written by {@link Reporter}.
+ * The nodes that display the children of an entry are not created until the user expands it.
+ * 
+ * The window can also subscribe to the {@link EventBus} (see {@link Reporter#createLogWindow()}), in which case each
+ * {@link SimulationEvent} is added beneath the current narrative as an entry of its own.
  */
 
-public class LogWindow {
+public class LogWindow implements SimulationEventSink {
 	private static final Logger logger = LogManager.getLogger(Reporter.class);
+
+	// the number of top-level entries (one for each report at level 0) kept in the window
+	private static final int MAX_TOP_LEVEL_ENTRIES = 200;
+
+	// the level of an event, which is placed beneath the deepest message reported so far and does not become the parent of anything
+	private static final int EVENT_LEVEL = 4;
+
 	// this scene used for the logger window.
 
 	private static Scene logScene;
@@ -54,30 +75,84 @@ public class LogWindow {
 	private TreeView<Label> treeView= null;
 	private double logWindowWidth = ViewManager.windowWidth* 0.6;
 	private double logWindowHeight = ViewManager.windowHeight;
-	private TreeItem<Label> lastLevel1;
-	private TreeItem<Label> lastLevel2;
-	private TreeItem<Label> lastLevel3;
+	private Entry lastLevel1;
+	private Entry lastLevel2;
+	private Entry lastLevel3;
+
+	// messages waiting to be added to the tree, and whether the FX thread has already been asked to add them
+	private Queue<Entry> pending = new ConcurrentLinkedQueue<Entry>();
+	private AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+	/**
+	 * One message in the log. Entries are cheap; the node that displays an entry is only created when it becomes visible
+	 */
+	private static class Entry {
+		private final String message;
+		private final int level;
+		private final List<Entry> children = new ArrayList<Entry>();
+		private LogItem item = null;
+
+		private Entry(String message, int level) {
+			this.message = message;
+			this.level = level;
+		}
+	}
+
+	/**
+	 * The node that displays an entry. Its children are created from the children of the entry the first time they are asked for,
+	 * which is when the item is expanded
+	 */
+	private static class LogItem extends TreeItem<Label> {
+		private final Entry entry;
+		private boolean built = false;
+
+		private LogItem(Entry entry) {
+			super(label(entry));
+			this.entry = entry;
+			entry.item = this;
+		}
+
+		@Override public boolean isLeaf() {
+			return entry.children.isEmpty();
+		}
+
+		@Override public ObservableList<TreeItem<Label>> getChildren() {
+			if (!built) {
+				built = true;
+				for (Entry child : entry.children) {
+					super.getChildren().add(new LogItem(child));
+				}
+			}
+			return super.getChildren();
+		}
+
+		/**
+		 * called when a child is added to the entry. If the children of this item have already been created, create one for the new child too
+		 * 
+		 * @param child
+		 *            the new child of the entry
+		 */
+		private void childAdded(Entry child) {
+			if (built)
+				super.getChildren().add(new LogItem(child));
+		}
+	}
 
 	public LogWindow() {
 		loggingStage=new Stage();
 		hBox=new HBox();
 		TreeItem<Label> rootItem = new TreeItem<Label>(new Label("Log"));
-		TreeItem<Label> firstLevel1Item=new TreeItem<Label>(new Label("STARTUP"));
-		TreeItem<Label> secondLevelItem=new TreeItem<Label>(new Label("Log Window Startup"));
 		ZoneId zonedId = ZoneId.systemDefault();
 		ZonedDateTime zdt = ZonedDateTime.now( zonedId );
-		TreeItem<Label> thirdLevelItem=new TreeItem<Label>(new Label(zdt.toString()));
 		rootItem.setExpanded(true);
 
 		treeView = new TreeView<Label>(rootItem);
-		
-		rootItem.getChildren().add(firstLevel1Item);
-		lastLevel1=firstLevel1Item;
-		firstLevel1Item.getChildren().add(secondLevelItem);
-		lastLevel2=secondLevelItem;
-		secondLevelItem.getChildren().add(thirdLevelItem);
-		lastLevel3=thirdLevelItem;
-		
+
+		Entry startup = new Entry("STARTUP", 0);
+		attach(startup);
+		rootItem.getChildren().add(new LogItem(startup));
+		attach(new Entry("Log Window Startup", 1));
+		attach(new Entry(zdt.toString(), 2));
 
 		treeView.setPrefHeight(logWindowHeight);
 		treeView.setMaxHeight(Region.USE_PREF_SIZE);
@@ -100,6 +175,7 @@ public class LogWindow {
 
 	/**
 	 * add a log message to the window. Messages are always added sequentially but can be displayed in tree form so as to abbreviate the display.
+	 * May be called from any thread: the message is queued, and appears when the FX thread next empties the queue.
 	 * 
 	 * @param message
 	 *            the message to add
@@ -107,48 +183,124 @@ public class LogWindow {
 	 *            at which level in the hierarchy to add the message. The message is always added to the last root at the immediately higher level
 	 */
 	public void addItem(String message, int treeLevel) {
-		TreeItem<Label> childItem = new TreeItem<Label>(new Label(message));
-		Label label=(Label)childItem.getValue();
-		switch (treeLevel) {
+		pending.add(new Entry(message, treeLevel));
+		if (drainScheduled.compareAndSet(false, true)) {
+			Platform.runLater(new Runnable() {
+				@Override public void run() {
+					drain();
+				}
+			});
+		}
+	}
+
+	/**
+	 * add an event to the window, beneath whatever the simulation last reported. May be called from any thread, like {@link #addItem(String, int)}
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	@Override public void accept(SimulationEvent event) {
+		addItem(event.toString(), EVENT_LEVEL);
+	}
+
+	/**
+	 * On the FX thread, add every queued message to the tree, then drop the oldest top-level entries if there are too many.
+	 * The top-level nodes are added and removed in a single change each, however many messages there were
+	 */
+	private void drain() {
+		drainScheduled.set(false);
+		List<Entry> newTopLevel = new ArrayList<Entry>();
+		Entry entry;
+		while ((entry = pending.poll()) != null) {
+			if (attach(entry))
+				newTopLevel.add(entry);
+		}
+		// entries that would be dropped straight away are not given a node at all
+		int first = Math.max(0, newTopLevel.size() - MAX_TOP_LEVEL_ENTRIES);
+		List<TreeItem<Label>> newItems = new ArrayList<TreeItem<Label>>();
+		for (Entry e : newTopLevel.subList(first, newTopLevel.size())) {
+			newItems.add(new LogItem(e));
+		}
+		ObservableList<TreeItem<Label>> topLevel = treeView.getRoot().getChildren();
+		topLevel.addAll(newItems);
+		int excess = topLevel.size() - MAX_TOP_LEVEL_ENTRIES;
+		if (excess > 0) {
+			topLevel.remove(0, excess);
+			logger.debug("{} older entries were removed from the log window", excess);
+		}
+	}
+
+	/**
+	 * add an entry to the model of the log, under the last entry at the immediately higher level
+	 * 
+	 * @param entry
+	 *            the entry to attach
+	 * @return true if the entry is a new top-level entry, which the caller must display; false if it was attached to a parent
+	 */
+	private boolean attach(Entry entry) {
+		Entry parent;
+		switch (entry.level) {
+		case 1:
+			parent = lastLevel1;
+			lastLevel2 = entry;
+			break;
+		case 2:
+			parent = lastLevel2;
+			lastLevel3 = entry;
+			break;
+		case 3:
+			parent = lastLevel3;
+			break;
+		case EVENT_LEVEL:
+			parent = lastLevel3 != null ? lastLevel3 : lastLevel2 != null ? lastLevel2 : lastLevel1;
+			break;
+		case 0:
+		default:
+			parent = null;
+		}
+		if (parent == null) {
+			if (entry.level > 0)
+				logger.error("The log message '{}' at level {} has nothing to belong to", entry.message, entry.level);
+			lastLevel1 = entry;
+			return true;
+		}
+		parent.children.add(entry);
+		if (parent.item != null)
+			parent.item.childAdded(entry);
+		return false;
+	}
+
+	/**
+	 * create the label that displays an entry, styled according to its level
+	 * 
+	 * @param entry
+	 *            the entry to display
+	 * @return the label
+	 */
+	private static Label label(Entry entry) {
+		Label label = new Label(entry.message);
+		switch (entry.level) {
 		case 0: //root
-			treeView.getRoot().getChildren().add(childItem);
 			label.setTextFill(Color.BLUE);
 			label.setWrapText(true);
-			lastLevel1=childItem;
 			break;
 		case 1:
-			if(lastLevel1==null) {
-				Dialogues.alert(logger, "Something went wrong with the logging. Please contact the developer");
-			}
-			lastLevel1.getChildren().add(childItem);
-			label.setText(" "+label.getText());
+			label.setText(" " + entry.message);
 			label.setTextFill(Color.RED);
 			label.setWrapText(true);
-			lastLevel2=childItem;
 			break;
 		case 2:
-			if(lastLevel2==null) {
-				Dialogues.alert(logger, "Something went wrong with the logging. Please contact the developer");
-			}
-			lastLevel2.getChildren().add(childItem);
 			label.setWrapText(false);
-			label.setText("  "+label.getText());
+			label.setText("  " + entry.message);
 			label.setTextFill(Color.DARKGREEN);
-			lastLevel3=childItem;
 			break;
 		case 3:
-			if(lastLevel3==null) {
-				Dialogues.alert(logger, "Something went wrong with the logging. Please contact the developer");
-			}
-			lastLevel3.getChildren().add(childItem);
-			label.setText("   "+label.getText());
+			label.setText("   " + entry.message);
 			label.setWrapText(false);
 			label.setTextFill(Color.BLACK);
 			break;
-			
 		default:
-			treeView.getRoot().getChildren().add(childItem);
-			lastLevel1=childItem;
 		}
+		return label;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Marks the beginning and end of one phase of the simulation - a command, the cloning of one type of entity, setting comparators,
+ * refreshing the tables, or importing or exporting data - for the Java Flight Recorder. Usage:
+ * 
+ * <pre>
+ * Phase phase = Phase.begin(Phase.Kind.CLONE, "stocks", projectID, timeStampID);
+ * ...
+ * phase.end(stocks.size());
+ * </pre>
+ * 
+ * Phases are marked only while {@link CommandMetrics} is enabled, which it is not by default. When it is disabled, or the JVM has no
+ * flight recorder, this does nothing at all; when the JVM has one but is not recording, the cost is that of creating one small object.
+ */
+public class Phase {
+	private static final Logger logger = LogManager.getLogger(Phase.class);
+
+	/**
+	 * The kinds of phase, each of which is recorded as a different type of event
+	 */
+	public enum Kind {
+		COMMAND, CLONE, COMPARATORS, TABLE_REFRESH, IMPORT, EXPORT
+	}
+
+	private static final boolean available = recorderAvailable();
+
+	// returned by begin() when there is no recorder or measurement is disabled, so that nothing is allocated
+	private static final Phase NONE = new Phase(null);
+
+	private final PhaseEvent event;
+
+	private Phase(PhaseEvent event) {
+		this.event = event;
+	}
+
+	/**
+	 * begin a phase
+	 * 
+	 * @param kind
+	 *            the kind of phase
+	 * @param name
+	 *            the command, entity type, table or file concerned
+	 * @param projectID
+	 *            the project concerned, 0 if none
+	 * @param timeStampID
+	 *            the timeStamp concerned, 0 if none
+	 * @return the phase, which must be ended when it is complete
+	 */
+	public static Phase begin(Kind kind, String name, int projectID, int timeStampID) {
+		if (!available || !CommandMetrics.isEnabled())
+			return NONE;
+		return new Phase(PhaseEvent.start(kind, name, projectID, timeStampID));
+	}
+
+	/**
+	 * end the phase
+	 * 
+	 * @param entities
+	 *            the number of entities involved, or 0 if this is not known
+	 */
+	public void end(int entities) {
+		if (event != null)
+			event.finish(entities);
+	}
+
+	/**
+	 * @return true if the JVM has the flight recorder API, which was added to OpenJDK 8 in update 262
+	 */
+	private static boolean recorderAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException e) {
+			logger.debug("This JVM has no flight recorder, so simulation phases will not be recorded");
+			return false;
+		}
+	}
+}
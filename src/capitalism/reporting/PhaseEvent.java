@@ -0,0 +1,120 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event that spans one phase of the simulation, so that a recording can relate garbage collection,
+ * allocation and lock contention to what the simulation was doing at the time. There is one subclass for each
+ * {@link Phase.Kind}, so each kind can be enabled and given a threshold separately in a recording settings file.
+ * 
+ * Only {@link Phase} refers to this class, and only when the JVM has a flight recorder, so the simulation still runs
+ * on a JVM that does not.
+ */
+@Category({ "Capitalism", "Simulation" })
+abstract class PhaseEvent extends Event {
+
+	@Label("Name") @Description("The command, entity type, table or file concerned") String name;
+
+	@Label("Project") int projectID;
+
+	@Label("TimeStamp") int timeStampID;
+
+	@Label("Entities") @Description("The number of entities involved, or 0 if this is not known") int entities;
+
+	@Name("capitalism.Command") @Label("Command") static class CommandEvent extends PhaseEvent {
+	}
+
+	@Name("capitalism.Clone") @Label("Clone Entities") static class CloneEvent extends PhaseEvent {
+	}
+
+	@Name("capitalism.Comparators") @Label("Set Comparators") static class ComparatorEvent extends PhaseEvent {
+	}
+
+	@Name("capitalism.TableRefresh") @Label("Refresh Tables") static class TableRefreshEvent extends PhaseEvent {
+	}
+
+	@Name("capitalism.Import") @Label("Import") static class ImportEvent extends PhaseEvent {
+	}
+
+	@Name("capitalism.Export") @Label("Export") static class ExportEvent extends PhaseEvent {
+	}
+
+	/**
+	 * create and begin an event of the given kind
+	 * 
+	 * @param kind
+	 *            the kind of phase
+	 * @param name
+	 *            the command, entity type, table or file concerned
+	 * @param projectID
+	 *            the project concerned
+	 * @param timeStampID
+	 *            the timeStamp concerned
+	 * @return the event, which has begun timing
+	 */
+	static PhaseEvent start(Phase.Kind kind, String name, int projectID, int timeStampID) {
+		PhaseEvent event;
+		switch (kind) {
+		case COMMAND:
+			event = new CommandEvent();
+			break;
+		case CLONE:
+			event = new CloneEvent();
+			break;
+		case COMPARATORS:
+			event = new ComparatorEvent();
+			break;
+		case TABLE_REFRESH:
+			event = new TableRefreshEvent();
+			break;
+		case IMPORT:
+			event = new ImportEvent();
+			break;
+		default:
+			event = new ExportEvent();
+		}
+		event.name = name;
+		event.projectID = projectID;
+		event.timeStampID = timeStampID;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * finish the event and hand it to the recorder, if it is recording events of this kind
+	 * 
+	 * @param entities
+	 *            the number of entities involved
+	 */
+	void finish(int entities) {
+		end();
+		if (shouldCommit()) {
+			this.entities = entities;
+			commit();
+		}
+	}
+}
@@ -31,6 +31,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
 
 /**
  * The full functionality of the logging API is not really needed in this project. 
@@ -48,6 +49,14 @@ public class Reporter {
 	// used by ViewManager and Reporter to tell the user what's going on.
 	public static LogWindow logWindow;
 
+	/**
+	 * the value of {@link #setMaxLevel(int)} which suppresses every report, for example in batch runs
+	 */
+	public static final int SILENT = -1;
+
+	// reports at a level deeper than this are discarded before anything is formatted. Can be set at startup with -Dcapsim.reportLevel=n
+	private static volatile int maxLevel = Integer.getInteger("capsim.reportLevel", Integer.MAX_VALUE);
+
 	/**
 	 * Empty constructor which does not initialise {@code logWindow}
 	 * See notes on {@link Reporter#createLogWindow()}
@@ -58,6 +67,8 @@ public class Reporter {
 	/**
 	 * Report a message at the INFO level. This is both a helper function to simplify the logging code, and a wrapper to allow us to display what is going
 	 * on to the user in a structured way without the tortuous business of writing funky logging appenders.
+	 * If {@code level} is deeper than the maximum level, nothing is formatted or displayed; but the arguments have already been boxed
+	 * by the caller, so frequently-called code should use {@link #report(Logger, int, Supplier)} instead.
 	 * 
 	 * @param logger
 	 *            the logger of the calling class
@@ -70,12 +81,73 @@ public class Reporter {
 	 *            the arguments, if any
 	 */
 	public static void report(Logger logger, int level, String formatString, Object... args) {
-		String message = String.format(formatString, args);
+		if (level > maxLevel)
+			return;
+		publish(logger, level, String.format(formatString, args));
+	}
+
+	/**
+	 * Report a message at the INFO level, as {@link #report(Logger, int, String, Object...)}, but only build the message if it is going to be reported.
+	 * Used in the inner loops of the simulation, where most reports are usually suppressed. Since a lambda that captures local variables
+	 * is created afresh on each call, callers in those loops test {@link #isReported(int)} first so that nothing at all is created
+	 * when the report is suppressed.
+	 * 
+	 * @param logger
+	 *            the logger of the calling class
+	 * @param level
+	 *            sets the level in the hierarchy for displaying in the treeView of the logWindow
+	 * @param message
+	 *            supplies the message. Not called if {@code level} is deeper than the maximum level
+	 */
+	public static void report(Logger logger, int level, Supplier<String> message) {
+		if (level > maxLevel)
+			return;
+		publish(logger, level, message.get());
+	}
+
+	/**
+	 * send a message that has passed the level test to the log file and to the log window, if there is one
+	 * 
+	 * @param logger
+	 *            the logger of the calling class
+	 * @param level
+	 *            the level in the hierarchy of the logWindow
+	 * @param message
+	 *            the formatted message
+	 */
+	private static void publish(Logger logger, int level, String message) {
 		if (level == 0) {
 			logger.log(Level.INFO, "");
 		}
 		logger.log(Level.INFO, String.format("%d %s", level, message));
-		logWindow.addItem(message, level);
+		if (logWindow != null)
+			logWindow.addItem(message, level);
+	}
+
+	/**
+	 * @param level
+	 *            a level in the hierarchy of reports
+	 * @return true if reports at this level are currently displayed, false if they are discarded
+	 */
+	public static boolean isReported(int level) {
+		return level <= maxLevel;
+	}
+
+	/**
+	 * Set the deepest level that will be reported. Reports at deeper levels cost no more than the test that discards them.
+	 * 
+	 * @param level
+	 *            the deepest level to report; {@link #SILENT} to turn reporting off altogether
+	 */
+	public static void setMaxLevel(int level) {
+		maxLevel = level;
+	}
+
+	/**
+	 * @return the deepest level that is currently reported
+	 */
+	public static int getMaxLevel() {
+		return maxLevel;
 	}
 
 	/**
@@ -120,5 +192,8 @@ public class Reporter {
 
 	public static void createLogWindow() {
 		logWindow = new LogWindow();
+		// the events themselves, as well as the narrative, if asked for with -Dcapsim.eventWindow=true. Old events make way for new ones
+		if (Boolean.getBoolean("capsim.eventWindow"))
+			EventBus.subscribe("log window", logWindow, EventBus.POLICY.DROP_OLDEST, 4096);
 	}
 }
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+import java.util.Arrays;
+
+/**
+ * The most recent samples of some measurement, from which summary statistics can be read at any time.
+ * Holds a fixed number of samples, so older ones are overwritten and the statistics describe recent behaviour.
+ * Safe to use from several threads.
+ */
+public class RollingHistogram {
+	private final long[] samples;
+	private int next = 0;
+	private long count = 0;
+
+	/**
+	 * @param size
+	 *            the number of samples to keep
+	 */
+	public RollingHistogram(int size) {
+		samples = new long[size];
+	}
+
+	/**
+	 * add a sample, overwriting the oldest if the histogram is full
+	 * 
+	 * @param sample
+	 *            the sample
+	 */
+	public synchronized void add(long sample) {
+		samples[next] = sample;
+		next = (next + 1) % samples.length;
+		count++;
+	}
+
+	/**
+	 * @return the number of samples ever added, including those that have since been overwritten
+	 */
+	public synchronized long count() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the samples held, 0 if there are none
+	 */
+	public synchronized double mean() {
+		int held = held();
+		if (held == 0)
+			return 0;
+		double total = 0;
+		for (int i = 0; i < held; i++) {
+			total += samples[i];
+		}
+		return total / held;
+	}
+
+	/**
+	 * @return the standard deviation of the samples held, 0 if there are fewer than two
+	 */
+	public synchronized double standardDeviation() {
+		int held = held();
+		if (held < 2)
+			return 0;
+		double mean = mean();
+		double total = 0;
+		for (int i = 0; i < held; i++) {
+			total += (samples[i] - mean) * (samples[i] - mean);
+		}
+		return Math.sqrt(total / (held - 1));
+	}
+
+	/**
+	 * @return the largest of the samples held, 0 if there are none
+	 */
+	public synchronized long max() {
+		long max = 0;
+		for (int i = 0; i < held(); i++) {
+			max = Math.max(max, samples[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * @param fraction
+	 *            the fraction of samples that should lie at or below the result, for example 0.9 for the 90th percentile
+	 * @return the smallest sample held such that at least {@code fraction} of the samples are no larger; 0 if there are none
+	 */
+	public synchronized long percentile(double fraction) {
+		int held = held();
+		if (held == 0)
+			return 0;
+		long[] sorted = Arrays.copyOf(samples, held);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(fraction * held) - 1;
+		return sorted[Math.max(0, Math.min(held - 1, index))];
+	}
+
+	/**
+	 * discard all the samples
+	 */
+	public synchronized void clear() {
+		next = 0;
+		count = 0;
+	}
+
+	private int held() {
+		return (int) Math.min(count, samples.length);
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+/**
+ * A typed record of something that happened in the simulation, for consumers that need the numbers rather than
+ * the narrative produced by {@link Reporter}. Events are published through {@link EventBus}. Each kind of event is
+ * a nested subclass whose payload is a handful of primitive fields, and which can write itself as one line of
+ * comma-separated values.
+ * 
+ * Events are immutable once created, because they are read by subscribers on other threads.
+ */
+public abstract class SimulationEvent {
+	protected final int projectID;
+	protected final int timeStampID;
+
+	/**
+	 * @param projectID
+	 *            the project in which the event occurred
+	 * @param timeStampID
+	 *            the timeStamp at which the event occurred
+	 */
+	protected SimulationEvent(int projectID, int timeStampID) {
+		this.projectID = projectID;
+		this.timeStampID = timeStampID;
+	}
+
+	/**
+	 * @return the name of this kind of event
+	 */
+	public abstract String type();
+
+	/**
+	 * @return the payload of this event as comma-separated values, in the order of the fields of the subclass
+	 */
+	protected abstract String payload();
+
+	/**
+	 * @return the event as a line of comma-separated values: type, projectID, timeStampID, then the payload
+	 */
+	@Override public String toString() {
+		return String.format("%s,%d,%d,%s", type(), projectID, timeStampID, payload());
+	}
+
+	/**
+	 * @return the project in which the event occurred
+	 */
+	public int getProjectID() {
+		return projectID;
+	}
+
+	/**
+	 * @return the timeStamp at which the event occurred
+	 */
+	public int getTimeStampID() {
+		return timeStampID;
+	}
+
+	/**
+	 * The simulation has moved on to a new timeStamp, and is about to carry out the action it is named after
+	 */
+	public static final class StepStarted extends SimulationEvent {
+		public final int period;
+		public final String description;
+		public final String superState;
+
+		public StepStarted(int projectID, int timeStampID, int period, String description, String superState) {
+			super(projectID, timeStampID);
+			this.period = period;
+			this.description = description;
+			this.superState = superState;
+		}
+
+		@Override public String type() {
+			return "StepStarted";
+		}
+
+		@Override protected String payload() {
+			return String.format("%d,%s,%s", period, description, superState);
+		}
+	}
+
+	/**
+	 * A quantity of a commodity has been transferred from one stock to another, carrying its value and price with it
+	 */
+	public static final class TransferExecuted extends SimulationEvent {
+		public final String commodity;
+		public final String fromOwner;
+		public final String toOwner;
+		public final double quantity;
+		public final double unitValue;
+		public final double unitPrice;
+
+		public TransferExecuted(int projectID, int timeStampID, String commodity, String fromOwner, String toOwner, double quantity,
+				double unitValue, double unitPrice) {
+			super(projectID, timeStampID);
+			this.commodity = commodity;
+			this.fromOwner = fromOwner;
+			this.toOwner = toOwner;
+			this.quantity = quantity;
+			this.unitValue = unitValue;
+			this.unitPrice = unitPrice;
+		}
+
+		@Override public String type() {
+			return "TransferExecuted";
+		}
+
+		@Override protected String payload() {
+			return String.format("%s,%s,%s,%s,%s,%s", commodity, fromOwner, toOwner, quantity, unitValue, unitPrice);
+		}
+	}
+
+	/**
+	 * The output of an industry has been set in the light of the supply of its inputs
+	 */
+	public static final class OutputConstrained extends SimulationEvent {
+		public final String industry;
+		public final double unconstrainedOutput;
+		public final double constrainedOutput;
+
+		public OutputConstrained(int projectID, int timeStampID, String industry, double unconstrainedOutput, double constrainedOutput) {
+			super(projectID, timeStampID);
+			this.industry = industry;
+			this.unconstrainedOutput = unconstrainedOutput;
+			this.constrainedOutput = constrainedOutput;
+		}
+
+		@Override public String type() {
+			return "OutputConstrained";
+		}
+
+		@Override protected String payload() {
+			return String.format("%s,%s,%s", industry, unconstrainedOutput, constrainedOutput);
+		}
+	}
+
+	/**
+	 * A new unit price has been set for a commodity
+	 */
+	public static final class PriceSet extends SimulationEvent {
+		public final String commodity;
+		public final double oldUnitPrice;
+		public final double newUnitPrice;
+
+		public PriceSet(int projectID, int timeStampID, String commodity, double oldUnitPrice, double newUnitPrice) {
+			super(projectID, timeStampID);
+			this.commodity = commodity;
+			this.oldUnitPrice = oldUnitPrice;
+			this.newUnitPrice = newUnitPrice;
+		}
+
+		@Override public String type() {
+			return "PriceSet";
+		}
+
+		@Override protected String payload() {
+			return String.format("%s,%s,%s", commodity, oldUnitPrice, newUnitPrice);
+		}
+	}
+
+	/**
+	 * The simulation has finished one period and started the next
+	 */
+	public static final class PeriodAdvanced extends SimulationEvent {
+		public final int period;
+
+		public PeriodAdvanced(int projectID, int timeStampID, int period) {
+			super(projectID, timeStampID);
+			this.period = period;
+		}
+
+		@Override public String type() {
+			return "PeriodAdvanced";
+		}
+
+		@Override protected String payload() {
+			return Integer.toString(period);
+		}
+	}
+}
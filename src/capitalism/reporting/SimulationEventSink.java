@@ -0,0 +1,43 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.reporting;
+
+/**
+ * Something that consumes {@link SimulationEvent}s: a file, a set of metrics, a test. Sinks are registered with
+ * {@link EventBus#subscribe(String, SimulationEventSink, EventBus.POLICY, int)}, and each is called on a thread of its own,
+ * one event at a time, in the order in which the events were published.
+ */
+public interface SimulationEventSink {
+
+	/**
+	 * consume one event
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	public void accept(SimulationEvent event);
+
+	/**
+	 * called once, on the sink's own thread, after the last event has been delivered, so that the sink can release what it holds
+	 */
+	public default void close() {
+	}
+}
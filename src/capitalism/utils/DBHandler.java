@@ -23,13 +23,20 @@ package capitalism.utils;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
+import java.util.Arrays;
+
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.Capitalism;
 import capitalism.reporting.Dialogues;
+import capitalism.reporting.Phase;
 import capitalism.reporting.Reporter;
 
 /**
@@ -105,19 +112,42 @@ public class DBHandler {
 					+ "unable to close the database that is already open.");
 			return;
 		}
+		// the number of entities loaded is not known, because H2 reads the files itself
+		Phase phase = Phase.begin(Phase.Kind.IMPORT, dataFileDirectory, 0, 0);
 		try {
 			Class.forName("org.h2.Driver");// is this necessary?
 			String queryFirstPart = "jdbc:h2:mem:capitalism;INIT=RUNSCRIPT FROM '";
-			String queryLastPart = "/CreateRawTables.sql'";
-			String queryWhole = queryFirstPart + dataFileDirectory + queryLastPart;
+			String queryLastPart = "'";
+			String queryWhole = queryFirstPart + scriptReadingFrom(dataFileDirectory) + queryLastPart;
 			logger.debug("Attempting to connect to the database using URL {} ", queryWhole);
 			conn = DriverManager.getConnection(queryWhole, "sa", "");
 			Reporter.report(logger, 0, "Successfully loaded the data located at %s", dataFileDirectory);
 		} catch (Exception e) {
 			Dialogues.alert(logger, "Could not load the data because:\n" + e.getMessage());
+		} finally {
+			phase.end(0);
 		}
 	}
 
+	/**
+	 * The initialisation script reads the data files from the user's data directory, wherever the script itself is. Make a copy of the
+	 * script in the given directory that reads them from that directory instead.
+	 * 
+	 * @param dataFileDirectory
+	 *            the directory holding the script and the data files, with '/' as the separator
+	 * @return the full path of the copy
+	 * @throws IOException
+	 *             if the script cannot be read or the copy cannot be written
+	 */
+	private static String scriptReadingFrom(String dataFileDirectory) throws IOException {
+		String directory = new File(dataFileDirectory).getCanonicalPath().replace('\\', '/');
+		String script = FileUtils.readFileToString(new File(directory, "CreateRawTables.sql"), StandardCharsets.ISO_8859_1);
+		File copy = File.createTempFile("CreateRawTables", ".sql");
+		copy.deleteOnExit();
+		FileUtils.writeStringToFile(copy, script.replace("~/Documents/Capsim/data/", directory + "/"), StandardCharsets.ISO_8859_1);
+		return copy.getCanonicalPath().replace('\\', '/');
+	}
+
 	/**
 	 * create the connection and execute the initialization file
 	 * 
@@ -143,6 +173,18 @@ public class DBHandler {
 		}
 	}
 
+	/**
+	 * open an additional connection to the database that is already open, for use by a component with its own thread
+	 * such as {@link WriteBehind}
+	 * 
+	 * @return a new connection to the database
+	 * @throws SQLException
+	 *             if the connection cannot be made
+	 */
+	public static Connection openConnection() throws SQLException {
+		return DriverManager.getConnection("jdbc:h2:mem:capitalism", "sa", "");
+	}
+
 	/**
 	 * copy a file from the .jar file into the user file system. The base directory for these files in the user system is 
 	 * {@code Utilities.getUserBasePath()} and is set there statically
@@ -150,6 +192,9 @@ public class DBHandler {
 	 * for example {@code copyDataFilesToUserDirectory("/data","commodities.csv")} copies the file called {@code usecommodities.csv} to the location
 	 * {@code Documents/Capsim/data/commodities.csv}, because the user base is initialised in {@code Utilities} to be {@code Documents/Capsim}
 	 * 
+	 * The files are copied at every launch, but most of the time the user already has an identical copy. If the file
+	 * already exists and its content hash is the same as that of the resource, it is not written again.
+	 * 
 	 * @param subDirectory
 	 *            the sub-directory of our standard location into which the file should be copied
 	 * @param resource
@@ -162,16 +207,35 @@ public class DBHandler {
 		URL inputUrl = DBHandler.class.getClassLoader().getResource(resource);
 		String userDestinationFile = basePath + subDirectory + resource;
 		File dest = new File(userDestinationFile);
-		logger.debug("Copying the file called {} to the user file system at location {}", resource, userDestinationFile);
 		try {
 			// TODO trap file does not exist
-			FileUtils.copyURLToFile(inputUrl, dest);
+			byte[] content = IOUtils.toByteArray(inputUrl);
+			if (dest.isFile() && dest.length() == content.length && Arrays.equals(hash(content), hash(FileUtils.readFileToByteArray(dest)))) {
+				logger.debug("The file called {} at location {} is unchanged, so it was not copied", resource, userDestinationFile);
+				return;
+			}
+			logger.debug("Copying the file called {} to the user file system at location {}", resource, userDestinationFile);
+			FileUtils.writeByteArrayToFile(dest, content);
 		} catch (IOException e) {
 			e.printStackTrace();
 			logger.debug("Failure");
 		}
 	}
 
+	/**
+	 * @param content
+	 *            the content of a file
+	 * @return the SHA-256 hash of the content
+	 */
+	private static byte[] hash(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * Copy all the data files into a standardised directory in the user's file system.
 	 * This is the easiest and most robust way I could think of to work around all the difficulties
@@ -240,9 +304,13 @@ public class DBHandler {
 		for (int i = 0; i < standardFiles.length; i++) {
 			Reporter.report(logger, 2, "Checking whether the file called '%s' exists", standardFiles[i]);
 		}
+		// the tables are read directly, so they must contain everything the simulation has done so far
+		WriteBehind.flush();
+		Phase phase = Phase.begin(Phase.Kind.EXPORT, baseDirectoryURL, 0, 0);
 		for (int i = 0; i < standardFiles.length; i++) {
 			saveOneTable(baseDirectoryURL, standardFiles[i]);
 		}
+		phase.end(0);
 		// Copy the initializer file so it can load the data files
 		copyFileToUserDirectory(baseDirectoryURL, "/", "CreateRawTables.sql");
 	}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.utils;
+
+import java.util.Arrays;
+
+/**
+ * Reduces a long series to a few points that look the same when plotted, so that a chart of many thousands of periods draws as quickly
+ * as a short one. Uses Largest-Triangle-Three-Buckets (Steinarsson, 2013): the first and last points are kept, the rest of the series is
+ * divided into equal buckets, and from each bucket the point is kept that makes the largest triangle with the point kept from the bucket
+ * before and the average of the bucket after. Peaks and troughs survive, which a simple average or stride would lose.
+ */
+public class Downsample {
+
+	/**
+	 * @param x
+	 *            the abscissae of the series, in increasing order
+	 * @param y
+	 *            the ordinates of the series; points whose ordinate is NaN are left out
+	 * @param threshold
+	 *            the largest number of points wanted, normally about the width of the chart in pixels
+	 * @return the indices of the points to keep, in increasing order. Every point, if there are no more than {@code threshold}
+	 */
+	public static int[] lttb(double[] x, double[] y, int threshold) {
+		int[] points = new int[y.length];
+		int n = 0;
+		for (int i = 0; i < y.length; i++) {
+			if (!Double.isNaN(y[i]))
+				points[n++] = i;
+		}
+		if (n <= threshold || threshold < 3)
+			return Arrays.copyOf(points, n);
+
+		int[] kept = new int[threshold];
+		kept[0] = points[0];
+		double bucketSize = (double) (n - 2) / (threshold - 2);
+		int a = 0;
+		for (int bucket = 0; bucket < threshold - 2; bucket++) {
+			int start = (int) (bucket * bucketSize) + 1;
+			int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+			// the average of the next bucket; the last point, if this is the last bucket
+			int nextStart = end;
+			int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+			double averageX = 0;
+			double averageY = 0;
+			for (int i = nextStart; i < nextEnd; i++) {
+				averageX += x[points[i]];
+				averageY += y[points[i]];
+			}
+			int count = nextEnd - nextStart;
+			if (count == 0) {
+				averageX = x[points[n - 1]];
+				averageY = y[points[n - 1]];
+			} else {
+				averageX /= count;
+				averageY /= count;
+			}
+
+			double ax = x[points[a]];
+			double ay = y[points[a]];
+			double largestArea = -1;
+			int chosen = start;
+			for (int i = start; i < end; i++) {
+				double area = Math.abs((ax - averageX) * (y[points[i]] - ay) - (ax - x[points[i]]) * (averageY - ay));
+				if (area > largestArea) {
+					largestArea = area;
+					chosen = i;
+				}
+			}
+			kept[bucket + 1] = points[chosen];
+			a = chosen;
+		}
+		kept[threshold - 1] = points[n - 1];
+		return kept;
+	}
+}
@@ -19,25 +19,106 @@
 */
 package capitalism.utils;
 
-import org.apache.commons.math3.util.Precision;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 /**
- * This class handles all operations in which rounding errors can create problems
- *
+ * This class handles all operations in which rounding errors can create problems.
+ * 
+ * Rounding is done with doubles and a table of powers of ten, so that it almost never allocates; it is called on every quantity, value and
+ * price each time a stock changes.
  */
 public class MathStuff {
 	// the precision for decimal calculations with large amounts (that is, anything except coefficients, the melt, rate of profit, etc)
+	public static final int roundingPrecision = 4;
+
+	// every power of ten that a double holds exactly
+	private static final double[] powersOfTen = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// beyond this, a double has no fractional part, so there is nothing to round
+	private static final double noFraction = 0x1p52;
 
-	public static int roundingPrecision = 4;
-	public static double epsilon = 10 ^ (1 / roundingPrecision);
+	/**
+	 * The absolute tolerance for comparing amounts that have been rounded to {@link #roundingPrecision} places. Each rounding may be out
+	 * by half a unit in the last place, and a stock may be traded many times, with a rounding each time, between the moments at which its
+	 * value and price are recalculated exactly, so this allows for a hundred of them.
+	 */
+	public static final double roundingEpsilon = 50 / powersOfTen[roundingPrecision];
 
+	/**
+	 * The relative tolerance, for large amounts: totals over many stocks accumulate different rounding errors depending on the order in
+	 * which they are added up, and beyond about 10^11 a double cannot hold {@link #roundingPrecision} places at all.
+	 */
+	public static final double relativeEpsilon = 1e-9;
+
+	/**
+	 * Stock, Commodity and the commands compare amounts only through this method and {@link #exceeds(double, double)}, so that they all
+	 * allow for rounding in the same way
+	 * 
+	 * @param x
+	 *            an amount
+	 * @param y
+	 *            another amount
+	 * @return true if x and y differ by no more than can be explained by rounding
+	 */
 	public static boolean equals(double x, double y) {
-		return (y<x+epsilon && y>x-epsilon);
+		return Math.abs(x - y) <= tolerance(x, y);
+	}
+
+	/**
+	 * @param x
+	 *            an amount
+	 * @param y
+	 *            another amount
+	 * @return true if x is greater than y by more than can be explained by rounding
+	 */
+	public static boolean exceeds(double x, double y) {
+		return x - y > tolerance(x, y);
 	}
-	
+
+	/**
+	 * @param x
+	 *            an amount
+	 * @param y
+	 *            another amount
+	 * @return the largest difference between x and y that can be explained by rounding
+	 */
+	private static double tolerance(double x, double y) {
+		return roundingEpsilon + relativeEpsilon * Math.max(Math.abs(x), Math.abs(y));
+	}
+
+	/**
+	 * @param x
+	 *            an amount
+	 * @return x rounded, half away from zero, to {@link #roundingPrecision} decimal places
+	 */
 	public static double round(double x) {
-		return Precision.round(x, roundingPrecision);
+		return round(x, roundingPrecision);
+	}
+
+	/**
+	 * Round to a number of decimal places, half away from zero, as {@code Precision.round} does but without making a BigDecimal
+	 * except in the rare case where the scaled amount lies within a few units in the last place of a half. Scaling by a power of ten
+	 * can leave an exact half just short of it, for example 1.00005 * 10^4, so only the decimal form of x can settle which way it goes.
+	 * 
+	 * @param x
+	 *            an amount
+	 * @param places
+	 *            the number of decimal places, from 0 to 22
+	 * @return x rounded to the given number of places
+	 */
+	public static double round(double x, int places) {
+		double scale = powersOfTen[places];
+		double scaled = Math.abs(x) * scale;
+		if (!(scaled < noFraction))
+			return x; // too large to have any fractional part, infinite, or not a number
+		double whole = Math.floor(scaled);
+		double fraction = scaled - whole;
+		if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled))
+			return new BigDecimal(Double.toString(x)).setScale(places, RoundingMode.HALF_UP).doubleValue(); // too close to a tie to call
+		if (fraction > 0.5)
+			whole += 1;
+		return Math.copySign(whole / scale, x);
 	}
-	
-	
 }
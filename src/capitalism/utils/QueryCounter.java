@@ -0,0 +1,38 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package capitalism.utils;
+
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+import capitalism.reporting.CommandMetrics;
+
+/**
+ * Counts the queries executed by EclipseLink, for {@link CommandMetrics}. Registered in persistence.xml as the
+ * {@code eclipselink.session-event-listener} of every persistence unit. EclipseLink calls it on the thread that executed the query,
+ * which is the thread the query is counted against.
+ */
+public class QueryCounter extends SessionEventAdapter {
+
+	@Override public void postExecuteQuery(SessionEvent event) {
+		CommandMetrics.countQuery();
+	}
+}
@@ -50,11 +50,9 @@ public class Validate {
 	 * Complain if there are zeroes where there should be positive numbers
 	 */
 
-	private static Project project;
-
 	/**
 	 * carry out the global validation tests on the timeStamp and project records.
-	 * Carry out the project-specific tests
+	 * The project-specific tests are carried out by {@link #validate(Project)} as each project is initialised
 	 * 
 	 * @return true if all tests are passed, false otherwise
 	 */
@@ -67,10 +65,6 @@ public class Validate {
 		} else {
 			valid = false;
 		}
-		for (Project p : Project.all()) {
-			if (!Validate.validate(p.getProjectID()))
-				valid = false;
-		}
 		return valid;
 	}
 
@@ -82,9 +76,26 @@ public class Validate {
 	 * @return true if all tests are passed, false otherwise
 	 */
 	public static boolean validate(int projectID) {
-		project = Project.get(projectID);
+		return validate(Project.get(projectID));
+	}
+
+	/**
+	 * Conduct the per-project validation tests for the given project. Only the frames of this project are examined,
+	 * so different projects may be validated at the same time
+	 * 
+	 * @param project
+	 *            the project to be validated
+	 * @return true if all tests are passed, false otherwise
+	 */
+	public static boolean validate(Project project) {
+		int projectID = project.getProjectID();
 		boolean valid = true;
 		Reporter.report(logger, 1, "Validating %d called %s", projectID, project.getDescription());
+		if (TimeStamp.single(projectID, project.getTimeStampID()) == null) {
+			Reporter.report(logger, 2, "The project with ID %d refers to a timeStamp with ID %d, which does not exist",
+					projectID, project.getTimeStampID());
+			valid = false;
+		}
 		if (timeStampIntegrity(projectID)) {
 			Reporter.report(logger, 2, "Passed per-project time Stamp Integrity test");
 		} else {
@@ -141,25 +152,17 @@ public class Validate {
 	/**
 	 * TimeStamp integrity test
 	 * No timeStamp should exist in the database that refers to a project which does not exist.
-	 * Every timeStamp that is referenced by a project record should exist
-	 * This is a global integrity test, and is not project-specific
+	 * This is a global integrity test, and is not project-specific. That every timeStamp referenced by a project record
+	 * should exist is tested by {@link #validate(Project)}
 	 * 
 	 * @return true if the database passes this test, false otherwise
 	 * 
 	 */
 	public static boolean timeStampIntegrity() {
 		boolean valid = true;
-		for (TimeStamp ts : TimeStamp.all()) {
-			if (Project.get(ts.getTimeStampID()) == null) {
-				Reporter.report(logger, 2, "A timeStamp with ID %d refers to a project with ID %d, which does not exist",
-						ts.getTimeStampID(), ts.getProjectID());
-				valid = false;
-			}
-		}
-		for (Project p : Project.all()) {
-			if (TimeStamp.single(p.getProjectID(), p.getTimeStampID()) == null) {
-				Reporter.report(logger, 2, "The project with ID %d refers to a timeStamp with ID %d, which does not exist",
-						p.getProjectID(), p.getTimeStampID());
+		for (Integer projectID : TimeStamp.projectIDsInDatabase()) {
+			if (Project.get(projectID) == null) {
+				Reporter.report(logger, 2, "There are timeStamps that refer to a project with ID %d, which does not exist", projectID);
 				valid = false;
 			}
 		}
@@ -298,7 +301,7 @@ public class Validate {
 	 */
 	private static boolean commodityOriginTest(int projectID) {
 		boolean valid = true;
-		for (Commodity commodity : Commodity.all()) {
+		for (Commodity commodity : Commodity.all(projectID)) {
 			if (commodity.getOrigin() == null) {
 				Reporter.report(logger, 2, "Validation error: the origin of the commodity %s in project %d is undefined", commodity.name(), projectID);
 				valid = false;
@@ -336,7 +339,7 @@ public class Validate {
 	 * @return true if a commodity called Labour Power exists, false otherwise
 	 * 
 	 */
-	private static boolean stockOwnerExists(int projectID) {
+	public static boolean stockOwnerExists(int projectID) {
 		boolean valid = true;
 		for (Stock stock : Stock.all(projectID)) {
 			OWNERTYPE ownerType = stock.getOwnerType();
@@ -378,7 +381,7 @@ public class Validate {
 	 * @return true if a commodity called Labour Power exists, false otherwise
 	 * 
 	 */
-	private static boolean validStockType(int projectID) {
+	public static boolean validStockType(int projectID) {
 		boolean valid = true;
 		for (Stock stock : Stock.all(projectID)) {
 			String stockTypeText = stock.getStockType();
@@ -0,0 +1,657 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package capitalism.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.model.Commodity;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
+import capitalism.model.Industry;
+import capitalism.model.Project;
+import capitalism.model.SocialClass;
+import capitalism.model.Stock;
+import capitalism.model.TimeStamp;
+import capitalism.reporting.CommandMetrics;
+import capitalism.reporting.Dialogues;
+
+/**
+ * Writes completed frames to the database on a background thread, so that the simulation does not wait for the database
+ * each time it moves forward one step. The simulation works on the frames held in {@link FrameStore}; when a frame is complete
+ * it is placed on a bounded queue, and the writer thread takes frames off the queue and saves them with JDBC batch statements,
+ * several frames to a transaction.
+ * 
+ * If the writer falls behind and the queue fills up, {@link #submit(Frame)} waits until there is room, so the simulation can
+ * never run arbitrarily far ahead of the database. Anything that reads the tables directly (a CSV export, for example) must
+ * first call {@link #flush()}, which writes the frames that are still being worked on and waits until everything submitted so far
+ * has been committed.
+ */
+public class WriteBehind {
+	private static final Logger logger = LogManager.getLogger(WriteBehind.class);
+
+	// the number of frames that can be waiting to be written before the simulation has to wait for the writer
+	private static final int QUEUE_CAPACITY = 32;
+
+	// the largest number of frames that are written in a single transaction
+	private static final int BATCH_SIZE = 8;
+
+	// @formatter:off
+	private static final String TIMESTAMP_SQL = "MERGE INTO timeStamps (timeStampID, projectFK, period, superState, COMPARATORTIMESTAMPID, description, "
+			+ "RateOfExploitation, MELT, PopulationGrowthRate, InvestmentRatio, LabourSupplyResponse, priceResponse, meltResponse, CurrencySymbol, QuantitySymbol) "
+			+ "KEY (timeStampID, projectFK) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+	private static final String COMMODITY_SQL = "MERGE INTO commodities (project, timeStamp, name, originType, functionType, turnoverTime, unitValue, unitPrice, "
+			+ "surplusProduct, allocationShare, stockUsedUp, stockProduced, imageName, toolTip, displayOrder) "
+			+ "KEY (project, timeStamp, name) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+	private static final String INDUSTRY_SQL = "MERGE INTO industries (project, timeStamp, industryName, commodityName, output, proposedOutput, GrowthRate, "
+			+ "InitialCapital, persistedProfit, productiveCapital) "
+			+ "KEY (project, timeStamp, industryName) VALUES (?,?,?,?,?,?,?,?,?,?)";
+	private static final String SOCIALCLASS_SQL = "MERGE INTO socialClasses (project, timeStamp, SocialClassName, Size, participationRatio, revenue) "
+			+ "KEY (project, timeStamp, SocialClassName) VALUES (?,?,?,?,?,?)";
+	private static final String STOCK_SQL = "MERGE INTO stocks (project, timeStamp, owner, commodity, stockType, ownerType, quantity, value, price, "
+			+ "replenishmentDemand, expansionDemand, productionCoefficient, productionQuantity, consumptionCoefficient, consumptionQuantity, stockUsedUp) "
+			+ "KEY (project, timeStamp, owner, commodity, stockType) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+	private static final String PROJECT_SQL = "UPDATE projects SET currentTimeStamp = ?, currentTimeStampCursor = ?, currentTimeStampComparatorCursor = ?, buttonState = ? "
+			+ "WHERE ProjectID = ?";
+	// the timeStamp column of the entity tables is a VARCHAR, so it is cast before it is compared with a timeStampID
+	private static final String[] TRUNCATE_SQL = {
+			"DELETE FROM timeStamps WHERE projectFK = ? AND timeStampID > ?",
+			"DELETE FROM commodities WHERE project = ? AND CAST(timeStamp AS INT) > ?",
+			"DELETE FROM industries WHERE project = ? AND CAST(timeStamp AS INT) > ?",
+			"DELETE FROM socialClasses WHERE project = ? AND CAST(timeStamp AS INT) > ?",
+			"DELETE FROM stocks WHERE project = ? AND CAST(timeStamp AS INT) > ?" };
+	private static final String[] FORK_SQL = {
+			"INSERT INTO timeStamps (timeStampID, projectFK, period, superState, COMPARATORTIMESTAMPID, description, RateOfExploitation, MELT, "
+					+ "initialCapital, persistedProfit, profit, ProfitRate, PopulationGrowthRate, totalValue, totalPrice, InvestmentRatio, "
+					+ "LabourSupplyResponse, meltResponse, priceResponse, CurrencySymbol, QuantitySymbol) "
+					+ "SELECT timeStampID, ?, period, superState, COMPARATORTIMESTAMPID, description, RateOfExploitation, MELT, "
+					+ "initialCapital, persistedProfit, profit, ProfitRate, PopulationGrowthRate, totalValue, totalPrice, InvestmentRatio, "
+					+ "LabourSupplyResponse, meltResponse, priceResponse, CurrencySymbol, QuantitySymbol "
+					+ "FROM timeStamps WHERE projectFK = ? AND timeStampID < ?",
+			"INSERT INTO commodities (project, timeStamp, name, originType, functionType, turnoverTime, unitValue, unitPrice, surplusProduct, "
+					+ "allocationShare, stockUsedUp, stockProduced, imageName, toolTip, displayOrder) "
+					+ "SELECT ?, timeStamp, name, originType, functionType, turnoverTime, unitValue, unitPrice, surplusProduct, "
+					+ "allocationShare, stockUsedUp, stockProduced, imageName, toolTip, displayOrder "
+					+ "FROM commodities WHERE project = ? AND CAST(timeStamp AS INT) < ?",
+			"INSERT INTO industries (project, timeStamp, industryName, commodityName, output, proposedOutput, GrowthRate, InitialCapital, "
+					+ "persistedProfit, productiveCapital) "
+					+ "SELECT ?, timeStamp, industryName, commodityName, output, proposedOutput, GrowthRate, InitialCapital, "
+					+ "persistedProfit, productiveCapital "
+					+ "FROM industries WHERE project = ? AND CAST(timeStamp AS INT) < ?",
+			"INSERT INTO socialClasses (project, timeStamp, SocialClassName, Size, participationRatio, revenue) "
+					+ "SELECT ?, timeStamp, SocialClassName, Size, participationRatio, revenue "
+					+ "FROM socialClasses WHERE project = ? AND CAST(timeStamp AS INT) < ?",
+			"INSERT INTO stocks (project, timeStamp, owner, commodity, stockType, ownerType, quantity, value, price, replenishmentDemand, "
+					+ "expansionDemand, productionCoefficient, productionQuantity, consumptionCoefficient, consumptionQuantity, stockUsedUp) "
+					+ "SELECT ?, timeStamp, owner, commodity, stockType, ownerType, quantity, value, price, replenishmentDemand, "
+					+ "expansionDemand, productionCoefficient, productionQuantity, consumptionCoefficient, consumptionQuantity, stockUsedUp "
+					+ "FROM stocks WHERE project = ? AND CAST(timeStamp AS INT) < ?" };
+	// @formatter:on
+
+	/**
+	 * One item on the queue: a frame to be written, together with the cursors and button state of its project at the time it was submitted;
+	 * a request to delete the history of a project after a given timeStamp, together with the cursors and button state it has gone back to; a request to copy the history of a project
+	 * before a given timeStamp into a new project; or a barrier which the writer releases once everything ahead of it has been committed.
+	 */
+	private static class Task {
+		private Frame frame = null;
+		private int projectID;
+		private int truncateProjectID = 0;
+		private int truncateAfter;
+		private int forkParentID = 0;
+		private int forkChildID;
+		private int forkBefore;
+		private int timeStampID;
+		private int timeStampDisplayCursor;
+		private int timeStampComparatorCursor;
+		private String buttonState;
+		private CountDownLatch barrier = null;
+		private boolean stop = false;
+	}
+
+	private static BlockingQueue<Task> queue = new ArrayBlockingQueue<Task>(QUEUE_CAPACITY);
+	private static Thread writer = null;
+	private static Connection connection;
+	private static PreparedStatement timeStampStatement;
+	private static PreparedStatement commodityStatement;
+	private static PreparedStatement industryStatement;
+	private static PreparedStatement socialClassStatement;
+	private static PreparedStatement stockStatement;
+	private static PreparedStatement projectStatement;
+	private static PreparedStatement[] truncateStatements = new PreparedStatement[TRUNCATE_SQL.length];
+	private static PreparedStatement[] forkStatements = new PreparedStatement[FORK_SQL.length];
+
+	// the first failure since the last flush, reported to the user by the next flush
+	private static volatile SQLException failure = null;
+
+	// false while nothing is to be written, in which case the frames are kept only in memory
+	private static volatile boolean enabled = true;
+
+	// tasks that could not be written, in the order they were submitted. They are retried, ahead of anything newer, with each batch.
+	// Only the writer thread touches this list; the count is read by other threads to report how much is still unwritten
+	private static List<Task> unwritten = new ArrayList<Task>();
+	private static volatile int unwrittenCount = 0;
+
+	/**
+	 * open a connection of our own to the database and start the writer thread. Does nothing if the writer is already running
+	 * 
+	 * @return true if the writer is running, false if it could not be started or has been disabled
+	 */
+	public static synchronized boolean start() {
+		if (writer != null)
+			return true;
+		if (!enabled)
+			return false;
+		try {
+			connection = DBHandler.openConnection();
+			connection.setAutoCommit(false);
+			timeStampStatement = connection.prepareStatement(TIMESTAMP_SQL);
+			commodityStatement = connection.prepareStatement(COMMODITY_SQL);
+			industryStatement = connection.prepareStatement(INDUSTRY_SQL);
+			socialClassStatement = connection.prepareStatement(SOCIALCLASS_SQL);
+			stockStatement = connection.prepareStatement(STOCK_SQL);
+			projectStatement = connection.prepareStatement(PROJECT_SQL);
+			for (int i = 0; i < TRUNCATE_SQL.length; i++) {
+				truncateStatements[i] = connection.prepareStatement(TRUNCATE_SQL[i]);
+			}
+			for (int i = 0; i < FORK_SQL.length; i++) {
+				forkStatements[i] = connection.prepareStatement(FORK_SQL[i]);
+			}
+		} catch (SQLException e) {
+			logger.error("The database writer could not be started because " + e.getMessage());
+			return false;
+		}
+		writer = new Thread(new Runnable() {
+			@Override public void run() {
+				drain();
+			}
+		}, "Database writer");
+		writer.setDaemon(true);
+		writer.start();
+		logger.debug("Database writer started");
+		return true;
+	}
+
+	/**
+	 * place a completed frame on the queue to be written. If the queue is full, wait until the writer has made room for it.
+	 * 
+	 * @param frame
+	 *            the frame to be written. It must not be modified afterwards, because the writer reads it on another thread
+	 */
+	public static void submit(Frame frame) {
+		if (!start())
+			return;
+		Task task = new Task();
+		task.frame = frame;
+		task.projectID = frame.getProjectID();
+		recordProject(task);
+		CommandMetrics.countRows(frame.size());
+		enqueue(task);
+	}
+
+	/**
+	 * Delete the rows of every frame of the given project that comes after the given timeStamp, and save its cursors and button state
+	 * as they are now, which the caller must already have set to the point it has gone back to. Frames of the project after
+	 * that timeStamp that are still waiting to be written are dropped from the queue, since they would only be deleted again,
+	 * unless a fork of the project that was queued after them has yet to copy them.
+	 * 
+	 * @param projectID
+	 *            the project whose history is to be truncated
+	 * @param lastTimeStampID
+	 *            the last timeStampID to keep
+	 */
+	public static void truncate(int projectID, int lastTimeStampID) {
+		if (!start())
+			return;
+		// frames that a pending fork of the project is yet to copy must be written all the same
+		List<Task> droppable = new ArrayList<Task>();
+		for (Task task : queue) {
+			if (task.forkParentID == projectID)
+				droppable.clear();
+			else if (task.frame != null && task.projectID == projectID && task.frame.getTimeStampID() > lastTimeStampID)
+				droppable.add(task);
+		}
+		queue.removeAll(droppable);
+		Task task = new Task();
+		task.truncateProjectID = projectID;
+		task.truncateAfter = lastTimeStampID;
+		task.projectID = projectID;
+		recordProject(task);
+		enqueue(task);
+	}
+
+	/**
+	 * Copy the rows of every frame of the parent project that comes before the given timeStamp, giving the copies the projectID of the
+	 * child project. This is the database side of {@link FrameStore#fork(int, int, int)}: in memory the child shares these frames
+	 * with its parent, but the database has one row per project, so the rows are copied, by the database itself, on the writer thread.
+	 * Frames of the parent that are still on the queue are written first.
+	 * 
+	 * @param parentID
+	 *            the project whose history is copied
+	 * @param timeStampID
+	 *            the timeStamp at which the child diverges from the parent. Rows before this timeStamp are copied
+	 * @param childID
+	 *            the new project
+	 */
+	public static void fork(int parentID, int timeStampID, int childID) {
+		if (!start())
+			return;
+		Task task = new Task();
+		task.forkParentID = parentID;
+		task.forkChildID = childID;
+		task.forkBefore = timeStampID;
+		enqueue(task);
+	}
+
+	/**
+	 * Bring the database completely up to date: write the frame that each project is currently working on, and wait until
+	 * every frame submitted so far has been committed. Must be called before anything reads the tables directly.
+	 * The frames that the projects are working on are not complete, so the writer is given a copy of each, taken now, and never
+	 * reads a frame that the simulation may go on to modify.
+	 */
+	public static void flush() {
+		if (!start())
+			return;
+		for (Frame frame : FrameStore.liveFrames()) {
+			submit(frame.copy());
+		}
+		await();
+	}
+
+	/**
+	 * Bring the database up to date with a single project: write the frame that it is currently working on, and wait until
+	 * every frame submitted so far has been committed. The current frames of other projects are not written, so the cost does not
+	 * depend on how many other projects have been run. As in {@link #flush()}, the writer is given a copy of the current frame
+	 * 
+	 * @param projectID
+	 *            the project to bring up to date
+	 */
+	public static void flush(int projectID) {
+		if (!start())
+			return;
+		Frame frame = FrameStore.liveFrame(projectID);
+		if (frame != null)
+			submit(frame.copy());
+		await();
+	}
+
+	/**
+	 * wait until everything on the queue has been committed, and report any failure since the last time this was done
+	 */
+	private static void await() {
+		Task task = new Task();
+		task.barrier = new CountDownLatch(1);
+		enqueue(task);
+		try {
+			task.barrier.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (failure != null) {
+			String message = failure.getMessage();
+			failure = null;
+			Dialogues.alert(logger, "The database could not be brought up to date because %s. %d changes have not been saved and will be tried again",
+					message, unwrittenCount);
+		}
+	}
+
+	/**
+	 * flush everything to the database, then stop the writer thread and close its connection. Called when the application closes
+	 * 
+	 * @param writeLiveFrames
+	 *            true if the frames that the projects are working on should be written too. False if a run is still modifying its frame,
+	 *            in which case only the frames already submitted are written
+	 */
+	public static synchronized void shutdown(boolean writeLiveFrames) {
+		if (writer == null)
+			return;
+		if (writeLiveFrames) {
+			flush();
+		} else {
+			logger.error("The current frames were not written to the database, because the simulation had not stopped");
+			await();
+		}
+		Task task = new Task();
+		task.stop = true;
+		enqueue(task);
+		try {
+			writer.join();
+			connection.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (SQLException e) {
+			logger.error("Could not close the database writer's connection because " + e.getMessage());
+		}
+		writer = null;
+		logger.debug("Database writer stopped");
+	}
+
+	/**
+	 * Stop writing to the database, or start again. While the writer is disabled, nothing is written: frames are kept only in memory,
+	 * and submitting, truncating, forking and flushing do nothing. The benchmarks use this so that the cost of the database does not hide
+	 * the cost of the model. Disabling the writer first writes everything, as {@link #shutdown(boolean)} does.
+	 * 
+	 * @param enabled
+	 *            false to stop writing, true to write again
+	 */
+	public static synchronized void setEnabled(boolean enabled) {
+		if (!enabled)
+			shutdown(true);
+		WriteBehind.enabled = enabled;
+	}
+
+	/**
+	 * put a task on the queue, waiting for room if necessary. This is where the simulation is held back if it gets too far ahead of the database
+	 * 
+	 * @param task
+	 *            the task to enqueue
+	 */
+	private static void enqueue(Task task) {
+		try {
+			if (!queue.offer(task)) {
+				logger.debug("The database writer is {} frames behind. Waiting for it to catch up", QUEUE_CAPACITY);
+				queue.put(task);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The body of the writer thread. Take whatever is waiting on the queue, up to {@code BATCH_SIZE} tasks at a time, and write it in a single transaction
+	 */
+	private static void drain() {
+		List<Task> batch = new ArrayList<Task>();
+		while (true) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, BATCH_SIZE - 1);
+			boolean stop = write(batch);
+			batch.clear();
+			if (stop)
+				return;
+		}
+	}
+
+	/**
+	 * write one batch of tasks to the database, then release any barriers in the batch. Tasks that could not be written before are
+	 * written first, so that the database sees every change in the order it was submitted.
+	 * 
+	 * Normally the whole batch is written in a single transaction. If that fails, the tasks are written one at a time, and the first task that
+	 * still fails is kept, together with everything after it, to be tried again with the next batch. Nothing is dropped: until the cause is
+	 * removed the unwritten tasks accumulate, and every flush tells the user so.
+	 * 
+	 * @param batch
+	 *            the tasks to write
+	 * @return true if the batch contained a request to stop the writer
+	 */
+	private static boolean write(List<Task> batch) {
+		boolean stop = false;
+		List<Task> pending = new ArrayList<Task>(unwritten);
+		unwritten.clear();
+		for (Task task : batch) {
+			stop = stop || task.stop;
+			if (task.frame != null || task.truncateProjectID != 0 || task.forkParentID != 0)
+				pending.add(task);
+		}
+		try {
+			if (!pending.isEmpty() && !commit(pending)) {
+				for (int i = 0; i < pending.size(); i++) {
+					if (!commit(pending.subList(i, i + 1))) {
+						unwritten.addAll(pending.subList(i, pending.size()));
+						break;
+					}
+				}
+			}
+			unwrittenCount = unwritten.size();
+			if (unwrittenCount > 0)
+				logger.error("The database writer is holding {} changes that it could not save, and will try them again", unwrittenCount);
+			if (stop && unwrittenCount > 0)
+				logger.error("The database writer stopped with {} changes that could not be saved. They have been lost", unwrittenCount);
+		} finally {
+			for (Task task : batch) {
+				if (task.barrier != null)
+					task.barrier.countDown();
+			}
+		}
+		return stop;
+	}
+
+	/**
+	 * write the given tasks to the database in a single transaction. If this fails, the transaction is rolled back so that none of them
+	 * has been written, and the failure is recorded to be reported by the next flush
+	 * 
+	 * @param tasks
+	 *            the tasks to write
+	 * @return true if they were all committed
+	 */
+	private static boolean commit(List<Task> tasks) {
+		int frames = 0;
+		try {
+			for (Task task : tasks) {
+				if (task.truncateProjectID != 0) {
+					// frames queued before the deletion must reach the database before it
+					executeBatches();
+					for (PreparedStatement statement : truncateStatements) {
+						statement.setInt(1, task.truncateProjectID);
+						statement.setInt(2, task.truncateAfter);
+						statement.executeUpdate();
+					}
+					addProject(task);
+				}
+				if (task.forkParentID != 0) {
+					// so must frames of the parent, which are about to be copied
+					executeBatches();
+					for (PreparedStatement statement : forkStatements) {
+						statement.setInt(1, task.forkChildID);
+						statement.setInt(2, task.forkParentID);
+						statement.setInt(3, task.forkBefore);
+						statement.executeUpdate();
+					}
+				}
+				if (task.frame == null)
+					continue;
+				addFrame(task);
+				frames++;
+			}
+			executeBatches();
+			connection.commit();
+			logger.debug("Database writer committed {} frames", frames);
+			return true;
+		} catch (SQLException e) {
+			logger.error("The database writer could not save {} tasks because {}", tasks.size(), e.getMessage());
+			if (failure == null)
+				failure = e;
+			try {
+				clearBatches();
+				connection.rollback();
+			} catch (SQLException r) {
+				logger.error("The database writer could not roll back because " + r.getMessage());
+			}
+			return false;
+		}
+	}
+
+	private static void executeBatches() throws SQLException {
+		timeStampStatement.executeBatch();
+		commodityStatement.executeBatch();
+		industryStatement.executeBatch();
+		socialClassStatement.executeBatch();
+		stockStatement.executeBatch();
+		projectStatement.executeBatch();
+	}
+
+	private static void clearBatches() throws SQLException {
+		timeStampStatement.clearBatch();
+		commodityStatement.clearBatch();
+		industryStatement.clearBatch();
+		socialClassStatement.clearBatch();
+		stockStatement.clearBatch();
+		projectStatement.clearBatch();
+	}
+
+	/**
+	 * add every entity in the frame of this task, and the cursors of its project, to the current batch
+	 * 
+	 * @param task
+	 *            the task whose frame is to be written
+	 * @throws SQLException
+	 *             if any of the statements cannot be set up
+	 */
+	private static void addFrame(Task task) throws SQLException {
+		Frame frame = task.frame;
+		// a frame that has since passed to a project branched off this one is still written as it was submitted: see FrameStore
+		int projectID = task.projectID;
+		int timeStampID = frame.getTimeStampID();
+
+		TimeStamp t = frame.getTimeStamp();
+		timeStampStatement.setInt(1, timeStampID);
+		timeStampStatement.setInt(2, projectID);
+		timeStampStatement.setInt(3, t.getPeriod());
+		timeStampStatement.setString(4, t.getSuperState());
+		timeStampStatement.setInt(5, t.getComparatorTimeStampID());
+		timeStampStatement.setString(6, t.getDescription());
+		timeStampStatement.setDouble(7, t.getRateOfExploitation());
+		timeStampStatement.setDouble(8, t.getMelt());
+		timeStampStatement.setDouble(9, t.getPopulationGrowthRate());
+		timeStampStatement.setDouble(10, t.getInvestmentRatio());
+		setEnum(timeStampStatement, 11, t.getLabourSupplyResponse());
+		setEnum(timeStampStatement, 12, t.getPriceResponse());
+		setEnum(timeStampStatement, 13, t.getMeltResponse());
+		timeStampStatement.setString(14, t.getCurrencySymbol());
+		timeStampStatement.setString(15, t.getQuantitySymbol());
+		timeStampStatement.addBatch();
+
+		for (Commodity u : frame.getCommodities()) {
+			commodityStatement.setInt(1, projectID);
+			commodityStatement.setInt(2, timeStampID);
+			commodityStatement.setString(3, u.name());
+			setEnum(commodityStatement, 4, u.getOrigin());
+			setEnum(commodityStatement, 5, u.getFunction());
+			commodityStatement.setDouble(6, u.getTurnoverTime());
+			commodityStatement.setDouble(7, u.getUnitValue());
+			commodityStatement.setDouble(8, u.getUnitPrice());
+			commodityStatement.setDouble(9, u.getSurplusProduct());
+			commodityStatement.setDouble(10, u.getAllocationShare());
+			commodityStatement.setDouble(11, u.getStockUsedUp());
+			commodityStatement.setDouble(12, u.getStockProduced());
+			commodityStatement.setString(13, u.getImageName());
+			commodityStatement.setString(14, u.getToolTip());
+			commodityStatement.setInt(15, u.getDisplayOrder());
+			commodityStatement.addBatch();
+		}
+
+		for (Industry c : frame.getIndustries()) {
+			industryStatement.setInt(1, projectID);
+			industryStatement.setInt(2, timeStampID);
+			industryStatement.setString(3, c.name());
+			industryStatement.setString(4, c.getCommodityName());
+			industryStatement.setDouble(5, c.getOutput());
+			industryStatement.setDouble(6, c.getProposedOutput());
+			industryStatement.setDouble(7, c.getGrowthRate());
+			industryStatement.setDouble(8, c.initialCapital());
+			industryStatement.setDouble(9, c.profit());
+			industryStatement.setDouble(10, c.productiveCapital());
+			industryStatement.addBatch();
+		}
+
+		for (SocialClass sc : frame.getSocialClasses()) {
+			socialClassStatement.setInt(1, projectID);
+			socialClassStatement.setInt(2, timeStampID);
+			socialClassStatement.setString(3, sc.name());
+			socialClassStatement.setDouble(4, sc.getSize());
+			socialClassStatement.setDouble(5, sc.getparticipationRatio());
+			socialClassStatement.setDouble(6, sc.getRevenue());
+			socialClassStatement.addBatch();
+		}
+
+		for (Stock s : frame.getStocks()) {
+			stockStatement.setInt(1, projectID);
+			stockStatement.setInt(2, timeStampID);
+			stockStatement.setString(3, s.getOwner());
+			stockStatement.setString(4, s.name());
+			stockStatement.setString(5, s.getStockType());
+			setEnum(stockStatement, 6, s.getOwnerType() == Stock.OWNERTYPE.UNKNOWN ? null : s.getOwnerType());
+			stockStatement.setDouble(7, s.getQuantity());
+			stockStatement.setDouble(8, s.getValue());
+			stockStatement.setDouble(9, s.getPrice());
+			stockStatement.setDouble(10, s.getReplenishmentDemand());
+			stockStatement.setDouble(11, s.getExpansionDemand());
+			stockStatement.setDouble(12, s.getProductionCoefficient());
+			stockStatement.setDouble(13, s.getProductionQuantity());
+			stockStatement.setDouble(14, s.getConsumptionCoefficient());
+			stockStatement.setDouble(15, s.getConsumptionQuantity());
+			stockStatement.setDouble(16, s.getStockUsedUp());
+			stockStatement.addBatch();
+		}
+
+		addProject(task);
+	}
+
+	/**
+	 * record, in the task, the cursors and button state that the project of the task has now
+	 */
+	private static void recordProject(Task task) {
+		Project project = Project.get(task.projectID);
+		task.timeStampID = project.getTimeStampID();
+		task.timeStampDisplayCursor = project.getTimeStampDisplayCursor();
+		task.timeStampComparatorCursor = project.getTimeStampComparatorCursor();
+		task.buttonState = project.getButtonState();
+	}
+
+	/**
+	 * add the cursors and button state recorded in the task to the current batch
+	 */
+	private static void addProject(Task task) throws SQLException {
+		projectStatement.setInt(1, task.timeStampID);
+		projectStatement.setInt(2, task.timeStampDisplayCursor);
+		projectStatement.setInt(3, task.timeStampComparatorCursor);
+		projectStatement.setString(4, task.buttonState);
+		projectStatement.setInt(5, task.projectID);
+		projectStatement.addBatch();
+	}
+
+	/**
+	 * set an ENUM column from a java enum with the same constant names, or to null
+	 */
+	private static void setEnum(PreparedStatement statement, int index, Enum<?> value) throws SQLException {
+		if (value == null) {
+			statement.setNull(index, Types.VARCHAR);
+		} else {
+			statement.setString(index, value.name());
+		}
+	}
+}
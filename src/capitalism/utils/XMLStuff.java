@@ -20,6 +20,7 @@
 package capitalism.utils;
 
 import java.io.File;
+import java.util.List;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -32,12 +33,14 @@ import org.apache.logging.log4j.Logger;
 
 import capitalism.model.OneProject;
 import capitalism.reporting.Dialogues;
+import capitalism.reporting.Phase;
 
 public class XMLStuff {
 	private static final Logger logger = LogManager.getLogger("XML handler");
 
 	public static void exportToXML(OneProject oneProject, File file) {
 		JAXBContext commoditiesContext;
+		Phase phase = Phase.begin(Phase.Kind.EXPORT, file.getName(), projectID(oneProject), 0);
 		try {
 			commoditiesContext = JAXBContext.newInstance(OneProject.class);
 			Marshaller commoditiesMarshaller = commoditiesContext.createMarshaller();
@@ -45,6 +48,8 @@ public class XMLStuff {
 			commoditiesMarshaller.marshal(oneProject, file);
 		} catch (JAXBException e) {
 			Dialogues.alert(logger, "Could not save the database because %s", e.getMessage());
+		} finally {
+			phase.end(entities(oneProject));
 		}
 	}
 
@@ -54,10 +59,12 @@ public class XMLStuff {
 		if (file == null)
 			return;
 		Unmarshaller jaxbUnmarshaller;
+		Phase phase = Phase.begin(Phase.Kind.IMPORT, file.getName(), 0, 0);
+		OneProject oneProject = null;
 		try {
 			JAXBContext jaxbContext = JAXBContext.newInstance(OneProject.class);
 			jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-			OneProject oneProject = (OneProject) jaxbUnmarshaller.unmarshal(file);
+			oneProject = (OneProject) jaxbUnmarshaller.unmarshal(file);
 			oneProject.importFromEditorToDatabase();
 		} catch (ValidationException r) {
 			Dialogues.alert(logger, "The file was invalid because {}", r.getMessage());
@@ -65,6 +72,28 @@ public class XMLStuff {
 		} catch (JAXBException e) {
 			Dialogues.alert(logger, "Could not decode this file because {}", e.getMessage());
 			return;
+		} finally {
+			phase.end(entities(oneProject));
 		}
 	}
+
+	private static int projectID(OneProject oneProject) {
+		return oneProject.getProject() == null ? 0 : oneProject.getProject().getProjectID();
+	}
+
+	/**
+	 * @param oneProject
+	 *            a project that is being imported or exported
+	 * @return the number of entities it contains, 0 if there is no project
+	 */
+	private static int entities(OneProject oneProject) {
+		if (oneProject == null)
+			return 0;
+		return size(oneProject.getTimeStamps()) + size(oneProject.getCommodities()) + size(oneProject.getIndustries())
+				+ size(oneProject.getSocialClasses()) + size(oneProject.getStocks());
+	}
+
+	private static int size(List<?> list) {
+		return list == null ? 0 : list.size();
+	}
 }
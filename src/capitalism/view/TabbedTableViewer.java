@@ -21,25 +21,35 @@
 package capitalism.view;
 
 import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.controller.Simulation;
 import capitalism.model.Commodity;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
 import capitalism.model.Industry;
 import capitalism.model.SocialClass;
 import capitalism.model.Stock;
+import capitalism.reporting.Phase;
+import capitalism.view.custom.ChartsPanel;
 import capitalism.view.custom.DisplayControlsBox;
+import capitalism.view.custom.StockMatrix;
+import capitalism.view.tables.CellCache;
 import capitalism.view.tables.CommodityColumn;
 import capitalism.view.tables.IndustryColumn;
 import capitalism.view.tables.SocialClassColumn;
 import capitalism.view.tables.StockColumn;
 import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TabPane.TabClosingPolicy;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 
 public class TabbedTableViewer extends VBox {
@@ -87,6 +97,18 @@ public class TabbedTableViewer extends VBox {
 	private static TableColumn<Industry, String> outputSuperColumn;
 	private static TableColumn<Industry, String> outputColumn;
 
+	// The stock matrices, which show the productive and consumption stocks of every owner when there are too many commodities
+	// to give each its own column in the industry and social class tables
+
+	private static StockMatrix productiveStockMatrix = new StockMatrix();
+	private static StockMatrix consumptionStockMatrix = new StockMatrix();
+	private static final int matrixColumnThreshold = Integer.getInteger("capsim.matrix.columnThreshold", 20);
+
+	// charts of the aggregates over every period, redrawn only when their tab is showing
+
+	private static ChartsPanel chartsPanel = new ChartsPanel();
+	private static Tab chartsTab = new Tab("Charts");
+
 	/**
 	 * Simple static lists of tables, so utilities can get at them
 	 */
@@ -176,7 +198,14 @@ public class TabbedTableViewer extends VBox {
 		mainTab.setContent(mainBox);
 		Tab stockTab = new Tab("Stock");
 		stockTab.setContent(stockBox);
-		tabPane.getTabs().addAll(mainTab, stockTab);
+		Tab matrixTab = new Tab("Matrix");
+		matrixTab.setContent(matrixBox());
+		chartsTab.setContent(chartsPanel);
+		chartsTab.setOnSelectionChanged(event -> {
+			if (chartsTab.isSelected())
+				chartsPanel.refresh();
+		});
+		tabPane.getTabs().addAll(mainTab, stockTab, matrixTab, chartsTab);
 
 		for (TableView<?> table : mainTables) {
 			table.setPrefHeight(150);
@@ -205,6 +234,20 @@ public class TabbedTableViewer extends VBox {
 		buildTables();
 	}
 
+	/**
+	 * @return a box containing the two stock matrices, each of which takes half the height of the box
+	 */
+	private static VBox matrixBox() {
+		VBox matrixBox = new VBox(5);
+		matrixBox.setPrefHeight(ViewManager.windowHeight - 100);
+		matrixBox.setPrefWidth(ViewManager.windowWidth - 100);
+		VBox.setVgrow(productiveStockMatrix, Priority.ALWAYS);
+		VBox.setVgrow(consumptionStockMatrix, Priority.ALWAYS);
+		matrixBox.getChildren().addAll(new Label("Productive stocks of each industry"), productiveStockMatrix,
+				new Label("Consumption goods of each social class"), consumptionStockMatrix);
+		return matrixBox;
+	}
+
 	/**
 	 * completely reconstruct all the tables from scratch
 	 * Called at startup, and when switching a project (because the dynamic columns may change)
@@ -336,8 +379,14 @@ public class TabbedTableViewer extends VBox {
 		socialClassesTable.getColumns().add(new SocialClassColumn(SocialClass.SOCIALCLASS_ATTRIBUTE.SOCIALCLASSNAME, true));
 		socialClassesTable.getColumns().add(new SocialClassColumn(SocialClass.SOCIALCLASS_ATTRIBUTE.SIZE, false));
 		socialClassesTable.getColumns().add(new SocialClassColumn(SocialClass.SOCIALCLASS_ATTRIBUTE.SALES, false));
-		for (Commodity u : Commodity.currentByFunction(Simulation.projectIDcurrent(), Simulation.timeStampIDCurrent(), Commodity.FUNCTION.CONSUMER_GOOD)) {
-			socialClassesTable.getColumns().add(new SocialClassColumn(u));
+		List<Commodity> consumerGoods = Commodity.currentByFunction(Simulation.projectIDcurrent(), Simulation.timeStampIDCurrent(),
+				Commodity.FUNCTION.CONSUMER_GOOD);
+		if (consumerGoods.size() <= matrixColumnThreshold) {
+			for (Commodity u : consumerGoods) {
+				socialClassesTable.getColumns().add(new SocialClassColumn(u));
+			}
+		} else {
+			logger.debug("{} consumer goods: their stocks are shown in the matrix tab, not the social classes table", consumerGoods.size());
 		}
 		socialClassesTable.getColumns().add(new SocialClassColumn(SocialClass.SOCIALCLASS_ATTRIBUTE.MONEY, false));
 		socialClassesTable.getColumns().add(new SocialClassColumn(SocialClass.SOCIALCLASS_ATTRIBUTE.REVENUE, false));
@@ -376,8 +425,14 @@ public class TabbedTableViewer extends VBox {
 		inputSuperColumn.setResizable(true);
 		industryProductionAccountsTable.getColumns().add(inputSuperColumn);
 		productiveInputsColumn = new IndustryColumn(Industry.INDUSTRY_ATTRIBUTE.PRODUCTIVESTOCKS, false);
-		for (Commodity u : Commodity.currentByFunction(Simulation.projectIDcurrent(), Simulation.timeStampIDCurrent(), Commodity.FUNCTION.PRODUCTIVE_INPUT)) {
-			inputSuperColumn.getColumns().add(new IndustryColumn(u));
+		List<Commodity> inputs = Commodity.currentByFunction(Simulation.projectIDcurrent(), Simulation.timeStampIDCurrent(),
+				Commodity.FUNCTION.PRODUCTIVE_INPUT);
+		if (inputs.size() <= matrixColumnThreshold) {
+			for (Commodity u : inputs) {
+				inputSuperColumn.getColumns().add(new IndustryColumn(u));
+			}
+		} else {
+			logger.debug("{} productive inputs: their stocks are shown in the matrix tab, not the industries table", inputs.size());
 		}
 		inputSuperColumn.getColumns().add(productiveInputsColumn);
 
@@ -390,26 +445,96 @@ public class TabbedTableViewer extends VBox {
 	}
 
 	/**
-	 * refresh the data in all the tabbed tables. Do not rebuild them.
+	 * refresh the data in all the tabbed tables. Do not rebuild them. Each table keeps its own list of rows, which is brought up to date in
+	 * place (see {@link TableUtilities#updateRows(TableView, List, java.util.function.Function)}) so that only the rows showing a different
+	 * entity are redrawn.
 	 * 
+	 * @return true if any table now displays different entities, in which case its cells have been updated; false if the tables were
+	 *         already displaying the entities of this frame, so that they must be refreshed (see {@link #refreshTables()}) if
+	 *         anything else affecting the display has changed
 	 */
-	public void repopulateTabbedTables() {
+	public boolean repopulateTabbedTables() {
 		int projectID = Simulation.projectIDCurrent();
 		int timeStampDisplayID = Simulation.timeStampDisplayCursor();
-		productiveStockTable.setItems(Stock.ofStockTypeObservable(projectID, timeStampDisplayID, "Productive"));
-		moneyStockTable.setItems(Stock.ofStockTypeObservable(projectID, timeStampDisplayID, "Money"));
-		salesStockTable.setItems(Stock.ofStockTypeObservable(projectID, timeStampDisplayID, "Sales"));
-		consumptionStockTable.setItems(Stock.ofStockTypeObservable(projectID, timeStampDisplayID, "Consumption"));
-		commoditiesTable.setItems(Commodity.commoditiesObservable(projectID, timeStampDisplayID));
-		industryCapitalAccountTable.setItems(Industry.industriesObservable(projectID, timeStampDisplayID));
-		socialClassesTable.setItems(SocialClass.socialClassesObservable(projectID, timeStampDisplayID));
-		industryProductionAccountsTable.setItems(Industry.industriesObservable(projectID, timeStampDisplayID));
+		Phase phase = Phase.begin(Phase.Kind.TABLE_REFRESH, "tabbed tables", projectID, timeStampDisplayID);
+		Frame frame = FrameStore.frame(projectID, timeStampDisplayID);
+		CellCache.invalidate();
+		List<Stock> stocks = frame == null ? new ArrayList<Stock>() : frame.getStocks();
+		List<Commodity> commodities = frame == null ? new ArrayList<Commodity>() : frame.getCommodities();
+		List<Industry> industries = frame == null ? new ArrayList<Industry>() : frame.getIndustries();
+		List<SocialClass> socialClasses = frame == null ? new ArrayList<SocialClass>() : frame.getSocialClasses();
+		boolean changed = false;
+		changed |= TableUtilities.updateRows(productiveStockTable, ofStockType(stocks, Stock.STOCKTYPE.PRODUCTIVE), TabbedTableViewer::stockKey);
+		changed |= TableUtilities.updateRows(moneyStockTable, ofStockType(stocks, Stock.STOCKTYPE.MONEY), TabbedTableViewer::stockKey);
+		changed |= TableUtilities.updateRows(salesStockTable, ofStockType(stocks, Stock.STOCKTYPE.SALES), TabbedTableViewer::stockKey);
+		changed |= TableUtilities.updateRows(consumptionStockTable, ofStockType(stocks, Stock.STOCKTYPE.CONSUMPTION), TabbedTableViewer::stockKey);
+		changed |= TableUtilities.updateRows(commoditiesTable, commodities, Commodity::name);
+		changed |= TableUtilities.updateRows(industryCapitalAccountTable, industries, Industry::name);
+		changed |= TableUtilities.updateRows(socialClassesTable, socialClasses, SocialClass::name);
+		changed |= TableUtilities.updateRows(industryProductionAccountsTable, industries, Industry::name);
+		List<String> industryNames = new ArrayList<String>();
+		for (Industry industry : industries) {
+			industryNames.add(industry.name());
+		}
+		List<String> socialClassNames = new ArrayList<String>();
+		for (SocialClass socialClass : socialClasses) {
+			socialClassNames.add(socialClass.name());
+		}
+		productiveStockMatrix.setSnapshot(StockMatrix.Snapshot.of(stocks, Stock.STOCKTYPE.PRODUCTIVE, industryNames,
+				namesOf(Commodity.currentByFunction(projectID, timeStampDisplayID, Commodity.FUNCTION.PRODUCTIVE_INPUT))));
+		consumptionStockMatrix.setSnapshot(StockMatrix.Snapshot.of(stocks, Stock.STOCKTYPE.CONSUMPTION, socialClassNames,
+				namesOf(Commodity.currentByFunction(projectID, timeStampDisplayID, Commodity.FUNCTION.CONSUMER_GOOD))));
+		if (chartsTab.isSelected())
+			chartsPanel.refresh();
+		phase.end(frame == null ? 0 : frame.size());
+		CellCache.prefill(allTables);
+		return changed;
+	}
+
+	/**
+	 * @param stocks
+	 *            the stocks of a frame
+	 * @param stockType
+	 *            a stock type
+	 * @return those stocks that are of the given type
+	 */
+	private static List<Stock> ofStockType(List<Stock> stocks, Stock.STOCKTYPE stockType) {
+		List<Stock> result = new ArrayList<Stock>();
+		for (Stock s : stocks) {
+			if (s.getStockType().equals(stockType.text()))
+				result.add(s);
+		}
+		return result;
+	}
+
+	/**
+	 * @param commodities
+	 *            a list of commodities
+	 * @return their names, in the same order
+	 */
+	private static List<String> namesOf(List<Commodity> commodities) {
+		List<String> result = new ArrayList<String>();
+		for (Commodity u : commodities) {
+			result.add(u.name());
+		}
+		return result;
+	}
+
+	/**
+	 * @param stock
+	 *            a stock
+	 * @return what identifies a row in a table of stocks of one type: its owner and the commodity it consists of
+	 */
+	private static String stockKey(Stock stock) {
+		return stock.getOwner() + "|" + stock.name();
 	}
 
 	/**
 	 * we have to force a refresh of the display because if the data has not changed, it may not be observed by the table
 	 * see https://stackoverflow.com/questions/11065140/javafx-2-1-tableview-refresh-items
 	 * i have kept this method separate from {@code populateTabbedTables()} because the issue merits further study.
+	 * Cells are formatted from their column's {@link CellCache}; whatever changed the display must first call {@link CellCache#invalidate()}
+	 * unless the cache already keys it (the value expression and the deltas display).
 	 */
 
 	public static void refreshTables() {
@@ -419,6 +544,9 @@ public class TabbedTableViewer extends VBox {
 		for (TableView<?> table : stockTables) {
 			table.refresh();
 		}
+		productiveStockMatrix.draw();
+		consumptionStockMatrix.draw();
+		CellCache.prefill(allTables);
 	}
 
 	/**
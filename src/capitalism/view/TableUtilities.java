@@ -21,11 +21,15 @@
 package capitalism.view;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.view.custom.DisplayControlsBox;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
@@ -289,4 +293,47 @@ public class TableUtilities {
 			}
 		}
 	}
+
+	/**
+	 * Bring the rows of a table up to date with the entities of another frame, without replacing the table's list of items.
+	 * Each row is identified by the key of the entity it displays. If the new entities have the same keys as the rows, each row is
+	 * replaced in place by the entity with its key, so the rows keep their order (including any order the user has sorted them into),
+	 * the table keeps its selection and scroll position, and only the rows that are replaced are redrawn. Within them, a cell whose text
+	 * is the same as before does not need to be laid out again. If the keys differ, as they do when another project is displayed,
+	 * the rows are all replaced in a single change.
+	 * 
+	 * @param <T>
+	 *            the entity type of the table
+	 * @param table
+	 *            the table
+	 * @param entities
+	 *            the entities to display
+	 * @param key
+	 *            gives the key of an entity, which must be unique in the table
+	 * @return true if any row now displays a different entity; false if the table already displayed exactly these entities
+	 */
+	public static <T> boolean updateRows(TableView<T> table, List<T> entities, Function<T, String> key) {
+		ObservableList<T> rows = table.getItems();
+		HashMap<String, Integer> rowIndex = new HashMap<String, Integer>(rows.size() * 2);
+		for (int i = 0; i < rows.size(); i++) {
+			rowIndex.put(key.apply(rows.get(i)), i);
+		}
+		boolean sameKeys = rows.size() == entities.size() && rowIndex.size() == rows.size();
+		for (int i = 0; sameKeys && i < entities.size(); i++) {
+			sameKeys = rowIndex.containsKey(key.apply(entities.get(i)));
+		}
+		if (!sameKeys) {
+			rows.setAll(entities);
+			return true;
+		}
+		boolean changed = false;
+		for (T entity : entities) {
+			int i = rowIndex.get(key.apply(entity));
+			if (rows.get(i) != entity) {
+				rows.set(i, entity);
+				changed = true;
+			}
+		}
+		return changed;
+	}
 }
@@ -24,22 +24,22 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import capitalism.controller.Simulation;
+import capitalism.controller.SimulationExecutor;
+import capitalism.controller.Startup;
 import capitalism.editor.Editor;
+import capitalism.model.Deltas;
 import capitalism.model.Project;
 import capitalism.model.TimeStamp;
 import capitalism.view.custom.ActionButtonsBox;
-import capitalism.view.custom.ActionStates;
 import capitalism.view.custom.DisplayControlsBox;
 import capitalism.view.custom.SwitchableGraphicsGrid;
 import capitalism.view.custom.TimeStampView;
-import capitalism.view.custom.TimeStampViewItem;
 import capitalism.view.custom.TrackingControlsBox;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.Tooltip;
-import javafx.scene.control.TreeItem;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -258,6 +258,27 @@ public class ViewManager {
 		refreshDisplay();
 	}
 
+	/**
+	 * responds when the user asks to continue the current project from the timeStamp being viewed, discarding everything after it
+	 */
+	public static void rewindProject() {
+		if (!Simulation.rewind(Simulation.timeStampDisplayCursor()))
+			return;
+		actionButtonsBox.setActionStateFromLabel(Project.get(Simulation.projectIDCurrent()).getButtonState());
+		refreshTimeStampView();
+		refreshDisplay();
+	}
+
+	/**
+	 * responds when the user asks for a new project that branches off the current project at the timeStamp being viewed.
+	 * The new project is added to the project combo, from which the user can switch to it
+	 */
+	public static void forkProject() {
+		int childID = Simulation.fork(Simulation.timeStampDisplayCursor());
+		if (childID != 0)
+			DisplayControlsBox.rePopulateProjectCombo();
+	}
+
 	/**
 	 * responds when the user switches project
 	 * 
@@ -268,6 +289,9 @@ public class ViewManager {
 		logger.debug("entered switchProject");
 		if (newValue.getProjectID() != Simulation.projectIDCurrent()) {
 			logger.debug("Requested switch to project with ID {} and description {} ", newValue.getProjectID(), newValue.getDescription());
+
+			// the project may still be being initialised in the background
+			Startup.awaitProject(newValue.getProjectID());
 			Simulation.switchProjects(newValue.getProjectID(), actionButtonsBox);
 
 			// user has the option to choose the monetary unit and its visual expression
@@ -285,80 +309,20 @@ public class ViewManager {
 	}
 
 	/**
-	 * builds the main treeView which displays the results of the simulation
+	 * builds the main treeView which displays the results of the simulation, the first time it is called, and thereafter
+	 * brings it up to date. See {@link TimeStampView#refresh()}
 	 */
 
 	public static void refreshTimeStampView() {
 		logger.debug("Refreshing the timeStamp treeview for project {} at period {} and timeStamp {}",
 				Simulation.projectIDCurrent(), Simulation.getPeriodCurrent(), Simulation.timeStampIDCurrent());
-		int periods = Simulation.getPeriodCurrent();
-		if (timeStampViewer != null) {// we've already created one tree, so now we have to delete it and start over
-			trackingControlsBox.getChildren().remove(timeStampViewer);
-		}
-		timeStampViewer = new TimeStampView();
-		timeStampViewer.setShowRoot(false);
-
-		// the root, which is not displayed, contains an observed timeStamp with ID = -1, which is not persisted (hence the ID causes no conflicts)
-
-		TimeStampViewItem treeRoot = new TimeStampViewItem(new TimeStamp(-1, 1, 0, "", -1, "Start"));
-		timeStampViewer.setRoot(treeRoot);
-
-		// create a node for each current period, containing an observed timeStamp with:
-		// ID=1 at the start of the simulation
-		// ID=the last timeStamp in the previous period for each subsequent period
-		// TODO the second of these
-
-		for (int period = 1; period < periods + 1; period++) {
-			TimeStampViewItem periodRoot = new TimeStampViewItem(
-					new TimeStamp(1, Simulation.projectIDCurrent(), period, "", -1, String.format("Period %d", period)));
-			treeRoot.getChildren().add(periodRoot);
-			if (period < periods) {
-				logger.debug(" The view of period {} will be closed up because it is not the current period", period);
-				periodRoot.setExpanded(false);
-			}
-		}
-
-		// create the tree
-
-		for (TreeItem<TimeStamp> periodItem : treeRoot.getChildren()) {
-			int thisPeriod = periodItem.getValue().getPeriod();
-
-			// for each period create a node for all actionStates, using the actionState table.
-			// this means that all superstates are displayed in the tree, even if we haven't reached them yet in the simulation
-			// if the actionState is a superState make it a child of the period
-
-			for (ActionStates a : ActionStates.values()) {
-				if (a.superAction == null) { // it's not a baby
-
-					TimeStampViewItem superStateRoot = new TimeStampViewItem(
-							new TimeStamp(-1, Simulation.projectIDCurrent(), periodItem.getValue().getPeriod(), a.text(), -1, a.text()));
-					periodItem.getChildren().add(superStateRoot);
-					logger.debug("Adding the superstate action called {} in period {}", a.text(), thisPeriod);
-
-					// add all the children.
-					// these are taken from the timeStamp table, not the actionState table. Thus, we only add the states that have been reached in the
-					// simulation
-
-					// diagnostics -switch off unless there are problems with the treeview
-					for (TimeStamp t : TimeStamp.allInProject(Simulation.projectIDcurrent())) {
-						logger.debug("TimeStamp described as {} has timeStampID {}, project {}, period {} and superState {}",
-								t.getDescription(), t.getTimeStampID(), t.getProjectID(), t.getPeriod(), t.getSuperState());
-					}
-
-					for (TimeStamp childStamp : TimeStamp.superStateChildren(thisPeriod, Simulation.projectIDcurrent(), a.text())) {
-						logger.debug("Processing the timestamp called {} in period {}", childStamp.getDescription(), thisPeriod);
-						TimeStampViewItem childState = new TimeStampViewItem(childStamp);
-
-						// set the ID for the superstate of which this is a part, so that if the user opts to view it,
-						// the tabbedTables will display the data from the last executed component action (child)
-
-						superStateRoot.getChildren().add(childState);
-						superStateRoot.getValue().setTimeStampID(childStamp.getTimeStampID());
-					}
-				}
-			}
+		if (timeStampViewer == null) {
+			timeStampViewer = new TimeStampView();
+			timeStampViewer.setShowRoot(false);
+			trackingControlsBox.getChildren().add(1, timeStampViewer);
 		}
-		trackingControlsBox.getChildren().add(1, timeStampViewer);
+		timeStampViewer.refresh();
+		timeStampViewer.setDisable(SimulationExecutor.isRunning());
 	}
 
 	/**
@@ -376,12 +340,14 @@ public class ViewManager {
 		logger.debug(String.format("Refresh Display with project %d, timestamp %d and comparator %d",
 				currentProject, Simulation.timeStampDisplayCursor(), Simulation.getTimeStampComparatorCursor()));
 
-		// as well as repopulating the data model with rePopulateTabbedTables,
+		// rePopulateTabbedTables updates the cells of every row that displays a different entity. If no row does,
 		// we have to force a refresh of the display because if the data has not changed, it won't refresh
 		// see https://stackoverflow.com/questions/11065140/javafx-2-1-tableview-refresh-items
+		// the magnitudes compared with the comparator are measured afresh, once, for the frame now displayed
 
-		tabbedTableViewer.repopulateTabbedTables();
-		TabbedTableViewer.refreshTables();
+		Deltas.invalidate();
+		if (!tabbedTableViewer.repopulateTabbedTables())
+			TabbedTableViewer.refreshTables();
 		populateSummaryGrid();
 	}
 
@@ -440,4 +406,17 @@ public class ViewManager {
 	public static ActionButtonsBox getActionButtonsBox() {
 		return actionButtonsBox;
 	}
+
+	/**
+	 * While a command is running on the simulation thread, stop the user changing anything it depends on: the project, the timeStamp being
+	 * viewed, and the display settings, all of which would repopulate the display from a frame that is still being worked on.
+	 * The tables can still be scrolled, and show the state before the command started until it has finished.
+	 * 
+	 * @param running
+	 *            true when a command starts, false when it has finished
+	 */
+	public static void setSimulationRunning(boolean running) {
+		displayControlsBox.setDisable(running);
+		timeStampViewer.setDisable(running);
+	}
 }
\ No newline at end of file
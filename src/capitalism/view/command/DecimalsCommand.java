@@ -3,6 +3,7 @@ package capitalism.view.command;
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.ViewManager;
 import capitalism.view.custom.ImageButton;
+import capitalism.view.tables.CellCache;
 
 public class DecimalsCommand implements DisplayCommand {
 	public void execute(ImageButton caller) {
@@ -15,6 +16,7 @@ public class DecimalsCommand implements DisplayCommand {
 			ViewManager.setSmallFormat("%1$.2f");
 			caller.setOffState();
 		}
+		CellCache.invalidate();
 		TabbedTableViewer.refreshTables();
 	}
 }
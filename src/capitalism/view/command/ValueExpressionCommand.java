@@ -3,6 +3,7 @@ package capitalism.view.command;
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.custom.DisplayControlsBox;
 import capitalism.view.custom.ImageButton;
+import capitalism.view.tables.CellCache;
 
 public class ValueExpressionCommand implements DisplayCommand {
 
@@ -16,6 +17,7 @@ public class ValueExpressionCommand implements DisplayCommand {
 			DisplayControlsBox.expressionSymbol = DisplayControlsBox.moneyExpressionSymbol;
 			caller.setOnState();
 		}
+		CellCache.invalidate();
 		TabbedTableViewer.refreshTables();
 	}
 
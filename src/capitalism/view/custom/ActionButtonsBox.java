@@ -25,15 +25,27 @@ import java.util.HashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import capitalism.controller.SimulationExecutor;
+import capitalism.controller.command.Command;
+import capitalism.controller.command.FastForward;
+import capitalism.controller.command.MeasuredCommand;
 import capitalism.controller.command.OnePeriod;
 import capitalism.model.Project;
 import capitalism.reporting.Dialogues;
 import capitalism.view.ViewManager;
+import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 
 /**
@@ -47,7 +59,7 @@ import javafx.scene.layout.VBox;
 public class ActionButtonsBox extends VBox {
 	static final Logger logger = LogManager.getLogger("ActionButtonsBox");
 	static private TreeView<String> treeView = null;
-	static OnePeriod onePeriod = new OnePeriod();
+	static Command onePeriod = new MeasuredCommand("One Period", new OnePeriod());
 
 	// the last action that was executed
 
@@ -70,6 +82,23 @@ public class ActionButtonsBox extends VBox {
 	 */
 	private static ArrayList<ActionStates> superStates = new ArrayList<ActionStates>();
 
+	/**
+	 * the progress of a command running on the simulation thread, and the means of cancelling it; visible only while it runs
+	 */
+	private static ProgressBar progressBar = new ProgressBar();
+	private static Label progressLabel = new Label();
+	private static Button cancelButton = new Button("Cancel");
+	private static VBox progressBox = new VBox();
+
+	/**
+	 * runs a number of periods, or until a condition holds, without displaying the frames in between
+	 */
+	private static Button fastForwardButton = new Button("Fast Forward");
+	private static NumericField periodsField = new NumericField();
+	private static ComboBox<FastForward.CONDITION> conditionCombo = new ComboBox<FastForward.CONDITION>(
+			FXCollections.observableArrayList(FastForward.CONDITION.values()));
+	private static TextField thresholdField = new TextField();
+
 	/**
 	 * the ActionButtonsBox constructor.
 	 */
@@ -91,11 +120,7 @@ public class ActionButtonsBox extends VBox {
 		rootItem.setExpanded(true);
 
 		rootButton.setOnAction((event) -> {
-			onePeriod.execute();
-			lastAction = ActionStates.lastSuperState();
-			enableButtons();
-			ViewManager.refreshTimeStampView();
-			ViewManager.refreshDisplay();
+			run("One Period", onePeriod, ActionStates.lastSuperState(), FastForward.subStepsPerPeriod());
 		});
 
 		// First populate the superAction nodes
@@ -119,10 +144,112 @@ public class ActionButtonsBox extends VBox {
 		treeView.prefHeight(USE_COMPUTED_SIZE);
 		this.getChildren().add(treeView);
 
+		// below it, the fast forward controls
+
+		allButtons.add(fastForwardButton);
+		periodsField.setText("10");
+		periodsField.setPrefColumnCount(4);
+		periodsField.setTooltip(new Tooltip("The largest number of periods to run"));
+		conditionCombo.setValue(FastForward.CONDITION.NONE);
+		conditionCombo.setTooltip(new Tooltip("Stop before all the periods have been run, at the end of the first period in which this holds"));
+		thresholdField.setPrefColumnCount(5);
+		thresholdField.setDisable(true);
+		thresholdField.setTooltip(new Tooltip("For a profit rate, the rate; for a steady state, the largest relative change that counts as no change"));
+		conditionCombo.valueProperty().addListener((observable, oldValue, newValue) -> {
+			thresholdField.setDisable(!newValue.hasThreshold());
+			if (newValue == FastForward.CONDITION.STEADY_STATE)
+				thresholdField.setText("0.0001");
+		});
+		fastForwardButton.setOnAction((event) -> fastForward());
+		HBox periodsRow = new HBox(5, fastForwardButton, periodsField, new Label("periods"));
+		periodsRow.setAlignment(Pos.CENTER_LEFT);
+		HBox conditionRow = new HBox(5, conditionCombo, thresholdField);
+		this.getChildren().add(new VBox(3, periodsRow, conditionRow));
+
+		// and below that, the progress of the command that is running, if there is one
+
+		progressBar.setMaxWidth(Double.MAX_VALUE);
+		HBox.setHgrow(progressBar, Priority.ALWAYS);
+		cancelButton.setTooltip(new Tooltip("Stop at the end of the current action. You can carry on from there later"));
+		HBox progressRow = new HBox(5, progressBar, cancelButton);
+		progressBox.getChildren().addAll(progressRow, progressLabel);
+		progressBox.setVisible(false);
+		progressBox.setManaged(false);
+		this.getChildren().add(progressBox);
+
 		lastAction = ActionStates.lastSuperState();
 		enableButtons();
 	}
 
+	/**
+	 * Respond to the fast forward button by running the number of periods in the periods field, stopping early if the selected condition holds
+	 */
+	private void fastForward() {
+		int periods = periodsField.getText().isEmpty() ? 0 : Integer.parseInt(periodsField.getText());
+		if (periods < 1) {
+			Dialogues.alert(logger, "Please say how many periods to run");
+			return;
+		}
+		FastForward.CONDITION condition = conditionCombo.getValue();
+		double threshold = 0;
+		if (condition.hasThreshold()) {
+			try {
+				threshold = Double.parseDouble(thresholdField.getText());
+			} catch (NumberFormatException e) {
+				Dialogues.alert(logger, "The threshold for the condition '%s' should be a number, not '%s'", condition.text(), thresholdField.getText());
+				return;
+			}
+		}
+		FastForward fastForward = new FastForward(periods, condition, threshold);
+		run("Fast Forward", new MeasuredCommand("Fast Forward", fastForward), ActionStates.lastSuperState(), fastForward.subSteps());
+	}
+
+	/**
+	 * Run a command on the simulation thread, and show its progress until it finishes. Then note which action was the last to complete,
+	 * and display the frame it produced.
+	 * 
+	 * @param name
+	 *            the name of the command, displayed while it runs
+	 * @param command
+	 *            the command
+	 * @param finalState
+	 *            the action that has been completed when the command has finished
+	 * @param subSteps
+	 *            the number of primitive actions in the command
+	 */
+	private void run(String name, Command command, ActionStates finalState, int subSteps) {
+		SimulationExecutor.Run run = SimulationExecutor.submit(name, command, finalState, subSteps, (reached) -> {
+			progressBar.progressProperty().unbind();
+			progressLabel.textProperty().unbind();
+			progressBox.setVisible(false);
+			progressBox.setManaged(false);
+			ViewManager.setSimulationRunning(false);
+			if (reached != null)
+				lastAction = reached;
+			enableButtons();
+			ViewManager.refreshTimeStampView();
+			ViewManager.refreshDisplay();
+		}, () -> {
+			ViewManager.refreshTimeStampView();
+			ViewManager.refreshDisplay();
+		});
+		if (run == null)
+			return;
+		for (Button button : allButtons) {
+			button.setDisable(true);
+		}
+		ViewManager.setSimulationRunning(true);
+		progressBar.progressProperty().bind(run.progressProperty());
+		progressLabel.textProperty().bind(run.messageProperty());
+		cancelButton.setDisable(false);
+		cancelButton.setOnAction((event) -> {
+			run.requestCancel();
+			cancelButton.setDisable(true);
+		});
+		progressBox.setVisible(true);
+		progressBox.setManaged(true);
+	}
+
 	public void addActionState(ActionStates actionState, TreeItem<String> rootItem) {
 		TreeItem<String> item = new TreeItem<String>("");
 		Button button = new Button(actionState.text());
@@ -134,12 +261,7 @@ public class ActionButtonsBox extends VBox {
 		actionStatesFromLabel.put(actionState.text(), actionState);
 		item.setGraphic(button);
 		button.setOnAction((event) -> {
-			actionState.getCommand().execute();
-			lastAction = actionState;
-			enableButtons();
-			ViewManager.refreshTimeStampView();
-			ViewManager.refreshDisplay();
-
+			run(actionState.text(), actionState.getCommand(), actionState, actionState.subSteps());
 		});
 		rootItem.getChildren().add(item);
 		actionState.treeItem = item;
@@ -153,8 +275,9 @@ public class ActionButtonsBox extends VBox {
 			button.setDisable(true);
 		}
 		ActionStates nextAction = lastAction.nextAction;
-		if (nextAction == ActionStates.M_C_Exchange) { // we are at the beginning, enable the One Period Button
+		if (nextAction == ActionStates.M_C_Exchange) { // we are at the beginning, enable the One Period and Fast Forward Buttons
 			treeView.getRoot().getGraphic().setDisable(false);
+			fastForwardButton.setDisable(false);
 		}
 		logger.debug("The last action was {} and the action {} will be enabled", lastAction.text(), nextAction.text());
 		nextAction.button.setDisable(false);
@@ -10,6 +10,7 @@ import capitalism.controller.command.Demand;
 import capitalism.controller.command.Distribute;
 import capitalism.controller.command.Exchange;
 import capitalism.controller.command.IndustriesProduce;
+import capitalism.controller.command.MeasuredCommand;
 import capitalism.controller.command.Prices;
 import capitalism.controller.command.Produce;
 import capitalism.controller.command.Revenue;
@@ -173,7 +174,7 @@ public enum ActionStates {
 	 */
 	ActionStates(String text, Command command, String tooltip, boolean isSubState) {
 		this.text = text;
-		this.command = command;
+		this.command = new MeasuredCommand(text, command);
 		this.tooltip = tooltip;
 		this.isSubState = isSubState;
 	}
@@ -245,4 +246,12 @@ public enum ActionStates {
 	public ArrayList<ActionStates> getChildren() {
 		return children;
 	}
+
+	/**
+	 * @return the number of primitive actions that are carried out when this action is executed: one for a subAction, and the number
+	 *         of its subActions for a superAction
+	 */
+	public int subSteps() {
+		return isSubState ? 1 : children.size();
+	}
 }
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.view.custom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.controller.Simulation;
+import capitalism.model.PeriodAggregates;
+import capitalism.utils.Downsample;
+import javafx.collections.FXCollections;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ComboBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * Charts of the aggregates of the current project over every period it has completed. The charts read only from
+ * {@link PeriodAggregates}, never from the frames, and each series is reduced by {@link Downsample#lttb(double[], double[], int)} to about
+ * as many points as the chart is wide, so a project of a hundred thousand periods draws as quickly as one of ten.
+ */
+public class ChartsPanel extends VBox {
+	private static final Logger logger = LogManager.getLogger(ChartsPanel.class);
+
+	// the smallest number of points a series is reduced to, whatever the width of the chart
+	private static final int MINIMUM_POINTS = 200;
+
+	private static final String OUTPUTS = "Industry Outputs";
+
+	private final ComboBox<String> chooser = new ComboBox<String>();
+	private final NumberAxis periodAxis = new NumberAxis();
+	private final NumberAxis magnitudeAxis = new NumberAxis();
+	private final LineChart<Number, Number> chart = new LineChart<Number, Number>(periodAxis, magnitudeAxis);
+
+	public ChartsPanel() {
+		super(5);
+		List<String> choices = new ArrayList<String>();
+		for (PeriodAggregates.AGGREGATE aggregate : PeriodAggregates.AGGREGATE.values()) {
+			choices.add(aggregate.text());
+		}
+		choices.add(OUTPUTS);
+		chooser.setItems(FXCollections.observableArrayList(choices));
+		chooser.getSelectionModel().select(0);
+		chooser.setOnAction(event -> refresh());
+
+		periodAxis.setLabel("Period");
+		periodAxis.setForceZeroInRange(false);
+		magnitudeAxis.setForceZeroInRange(false);
+		chart.setAnimated(false);
+		chart.setCreateSymbols(false);
+		VBox.setVgrow(chart, Priority.ALWAYS);
+		getChildren().addAll(chooser, chart);
+	}
+
+	/**
+	 * Redraw the chosen chart from the aggregates recorded so far for the current project
+	 */
+	public void refresh() {
+		PeriodAggregates.Series series = PeriodAggregates.series(Simulation.projectIDCurrent());
+		int points = Math.max(MINIMUM_POINTS, (int) chart.getWidth());
+		String choice = chooser.getValue();
+		List<XYChart.Series<Number, Number>> lines = new ArrayList<XYChart.Series<Number, Number>>();
+		if (OUTPUTS.equals(choice)) {
+			magnitudeAxis.setLabel("Output");
+			for (Map.Entry<String, double[]> output : series.outputs().entrySet()) {
+				lines.add(line(output.getKey(), series.periods(), output.getValue(), points));
+			}
+		} else {
+			for (PeriodAggregates.AGGREGATE aggregate : PeriodAggregates.AGGREGATE.values()) {
+				if (aggregate.text().equals(choice)) {
+					magnitudeAxis.setLabel(aggregate.text());
+					lines.add(line(aggregate.text(), series.periods(), series.aggregate(aggregate), points));
+				}
+			}
+		}
+		chart.getData().setAll(lines);
+		logger.debug("Charted {} of {} periods, reduced to at most {} points", choice, series.size(), points);
+	}
+
+	private static XYChart.Series<Number, Number> line(String name, double[] periods, double[] magnitudes, int points) {
+		List<XYChart.Data<Number, Number>> data = new ArrayList<XYChart.Data<Number, Number>>();
+		for (int i : Downsample.lttb(periods, magnitudes, points)) {
+			data.add(new XYChart.Data<Number, Number>(periods[i], magnitudes[i]));
+		}
+		XYChart.Series<Number, Number> line = new XYChart.Series<Number, Number>(FXCollections.observableArrayList(data));
+		line.setName(name);
+		return line;
+	}
+}
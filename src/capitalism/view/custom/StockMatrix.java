@@ -0,0 +1,350 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.view.custom;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import capitalism.model.Stock;
+import capitalism.view.TabbedTableViewer;
+import capitalism.view.ViewManager;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A grid of the stocks of one type, with one row for each owner and one column for each commodity, drawn on a canvas the size of the
+ * visible area. Only the cells that can be seen are drawn, so the cost of drawing does not grow with the number of industries or
+ * commodities, as it does with a TableView that has one column for each commodity.
+ * 
+ * Each cell is shaded according to the magnitude of its stock, as a proportion of the largest in the grid, using the quantity, value or
+ * price selected by {@link TabbedTableViewer#displayAttribute}. The grid is drawn from a {@link Snapshot}, which holds the magnitudes of
+ * every cell in primitive arrays, so that drawing never consults the entities themselves.
+ * 
+ * The scroll wheel scrolls the grid; with the control key held down, it zooms in and out. When the cells are too small for text, only the
+ * shading is drawn. Hovering over a cell shows its owner, commodity and magnitude.
+ */
+public class StockMatrix extends Region {
+	private static final Logger logger = LogManager.getLogger(StockMatrix.class);
+
+	private static final double CELL_WIDTH = 70;
+	private static final double CELL_HEIGHT = 22;
+	private static final double ROW_HEADER_WIDTH = 130;
+	private static final double COLUMN_HEADER_HEIGHT = 24;
+	private static final double MINIMUM_ZOOM = 0.1;
+	private static final double MAXIMUM_ZOOM = 4;
+
+	private final Canvas canvas = new Canvas();
+	private final ScrollBar horizontal = new ScrollBar();
+	private final ScrollBar vertical = new ScrollBar();
+	private final Tooltip tooltip = new Tooltip();
+	private Snapshot snapshot = Snapshot.EMPTY;
+	private double zoom = 1;
+
+	/**
+	 * The magnitudes of the stocks in a grid, held in primitive arrays
+	 */
+	public static class Snapshot {
+		private static final Stock.VALUE_EXPRESSION[] EXPRESSIONS = Stock.VALUE_EXPRESSION.values();
+		static final Snapshot EMPTY = new Snapshot(new String[0], new String[0]);
+
+		private final String[] rows;
+		private final String[] columns;
+
+		// for each value expression, the magnitude of the stock in each cell, row by row; NaN if there is no stock in the cell
+		private final double[][] magnitudes;
+
+		// for each value expression, the largest magnitude in the grid, which is shaded most deeply
+		private final double[] largest;
+
+		private Snapshot(String[] rows, String[] columns) {
+			this.rows = rows;
+			this.columns = columns;
+			magnitudes = new double[EXPRESSIONS.length][rows.length * columns.length];
+			for (double[] m : magnitudes) {
+				Arrays.fill(m, Double.NaN);
+			}
+			largest = new double[EXPRESSIONS.length];
+		}
+
+		/**
+		 * Take a snapshot of the stocks of one type, in a single pass over the stocks
+		 * 
+		 * @param stocks
+		 *            the stocks of a frame
+		 * @param stockType
+		 *            the type of stock to show
+		 * @param owners
+		 *            the names of the owners, one for each row, in the order they are to be displayed
+		 * @param commodities
+		 *            the names of the commodities, one for each column, in the order they are to be displayed
+		 * @return the magnitudes of those stocks of the given type that belong to one of the owners and consist of one of the commodities
+		 */
+		public static Snapshot of(List<Stock> stocks, Stock.STOCKTYPE stockType, List<String> owners, List<String> commodities) {
+			Snapshot snapshot = new Snapshot(owners.toArray(new String[owners.size()]), commodities.toArray(new String[commodities.size()]));
+			HashMap<String, Integer> rowIndex = new HashMap<String, Integer>();
+			for (int i = 0; i < owners.size(); i++) {
+				rowIndex.put(owners.get(i), i);
+			}
+			HashMap<String, Integer> columnIndex = new HashMap<String, Integer>();
+			for (int i = 0; i < commodities.size(); i++) {
+				columnIndex.put(commodities.get(i), i);
+			}
+			for (Stock s : stocks) {
+				if (!s.getStockType().equals(stockType.text()))
+					continue;
+				Integer row = rowIndex.get(s.getOwner());
+				Integer column = columnIndex.get(s.name());
+				if (row == null || column == null)
+					continue;
+				int cell = row * commodities.size() + column;
+				snapshot.set(Stock.VALUE_EXPRESSION.QUANTITY, cell, s.getQuantity());
+				snapshot.set(Stock.VALUE_EXPRESSION.VALUE, cell, s.getValue());
+				snapshot.set(Stock.VALUE_EXPRESSION.PRICE, cell, s.getPrice());
+			}
+			return snapshot;
+		}
+
+		private void set(Stock.VALUE_EXPRESSION expression, int cell, double magnitude) {
+			magnitudes[expression.ordinal()][cell] = magnitude;
+			largest[expression.ordinal()] = Math.max(largest[expression.ordinal()], Math.abs(magnitude));
+		}
+
+		/**
+		 * @return the number of rows
+		 */
+		public int rows() {
+			return rows.length;
+		}
+
+		/**
+		 * @return the number of columns
+		 */
+		public int columns() {
+			return columns.length;
+		}
+	}
+
+	public StockMatrix() {
+		vertical.setOrientation(Orientation.VERTICAL);
+		getChildren().addAll(canvas, horizontal, vertical);
+		horizontal.valueProperty().addListener((observable, oldValue, newValue) -> draw());
+		vertical.valueProperty().addListener((observable, oldValue, newValue) -> draw());
+		canvas.setOnScroll(event -> scrolled(event));
+		canvas.setOnMouseMoved(event -> moved(event));
+		Tooltip.install(canvas, tooltip);
+	}
+
+	/**
+	 * Display a new snapshot, keeping the scroll position and zoom if possible
+	 * 
+	 * @param snapshot
+	 *            the magnitudes to display
+	 */
+	public void setSnapshot(Snapshot snapshot) {
+		this.snapshot = snapshot;
+		logger.debug("Stock matrix of {} rows and {} columns", snapshot.rows(), snapshot.columns());
+		updateScrollBars();
+		draw();
+	}
+
+	@Override protected void layoutChildren() {
+		double barWidth = vertical.prefWidth(-1);
+		double barHeight = horizontal.prefHeight(-1);
+		double width = Math.max(0, getWidth() - barWidth);
+		double height = Math.max(0, getHeight() - barHeight);
+		canvas.setWidth(width);
+		canvas.setHeight(height);
+		canvas.relocate(0, 0);
+		horizontal.resizeRelocate(0, height, width, barHeight);
+		vertical.resizeRelocate(width, 0, barWidth, height);
+		updateScrollBars();
+		draw();
+	}
+
+	@Override protected double computePrefHeight(double width) {
+		return COLUMN_HEADER_HEIGHT + CELL_HEIGHT * Math.min(snapshot.rows(), 20) + horizontal.prefHeight(-1);
+	}
+
+	// the range of each scroll bar is the part of the grid that does not fit in the canvas
+	private void updateScrollBars() {
+		double viewWidth = Math.max(0, canvas.getWidth() - ROW_HEADER_WIDTH);
+		double viewHeight = Math.max(0, canvas.getHeight() - COLUMN_HEADER_HEIGHT);
+		double hiddenWidth = Math.max(0, snapshot.columns() * CELL_WIDTH * zoom - viewWidth);
+		double hiddenHeight = Math.max(0, snapshot.rows() * CELL_HEIGHT * zoom - viewHeight);
+		horizontal.setMax(hiddenWidth);
+		horizontal.setVisibleAmount(hiddenWidth == 0 ? 0 : hiddenWidth * viewWidth / (hiddenWidth + viewWidth));
+		horizontal.setValue(Math.min(horizontal.getValue(), hiddenWidth));
+		vertical.setMax(hiddenHeight);
+		vertical.setVisibleAmount(hiddenHeight == 0 ? 0 : hiddenHeight * viewHeight / (hiddenHeight + viewHeight));
+		vertical.setValue(Math.min(vertical.getValue(), hiddenHeight));
+	}
+
+	/**
+	 * Draw the visible part of the grid, for example because the magnitude displayed, or the way it is expressed, has changed
+	 */
+	public void draw() {
+		GraphicsContext g = canvas.getGraphicsContext2D();
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		g.clearRect(0, 0, width, height);
+		int rows = snapshot.rows();
+		int columns = snapshot.columns();
+		if (rows == 0 || columns == 0)
+			return;
+
+		double cellWidth = CELL_WIDTH * zoom;
+		double cellHeight = CELL_HEIGHT * zoom;
+		double left = horizontal.getValue();
+		double top = vertical.getValue();
+		int firstColumn = (int) (left / cellWidth);
+		int lastColumn = Math.min(columns - 1, (int) ((left + width - ROW_HEADER_WIDTH) / cellWidth));
+		int firstRow = (int) (top / cellHeight);
+		int lastRow = Math.min(rows - 1, (int) ((top + height - COLUMN_HEADER_HEIGHT) / cellHeight));
+
+		Stock.VALUE_EXPRESSION expression = TabbedTableViewer.displayAttribute;
+		double[] magnitudes = snapshot.magnitudes[expression.ordinal()];
+		double largest = snapshot.largest[expression.ordinal()];
+		Color shade = shadeOf(expression);
+		boolean labelled = cellHeight >= 12 && cellWidth >= 36;
+
+		g.setFont(Font.font(Math.min(12, cellHeight * 0.6)));
+		g.setTextBaseline(VPos.CENTER);
+		g.setTextAlign(TextAlignment.RIGHT);
+		g.setStroke(Color.LIGHTGREY);
+		g.setLineWidth(0.5);
+		for (int row = firstRow; row <= lastRow; row++) {
+			double y = COLUMN_HEADER_HEIGHT + row * cellHeight - top;
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				double x = ROW_HEADER_WIDTH + column * cellWidth - left;
+				double magnitude = magnitudes[row * columns + column];
+				if (Double.isNaN(magnitude)) {
+					g.setFill(Color.WHITESMOKE);
+					g.fillRect(x, y, cellWidth, cellHeight);
+					continue;
+				}
+				double depth = largest == 0 ? 0 : Math.abs(magnitude) / largest;
+				g.setFill(Color.WHITE.interpolate(shade, depth));
+				g.fillRect(x, y, cellWidth, cellHeight);
+				g.strokeRect(x, y, cellWidth, cellHeight);
+				if (labelled) {
+					g.setFill(depth > 0.6 ? Color.WHITE : Color.BLACK);
+					g.fillText(format(magnitude, expression), x + cellWidth - 3, y + cellHeight / 2, cellWidth - 6);
+				}
+			}
+		}
+
+		// the headers are drawn last, over any cells that have scrolled underneath them
+		g.setFont(Font.font(12));
+		g.setFill(Color.WHITE);
+		g.fillRect(0, 0, width, COLUMN_HEADER_HEIGHT);
+		g.fillRect(0, 0, ROW_HEADER_WIDTH, height);
+		g.setFill(Color.BLACK);
+		if (cellWidth >= 36) {
+			g.setTextAlign(TextAlignment.CENTER);
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				double x = ROW_HEADER_WIDTH + column * cellWidth - left;
+				if (x + cellWidth / 2 > ROW_HEADER_WIDTH)
+					g.fillText(snapshot.columns[column], x + cellWidth / 2, COLUMN_HEADER_HEIGHT / 2, cellWidth - 4);
+			}
+		}
+		if (cellHeight >= 12) {
+			g.setTextAlign(TextAlignment.LEFT);
+			for (int row = firstRow; row <= lastRow; row++) {
+				double y = COLUMN_HEADER_HEIGHT + row * cellHeight - top;
+				if (y + cellHeight / 2 > COLUMN_HEADER_HEIGHT)
+					g.fillText(snapshot.rows[row], 4, y + cellHeight / 2, ROW_HEADER_WIDTH - 8);
+			}
+		}
+		g.setStroke(Color.GREY);
+		g.strokeLine(ROW_HEADER_WIDTH, 0, ROW_HEADER_WIDTH, height);
+		g.strokeLine(0, COLUMN_HEADER_HEIGHT, width, COLUMN_HEADER_HEIGHT);
+	}
+
+	// scroll, or zoom about the pointer if the control key is down
+	private void scrolled(ScrollEvent event) {
+		if (event.isControlDown()) {
+			double oldZoom = zoom;
+			zoom = Math.max(MINIMUM_ZOOM, Math.min(MAXIMUM_ZOOM, zoom * (event.getDeltaY() > 0 ? 1.1 : 1 / 1.1)));
+			double ratio = zoom / oldZoom;
+			double pointerX = Math.max(0, event.getX() - ROW_HEADER_WIDTH);
+			double pointerY = Math.max(0, event.getY() - COLUMN_HEADER_HEIGHT);
+			updateScrollBars();
+			horizontal.setValue(clamp((horizontal.getValue() + pointerX) * ratio - pointerX, horizontal.getMax()));
+			vertical.setValue(clamp((vertical.getValue() + pointerY) * ratio - pointerY, vertical.getMax()));
+		} else {
+			horizontal.setValue(clamp(horizontal.getValue() - event.getDeltaX(), horizontal.getMax()));
+			vertical.setValue(clamp(vertical.getValue() - event.getDeltaY(), vertical.getMax()));
+		}
+		draw();
+		event.consume();
+	}
+
+	// describe the cell under the pointer
+	private void moved(MouseEvent event) {
+		int column = (int) ((event.getX() - ROW_HEADER_WIDTH + horizontal.getValue()) / (CELL_WIDTH * zoom));
+		int row = (int) ((event.getY() - COLUMN_HEADER_HEIGHT + vertical.getValue()) / (CELL_HEIGHT * zoom));
+		if (event.getX() < ROW_HEADER_WIDTH || event.getY() < COLUMN_HEADER_HEIGHT || row >= snapshot.rows() || column >= snapshot.columns()) {
+			tooltip.setText("Scroll to move; hold the control key down and scroll to zoom");
+			return;
+		}
+		Stock.VALUE_EXPRESSION expression = TabbedTableViewer.displayAttribute;
+		double magnitude = snapshot.magnitudes[expression.ordinal()][row * snapshot.columns() + column];
+		String text = Double.isNaN(magnitude) ? "none" : format(magnitude, expression);
+		tooltip.setText(String.format("%s, %s: %s", snapshot.rows[row], snapshot.columns[column], text));
+	}
+
+	private static double clamp(double value, double max) {
+		return Math.max(0, Math.min(max, value));
+	}
+
+	// as it would appear in the stock tables: values and prices are expressed as time or money
+	private static String format(double magnitude, Stock.VALUE_EXPRESSION expression) {
+		if (expression == Stock.VALUE_EXPRESSION.QUANTITY)
+			return String.format(ViewManager.getLargeFormat(), magnitude);
+		return String.format(ViewManager.getLargeFormat(), ViewManager.valueExpression(magnitude, DisplayControlsBox.expressionDisplay));
+	}
+
+	// the colour of the most deeply shaded cell, echoing the colour hints of the tables
+	private static Color shadeOf(Stock.VALUE_EXPRESSION expression) {
+		switch (expression) {
+		case QUANTITY:
+			return Color.STEELBLUE;
+		case VALUE:
+			return Color.CRIMSON;
+		case PRICE:
+		default:
+			return Color.DARKORANGE;
+		}
+	}
+}
@@ -19,27 +19,69 @@
 *   
 */package capitalism.view.custom;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import capitalism.controller.Simulation;
+import capitalism.model.Frame;
+import capitalism.model.FrameStore;
 import capitalism.model.TimeStamp;
+import capitalism.reporting.Dialogues;
 import capitalism.view.ViewManager;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.css.PseudoClass;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.control.TreeCell;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 
 /**
  * with acknowledgement to contributors to https://stackoverflow.com/questions/30684308/javafx-treeview-css
- *
+ * <p>
+ * The tree is built once per project and thereafter only grows: {@link #refresh()} appends the timeStamps that have been
+ * added to the {@link FrameStore} since the last refresh, and rebuilds the tree only when the project changes or its history
+ * has been cut back by a rewind or a restart. Until a period is expanded, all that is kept of it is the range of its timeStampIDs;
+ * its superstates and timeStamps are materialised from the frameStore when it is expanded, and dropped again when it is collapsed.
+ * When a project has more than {@code capsim.timeStampView.pageSize} periods (default 100), the periods are grouped into pages
+ * of that many, which are themselves materialised only when expanded.
  */
 
 public class TimeStampView extends TreeView<TimeStamp> {
 	static final Logger logger = LogManager.getLogger("TimeStampView");
 	PseudoClass subElementPseudoClass = PseudoClass.getPseudoClass("sub-tree-item");
 
+	private static final int PAGE_SIZE = Integer.getInteger("capsim.timeStampView.pageSize", 100);
+
+	// the project displayed, and the last frame added to the tree. If this frame is no longer in the frameStore, the history has been cut back
+	private int projectID = -1;
+	private int lastTimeStampID = 0;
+	private Frame lastFrame = null;
+
+	// the first and last timeStampID of each period in the project
+	private final TreeMap<Integer, int[]> periodIndex = new TreeMap<Integer, int[]>();
+
+	// the period items that currently exist, and the page items, indexed by their first period
+	private final Map<Integer, PeriodItem> periodItems = new HashMap<Integer, PeriodItem>();
+	private final Map<Integer, PageItem> pageItems = new HashMap<Integer, PageItem>();
+	private boolean paged = false;
+	private int currentPeriod = 0;
+
+	// set while the tree itself changes the selection, so that this is not mistaken for a choice by the user
+	private boolean adjusting = false;
+
 	public TimeStampView() {
 		super();
 		setCellFactory(tv -> {
@@ -64,9 +106,338 @@ public class TimeStampView extends TreeView<TimeStamp> {
 		getSelectionModel().selectedItemProperty().addListener(new ChangeListener<TreeItem<TimeStamp>>() {
 			@Override public void changed(ObservableValue<? extends TreeItem<TimeStamp>> observable, TreeItem<TimeStamp> oldValue,
 					TreeItem<TimeStamp> newValue) {
+				if (adjusting || newValue == null)
+					return;
 				TimeStamp selectedTimeStamp=newValue.getValue();
 				ViewManager.viewTimeStamp(selectedTimeStamp);
 				}
 		});
+
+		// right-clicking a timeStamp selects it, so these act on the timeStamp being viewed
+		MenuItem forkItem = new MenuItem("Branch a new project from here");
+		forkItem.setOnAction(new EventHandler<ActionEvent>() {
+			@Override public void handle(ActionEvent event) {
+				ViewManager.forkProject();
+			}
+		});
+		MenuItem rewindItem = new MenuItem("Rewind to here");
+		rewindItem.setOnAction(new EventHandler<ActionEvent>() {
+			@Override public void handle(ActionEvent event) {
+				ViewManager.rewindProject();
+			}
+		});
+		MenuItem goToItem = new MenuItem("Go to period...");
+		goToItem.setOnAction(new EventHandler<ActionEvent>() {
+			@Override public void handle(ActionEvent event) {
+				askForPeriod();
+			}
+		});
+		setContextMenu(new ContextMenu(rewindItem, forkItem, goToItem));
+	}
+
+	/**
+	 * bring the tree up to date with the current project. Only the timeStamps added since the last refresh are processed,
+	 * unless the project has changed or its history has been cut back, in which case the tree is rebuilt.
+	 */
+	public void refresh() {
+		int currentProjectID = Simulation.projectIDCurrent();
+		if (currentProjectID != projectID || (lastFrame != null && FrameStore.frame(projectID, lastTimeStampID) != lastFrame)) {
+			rebuild(currentProjectID);
+			return;
+		}
+		append(FrameStore.framesAfter(projectID, lastTimeStampID));
+	}
+
+	/**
+	 * discard the tree and build it again from the frames of the given project
+	 * 
+	 * @param newProjectID
+	 *            the project to display
+	 */
+	private void rebuild(int newProjectID) {
+		logger.debug("Rebuilding the timeStamp tree for project {}", newProjectID);
+		projectID = newProjectID;
+		lastTimeStampID = 0;
+		lastFrame = null;
+		currentPeriod = 0;
+		periodIndex.clear();
+		periodItems.clear();
+		pageItems.clear();
+
+		// the root, which is not displayed, contains an observed timeStamp with ID = -1, which is not persisted (hence the ID causes no conflicts)
+		adjusting = true;
+		setRoot(new TimeStampViewItem(new TimeStamp(-1, 1, 0, "", -1, "Start")));
+		adjusting = false;
+
+		// index the whole history first, so we know whether it has to be paged
+		for (Frame frame : FrameStore.frames(projectID))
+			index(frame);
+		paged = periodIndex.size() > PAGE_SIZE;
+		for (Integer period : periodIndex.keySet())
+			addPeriod(period);
+		showCurrentPeriod();
+	}
+
+	/**
+	 * add the timeStamps of the given frames, which follow every timeStamp already in the tree
+	 * 
+	 * @param frames
+	 *            the new frames, in timeStamp order
+	 */
+	private void append(Collection<Frame> frames) {
+		for (Frame frame : frames) {
+			int period = frame.getTimeStamp().getPeriod();
+			boolean newPeriod = !periodIndex.containsKey(period);
+			index(frame);
+			if (newPeriod) {
+				if (!paged && periodIndex.size() > PAGE_SIZE) {
+					// the project has just become too long to show all its periods at once
+					rebuild(projectID);
+					return;
+				}
+				addPeriod(period);
+			} else {
+				PeriodItem periodItem = periodItems.get(period);
+				if (periodItem != null)
+					periodItem.add(frame.getTimeStamp());
+			}
+		}
+		showCurrentPeriod();
+	}
+
+	/**
+	 * record the timeStamp of the given frame in the period index
+	 * 
+	 * @param frame
+	 *            a frame which follows every frame already indexed
+	 */
+	private void index(Frame frame) {
+		int timeStampID = frame.getTimeStampID();
+		int[] range = periodIndex.get(frame.getTimeStamp().getPeriod());
+		if (range == null)
+			periodIndex.put(frame.getTimeStamp().getPeriod(), new int[] { timeStampID, timeStampID });
+		else
+			range[1] = timeStampID;
+		lastTimeStampID = timeStampID;
+		lastFrame = frame;
+	}
+
+	/**
+	 * add a node for a period which has been added to the index. If the tree is paged, the node is only created if its page has been materialised
+	 * 
+	 * @param period
+	 *            the period to add
+	 */
+	private void addPeriod(int period) {
+		if (!paged) {
+			PeriodItem periodItem = new PeriodItem(period);
+			periodItems.put(period, periodItem);
+			getRoot().getChildren().add(periodItem);
+			return;
+		}
+		int first = firstPeriodOfPage(period);
+		PageItem pageItem = pageItems.get(first);
+		if (pageItem == null) {
+			pageItem = new PageItem(first);
+			pageItems.put(first, pageItem);
+			getRoot().getChildren().add(pageItem);
+		}
+		pageItem.add(period);
+	}
+
+	private static int firstPeriodOfPage(int period) {
+		return ((period - 1) / PAGE_SIZE) * PAGE_SIZE + 1;
+	}
+
+	/**
+	 * expand the latest period and close up the period that was previously the latest, as the tree did when it was rebuilt at every step
+	 */
+	private void showCurrentPeriod() {
+		if (periodIndex.isEmpty() || periodIndex.lastKey() == currentPeriod)
+			return;
+		int previousPeriod = currentPeriod;
+		currentPeriod = periodIndex.lastKey();
+		adjusting = true;
+		getSelectionModel().clearSelection();
+		PeriodItem previous = periodItems.get(previousPeriod);
+		if (previous != null)
+			previous.setExpanded(false);
+		if (paged) {
+			PageItem previousPage = pageItems.get(firstPeriodOfPage(previousPeriod));
+			PageItem page = pageItems.get(firstPeriodOfPage(currentPeriod));
+			if (previousPage != null && previousPage != page)
+				previousPage.setExpanded(false);
+			page.setExpanded(true);
+		}
+		periodItems.get(currentPeriod).setExpanded(true);
+		adjusting = false;
+	}
+
+	/**
+	 * ask the user for a period and go to it
+	 */
+	private void askForPeriod() {
+		TextInputDialog dialog = new TextInputDialog(Integer.toString(currentPeriod));
+		dialog.setTitle("Go to period");
+		dialog.setHeaderText(null);
+		dialog.setContentText("Period:");
+		Optional<String> answer = dialog.showAndWait();
+		if (!answer.isPresent())
+			return;
+		try {
+			goToPeriod(Integer.parseInt(answer.get().trim()));
+		} catch (NumberFormatException e) {
+			Dialogues.alert(logger, "%s is not a period number", answer.get());
+		}
+	}
+
+	/**
+	 * expand the given period, and the page that contains it, and scroll it into view
+	 * 
+	 * @param period
+	 *            the period to show
+	 */
+	public void goToPeriod(int period) {
+		if (!periodIndex.containsKey(period)) {
+			Dialogues.alert(logger, "This project has no period %d", period);
+			return;
+		}
+		if (paged)
+			pageItems.get(firstPeriodOfPage(period)).setExpanded(true);
+		PeriodItem periodItem = periodItems.get(period);
+		periodItem.setExpanded(true);
+		scrollTo(getRow(periodItem));
+	}
+
+	/**
+	 * A node for one period, whose contents are taken from the frameStore when it is expanded and dropped when it is collapsed.
+	 * It contains a node for every superstate, even those the simulation has not reached yet, and each superstate node
+	 * contains the timeStamps reached so far.
+	 */
+	private class PeriodItem extends TimeStampViewItem {
+		private final int period;
+		private final Map<String, TreeItem<TimeStamp>> superStateItems = new HashMap<String, TreeItem<TimeStamp>>();
+		private boolean loaded = false;
+
+		PeriodItem(int period) {
+			super(new TimeStamp(1, projectID, period, "", -1, String.format("Period %d", period)));
+			this.period = period;
+			setExpanded(false);
+			expandedProperty().addListener((observable, wasExpanded, isExpanded) -> {
+				if (isExpanded)
+					load();
+				else
+					unload();
+			});
+		}
+
+		@Override public boolean isLeaf() {
+			return false;
+		}
+
+		private void load() {
+			if (loaded)
+				return;
+			loaded = true;
+			List<TreeItem<TimeStamp>> children = new ArrayList<TreeItem<TimeStamp>>();
+			for (ActionStates a : ActionStates.values()) {
+				if (a.superAction == null) { // it's not a baby
+					TimeStampViewItem superStateItem = new TimeStampViewItem(new TimeStamp(-1, projectID, period, a.text(), -1, a.text()));
+					superStateItems.put(a.text(), superStateItem);
+					children.add(superStateItem);
+				}
+			}
+			getChildren().setAll(children);
+			int[] range = periodIndex.get(period);
+			for (Frame frame : FrameStore.frames(projectID, range[0], range[1]))
+				add(frame.getTimeStamp());
+		}
+
+		private void unload() {
+			if (!loaded)
+				return;
+			loaded = false;
+			superStateItems.clear();
+			getChildren().clear();
+		}
+
+		/**
+		 * add a timeStamp of this period to the node of its superstate, if the period has been materialised
+		 * 
+		 * @param timeStamp
+		 *            the timeStamp to add
+		 */
+		void add(TimeStamp timeStamp) {
+			if (!loaded || timeStamp.getPeriod() != period)
+				return;
+			TreeItem<TimeStamp> superStateItem = superStateItems.get(timeStamp.getSuperState());
+			if (superStateItem == null)
+				return;
+			superStateItem.getChildren().add(new TimeStampViewItem(timeStamp));
+
+			// if the user opts to view a superstate, the tabbedTables will display the data from the last executed component action (child)
+			superStateItem.getValue().setTimeStampID(timeStamp.getTimeStampID());
+		}
+	}
+
+	/**
+	 * A node for a page of consecutive periods, whose period nodes are only created when it is expanded
+	 */
+	private class PageItem extends TimeStampViewItem {
+		private final int first;
+		private boolean loaded = false;
+
+		PageItem(int first) {
+			// the ID of -1 means that selecting a page does not change the timeStamp being viewed
+			super(new TimeStamp(-1, projectID, first, "", -1, String.format("Periods %d to %d", first, first + PAGE_SIZE - 1)));
+			this.first = first;
+			setExpanded(false);
+			expandedProperty().addListener((observable, wasExpanded, isExpanded) -> {
+				if (isExpanded)
+					load();
+				else
+					unload();
+			});
+		}
+
+		@Override public boolean isLeaf() {
+			return false;
+		}
+
+		private void load() {
+			if (loaded)
+				return;
+			loaded = true;
+			List<TreeItem<TimeStamp>> children = new ArrayList<TreeItem<TimeStamp>>();
+			for (Integer period : periodIndex.subMap(first, true, first + PAGE_SIZE - 1, true).keySet()) {
+				PeriodItem periodItem = new PeriodItem(period);
+				periodItems.put(period, periodItem);
+				children.add(periodItem);
+			}
+			getChildren().setAll(children);
+		}
+
+		private void unload() {
+			if (!loaded)
+				return;
+			loaded = false;
+			for (TreeItem<TimeStamp> child : getChildren())
+				periodItems.remove(child.getValue().getPeriod());
+			getChildren().clear();
+		}
+
+		/**
+		 * add a node for a new period to this page, if the page has been materialised
+		 * 
+		 * @param period
+		 *            the new period
+		 */
+		void add(int period) {
+			if (!loaded)
+				return;
+			PeriodItem periodItem = new PeriodItem(period);
+			periodItems.put(period, periodItem);
+			getChildren().add(periodItem);
+		}
 	}
 }
@@ -23,6 +23,7 @@ import org.apache.logging.log4j.Logger;
 
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.ViewManager;
+import capitalism.view.tables.CellCache;
 import capitalism.controller.Simulation;
 import capitalism.model.Stock;
 import javafx.beans.value.ChangeListener;
@@ -191,6 +192,7 @@ public class TrackingControlsBox extends VBox {
 						logger.error("Unknown radio button {} selected ");
 						break;
 					}
+					CellCache.invalidate();
 					TabbedTableViewer.refreshTables();
 				}
 			}
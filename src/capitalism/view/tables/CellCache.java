@@ -0,0 +1,217 @@
+/*
+ *  Copyright (C) Alan Freeman 2017-2019
+ *  
+ *  This file is part of the Capitalism Simulation, abbreviated to CapSim
+ *  in the remainder of this project
+ *
+ *  Capsim is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either project 3 of the License, or
+ *  (at your option) any later project.
+*
+*   Capsim is distributed in the hope that it will be useful,
+*   but WITHOUT ANY WARRANTY; without even the implied warranty of
+*   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*   GNU General Public License for more details.
+*
+*   You should have received a copy of the GNU General Public License
+*   along with Capsim.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package capitalism.view.tables;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import capitalism.controller.SimulationExecutor;
+import capitalism.model.Stock;
+import capitalism.view.TabbedTableViewer;
+import capitalism.view.custom.TrackingControlsBox;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+/**
+ * The formatted contents of one column's cells, so that each is formatted once for each frame that is displayed rather than each time the
+ * table draws it. Scrolling, resizing and redrawing a table then cost no formatting, no wrapper objects and no searches for stocks.
+ * 
+ * An entry is kept for each entity, for each {@link Stock.VALUE_EXPRESSION} and for each setting of the deltas display, so that switching
+ * between quantities, values and prices, or in and out of deltas, finds the formats it made last time. Everything else that changes what
+ * a cell shows (the frame displayed, the number of decimals, whether values are shown as time or money, and the comparator) makes the whole
+ * cache out of date; {@link #invalidate()} is called when any of these changes.
+ * 
+ * Formatting reads the display settings, the comparator and the frames, all of which belong to the JavaFX Application Thread, so the cache
+ * is only used on that thread. This includes {@link #prefill(List)}, which formats in short slices between the events the thread handles.
+ * 
+ * @param <T>
+ *            the entity type of the column's table
+ */
+public class CellCache<T> {
+	// if true, the cells of all the tables are formatted, while the user interface is otherwise idle, as soon as a frame is displayed
+	private static final boolean prefill = !Boolean.getBoolean("capsim.cellCache.noPrefill");
+
+	// the longest time for which a prefill holds the JavaFX Application Thread before letting it handle other events
+	private static final long SLICE_NANOS = 5000000L;
+
+	private static final int SLOTS = Stock.VALUE_EXPRESSION.values().length * 2;
+
+	// incremented whenever every cache is out of date; each cache empties itself lazily when it finds it has changed
+	private static int generation = 0;
+
+	// incremented whenever a prefill starts, so that a prefill for earlier settings stops
+	private static int prefilling = 0;
+
+	/**
+	 * What a column displays for one entity
+	 */
+	public static class Entry {
+		private final ReadOnlyStringWrapper value;
+		private final String shown;
+		private final boolean changed;
+
+		/**
+		 * @param value
+		 *            the formatted magnitude, which may be null if the entity has nothing to display in this column
+		 * @param shown
+		 *            the text to display: the value, or its change since the comparator if deltas are displayed
+		 * @param changed
+		 *            true if the magnitude differs from the comparator's
+		 */
+		public Entry(String value, String shown, boolean changed) {
+			this.value = value == null ? null : new ReadOnlyStringWrapper(value);
+			this.shown = shown;
+			this.changed = changed;
+		}
+
+		/**
+		 * @return the cell value, as supplied to the table by the column's cell value factory
+		 */
+		public ReadOnlyStringWrapper getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the text to display
+		 */
+		public String getShown() {
+			return shown;
+		}
+
+		/**
+		 * @return true if the magnitude has changed since the comparator
+		 */
+		public boolean isChanged() {
+			return changed;
+		}
+	}
+
+	/**
+	 * A column whose cells are cached
+	 * 
+	 * @param <T>
+	 *            the entity type of the column's table
+	 */
+	public interface Cached<T> {
+		CellCache<T> cellCache();
+	}
+
+	private final Function<T, Entry> format;
+	private final IdentityHashMap<T, Entry[]> entries = new IdentityHashMap<T, Entry[]>();
+	private int filledGeneration = generation;
+
+	/**
+	 * @param format
+	 *            formats an entity for display in the column, with the current display settings
+	 */
+	public CellCache(Function<T, Entry> format) {
+		this.format = format;
+	}
+
+	/**
+	 * @param entity
+	 *            an entity displayed in the column
+	 * @return what the column displays for the entity, formatting it now if this has not already been done
+	 */
+	public Entry get(T entity) {
+		if (filledGeneration != generation) {
+			entries.clear();
+			filledGeneration = generation;
+		}
+		Entry[] slots = entries.get(entity);
+		if (slots == null) {
+			slots = new Entry[SLOTS];
+			entries.put(entity, slots);
+		}
+		int slot = TabbedTableViewer.displayAttribute.ordinal() * 2 + (TrackingControlsBox.displayDeltas ? 1 : 0);
+		Entry entry = slots[slot];
+		if (entry == null) {
+			entry = format.apply(entity);
+			slots[slot] = entry;
+		}
+		return entry;
+	}
+
+	/**
+	 * make every cached cell out of date, because something that changes what it displays has changed
+	 */
+	public static void invalidate() {
+		generation++;
+	}
+
+	/**
+	 * Format every cell of the given tables, with the current display settings, so that the tables do not have to format them as they are
+	 * scrolled into view. The work is done on the JavaFX Application Thread, a few columns at a time, so the display stays responsive.
+	 * It stops if the caches are invalidated, if another prefill starts because a display setting has changed, or if a command starts
+	 * running, since the frame displayed will soon be replaced; and it is not attempted at all while a command is running.
+	 * 
+	 * @param tables
+	 *            the tables whose cells should be formatted
+	 */
+	public static void prefill(List<TableView<?>> tables) {
+		int run = ++prefilling;
+		if (!prefill || SimulationExecutor.isRunning())
+			return;
+		List<Runnable> work = new ArrayList<Runnable>();
+		for (TableView<?> table : tables) {
+			addWork(table, work);
+		}
+		Iterator<Runnable> columns = work.iterator();
+		int started = generation;
+		Platform.runLater(() -> prefillSlice(columns, run, started));
+	}
+
+	// format columns until the slice is used up, then leave the rest until the thread has handled whatever else is waiting
+	private static void prefillSlice(Iterator<Runnable> columns, int run, int started) {
+		long end = System.nanoTime() + SLICE_NANOS;
+		while (columns.hasNext()) {
+			if (run != prefilling || generation != started || SimulationExecutor.isRunning())
+				return;
+			columns.next().run();
+			if (System.nanoTime() > end) {
+				Platform.runLater(() -> prefillSlice(columns, run, started));
+				return;
+			}
+		}
+	}
+
+	// one task for each cached column of the table, formatting the rows the table displays now
+	private static <S> void addWork(TableView<S> table, List<Runnable> work) {
+		List<S> rows = new ArrayList<S>(table.getItems());
+		List<TableColumn<S, ?>> columns = new ArrayList<TableColumn<S, ?>>(table.getColumns());
+		for (int i = 0; i < columns.size(); i++) {
+			TableColumn<S, ?> column = columns.get(i);
+			columns.addAll(column.getColumns());
+			if (column instanceof Cached) {
+				@SuppressWarnings("unchecked") CellCache<S> cache = ((Cached<S>) column).cellCache();
+				work.add(() -> {
+					for (S row : rows) {
+						cache.get(row);
+					}
+				});
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ package capitalism.view.tables;
 
 import capitalism.model.Commodity;
 import capitalism.view.TableUtilities;
+import capitalism.view.custom.TrackingControlsBox;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.util.Callback;
@@ -32,7 +33,9 @@ import javafx.util.Callback;
  * The data items delivered to the parent TableView for display in its cells are always strings;
  * the type conversion is handled by the Industry class.
  */
-public class CommodityColumn extends TableColumn<Commodity, String> {
+public class CommodityColumn extends TableColumn<Commodity, String> implements CellCache.Cached<Commodity> {
+	private final CellCache<Commodity> cellCache;
+
 	/**
 	 * Produces a column to be displayed in a Commodity table({@code TableView<Commodity,String>}), whose value is a fixed field in a {@code Commodity} bean
 	 * that is chosen by the {@code selector} enum. Use the enum to set the header text and graphic, and prepare the column header so its graphic is switchable.
@@ -46,16 +49,27 @@ public class CommodityColumn extends TableColumn<Commodity, String> {
 	 */
 	public CommodityColumn(Commodity.COMMODITY_ATTRIBUTE commodity_attribute, boolean alignedLeft) {
 		super(commodity_attribute.text());
+		cellCache = new CellCache<Commodity>(commodity -> {
+			String value = commodity.formattedString(commodity_attribute);
+			if (value == null)
+				return new CellCache.Entry(null, null, false);
+			String shown = TrackingControlsBox.displayDeltas ? commodity.showDelta(value, commodity_attribute) : value;
+			return new CellCache.Entry(value, shown, commodity.changed(commodity_attribute));
+		});
 		setCellFactory(new Callback<TableColumn<Commodity, String>, TableCell<Commodity, String>>() {
 			@Override public TableCell<Commodity, String> call(TableColumn<Commodity, String> col) {
-				return new CommodityTableCell(commodity_attribute);
+				return new CommodityTableCell(commodity_attribute, cellCache);
 			}
 		});
-		setCellValueFactory(cellData -> cellData.getValue().wrappedString(commodity_attribute));
+		setCellValueFactory(cellData -> cellCache.get(cellData.getValue()).getValue());
 
 		// tailor the visual appearance of the column header
 		if (!alignedLeft)
 			getStyleClass().add("table-column-right");
 		TableUtilities.addGraphicToColummnHeader(this, commodity_attribute.imageName(), commodity_attribute.tooltip());
 	}
+
+	@Override public CellCache<Commodity> cellCache() {
+		return cellCache;
+	}
 }
@@ -34,8 +34,11 @@ public class CommodityTableCell extends TableCell<Commodity, String> {
 
 	Commodity.COMMODITY_ATTRIBUTE commodity_attribute;
 
-	public CommodityTableCell(Commodity.COMMODITY_ATTRIBUTE commodity_attribute) {
+	CellCache<Commodity> cellCache;
+
+	public CommodityTableCell(Commodity.COMMODITY_ATTRIBUTE commodity_attribute, CellCache<Commodity> cellCache) {
 		this.commodity_attribute = commodity_attribute;
+		this.cellCache = cellCache;
 	}
 
 	@Override protected void updateItem(String item, boolean empty) {
@@ -53,9 +56,11 @@ public class CommodityTableCell extends TableCell<Commodity, String> {
 			setText("-");
 			return;
 		}
+		CellCache.Entry entry = cellCache.get(commodity);
 		String deltaModifier="";
 		
-		if (commodity.changed(commodity_attribute)) {
+		setTextFill(Color.BLACK);
+		if (entry.isChanged()) {
 			setTextFill(Color.RED);
 			deltaModifier=(TrackingControlsBox.displayDeltas?ViewManager.deltaSymbol:"");
 		}
@@ -64,7 +69,7 @@ public class CommodityTableCell extends TableCell<Commodity, String> {
 		String quantityModifier=deltaModifier;
 		
 		if(TrackingControlsBox.displayDeltas) {
-			item=commodity.showDelta(item, commodity_attribute);
+			item=entry.getShown();
 		}
 		switch (commodity_attribute) {
 		case ALLOCATIONSHARE:
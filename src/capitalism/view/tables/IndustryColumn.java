@@ -22,8 +22,10 @@ package capitalism.view.tables;
 import capitalism.controller.Simulation;
 import capitalism.model.Commodity;
 import capitalism.model.Industry;
+import capitalism.model.Stock;
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.TableUtilities;
+import capitalism.view.custom.TrackingControlsBox;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.util.Callback;
@@ -35,7 +37,8 @@ import javafx.util.Callback;
  * the type conversion is handled by the Industry class.
 
  */
-public class IndustryColumn extends TableColumn<Industry, String> {
+public class IndustryColumn extends TableColumn<Industry, String> implements CellCache.Cached<Industry> {
+	private final CellCache<Industry> cellCache;
 
 	/**
 	 * Produces a column to be displayed in a Industry table({@code TableView<Industry,String>}), whose value is a fixed field in a {@code Industry} bean
@@ -48,12 +51,20 @@ public class IndustryColumn extends TableColumn<Industry, String> {
 	 */
 	public IndustryColumn(Industry.INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE, boolean alignedLeft) {
 		super(iNDUSTRY_ATTRIBUTE.text());
+		cellCache = new CellCache<Industry>(industry -> {
+			Stock.VALUE_EXPRESSION valueExpression = TabbedTableViewer.displayAttribute;
+			String value = industry.formattedString(iNDUSTRY_ATTRIBUTE, valueExpression);
+			if (value == null)
+				return new CellCache.Entry(null, null, false);
+			String shown = TrackingControlsBox.displayDeltas ? industry.showDelta(value, iNDUSTRY_ATTRIBUTE, valueExpression) : value;
+			return new CellCache.Entry(value, shown, industry.changed(iNDUSTRY_ATTRIBUTE, valueExpression));
+		});
 		setCellFactory(new Callback<TableColumn<Industry, String>, TableCell<Industry, String>>() {
 			@Override public TableCell<Industry, String> call(TableColumn<Industry, String> col) {
-				return new IndustryTableCell(iNDUSTRY_ATTRIBUTE);
+				return new IndustryTableCell(iNDUSTRY_ATTRIBUTE, cellCache);
 			}
 		});
-		setCellValueFactory(cellData -> cellData.getValue().wrappedString(iNDUSTRY_ATTRIBUTE, TabbedTableViewer.displayAttribute));
+		setCellValueFactory(cellData -> cellCache.get(cellData.getValue()).getValue());
 
 		// tailor the visual appearance of the column header
 
@@ -75,13 +86,22 @@ public class IndustryColumn extends TableColumn<Industry, String> {
 
 	public IndustryColumn(Commodity commodity) {
 		String productiveStockName=commodity.name();
+		cellCache = new CellCache<Industry>(industry -> {
+			String value = industry.formattedString(productiveStockName);
+			Stock stock = Stock.singleProductive(Simulation.projectIDCurrent(), Simulation.timeStampDisplayCursor(), industry.name(), productiveStockName);
+			if (value == null || stock == null)
+				return new CellCache.Entry(value, value, false);
+			Stock.VALUE_EXPRESSION valueExpression = TabbedTableViewer.displayAttribute;
+			String shown = TrackingControlsBox.displayDeltas ? stock.showDelta(value, valueExpression) : value;
+			return new CellCache.Entry(value, shown, stock.changed(valueExpression));
+		});
 		setCellFactory(new Callback<TableColumn<Industry, String>, TableCell<Industry, String>>() {
 			@Override public TableCell<Industry, String> call(TableColumn<Industry, String> col) {
-				return new IndustryTableStockCell(productiveStockName);
+				return new IndustryTableStockCell(productiveStockName, cellCache);
 			}
 		});
 		setText(productiveStockName);
-		setCellValueFactory(cellData -> cellData.getValue().wrappedString(productiveStockName));
+		setCellValueFactory(cellData -> cellCache.get(cellData.getValue()).getValue());
 
 		// tailor the visual appearance of the column header
 
@@ -90,4 +110,8 @@ public class IndustryColumn extends TableColumn<Industry, String> {
 		Commodity stockCommodity = Commodity.single(Simulation.projectIDCurrent(), Simulation.timeStampIDCurrent(), productiveStockName);
 		TableUtilities.addGraphicToColummnHeader(this, stockCommodity.getImageName(), commodity.getToolTip());
 	}
+
+	@Override public CellCache<Industry> cellCache() {
+		return cellCache;
+	}
 }
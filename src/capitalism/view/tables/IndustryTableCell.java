@@ -35,8 +35,11 @@ public class IndustryTableCell extends TableCell<Industry, String> {
 
 	Industry.INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE;
 
-	public IndustryTableCell(Industry.INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE) {
+	CellCache<Industry> cellCache;
+
+	public IndustryTableCell(Industry.INDUSTRY_ATTRIBUTE iNDUSTRY_ATTRIBUTE, CellCache<Industry> cellCache) {
 		this.iNDUSTRY_ATTRIBUTE = iNDUSTRY_ATTRIBUTE;
+		this.cellCache = cellCache;
 	}
 
 	@Override protected void updateItem(String item, boolean empty) {
@@ -51,9 +54,11 @@ public class IndustryTableCell extends TableCell<Industry, String> {
 			return;
 		}
 		
+		CellCache.Entry entry = cellCache.get(industry);
 		String deltaModifier="";
 		
-		if (industry.changed(iNDUSTRY_ATTRIBUTE,TabbedTableViewer.displayAttribute)) {
+		setTextFill(Color.BLACK);
+		if (entry.isChanged()) {
 			setTextFill(Color.RED);
 			deltaModifier=(TrackingControlsBox.displayDeltas?ViewManager.deltaSymbol:"");
 		}
@@ -62,7 +67,7 @@ public class IndustryTableCell extends TableCell<Industry, String> {
 		String quantityModifier=deltaModifier;
 		
 		if(TrackingControlsBox.displayDeltas) {
-			item=industry.showDelta(item, iNDUSTRY_ATTRIBUTE,TabbedTableViewer.displayAttribute);
+			item=entry.getShown();
 		}
 
 		switch (iNDUSTRY_ATTRIBUTE) {
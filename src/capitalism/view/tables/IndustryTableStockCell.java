@@ -22,9 +22,7 @@ package capitalism.view.tables;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import capitalism.controller.Simulation;
 import capitalism.model.Industry;
-import capitalism.model.Stock;
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.ViewManager;
 import capitalism.view.custom.DisplayControlsBox;
@@ -37,8 +35,11 @@ public class IndustryTableStockCell extends TableCell<Industry, String> {
 
 	String stockValueUseName;
 
-	public IndustryTableStockCell(String stockUseValueName) {
+	CellCache<Industry> cellCache;
+
+	public IndustryTableStockCell(String stockUseValueName, CellCache<Industry> cellCache) {
 		this.stockValueUseName = stockUseValueName;
+		this.cellCache = cellCache;
 	}
 
 	@Override protected void updateItem(String item, boolean empty) {
@@ -50,11 +51,11 @@ public class IndustryTableStockCell extends TableCell<Industry, String> {
 			logger.debug(" Null Industry");
 			return;
 		}
-		Stock theStock = Stock.singleProductive(Simulation.projectIDCurrent(), Simulation.timeStampDisplayCursor(), industry.name(), stockValueUseName);
-		
+		CellCache.Entry entry = cellCache.get(industry);
 		String deltaModifier="";
 		
-		if (theStock.changed(TabbedTableViewer.displayAttribute)) {
+		setTextFill(Color.BLACK);
+		if (entry.isChanged()) {
 			setTextFill(Color.RED);
 			deltaModifier=(TrackingControlsBox.displayDeltas?ViewManager.deltaSymbol:"");
 		}
@@ -63,7 +64,7 @@ public class IndustryTableStockCell extends TableCell<Industry, String> {
 		String quantityModifier=deltaModifier;
 		
 		if(TrackingControlsBox.displayDeltas) {
-			item=theStock.showDelta(item,TabbedTableViewer.displayAttribute);
+			item=entry.getShown();
 		}
 		
 		switch (TabbedTableViewer.displayAttribute) {
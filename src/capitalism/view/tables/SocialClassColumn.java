@@ -23,8 +23,10 @@ package capitalism.view.tables;
 import capitalism.controller.Simulation;
 import capitalism.model.Commodity;
 import capitalism.model.SocialClass;
+import capitalism.model.Stock;
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.TableUtilities;
+import capitalism.view.custom.TrackingControlsBox;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.util.Callback;
@@ -36,7 +38,9 @@ import javafx.util.Callback;
  * the type conversion is handled by the Industry class.
  * TODO parameterise SocialClass so we can re-use for other data models (eg Circuits, for which the code is almost identical
  */
-public class SocialClassColumn extends TableColumn<SocialClass, String> {
+public class SocialClassColumn extends TableColumn<SocialClass, String> implements CellCache.Cached<SocialClass> {
+	private final CellCache<SocialClass> cellCache;
+
 	/**
 	 * Produces a column to be displayed in a socialClass table({@code TableView<SocialClass,String>}), whose value is a fixed field in a {@code SocialClass}
 	 * bean
@@ -49,12 +53,20 @@ public class SocialClassColumn extends TableColumn<SocialClass, String> {
 	 */
 	public SocialClassColumn(SocialClass.SOCIALCLASS_ATTRIBUTE socialClassAttribute, boolean alignedLeft) {
 		super(socialClassAttribute.text());
+		cellCache = new CellCache<SocialClass>(socialClass -> {
+			Stock.VALUE_EXPRESSION valueExpression = TabbedTableViewer.displayAttribute;
+			String value = socialClass.formattedString(socialClassAttribute, valueExpression);
+			if (value == null)
+				return new CellCache.Entry(null, null, false);
+			String shown = TrackingControlsBox.displayDeltas ? socialClass.showDelta(value, socialClassAttribute, valueExpression) : value;
+			return new CellCache.Entry(value, shown, socialClass.changed(socialClassAttribute, valueExpression));
+		});
 		setCellFactory(new Callback<TableColumn<SocialClass, String>, TableCell<SocialClass, String>>() {
 			@Override public TableCell<SocialClass, String> call(TableColumn<SocialClass, String> col) {
-				return new SocialClassTableCell(socialClassAttribute);
+				return new SocialClassTableCell(socialClassAttribute, cellCache);
 			}
 		});
-		setCellValueFactory(cellData -> cellData.getValue().wrappedString(socialClassAttribute, TabbedTableViewer.displayAttribute));
+		setCellValueFactory(cellData -> cellCache.get(cellData.getValue()).getValue());
 
 		// tailor the visual appearance of the column header
 
@@ -75,12 +87,22 @@ public class SocialClassColumn extends TableColumn<SocialClass, String> {
 
 	public SocialClassColumn(Commodity u) {
 		String consumptionStockName=u.name();
+		cellCache = new CellCache<SocialClass>(socialClass -> {
+			String value = socialClass.formattedString(consumptionStockName);
+			Stock stock = Stock.consumptionByCommodityAndClassSingle(Simulation.projectIDCurrent(), Simulation.timeStampDisplayCursor(), socialClass.name(),
+					consumptionStockName);
+			if (value == null || stock == null)
+				return new CellCache.Entry(value, value, false);
+			Stock.VALUE_EXPRESSION valueExpression = TabbedTableViewer.displayAttribute;
+			String shown = TrackingControlsBox.displayDeltas ? stock.showDelta(value, valueExpression) : value;
+			return new CellCache.Entry(value, shown, stock.changed(valueExpression));
+		});
 		setCellFactory(new Callback<TableColumn<SocialClass, String>, TableCell<SocialClass, String>>() {
 			@Override public TableCell<SocialClass, String> call(TableColumn<SocialClass, String> col) {
-				return new SocialClassTableStockCell(consumptionStockName);
+				return new SocialClassTableStockCell(consumptionStockName, cellCache);
 			}
 		});
-		setCellValueFactory(cellData -> cellData.getValue().wrappedString(consumptionStockName));
+		setCellValueFactory(cellData -> cellCache.get(cellData.getValue()).getValue());
 
 		// tailor the visual appearance of the column header
 
@@ -90,4 +112,8 @@ public class SocialClassColumn extends TableColumn<SocialClass, String> {
 		Commodity stockCommodity = Commodity.single(Simulation.projectIDCurrent(), Simulation.timeStampIDCurrent(), consumptionStockName);
 		TableUtilities.addGraphicToColummnHeader(this, stockCommodity.getImageName(), u.getToolTip());
 	}
+
+	@Override public CellCache<SocialClass> cellCache() {
+		return cellCache;
+	}
 }
@@ -35,8 +35,11 @@ public class SocialClassTableCell extends TableCell<SocialClass, String> {
 	
 	SocialClass.SOCIALCLASS_ATTRIBUTE sOCIALCLASS_ATTRIBUTE;
 	
-	public SocialClassTableCell(SocialClass.SOCIALCLASS_ATTRIBUTE sOCIALCLASS_ATTRIBUTE){
+	CellCache<SocialClass> cellCache;
+	
+	public SocialClassTableCell(SocialClass.SOCIALCLASS_ATTRIBUTE sOCIALCLASS_ATTRIBUTE, CellCache<SocialClass> cellCache){
 		this.sOCIALCLASS_ATTRIBUTE=sOCIALCLASS_ATTRIBUTE;
+		this.cellCache=cellCache;
 	}
 	
 	@Override
@@ -51,9 +54,10 @@ public class SocialClassTableCell extends TableCell<SocialClass, String> {
 			return;
 		}
 		
+		CellCache.Entry entry = cellCache.get(socialClass);
 		String deltaModifier="";
 		
-		if (socialClass.changed(sOCIALCLASS_ATTRIBUTE,TabbedTableViewer.displayAttribute)) {
+		if (entry.isChanged()) {
 			setTextFill(Color.RED);
 			deltaModifier=(TrackingControlsBox.displayDeltas?ViewManager.deltaSymbol:"");
 		}
@@ -62,10 +66,10 @@ public class SocialClassTableCell extends TableCell<SocialClass, String> {
 		String quantityModifier=deltaModifier;
 		
 		if(TrackingControlsBox.displayDeltas) {
-			item=socialClass.showDelta(item, sOCIALCLASS_ATTRIBUTE,TabbedTableViewer.displayAttribute);
+			item=entry.getShown();
 		}
 
-		setTextFill(socialClass.changed(sOCIALCLASS_ATTRIBUTE,TabbedTableViewer.displayAttribute) ? Color.RED : Color.BLACK);
+		setTextFill(entry.isChanged() ? Color.RED : Color.BLACK);
 			switch (sOCIALCLASS_ATTRIBUTE) {
 			case MONEY:
 			case CONSUMPTIONSTOCKS:
@@ -23,9 +23,7 @@ package capitalism.view.tables;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import capitalism.controller.Simulation;
 import capitalism.model.SocialClass;
-import capitalism.model.Stock;
 import capitalism.view.TabbedTableViewer;
 import capitalism.view.ViewManager;
 import capitalism.view.custom.DisplayControlsBox;
@@ -38,8 +36,11 @@ public class SocialClassTableStockCell extends TableCell<SocialClass, String> {
 
 	String stockValueUseName;
 
-	public SocialClassTableStockCell(String stockUseValueName) {
+	CellCache<SocialClass> cellCache;
+
+	public SocialClassTableStockCell(String stockUseValueName, CellCache<SocialClass> cellCache) {
 		this.stockValueUseName = stockUseValueName;
+		this.cellCache = cellCache;
 	}
 
 	@Override protected void updateItem(String item, boolean empty) {
@@ -51,11 +52,11 @@ public class SocialClassTableStockCell extends TableCell<SocialClass, String> {
 			logger.debug(" Null Industry");
 			return;
 		}
-		Stock theStock = Stock.consumptionByCommodityAndClassSingle(Simulation.projectIDcurrent(),Simulation.timeStampDisplayCursor(), socialClass.name(), stockValueUseName);
-		
+		CellCache.Entry entry = cellCache.get(socialClass);
 		String deltaModifier="";
 		
-		if (theStock.changed(TabbedTableViewer.displayAttribute)) {
+		setTextFill(Color.BLACK);
+		if (entry.isChanged()) {
 			setTextFill(Color.RED);
 			deltaModifier=(TrackingControlsBox.displayDeltas?ViewManager.deltaSymbol:"");
 		}
@@ -64,7 +65,7 @@ public class SocialClassTableStockCell extends TableCell<SocialClass, String> {
 		String quantityModifier=deltaModifier;
 		
 		if(TrackingControlsBox.displayDeltas) {
-			item=theStock.showDelta(item,TabbedTableViewer.displayAttribute);
+			item=entry.getShown();
 		}
 		
 		switch (TabbedTableViewer.displayAttribute) {
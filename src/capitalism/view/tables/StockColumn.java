@@ -33,7 +33,9 @@ import javafx.util.Callback;
 * the type conversion is handled by the Industry class.
 
 */
-public class StockColumn extends TableColumn<Stock,String>{
+public class StockColumn extends TableColumn<Stock,String> implements CellCache.Cached<Stock>{
+	private final CellCache<Stock> cellCache;
+
 	/**
 	 * Produces a column to be displayed in a Stock table({@code TableView<Stock,String>}), whose value is a fixed field in a {@code Stock} bean
 	 * that is chosen by the {@code selector} enum. Use the enum to set the header text and graphic, and prepare the column header so its graphic is switchable.
@@ -45,12 +47,16 @@ public class StockColumn extends TableColumn<Stock,String>{
 	 */
 	public StockColumn(Stock.STOCK_ATTRIBUTE stockAttribute,boolean leftAlign) {
 		super(stockAttribute.text());
+		cellCache = new CellCache<Stock>(stock -> {
+			String value = stock.formattedString(stockAttribute);
+			return new CellCache.Entry(value, value, stock.changed(stockAttribute));
+		});
 		setCellFactory(new Callback<TableColumn<Stock, String>, TableCell<Stock, String>>() {
 			@Override public TableCell<Stock, String> call(TableColumn<Stock, String> col) {
-				return new StockTableCell(stockAttribute);
+				return new StockTableCell(stockAttribute, cellCache);
 			}
 		});
-		setCellValueFactory(cellData -> cellData.getValue().wrappedString(stockAttribute));
+		setCellValueFactory(cellData -> cellCache.get(cellData.getValue()).getValue());
 
 		// tailor the visual appearance of the column header
 
@@ -58,4 +64,8 @@ public class StockColumn extends TableColumn<Stock,String>{
 		if(!leftAlign) getStyleClass().add("table-column-right");
 		TableUtilities.addGraphicToColummnHeader(this, stockAttribute.imageName(),stockAttribute.tooltip());
 	}
+
+	@Override public CellCache<Stock> cellCache() {
+		return cellCache;
+	}
 }
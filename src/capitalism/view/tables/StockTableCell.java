@@ -11,8 +11,10 @@ public class StockTableCell extends TableCell<Stock, String> {
 	static final Logger logger = LogManager.getLogger("StockTableCell");
 	
 	Stock.STOCK_ATTRIBUTE sTOCK_ATTRIBUTE;
-	public StockTableCell(Stock.STOCK_ATTRIBUTE sTOCK_ATTRIBUTE){
+	CellCache<Stock> cellCache;
+	public StockTableCell(Stock.STOCK_ATTRIBUTE sTOCK_ATTRIBUTE, CellCache<Stock> cellCache){
 		this.sTOCK_ATTRIBUTE=sTOCK_ATTRIBUTE;
+		this.cellCache=cellCache;
 	}
 	
 	@Override
@@ -28,6 +30,6 @@ public class StockTableCell extends TableCell<Stock, String> {
 			return;
 		}
 		setText(item);
-		setTextFill(stock.changed(sTOCK_ATTRIBUTE) ? Color.RED : Color.BLACK);
+		setTextFill(cellCache.get(stock).isChanged() ? Color.RED : Color.BLACK);
 	}
 }